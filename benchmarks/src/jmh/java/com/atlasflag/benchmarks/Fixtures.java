@@ -0,0 +1,79 @@
+package com.atlasflag.benchmarks;
+
+import com.atlasflag.core.Targeting;
+import com.atlasflag.domain.FeatureFlag;
+import com.atlasflag.domain.FlagVariant;
+import com.atlasflag.domain.TargetingClause;
+import com.atlasflag.domain.TargetingRule;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Flags and users shared by the benchmarks, shaped like a typical environment: mostly
+ * plain rollouts, every fourth flag with targeting rules and every tenth with variants.
+ */
+final class Fixtures {
+    
+    static final String ENVIRONMENT = "bench";
+    static final int USERS = 4096; // power of two, see Users
+    static final Map<String, String> ATTRIBUTES = Map.of("country", "DE", "plan", "pro", "appVersion", "4.2.1");
+    
+    private Fixtures() {
+    }
+    
+    static String flagKey(int i) {
+        return "flag-" + i;
+    }
+    
+    static String[] userIds() {
+        String[] users = new String[USERS];
+        for (int i = 0; i < USERS; i++) {
+            users[i] = "user-" + (100_000 + i * 7919);
+        }
+        return users;
+    }
+    
+    static List<FeatureFlag> flags(int count) {
+        List<FeatureFlag> flags = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            flags.add(flag(i));
+        }
+        return flags;
+    }
+    
+    static FeatureFlag flag(int i) {
+        FeatureFlag flag = new FeatureFlag();
+        flag.setId((long) i + 1);
+        flag.setFlagKey(flagKey(i));
+        flag.setName("Flag " + i);
+        flag.setDescription("Benchmark flag " + i);
+        flag.setEnvironment(ENVIRONMENT);
+        flag.setEnabled(true);
+        flag.setDefaultValue(false);
+        flag.setRolloutPercentage(BigDecimal.valueOf(25 + i % 50).setScale(2));
+        if (i % 4 == 0) {
+            flag.setTargetingRules(List.of(
+                new TargetingRule("rule-" + i + "-a", List.of(
+                    new TargetingClause("country", Targeting.Operator.IN, List.of("US", "CA", "MX"), false),
+                    new TargetingClause("plan", Targeting.Operator.EQUALS, List.of("enterprise"), false)), true),
+                new TargetingRule("rule-" + i + "-b", List.of(
+                    new TargetingClause("appVersion", Targeting.Operator.SEMVER_RANGE, List.of(">=4.0.0 <5.0.0"),
+                        false)), true)));
+        }
+        if (i % 10 == 0) {
+            flag.setVariants(List.of(
+                new FlagVariant("control", JsonNodeFactory.instance.textNode("blue"), new BigDecimal("50.00")),
+                new FlagVariant("treatment", JsonNodeFactory.instance.textNode("green"), new BigDecimal("50.00"))));
+        }
+        flag.setCreatedBy("benchmark");
+        flag.setCreatedAt(Instant.parse("2024-01-01T00:00:00Z"));
+        flag.setUpdatedAt(Instant.parse("2024-01-01T00:00:00Z"));
+        flag.setVersion(1L);
+        return flag;
+    }
+}
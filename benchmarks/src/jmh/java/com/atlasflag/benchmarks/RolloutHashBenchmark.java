@@ -0,0 +1,73 @@
+package com.atlasflag.benchmarks;
+
+import com.atlasflag.core.Evaluation;
+import com.atlasflag.core.FlagRule;
+import com.atlasflag.core.RolloutHash;
+import com.atlasflag.core.Segment;
+import com.atlasflag.core.Targeting;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-user hashing in core: rollout and variant buckets, segment hashes and lookups, and
+ * a full evaluation of a rollout flag, which adds the rule logic on top of the hash.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RolloutHashBenchmark {
+    
+    private static final String FLAG_KEY = "checkout-redesign";
+    
+    private FlagRule rolloutRule;
+    private Segment segment;
+    
+    @Setup
+    public void setUp() {
+        rolloutRule = new FlagRule(FLAG_KEY, true, false, new BigDecimal("37.50"), Targeting.NONE, 1L);
+        Segment.Builder builder = new Segment.Builder();
+        for (int i = 0; i < 1_000_000; i++) {
+            builder.add("member-" + i);
+        }
+        segment = builder.build("beta", 1L);
+    }
+    
+    @Benchmark
+    public int rolloutBucket(Users users) {
+        return RolloutHash.bucket(FLAG_KEY, users.next());
+    }
+    
+    @Benchmark
+    public int variantBucket(Users users) {
+        return RolloutHash.variantBucket(FLAG_KEY, users.next());
+    }
+    
+    @Benchmark
+    public long segmentHash(Users users) {
+        return Segment.hash(users.next());
+    }
+    
+    @Benchmark
+    public boolean segmentContains(Users users) {
+        return segment.contains(users.next());
+    }
+    
+    @Benchmark
+    public Evaluation evaluateRollout(Users users) {
+        return rolloutRule.evaluate(users.next());
+    }
+    
+    /** Baseline: the cost of picking the user, to subtract from the others. */
+    @Benchmark
+    public String baseline(Users users) {
+        return users.next();
+    }
+}
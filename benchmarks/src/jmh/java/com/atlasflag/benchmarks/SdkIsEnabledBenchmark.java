@@ -0,0 +1,168 @@
+package com.atlasflag.benchmarks;
+
+import com.atlasflag.domain.FeatureFlag;
+import com.atlasflag.dto.EnvironmentSnapshotDTO;
+import com.atlasflag.dto.FlagRuleDTO;
+import com.atlasflag.sdk.AtlasFlagClient;
+import com.atlasflag.sdk.FlagHandle;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SDK {@code isEnabled} under contention, from 1 to 64 threads sharing one client.
+ *
+ * A local HTTP server answers the SDK's requests with a fixed environment, so the client
+ * loads real snapshot and rule JSON. {@code local} evaluates against the downloaded
+ * snapshot; {@code cached} evaluates rules from the per-flag cache, with a refresh
+ * interval long enough that entries never expire during a run. {@code handle} evaluates
+ * the same flag through a {@link FlagHandle} instead of by key.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SdkIsEnabledBenchmark {
+    
+    private static final int FLAGS = 100;
+    private static final String FLAG_KEY = Fixtures.flagKey(0); // has targeting rules and variants
+    
+    @Param({"local", "cached"})
+    private String mode;
+    
+    private MockWebServer server;
+    private AtlasFlagClient client;
+    private FlagHandle handle;
+    
+    @Setup
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new EnvironmentDispatcher(Fixtures.flags(FLAGS)));
+        server.start();
+        
+        client = new AtlasFlagClient.Builder()
+            .baseUrl(server.url("/").toString().replaceAll("/$", ""))
+            .environment(Fixtures.ENVIRONMENT)
+            .localEvaluation("local".equals(mode))
+            .cacheEnabled(true)
+            .cacheRefreshIntervalSeconds(3600)
+            .build();
+        // Warm the cache before measuring
+        client.isEnabled(FLAG_KEY, "warm-up", Fixtures.ATTRIBUTES, false);
+        handle = client.handle(FLAG_KEY);
+    }
+    
+    @TearDown
+    public void tearDown() throws IOException {
+        client.shutdown();
+        server.shutdown();
+    }
+    
+    @Benchmark
+    @Threads(1)
+    public boolean threads01(Users users) {
+        return client.isEnabled(FLAG_KEY, users.next(), Fixtures.ATTRIBUTES, false);
+    }
+    
+    @Benchmark
+    @Threads(1)
+    public boolean handle(Users users) {
+        return handle.isEnabled(users.next(), Fixtures.ATTRIBUTES, false);
+    }
+    
+    @Benchmark
+    @Threads(4)
+    public boolean threads04(Users users) {
+        return client.isEnabled(FLAG_KEY, users.next(), Fixtures.ATTRIBUTES, false);
+    }
+    
+    @Benchmark
+    @Threads(16)
+    public boolean threads16(Users users) {
+        return client.isEnabled(FLAG_KEY, users.next(), Fixtures.ATTRIBUTES, false);
+    }
+    
+    @Benchmark
+    @Threads(64)
+    public boolean threads64(Users users) {
+        return client.isEnabled(FLAG_KEY, users.next(), Fixtures.ATTRIBUTES, false);
+    }
+    
+    /**
+     * Serves the snapshot, single-flag and segment endpoints of one environment in the
+     * service's JSON format.
+     */
+    private static final class EnvironmentDispatcher extends Dispatcher {
+        
+        private final String prefix = "/api/v1/environments/" + Fixtures.ENVIRONMENT;
+        private final String snapshot;
+        private final Map<String, String> rules = new HashMap<>();
+        
+        EnvironmentDispatcher(List<FeatureFlag> flags) throws JsonProcessingException {
+            ObjectMapper objectMapper = new ObjectMapper();
+            List<FlagRuleDTO> dtos = new ArrayList<>();
+            for (FeatureFlag flag : flags) {
+                FlagRuleDTO dto = toRuleDTO(flag);
+                dtos.add(dto);
+                rules.put(prefix + "/flags/" + flag.getFlagKey(), objectMapper.writeValueAsString(dto));
+            }
+            EnvironmentSnapshotDTO environment = new EnvironmentSnapshotDTO();
+            environment.setEnvironment(Fixtures.ENVIRONMENT);
+            environment.setFlags(dtos);
+            environment.setVersion(1L);
+            this.snapshot = objectMapper.writeValueAsString(environment);
+        }
+        
+        @Override
+        public MockResponse dispatch(RecordedRequest request) {
+            String path = request.getPath() != null ? request.getPath() : "";
+            if (path.equals(prefix + "/snapshot")) {
+                return json(snapshot);
+            }
+            if (path.startsWith(prefix + "/changes")) {
+                return json("{\"environment\":\"" + Fixtures.ENVIRONMENT + "\",\"version\":1,\"changes\":[]}");
+            }
+            if (path.equals(prefix + "/segments")) {
+                return json("[]");
+            }
+            String rule = rules.get(path);
+            return rule != null ? json(rule) : new MockResponse().setResponseCode(404);
+        }
+        
+        private static MockResponse json(String body) {
+            return new MockResponse().setHeader("Content-Type", "application/json").setBody(body);
+        }
+        
+        private static FlagRuleDTO toRuleDTO(FeatureFlag flag) {
+            FlagRuleDTO dto = new FlagRuleDTO();
+            dto.setFlagKey(flag.getFlagKey());
+            dto.setEnabled(flag.getEnabled());
+            dto.setDefaultValue(flag.getDefaultValue());
+            dto.setRolloutPercentage(flag.getRolloutPercentage());
+            dto.setTargetingRules(flag.getTargetingRules());
+            dto.setVariants(flag.getVariants());
+            dto.setPrerequisites(flag.getPrerequisites());
+            dto.setVersion(flag.getVersion());
+            return dto;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.atlasflag.benchmarks;
+
+import com.atlasflag.dto.BatchEvaluationRequest;
+import com.atlasflag.dto.BatchEvaluationResponse;
+import com.atlasflag.dto.FlagEvaluationRequest;
+import com.atlasflag.dto.FlagEvaluationResponse;
+import com.atlasflag.repository.FeatureFlagRepository;
+import com.atlasflag.repository.FlagChangeRepository;
+import com.atlasflag.service.AuditService;
+import com.atlasflag.service.FeatureFlagService;
+import com.atlasflag.service.FlagChangeLog;
+import com.atlasflag.service.FlagSnapshotRegistry;
+import com.atlasflag.service.SegmentRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Server-side {@code evaluateFlag} and whole-environment batch evaluation, without Spring.
+ *
+ * The repositories are mocks that are only read while the snapshot is loaded in setup,
+ * so the measured path is the production one: snapshot lookup, rule evaluation and
+ * building the response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ServiceEvaluationBenchmark {
+    
+    @Param({"10", "1000"})
+    private int flagCount;
+    
+    private FeatureFlagService flagService;
+    
+    @Setup
+    public void setUp() {
+        FeatureFlagRepository flagRepository = mock(FeatureFlagRepository.class);
+        when(flagRepository.findAll()).thenReturn(Fixtures.flags(flagCount));
+        // Empty results: no recorded change sequences and no segments
+        FlagChangeRepository changeRepository = mock(FlagChangeRepository.class);
+        SegmentRegistry segmentRegistry = new SegmentRegistry(mock(JdbcTemplate.class));
+        
+        FlagSnapshotRegistry snapshotRegistry = new FlagSnapshotRegistry(flagRepository, changeRepository,
+            segmentRegistry, mock(PlatformTransactionManager.class));
+        snapshotRegistry.reloadAll();
+        
+        flagService = new FeatureFlagService(flagRepository, snapshotRegistry,
+            mock(FlagChangeLog.class), mock(AuditService.class), mock(ApplicationEventPublisher.class));
+    }
+    
+    @Benchmark
+    public FlagEvaluationResponse evaluateFlag(Users users) {
+        FlagEvaluationRequest request = new FlagEvaluationRequest();
+        request.setFlagKey(Fixtures.flagKey(0)); // has targeting rules and variants
+        request.setEnvironment(Fixtures.ENVIRONMENT);
+        request.setUserId(users.next());
+        request.setAttributes(Fixtures.ATTRIBUTES);
+        return flagService.evaluateFlag(request);
+    }
+    
+    @Benchmark
+    public BatchEvaluationResponse evaluateAllFlags(Users users) {
+        BatchEvaluationRequest request = new BatchEvaluationRequest();
+        request.setEnvironment(Fixtures.ENVIRONMENT);
+        request.setUserId(users.next());
+        request.setAttributes(Fixtures.ATTRIBUTES);
+        return flagService.evaluateFlags(request);
+    }
+}
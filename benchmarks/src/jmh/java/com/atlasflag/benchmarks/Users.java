@@ -0,0 +1,18 @@
+package com.atlasflag.benchmarks;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Per-thread cursor over the fixture users, so evaluations do not all hit one user.
+ */
+@State(Scope.Thread)
+public class Users {
+    
+    private final String[] userIds = Fixtures.userIds();
+    private int next;
+    
+    public String next() {
+        return userIds[next++ & (Fixtures.USERS - 1)];
+    }
+}
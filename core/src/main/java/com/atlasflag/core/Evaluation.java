@@ -0,0 +1,48 @@
+package com.atlasflag.core;
+
+/**
+ * Result of evaluating a flag for a user.
+ *
+ * Every possible result of a rule is created when the rule is built, so evaluating
+ * returns a shared instance instead of allocating one.
+ */
+public final class Evaluation {
+    
+    private final EvaluationReason reason;
+    private final boolean value;
+    private final String ruleId;
+    private final Variant variant;
+    
+    public Evaluation(EvaluationReason reason, boolean value, String ruleId) {
+        this(reason, value, ruleId, null);
+    }
+    
+    public Evaluation(EvaluationReason reason, boolean value, String ruleId, Variant variant) {
+        this.reason = reason;
+        this.value = value;
+        this.ruleId = ruleId;
+        this.variant = variant;
+    }
+    
+    public EvaluationReason getReason() {
+        return reason;
+    }
+    
+    public boolean getValue() {
+        return value;
+    }
+    
+    /**
+     * @return the ID of the targeting rule that matched, or null if none did
+     */
+    public String getRuleId() {
+        return ruleId;
+    }
+    
+    /**
+     * @return the variant served, or null for a boolean flag or when the flag serves false
+     */
+    public Variant getVariant() {
+        return variant;
+    }
+}
@@ -0,0 +1,17 @@
+package com.atlasflag.core;
+
+/**
+ * Outcome of evaluating a flag rule.
+ *
+ * The names are part of the public API: they are returned verbatim as the
+ * {@code reason} field of evaluation responses.
+ */
+public enum EvaluationReason {
+    FLAG_NOT_FOUND,
+    FLAG_DISABLED,
+    FLAG_ENABLED,
+    TARGETING_MATCH,
+    ROLLOUT_PERCENTAGE,
+    ROLLOUT_EXCLUDED,
+    PREREQUISITE_FAILED
+}
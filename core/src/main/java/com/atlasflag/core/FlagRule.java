@@ -0,0 +1,314 @@
+package com.atlasflag.core;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable evaluation rule for a single flag.
+ * 
+ * Shared by the service and the SDK so that remote and local evaluation
+ * always agree for the same flag state and user.
+ * 
+ * A multivariate flag also picks a {@link Variant} for every user it serves true to.
+ * The split is a precomputed table from variant bucket (see {@link RolloutHash}) to
+ * variant, so picking one costs a hash and an array read, and every outcome is
+ * prebuilt per variant.
+ * 
+ * Prerequisites name other flags that must evaluate to a given value for this one to
+ * apply. A rule cannot see other flags, so they are checked by {@link FlagSnapshot},
+ * which evaluates a flag together with its prerequisites in dependency order.
+ */
+public final class FlagRule {
+    
+    /** Variant indexes are stored as bytes in the allocation table. */
+    public static final int MAX_VARIANTS = 100;
+    
+    private static final int NO_ROLLOUT = -1;
+    private static final Evaluation ENABLED = new Evaluation(EvaluationReason.FLAG_ENABLED, true, null);
+    private static final Evaluation ROLLOUT_INCLUDED = new Evaluation(EvaluationReason.ROLLOUT_PERCENTAGE, true, null);
+    private static final Evaluation ROLLOUT_EXCLUDED = new Evaluation(EvaluationReason.ROLLOUT_EXCLUDED, false, null);
+    
+    private final String flagKey;
+    private final boolean enabled;
+    private final boolean defaultValue;
+    private final int rolloutBuckets; // 0-10000 (0.01% each), NO_ROLLOUT means not applicable
+    private final Targeting targeting;
+    private final long version;
+    private final List<Variant> variants;
+    private final byte[] allocation; // variant index per variant bucket, null without variants
+    private final List<Prerequisite> prerequisites;
+    private final Evaluation disabled;
+    private final Evaluation prerequisiteFailed;
+    // Outcomes that serve true, by variant; a single entry for boolean flags
+    private final Evaluation[] enabledByVariant;
+    private final Evaluation[] rolloutByVariant;
+    private final Evaluation[][] targetedByVariant; // per targeting rule
+    
+    /**
+     * @param rolloutPercentage 0-100 with up to two decimals, or null for no rollout;
+     *                          finer values are rounded down
+     * @param targeting compiled targeting rules, null for none
+     */
+    public FlagRule(String flagKey, boolean enabled, boolean defaultValue, BigDecimal rolloutPercentage,
+                    Targeting targeting, long version) {
+        this(flagKey, enabled, defaultValue, rolloutPercentage, targeting, List.of(), version);
+    }
+    
+    /**
+     * @param rolloutPercentage 0-100 with up to two decimals, or null for no rollout;
+     *                          finer values are rounded down
+     * @param targeting compiled targeting rules, null for none
+     * @param variants variants of a multivariate flag, whose weights add up to 100;
+     *                 empty or null for a boolean flag
+     * @throws IllegalArgumentException if there are too many variants or their weights do not add up
+     */
+    public FlagRule(String flagKey, boolean enabled, boolean defaultValue, BigDecimal rolloutPercentage,
+                    Targeting targeting, List<Variant> variants, long version) {
+        this(flagKey, enabled, defaultValue, rolloutPercentage, targeting, variants, List.of(), version);
+    }
+    
+    /**
+     * @param rolloutPercentage 0-100 with up to two decimals, or null for no rollout;
+     *                          finer values are rounded down
+     * @param targeting compiled targeting rules, null for none
+     * @param variants variants of a multivariate flag, whose weights add up to 100;
+     *                 empty or null for a boolean flag
+     * @param prerequisites flags that must evaluate to the given values for this one to apply,
+     *                      empty or null for none
+     * @throws IllegalArgumentException if there are too many variants or their weights do not add up
+     */
+    public FlagRule(String flagKey, boolean enabled, boolean defaultValue, BigDecimal rolloutPercentage,
+                    Targeting targeting, List<Variant> variants, List<Prerequisite> prerequisites,
+                    long version) {
+        this.flagKey = Objects.requireNonNull(flagKey, "flagKey");
+        this.enabled = enabled;
+        this.defaultValue = defaultValue;
+        this.rolloutBuckets = rolloutPercentage != null
+            ? rolloutPercentage.movePointRight(2).setScale(0, RoundingMode.DOWN).intValue()
+            : NO_ROLLOUT;
+        this.targeting = targeting != null ? targeting : Targeting.NONE;
+        this.version = version;
+        this.variants = variants != null ? List.copyOf(variants) : List.of();
+        this.allocation = this.variants.isEmpty() ? null : allocate(this.variants);
+        this.prerequisites = prerequisites != null ? List.copyOf(prerequisites) : List.of();
+        this.disabled = new Evaluation(EvaluationReason.FLAG_DISABLED, defaultValue, null);
+        this.prerequisiteFailed = new Evaluation(EvaluationReason.PREREQUISITE_FAILED, defaultValue, null);
+        this.enabledByVariant = byVariant(ENABLED);
+        this.rolloutByVariant = byVariant(ROLLOUT_INCLUDED);
+        List<Targeting.Rule> rules = this.targeting.rules();
+        this.targetedByVariant = new Evaluation[rules.size()][];
+        for (int i = 0; i < rules.size(); i++) {
+            targetedByVariant[i] = byVariant(rules.get(i).evaluation());
+        }
+    }
+    
+    /**
+     * Evaluate the rule for a user.
+     * 
+     * Targeting rules are checked first, in order; users no rule matches fall through
+     * to the rollout percentage. Prerequisites are not checked; see {@link FlagSnapshot#evaluate}.
+     * 
+     * @param userId User ID for percentage-based rollouts, may be null
+     * @param attributes User context for targeting rules, may be null
+     * @return the served value and the reason for it; instances are shared
+     */
+    public Evaluation evaluate(String userId, Map<String, String> attributes) {
+        // If flag is disabled, the default value is served
+        if (!enabled) {
+            return disabled;
+        }
+        
+        int matched = targeting.matchIndex(userId, attributes);
+        if (matched >= 0) {
+            return serve(targetedByVariant[matched], userId);
+        }
+        
+        // If rollout percentage is set, place the user by their per-flag bucket
+        if (rolloutBuckets != NO_ROLLOUT && userId != null) {
+            // 0% and 100% need no hash
+            if (rolloutBuckets >= RolloutHash.BUCKETS) {
+                return serve(rolloutByVariant, userId);
+            }
+            if (rolloutBuckets <= 0) {
+                return ROLLOUT_EXCLUDED;
+            }
+            return RolloutHash.bucket(flagKey, userId) < rolloutBuckets
+                ? serve(rolloutByVariant, userId)
+                : ROLLOUT_EXCLUDED;
+        }
+        
+        return serve(enabledByVariant, userId);
+    }
+    
+    public Evaluation evaluate(String userId) {
+        return evaluate(userId, null);
+    }
+    
+    /**
+     * Evaluate the rule for a user and return the served value.
+     */
+    public boolean isEnabledFor(String userId, Map<String, String> attributes) {
+        return evaluate(userId, attributes).getValue();
+    }
+    
+    public boolean isEnabledFor(String userId) {
+        return evaluate(userId, null).getValue();
+    }
+    
+    public String getFlagKey() {
+        return flagKey;
+    }
+    
+    public boolean isEnabled() {
+        return enabled;
+    }
+    
+    public boolean getDefaultValue() {
+        return defaultValue;
+    }
+    
+    public BigDecimal getRolloutPercentage() {
+        return rolloutBuckets != NO_ROLLOUT ? BigDecimal.valueOf(rolloutBuckets, 2) : null;
+    }
+    
+    public Targeting getTargeting() {
+        return targeting;
+    }
+    
+    /**
+     * @return the variants of a multivariate flag, empty for a boolean flag
+     */
+    public List<Variant> getVariants() {
+        return variants;
+    }
+    
+    /**
+     * @return the flags this one depends on, empty if none
+     */
+    public List<Prerequisite> getPrerequisites() {
+        return prerequisites;
+    }
+    
+    /**
+     * Outcome for a user some prerequisite does not hold for: the default value, as when disabled.
+     */
+    Evaluation prerequisiteFailed() {
+        return prerequisiteFailed;
+    }
+    
+    /**
+     * Whether the two rules are defined alike: same flag, state, default, rollout, targeting
+     * rules, variants and prerequisites, so they serve every user the same outcome. The
+     * version is not compared; a flag deleted and created again may reuse one.
+     */
+    public boolean sameDefinition(FlagRule other) {
+        return other != null
+            && flagKey.equals(other.flagKey)
+            && enabled == other.enabled
+            && defaultValue == other.defaultValue
+            && rolloutBuckets == other.rolloutBuckets
+            && targeting.rules().equals(other.targeting.rules())
+            && variants.equals(other.variants)
+            && prerequisites.equals(other.prerequisites);
+    }
+    
+    /**
+     * Optimistic-locking version of the flag this rule was built from.
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    /**
+     * Pick the outcome for the user's variant. Users without an ID get the variant of bucket 0.
+     */
+    private Evaluation serve(Evaluation[] byVariant, String userId) {
+        if (byVariant.length == 1) {
+            return byVariant[0];
+        }
+        int bucket = userId != null ? RolloutHash.variantBucket(flagKey, userId) : 0;
+        return byVariant[allocation[bucket]];
+    }
+    
+    /**
+     * The outcome per variant if it serves true and the flag has variants, else the outcome alone.
+     */
+    private Evaluation[] byVariant(Evaluation outcome) {
+        if (variants.isEmpty() || !outcome.getValue()) {
+            return new Evaluation[] {outcome};
+        }
+        Evaluation[] result = new Evaluation[variants.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = new Evaluation(outcome.getReason(), true, outcome.getRuleId(), variants.get(i));
+        }
+        return result;
+    }
+    
+    /**
+     * Assign every variant bucket to a variant, in order of the variants, each taking as many
+     * consecutive buckets as its weight.
+     */
+    private static byte[] allocate(List<Variant> variants) {
+        if (variants.size() > MAX_VARIANTS) {
+            throw new IllegalArgumentException("A flag can have at most " + MAX_VARIANTS + " variants");
+        }
+        byte[] table = new byte[RolloutHash.BUCKETS];
+        int start = 0;
+        for (int i = 0; i < variants.size(); i++) {
+            int end = start + variants.get(i).weightBuckets();
+            if (variants.get(i).weightBuckets() < 0 || end > RolloutHash.BUCKETS) {
+                throw new IllegalArgumentException("Variant weights must not be negative and must add up to 100");
+            }
+            Arrays.fill(table, start, end, (byte) i);
+            start = end;
+        }
+        if (start != RolloutHash.BUCKETS) {
+            throw new IllegalArgumentException("Variant weights must add up to 100");
+        }
+        return table;
+    }
+    
+    /**
+     * Requirement that another flag of the environment evaluates to {@code value} for the
+     * same user. A prerequisite on a flag that does not exist never holds.
+     */
+    public static final class Prerequisite {
+        
+        private final String flagKey;
+        private final boolean value;
+        
+        public Prerequisite(String flagKey, boolean value) {
+            this.flagKey = Objects.requireNonNull(flagKey, "flagKey");
+            this.value = value;
+        }
+        
+        public String getFlagKey() {
+            return flagKey;
+        }
+        
+        public boolean getValue() {
+            return value;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Prerequisite)) {
+                return false;
+            }
+            Prerequisite other = (Prerequisite) o;
+            return value == other.value && flagKey.equals(other.flagKey);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(flagKey, value);
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package com.atlasflag.core;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, versioned set of flag rules for one environment.
+ * 
+ * Lookups go through a compact open-addressing table (linear probing, load factor
+ * at most 0.5) over plain arrays, so resolving a flag costs one String hash, which
+ * the JVM caches per key instance, plus usually a single probe and no allocation.
+ * Snapshots are never modified; a change produces a new snapshot that replaces the
+ * old one atomically.
+ * 
+ * Prerequisites between flags are compiled when the snapshot is built. The flags are
+ * ordered so that each comes after its prerequisites, and every flag with prerequisites
+ * gets a plan: its transitive prerequisites in that order, with each one's own
+ * prerequisites as positions in the plan. Evaluating such a flag walks the plan once,
+ * reading earlier results from a per-evaluation array, so no flag is evaluated twice
+ * and nothing recurses.
+ */
+public final class FlagSnapshot {
+    
+    public static final FlagSnapshot EMPTY = of(List.of(), 0L);
+    
+    private static final int[] NO_PREREQUISITES = new int[0];
+    private static final boolean[] NO_VALUES = new boolean[0];
+    // Plan of flags on or behind a prerequisite cycle, which cannot be ordered
+    private static final Plan UNORDERED = new Plan(null, null, null);
+    
+    private final long version;
+    private final FlagRule[] rules;
+    private final String[] slotKeys;
+    private final int[] slotIndexes;
+    private final int mask;
+    // Per flag: positions of its prerequisites (-1 for a missing flag) and the values they require
+    private final int[][] prerequisiteIndexes;
+    private final boolean[][] requiredValues;
+    private final Plan[] plans; // null for flags without prerequisites
+    private final int[] evaluationOrder; // orderable flags, prerequisites first
+    
+    private FlagSnapshot(FlagRule[] rules, long version) {
+        this.version = version;
+        this.rules = rules;
+        
+        int capacity = Integer.highestOneBit(Math.max(2, rules.length) * 2 - 1) << 1;
+        this.slotKeys = new String[capacity];
+        this.slotIndexes = new int[capacity];
+        this.mask = capacity - 1;
+        
+        for (int i = 0; i < rules.length; i++) {
+            int slot = slotFor(rules[i].getFlagKey());
+            while (slotKeys[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            slotKeys[slot] = rules[i].getFlagKey();
+            slotIndexes[slot] = i;
+        }
+        
+        this.prerequisiteIndexes = new int[rules.length][];
+        this.requiredValues = new boolean[rules.length][];
+        for (int i = 0; i < rules.length; i++) {
+            List<FlagRule.Prerequisite> prerequisites = rules[i].getPrerequisites();
+            if (prerequisites.isEmpty()) {
+                prerequisiteIndexes[i] = NO_PREREQUISITES;
+                requiredValues[i] = NO_VALUES;
+                continue;
+            }
+            prerequisiteIndexes[i] = new int[prerequisites.size()];
+            requiredValues[i] = new boolean[prerequisites.size()];
+            for (int j = 0; j < prerequisites.size(); j++) {
+                prerequisiteIndexes[i][j] = indexOf(prerequisites.get(j).getFlagKey());
+                requiredValues[i][j] = prerequisites.get(j).getValue();
+            }
+        }
+        this.evaluationOrder = order();
+        this.plans = new Plan[rules.length];
+        compilePlans();
+    }
+    
+    /**
+     * Build a snapshot. If several rules share a flag key, the last one wins.
+     */
+    public static FlagSnapshot of(Collection<FlagRule> rules, long version) {
+        Map<String, FlagRule> byKey = new LinkedHashMap<>();
+        for (FlagRule rule : rules) {
+            byKey.put(rule.getFlagKey(), rule);
+        }
+        return new FlagSnapshot(byKey.values().toArray(new FlagRule[0]), version);
+    }
+    
+    /**
+     * Copy of this snapshot with one rule added or replaced.
+     */
+    public FlagSnapshot withRule(FlagRule rule, long newVersion) {
+        int index = indexOf(rule.getFlagKey());
+        FlagRule[] updated;
+        if (index >= 0) {
+            updated = rules.clone();
+            updated[index] = rule;
+        } else {
+            updated = Arrays.copyOf(rules, rules.length + 1);
+            updated[rules.length] = rule;
+        }
+        return new FlagSnapshot(updated, newVersion);
+    }
+    
+    /**
+     * Copy of this snapshot without the given flag.
+     */
+    public FlagSnapshot withoutRule(String flagKey, long newVersion) {
+        int index = indexOf(flagKey);
+        if (index < 0) {
+            return new FlagSnapshot(rules, newVersion);
+        }
+        FlagRule[] updated = new FlagRule[rules.length - 1];
+        System.arraycopy(rules, 0, updated, 0, index);
+        System.arraycopy(rules, index + 1, updated, index, rules.length - index - 1);
+        return new FlagSnapshot(updated, newVersion);
+    }
+    
+    /**
+     * @return the rule for a flag, or null if the flag does not exist
+     */
+    public FlagRule get(String flagKey) {
+        int index = indexOf(flagKey);
+        return index >= 0 ? rules[index] : null;
+    }
+    
+    /**
+     * @return the position of a flag's rule, usable with {@link #ruleAt(int)}, or -1 if absent
+     */
+    public int indexOf(String flagKey) {
+        int slot = slotFor(flagKey);
+        String key;
+        while ((key = slotKeys[slot]) != null) {
+            if (key.equals(flagKey)) {
+                return slotIndexes[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+    
+    /**
+     * Evaluate a flag for a user, prerequisites included.
+     * 
+     * @return the evaluation, or null if the flag does not exist
+     */
+    public Evaluation evaluate(String flagKey, String userId, Map<String, String> attributes) {
+        int index = indexOf(flagKey);
+        return index >= 0 ? evaluate(index, userId, attributes) : null;
+    }
+    
+    /**
+     * Evaluate the flag at a position for a user, prerequisites included. A flag whose
+     * prerequisites do not all hold serves its default value, unless it is disabled anyway.
+     */
+    public Evaluation evaluate(int index, String userId, Map<String, String> attributes) {
+        Plan plan = plans[index];
+        if (plan == null) {
+            return rules[index].evaluate(userId, attributes);
+        }
+        if (plan == UNORDERED) {
+            return unordered(rules[index], userId, attributes);
+        }
+        
+        boolean[] values = new boolean[plan.flags.length];
+        Evaluation evaluation = null;
+        for (int i = 0; i < plan.flags.length; i++) {
+            evaluation = evaluate(rules[plan.flags[i]], plan.prerequisites[i], plan.requiredValues[i], values,
+                userId, attributes);
+            values[i] = evaluation.getValue();
+        }
+        return evaluation;
+    }
+    
+    /**
+     * Evaluate every flag for a user, each exactly once: flags are visited in dependency
+     * order, so prerequisites are read from results already computed.
+     * 
+     * @return the evaluations by flag position, as for {@link #ruleAt(int)}
+     */
+    public Evaluation[] evaluateAll(String userId, Map<String, String> attributes) {
+        Evaluation[] evaluations = new Evaluation[rules.length];
+        boolean[] values = new boolean[rules.length];
+        for (int index : evaluationOrder) {
+            evaluations[index] = evaluate(rules[index], prerequisiteIndexes[index], requiredValues[index], values,
+                userId, attributes);
+            values[index] = evaluations[index].getValue();
+        }
+        if (evaluationOrder.length < rules.length) {
+            for (int i = 0; i < rules.length; i++) {
+                if (plans[i] == UNORDERED) {
+                    evaluations[i] = unordered(rules[i], userId, attributes);
+                }
+            }
+        }
+        return evaluations;
+    }
+    
+    public FlagRule ruleAt(int index) {
+        return rules[index];
+    }
+    
+    public List<FlagRule> rules() {
+        return Collections.unmodifiableList(Arrays.asList(rules));
+    }
+    
+    public int size() {
+        return rules.length;
+    }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    /**
+     * @param prerequisites positions in {@code values} of the rule's prerequisites, -1 for missing flags
+     */
+    private static Evaluation evaluate(FlagRule rule, int[] prerequisites, boolean[] required, boolean[] values,
+                                       String userId, Map<String, String> attributes) {
+        if (rule.isEnabled()) {
+            for (int i = 0; i < prerequisites.length; i++) {
+                int prerequisite = prerequisites[i];
+                if (prerequisite < 0 || values[prerequisite] != required[i]) {
+                    return rule.prerequisiteFailed();
+                }
+            }
+        }
+        return rule.evaluate(userId, attributes);
+    }
+    
+    private static Evaluation unordered(FlagRule rule, String userId, Map<String, String> attributes) {
+        return rule.isEnabled() ? rule.prerequisiteFailed() : rule.evaluate(userId, attributes);
+    }
+    
+    /**
+     * Order the flags so that each comes after its prerequisites (Kahn's algorithm).
+     * 
+     * The service rejects writes that would create a cycle, but a snapshot may still be
+     * built from rules that contain one, e.g. after a manual database edit. Flags on or
+     * behind a cycle are left out of the order and always fail their prerequisites, rather
+     * than failing the whole snapshot.
+     */
+    private int[] order() {
+        int[] pending = new int[rules.length]; // prerequisites not yet ordered
+        int[] dependentCounts = new int[rules.length];
+        for (int i = 0; i < rules.length; i++) {
+            for (int prerequisite : prerequisiteIndexes[i]) {
+                if (prerequisite >= 0) {
+                    pending[i]++;
+                    dependentCounts[prerequisite]++;
+                }
+            }
+        }
+        int[][] dependents = new int[rules.length][];
+        for (int i = 0; i < rules.length; i++) {
+            dependents[i] = dependentCounts[i] > 0 ? new int[dependentCounts[i]] : NO_PREREQUISITES;
+            dependentCounts[i] = 0;
+        }
+        for (int i = 0; i < rules.length; i++) {
+            for (int prerequisite : prerequisiteIndexes[i]) {
+                if (prerequisite >= 0) {
+                    dependents[prerequisite][dependentCounts[prerequisite]++] = i;
+                }
+            }
+        }
+        
+        int[] order = new int[rules.length];
+        int ordered = 0;
+        for (int i = 0; i < rules.length; i++) {
+            if (pending[i] == 0) {
+                order[ordered++] = i;
+            }
+        }
+        for (int next = 0; next < ordered; next++) {
+            for (int dependent : dependents[order[next]]) {
+                if (--pending[dependent] == 0) {
+                    order[ordered++] = dependent;
+                }
+            }
+        }
+        return ordered < rules.length ? Arrays.copyOf(order, ordered) : order;
+    }
+    
+    private void compilePlans() {
+        int[] rank = new int[rules.length];
+        Arrays.fill(rank, -1);
+        for (int i = 0; i < evaluationOrder.length; i++) {
+            rank[evaluationOrder[i]] = i;
+        }
+        
+        int[] visited = new int[rules.length]; // flag index + 1 of the plan that last visited
+        int[] position = new int[rules.length];
+        int[] stack = new int[rules.length];
+        int[] collected = new int[rules.length];
+        for (int index = 0; index < rules.length; index++) {
+            if (rank[index] < 0) {
+                plans[index] = UNORDERED;
+                continue;
+            }
+            if (prerequisiteIndexes[index].length == 0) {
+                continue;
+            }
+            
+            // Collect the transitive prerequisites, then sort them into evaluation order
+            int size = 0;
+            int top = 0;
+            stack[top++] = index;
+            visited[index] = index + 1;
+            while (top > 0) {
+                int flag = stack[--top];
+                collected[size++] = flag;
+                for (int prerequisite : prerequisiteIndexes[flag]) {
+                    if (prerequisite >= 0 && visited[prerequisite] != index + 1) {
+                        visited[prerequisite] = index + 1;
+                        stack[top++] = prerequisite;
+                    }
+                }
+            }
+            int[] flags = Arrays.copyOf(collected, size);
+            for (int i = 0; i < size; i++) {
+                flags[i] = rank[flags[i]];
+            }
+            Arrays.sort(flags);
+            for (int i = 0; i < size; i++) {
+                flags[i] = evaluationOrder[flags[i]];
+                position[flags[i]] = i;
+            }
+            
+            int[][] prerequisites = new int[size][];
+            boolean[][] required = new boolean[size][];
+            for (int i = 0; i < size; i++) {
+                int[] global = prerequisiteIndexes[flags[i]];
+                int[] local = global.length > 0 ? new int[global.length] : NO_PREREQUISITES;
+                for (int j = 0; j < global.length; j++) {
+                    local[j] = global[j] >= 0 ? position[global[j]] : -1;
+                }
+                prerequisites[i] = local;
+                required[i] = requiredValues[flags[i]];
+            }
+            plans[index] = new Plan(flags, prerequisites, required);
+        }
+    }
+    
+    private int slotFor(String flagKey) {
+        int h = flagKey.hashCode();
+        // Spread high bits down, as small tables only look at the low ones
+        return (h ^ (h >>> 16)) & mask;
+    }
+    
+    /**
+     * Evaluation order of a flag and its transitive prerequisites, the flag itself last.
+     */
+    private static final class Plan {
+        
+        private final int[] flags;
+        private final int[][] prerequisites; // per flag, positions in this plan, -1 for missing flags
+        private final boolean[][] requiredValues;
+        
+        Plan(int[] flags, int[][] prerequisites, boolean[][] requiredValues) {
+            this.flags = flags;
+            this.prerequisites = prerequisites;
+            this.requiredValues = requiredValues;
+        }
+    }
+}
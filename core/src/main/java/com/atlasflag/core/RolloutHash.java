@@ -0,0 +1,110 @@
+package com.atlasflag.core;
+
+/**
+ * Assigns users to rollout buckets.
+ *
+ * The bucket of a user for a flag is
+ * {@code murmur3_x86_32(utf8(flagKey + ":" + userId), seed 0) mod 10000}, with the hash
+ * taken as unsigned. Salting with the flag key gives every flag an independent cohort,
+ * and the definition only relies on standard MurmurHash3 and UTF-8, so other SDKs can
+ * reproduce it exactly. Unpaired surrogates encode as '?', as {@link String#getBytes}
+ * does.
+ *
+ * Multivariate flags split the users they serve between variants by a second bucket,
+ * taken the same way over {@code flagKey + ":variant:" + userId}, so the variant a user
+ * gets does not depend on where they fall in the rollout.
+ *
+ * The UTF-8 bytes are fed to the hash as they are encoded, so computing a bucket
+ * allocates nothing.
+ */
+public final class RolloutHash {
+    
+    /** Number of buckets; one bucket is 0.01% of users. */
+    public static final int BUCKETS = 10_000;
+    
+    private static final char SEPARATOR = ':';
+    private static final String VARIANT_SALT = "variant";
+    private static final int C1 = 0xcc9e2d51;
+    private static final int C2 = 0x1b873593;
+    
+    private RolloutHash() {
+    }
+    
+    /**
+     * @return the bucket of a user for a flag, in {@code [0, BUCKETS)}
+     */
+    public static int bucket(String flagKey, String userId) {
+        return Integer.remainderUnsigned(hash(flagKey, userId), BUCKETS);
+    }
+    
+    /**
+     * @return the bucket that picks the variant of a user for a multivariate flag, in {@code [0, BUCKETS)}
+     */
+    public static int variantBucket(String flagKey, String userId) {
+        return Integer.remainderUnsigned(hash(flagKey, VARIANT_SALT, userId), BUCKETS);
+    }
+    
+    /**
+     * MurmurHash3 (x86, 32-bit, seed 0) of the UTF-8 bytes of {@code flagKey + ":" + userId}.
+     */
+    static int hash(String flagKey, String userId) {
+        return hash(flagKey, null, userId);
+    }
+    
+    /**
+     * MurmurHash3 (x86, 32-bit, seed 0) of the UTF-8 bytes of {@code flagKey + ":" + salt + ":" + userId},
+     * or of {@code flagKey + ":" + userId} without a salt.
+     */
+    private static int hash(String flagKey, String salt, String userId) {
+        int h = 0;
+        int block = 0;   // pending bytes, little-endian
+        int filled = 0;  // bits pending in block
+        int length = 0;  // total bytes
+        
+        // Parts: key, separator, salt, separator, user
+        for (int part = 0; part < 5; part++) {
+            if (salt == null && (part == 2 || part == 3)) {
+                continue;
+            }
+            String s = part == 0 ? flagKey : part == 2 ? salt : part == 4 ? userId : null;
+            int n = s != null ? s.length() : 1;
+            for (int i = 0; i < n; i++) {
+                int cp = s != null ? Utf8.codePointAt(s, i) : SEPARATOR;
+                if (cp >= 0x10000) {
+                    i++;
+                }
+                int bytes = Utf8.encode(cp);
+                int count = Utf8.length(cp);
+                
+                for (int b = 0; b < count; b++) {
+                    block |= (bytes >>> (b << 3) & 0xFF) << filled;
+                    filled += 8;
+                    if (filled == 32) {
+                        h ^= mixBlock(block);
+                        h = Integer.rotateLeft(h, 13) * 5 + 0xe6546b64;
+                        block = 0;
+                        filled = 0;
+                    }
+                }
+                length += count;
+            }
+        }
+        
+        if (filled > 0) {
+            h ^= mixBlock(block);
+        }
+        h ^= length;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+    
+    private static int mixBlock(int k) {
+        k *= C1;
+        k = Integer.rotateLeft(k, 15);
+        return k * C2;
+    }
+}
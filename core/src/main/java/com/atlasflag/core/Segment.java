@@ -0,0 +1,246 @@
+package com.atlasflag.core;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A named set of users, such as an imported list of beta testers, that targeting clauses
+ * refer to by key.
+ *
+ * Members are held as a sorted {@code long[]} of 64-bit hashes of their user IDs rather
+ * than as strings: a million members take 8 MB in one array, membership is a binary
+ * search, and no object exists per member. The hash is the first 64 bits of
+ * {@code murmur3_x64_128(utf8(userId), seed 0)}, as returned by e.g. Guava's
+ * {@code murmur3_128().hashString(id, UTF_8).asLong()}, so other SDKs can reproduce it.
+ * At a million members the chance of any non-member colliding with a member is about
+ * one in 10<sup>13</sup> per lookup.
+ *
+ * The wire and storage format is the sorted hashes as big-endian 64-bit integers,
+ * without a header.
+ */
+public final class Segment {
+    
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+    private static final int COPY_BUFFER_SIZE = 8192;
+    
+    private final String key;
+    private final long version;
+    private final long[] hashes; // ascending, distinct
+    
+    private Segment(String key, long version, long[] hashes) {
+        this.key = Objects.requireNonNull(key, "key");
+        this.version = version;
+        this.hashes = hashes;
+    }
+    
+    public String getKey() {
+        return key;
+    }
+    
+    public long getVersion() {
+        return version;
+    }
+    
+    public int size() {
+        return hashes.length;
+    }
+    
+    public boolean contains(String userId) {
+        return userId != null && containsHash(hash(userId));
+    }
+    
+    boolean containsHash(long hash) {
+        return Arrays.binarySearch(hashes, hash) >= 0;
+    }
+    
+    /**
+     * Write the members in the wire format.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        int position = 0;
+        for (long hash : hashes) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (hash >>> shift);
+            }
+            if (position == buffer.length) {
+                out.write(buffer, 0, position);
+                position = 0;
+            }
+        }
+        out.write(buffer, 0, position);
+    }
+    
+    /**
+     * Read members in the wire format until the end of the stream.
+     *
+     * @throws IOException if the stream ends inside a hash or the hashes are not ascending
+     */
+    public static Segment read(String key, long version, InputStream in) throws IOException {
+        Builder builder = new Builder();
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        long pending = 0;
+        int pendingBytes = 0;
+        long previous = Long.MIN_VALUE;
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            for (int i = 0; i < read; i++) {
+                pending = pending << 8 | (buffer[i] & 0xFF);
+                if (++pendingBytes == Long.BYTES) {
+                    if (builder.size > 0 && pending <= previous) {
+                        throw new IOException("Segment '" + key + "' is not sorted");
+                    }
+                    builder.addHash(pending);
+                    previous = pending;
+                    pending = 0;
+                    pendingBytes = 0;
+                }
+            }
+        }
+        if (pendingBytes != 0) {
+            throw new EOFException("Segment '" + key + "' ends inside a member");
+        }
+        return new Segment(key, version, Arrays.copyOf(builder.hashes, builder.size));
+    }
+    
+    /**
+     * Read members in the wire format from the remaining bytes of a buffer, such as a region
+     * of a memory-mapped file. The hashes are copied in bulk rather than decoded byte by byte;
+     * the buffer's position is left unchanged.
+     *
+     * @throws IOException if the bytes end inside a hash or the hashes are not ascending
+     */
+    public static Segment read(String key, long version, ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() % Long.BYTES != 0) {
+            throw new EOFException("Segment '" + key + "' ends inside a member");
+        }
+        long[] hashes = new long[buffer.remaining() / Long.BYTES];
+        buffer.duplicate().order(ByteOrder.BIG_ENDIAN).asLongBuffer().get(hashes);
+        for (int i = 1; i < hashes.length; i++) {
+            if (hashes[i] <= hashes[i - 1]) {
+                throw new IOException("Segment '" + key + "' is not sorted");
+            }
+        }
+        return new Segment(key, version, hashes);
+    }
+    
+    /**
+     * First 64 bits of MurmurHash3 (x64, 128-bit, seed 0) of the UTF-8 bytes of the user ID.
+     * Unpaired surrogates encode as '?'. The bytes are hashed as they are encoded, so this
+     * allocates nothing.
+     */
+    public static long hash(String userId) {
+        long h1 = 0;
+        long h2 = 0;
+        long k1 = 0;       // block bytes 0-7, little-endian
+        long k2 = 0;       // block bytes 8-15
+        int filled = 0;    // bytes pending in the block
+        long length = 0;   // total bytes
+        
+        int n = userId.length();
+        for (int i = 0; i < n; i++) {
+            int cp = Utf8.codePointAt(userId, i);
+            if (cp >= 0x10000) {
+                i++;
+            }
+            int bytes = Utf8.encode(cp);
+            int count = Utf8.length(cp);
+            
+            for (int b = 0; b < count; b++) {
+                long value = bytes >>> (b << 3) & 0xFF;
+                if (filled < 8) {
+                    k1 |= value << (filled << 3);
+                } else {
+                    k2 |= value << ((filled - 8) << 3);
+                }
+                if (++filled == 16) {
+                    h1 ^= mixK1(k1);
+                    h1 = Long.rotateLeft(h1, 27) + h2;
+                    h1 = h1 * 5 + 0x52dce729;
+                    h2 ^= mixK2(k2);
+                    h2 = Long.rotateLeft(h2, 31) + h1;
+                    h2 = h2 * 5 + 0x38495ab5;
+                    k1 = 0;
+                    k2 = 0;
+                    filled = 0;
+                }
+            }
+            length += count;
+        }
+        
+        if (filled > 0) {
+            h1 ^= mixK1(k1);
+            h2 ^= mixK2(k2);
+        }
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        return fmix64(h1) + fmix64(h2);
+    }
+    
+    private static long mixK1(long k) {
+        k *= C1;
+        k = Long.rotateLeft(k, 31);
+        return k * C2;
+    }
+    
+    private static long mixK2(long k) {
+        k *= C2;
+        k = Long.rotateLeft(k, 33);
+        return k * C1;
+    }
+    
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+    
+    /**
+     * Collects members in any order, with duplicates, into a primitive array.
+     */
+    public static final class Builder {
+        
+        private long[] hashes = new long[1024];
+        private int size;
+        
+        public Builder add(String userId) {
+            return addHash(hash(userId));
+        }
+        
+        public Builder addHash(long hash) {
+            if (size == hashes.length) {
+                hashes = Arrays.copyOf(hashes, size + (size >> 1));
+            }
+            hashes[size++] = hash;
+            return this;
+        }
+        
+        /**
+         * Sort and deduplicate the members. The builder must not be used afterwards.
+         */
+        public Segment build(String key, long version) {
+            Arrays.sort(hashes, 0, size);
+            int distinct = 0;
+            for (int i = 0; i < size; i++) {
+                if (distinct == 0 || hashes[i] != hashes[distinct - 1]) {
+                    hashes[distinct++] = hashes[i];
+                }
+            }
+            long[] members = Arrays.copyOf(hashes, distinct);
+            hashes = null;
+            return new Segment(key, version, members);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.atlasflag.core;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The segments of one environment, by key.
+ *
+ * Targeting compiled against a {@code Segments} resolves segment keys on every
+ * evaluation, so replacing a segment takes effect for all flags at once without
+ * recompiling them. A key without a segment behaves as an empty segment.
+ */
+public final class Segments {
+    
+    private final Map<String, Segment> segments = new ConcurrentHashMap<>();
+    
+    /**
+     * @return the segment, or null if none is loaded under the key
+     */
+    public Segment get(String key) {
+        return segments.get(key);
+    }
+    
+    public void put(Segment segment) {
+        segments.put(segment.getKey(), segment);
+    }
+    
+    public void remove(String key) {
+        segments.remove(key);
+    }
+    
+    /**
+     * Remove every segment whose key is not in {@code keys}.
+     */
+    public void retainAll(Collection<String> keys) {
+        segments.keySet().retainAll(keys);
+    }
+    
+    public Collection<Segment> all() {
+        return segments.values();
+    }
+}
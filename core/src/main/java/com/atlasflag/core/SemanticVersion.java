@@ -0,0 +1,122 @@
+package com.atlasflag.core;
+
+/**
+ * Semantic version (major.minor.patch[-prerelease][+build]) ordered by SemVer 2.0 precedence.
+ *
+ * Parsing is lenient about what clients commonly send: a leading {@code v} and missing
+ * minor or patch components ({@code 2.1} is {@code 2.1.0}) are accepted.
+ */
+final class SemanticVersion implements Comparable<SemanticVersion> {
+    
+    private final long major;
+    private final long minor;
+    private final long patch;
+    private final String[] prerelease; // empty for a release
+    
+    private SemanticVersion(long major, long minor, long patch, String[] prerelease) {
+        this.major = major;
+        this.minor = minor;
+        this.patch = patch;
+        this.prerelease = prerelease;
+    }
+    
+    /**
+     * @return the parsed version, or null if {@code text} is not a version
+     */
+    static SemanticVersion parse(String text) {
+        if (text == null || text.isEmpty()) {
+            return null;
+        }
+        int start = text.charAt(0) == 'v' || text.charAt(0) == 'V' ? 1 : 0;
+        int end = text.indexOf('+');
+        if (end < 0) {
+            end = text.length();
+        }
+        int dash = text.indexOf('-', start);
+        int coreEnd = dash >= 0 && dash < end ? dash : end;
+        
+        long[] parts = new long[3];
+        int part = 0;
+        int position = start;
+        while (true) {
+            int dot = text.indexOf('.', position);
+            int partEnd = dot >= 0 && dot < coreEnd ? dot : coreEnd;
+            if (part == 3 || !isNumber(text, position, partEnd)) {
+                return null;
+            }
+            try {
+                parts[part++] = Long.parseLong(text, position, partEnd, 10);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+            if (partEnd == coreEnd) {
+                break;
+            }
+            position = partEnd + 1;
+        }
+        
+        String[] prerelease = new String[0];
+        if (coreEnd < end) {
+            prerelease = text.substring(coreEnd + 1, end).split("\\.", -1);
+            for (String identifier : prerelease) {
+                if (identifier.isEmpty()) {
+                    return null;
+                }
+            }
+        }
+        return new SemanticVersion(parts[0], parts[1], parts[2], prerelease);
+    }
+    
+    @Override
+    public int compareTo(SemanticVersion other) {
+        int result = Long.compare(major, other.major);
+        if (result == 0) {
+            result = Long.compare(minor, other.minor);
+        }
+        if (result == 0) {
+            result = Long.compare(patch, other.patch);
+        }
+        if (result != 0) {
+            return result;
+        }
+        
+        if (prerelease.length == 0 || other.prerelease.length == 0) {
+            // A release ranks above its pre-releases
+            return Boolean.compare(prerelease.length == 0, other.prerelease.length == 0);
+        }
+        for (int i = 0; i < Math.min(prerelease.length, other.prerelease.length); i++) {
+            result = compareIdentifiers(prerelease[i], other.prerelease[i]);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return Integer.compare(prerelease.length, other.prerelease.length);
+    }
+    
+    private static int compareIdentifiers(String a, String b) {
+        boolean aNumeric = isNumber(a, 0, a.length());
+        boolean bNumeric = isNumber(b, 0, b.length());
+        if (aNumeric && bNumeric) {
+            int result = Integer.compare(a.length(), b.length());
+            return result != 0 ? result : a.compareTo(b);
+        }
+        if (aNumeric != bNumeric) {
+            // Numeric identifiers rank below alphanumeric ones
+            return aNumeric ? -1 : 1;
+        }
+        return a.compareTo(b);
+    }
+    
+    private static boolean isNumber(String text, int from, int to) {
+        if (from >= to) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
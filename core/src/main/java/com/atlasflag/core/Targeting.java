@@ -0,0 +1,482 @@
+package com.atlasflag.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Targeting rules of a flag, compiled for evaluation.
+ *
+ * Rules are tried in order and the first one whose clauses all hold decides the value.
+ * They are compiled once per flag version rather than interpreted per call:
+ * <ul>
+ * <li>Equality and in-list clauses are indexed by attribute. Each attribute value maps to
+ *     a bitset of the rules it satisfies, so one hash lookup per attribute discards every
+ *     rule that cannot match.</li>
+ * <li>The remaining clauses (negations, patterns, version ranges, segments) carry prebuilt
+ *     hash sets, compiled {@link Pattern}s, parsed version bounds and the {@link Segments}
+ *     to resolve segment keys in. They are only checked for the rules that survive the
+ *     index, in order, until one matches.</li>
+ * </ul>
+ * An evaluation costs one lookup per indexed attribute and a pass over a bitset of the
+ * rules, plus the remaining clauses of the candidates actually tried. Selecting candidates
+ * allocates nothing: up to 64 rules the bitset is a single {@code long}, beyond that a
+ * per-thread scratch array. Only pattern and version-range clauses allocate, for their
+ * matcher and the parsed version.
+ */
+public final class Targeting {
+    
+    /** Attribute name that refers to the evaluated user ID instead of a context attribute. */
+    public static final String USER_ID_ATTRIBUTE = "userId";
+    
+    public static final Targeting NONE = new Targeting(List.of(), null);
+    
+    /** Candidate bitsets of targetings with more than 64 rules, grown as needed. */
+    private static final ThreadLocal<long[]> SCRATCH = ThreadLocal.withInitial(() -> new long[2]);
+    
+    public enum Operator {
+        /** The attribute equals the single value. */
+        EQUALS,
+        /** The attribute equals one of the values. */
+        IN,
+        /** The attribute contains a match of the regular expression given as the single value. */
+        MATCHES,
+        /** The attribute is a semantic version within the single range value, e.g. {@code ">=1.2.0 <2.0.0"}. */
+        SEMVER_RANGE,
+        /** The attribute is a member of one of the {@link Segment}s whose keys are the values. */
+        IN_SEGMENT
+    }
+    
+    /**
+     * Condition on one attribute. A clause on an attribute the user does not have never
+     * holds, negated or not.
+     */
+    public static final class Clause {
+        
+        private final String attribute;
+        private final Operator operator;
+        private final List<String> values;
+        private final boolean negate;
+        
+        public Clause(String attribute, Operator operator, List<String> values, boolean negate) {
+            this.attribute = Objects.requireNonNull(attribute, "attribute");
+            this.operator = Objects.requireNonNull(operator, "operator");
+            this.values = List.copyOf(Objects.requireNonNull(values, "values"));
+            this.negate = negate;
+        }
+        
+        public String getAttribute() {
+            return attribute;
+        }
+        
+        public Operator getOperator() {
+            return operator;
+        }
+        
+        public List<String> getValues() {
+            return values;
+        }
+        
+        public boolean isNegate() {
+            return negate;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Clause)) {
+                return false;
+            }
+            Clause other = (Clause) o;
+            return negate == other.negate && attribute.equals(other.attribute) && operator == other.operator
+                && values.equals(other.values);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(attribute, operator, values, negate);
+        }
+    }
+    
+    /**
+     * Clauses that must all hold for the rule to serve its value. A rule without clauses
+     * matches everyone.
+     */
+    public static final class Rule {
+        
+        private final String id;
+        private final List<Clause> clauses;
+        private final boolean value;
+        private final Evaluation evaluation;
+        
+        public Rule(String id, List<Clause> clauses, boolean value) {
+            this.id = id;
+            this.clauses = List.copyOf(Objects.requireNonNull(clauses, "clauses"));
+            this.value = value;
+            this.evaluation = new Evaluation(EvaluationReason.TARGETING_MATCH, value, id);
+        }
+        
+        public String getId() {
+            return id;
+        }
+        
+        public List<Clause> getClauses() {
+            return clauses;
+        }
+        
+        public boolean getValue() {
+            return value;
+        }
+        
+        Evaluation evaluation() {
+            return evaluation;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Rule)) {
+                return false;
+            }
+            Rule other = (Rule) o;
+            return value == other.value && Objects.equals(id, other.id) && clauses.equals(other.clauses);
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, clauses, value);
+        }
+    }
+    
+    private final List<Rule> rules;
+    private final long[] allRules;
+    private final IndexedAttribute[] indexedAttributes;
+    private final CompiledClause[][] remainingClauses; // per rule
+    
+    private Targeting(List<Rule> rules, Segments segments) {
+        this.rules = List.copyOf(rules);
+        int count = this.rules.size();
+        this.allRules = new long[(count + 63) >>> 6];
+        this.remainingClauses = new CompiledClause[count][];
+        
+        // attribute -> rule index -> values accepted by all of the rule's clauses on it
+        Map<String, Map<Integer, Set<String>>> accepted = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            allRules[i >>> 6] |= 1L << i;
+            List<CompiledClause> remaining = new ArrayList<>();
+            for (Clause clause : this.rules.get(i).getClauses()) {
+                validate(clause);
+                boolean indexable = !clause.isNegate()
+                    && (clause.getOperator() == Operator.EQUALS || clause.getOperator() == Operator.IN);
+                if (indexable) {
+                    accepted.computeIfAbsent(clause.getAttribute(), a -> new HashMap<>())
+                        .merge(i, new HashSet<>(clause.getValues()), (a, b) -> {
+                            a.retainAll(b);
+                            return a;
+                        });
+                } else {
+                    remaining.add(new CompiledClause(clause, segments));
+                }
+            }
+            remainingClauses[i] = remaining.toArray(new CompiledClause[0]);
+        }
+        
+        this.indexedAttributes = new IndexedAttribute[accepted.size()];
+        int a = 0;
+        for (Map.Entry<String, Map<Integer, Set<String>>> entry : accepted.entrySet()) {
+            indexedAttributes[a++] = new IndexedAttribute(entry.getKey(), entry.getValue(), allRules.length);
+        }
+    }
+    
+    /**
+     * Compile targeting rules, in priority order.
+     *
+     * @throws IllegalArgumentException if a clause is malformed, e.g. an invalid pattern or range
+     */
+    public static Targeting compile(List<Rule> rules) {
+        return compile(rules, null);
+    }
+    
+    /**
+     * Compile targeting rules, in priority order, resolving segment keys in {@code segments}.
+     *
+     * @param segments segments of the flag's environment, or null if segment clauses never match
+     * @throws IllegalArgumentException if a clause is malformed, e.g. an invalid pattern or range
+     */
+    public static Targeting compile(List<Rule> rules, Segments segments) {
+        return rules == null || rules.isEmpty() ? NONE : new Targeting(rules, segments);
+    }
+    
+    /**
+     * @param attributes user context, may be null
+     * @return the first rule that matches the user, or null if none does
+     */
+    public Rule match(String userId, Map<String, String> attributes) {
+        int index = matchIndex(userId, attributes);
+        return index >= 0 ? rules.get(index) : null;
+    }
+    
+    /**
+     * @return the position of the first rule that matches the user, or -1 if none does
+     */
+    int matchIndex(String userId, Map<String, String> attributes) {
+        if (rules.isEmpty()) {
+            return -1;
+        }
+        Map<String, String> context = attributes != null ? attributes : Map.of();
+        
+        if (allRules.length == 1) {
+            long candidates = allRules[0];
+            for (IndexedAttribute index : indexedAttributes) {
+                candidates &= index.mask(lookup(index.attribute, index.userId, userId, context), 0);
+            }
+            return firstMatch(candidates, 0, userId, context);
+        }
+        
+        long[] candidates = scratch(allRules.length);
+        System.arraycopy(allRules, 0, candidates, 0, allRules.length);
+        for (IndexedAttribute index : indexedAttributes) {
+            index.filter(lookup(index.attribute, index.userId, userId, context), candidates);
+        }
+        for (int word = 0; word < allRules.length; word++) {
+            int i = firstMatch(candidates[word], word, userId, context);
+            if (i >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * @return the first rule among the candidate bits of one word whose remaining clauses hold, or -1
+     */
+    private int firstMatch(long bits, int word, String userId, Map<String, String> context) {
+        while (bits != 0) {
+            int i = (word << 6) + Long.numberOfTrailingZeros(bits);
+            if (matchesRemaining(remainingClauses[i], userId, context)) {
+                return i;
+            }
+            bits &= bits - 1;
+        }
+        return -1;
+    }
+    
+    private static long[] scratch(int words) {
+        long[] scratch = SCRATCH.get();
+        if (scratch.length < words) {
+            scratch = new long[words];
+            SCRATCH.set(scratch);
+        }
+        return scratch;
+    }
+    
+    public List<Rule> rules() {
+        return rules;
+    }
+    
+    public boolean isEmpty() {
+        return rules.isEmpty();
+    }
+    
+    private static boolean matchesRemaining(CompiledClause[] clauses, String userId, Map<String, String> context) {
+        for (CompiledClause clause : clauses) {
+            if (!clause.matches(userId, context)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static String lookup(String attribute, boolean isUserId, String userId, Map<String, String> context) {
+        return isUserId ? userId : context.get(attribute);
+    }
+    
+    private static void validate(Clause clause) {
+        int expected = clause.getOperator() == Operator.IN || clause.getOperator() == Operator.IN_SEGMENT ? -1 : 1;
+        if (clause.getValues().isEmpty() || (expected > 0 && clause.getValues().size() != expected)) {
+            throw new IllegalArgumentException(String.format("%s on '%s' takes %s", clause.getOperator(),
+                clause.getAttribute(), expected > 0 ? "exactly one value" : "at least one value"));
+        }
+    }
+    
+    /**
+     * Equality and in-list clauses on one attribute, as bitsets over the rules.
+     */
+    private static final class IndexedAttribute {
+        
+        private final String attribute;
+        private final boolean userId;
+        private final long[] constrained; // rules with a clause on this attribute
+        private final Map<String, long[]> satisfied; // value -> constrained rules it satisfies
+        
+        IndexedAttribute(String attribute, Map<Integer, Set<String>> acceptedByRule, int words) {
+            this.attribute = attribute;
+            this.userId = USER_ID_ATTRIBUTE.equals(attribute);
+            this.constrained = new long[words];
+            this.satisfied = new HashMap<>();
+            for (Map.Entry<Integer, Set<String>> entry : acceptedByRule.entrySet()) {
+                int rule = entry.getKey();
+                constrained[rule >>> 6] |= 1L << rule;
+                for (String value : entry.getValue()) {
+                    satisfied.computeIfAbsent(value, v -> new long[words])[rule >>> 6] |= 1L << rule;
+                }
+            }
+        }
+        
+        /**
+         * @return the bits of one word of rules that a user with this attribute value may still match
+         */
+        long mask(String value, int word) {
+            long[] matched = value != null ? satisfied.get(value) : null;
+            return ~constrained[word] | (matched != null ? matched[word] : 0L);
+        }
+        
+        void filter(String value, long[] candidates) {
+            long[] matched = value != null ? satisfied.get(value) : null;
+            for (int word = 0; word < constrained.length; word++) {
+                candidates[word] &= ~constrained[word] | (matched != null ? matched[word] : 0L);
+            }
+        }
+    }
+    
+    /**
+     * A clause that is not served by an index, with its operand prepared.
+     */
+    private static final class CompiledClause {
+        
+        private final String attribute;
+        private final boolean userId;
+        private final Operator operator;
+        private final boolean negate;
+        private final Set<String> values;
+        private final Pattern pattern;
+        private final VersionBound[] bounds;
+        private final String[] segmentKeys;
+        private final Segments segments;
+        
+        CompiledClause(Clause clause, Segments segments) {
+            this.attribute = clause.getAttribute();
+            this.userId = USER_ID_ATTRIBUTE.equals(attribute);
+            this.operator = clause.getOperator();
+            this.negate = clause.isNegate();
+            this.values = operator == Operator.EQUALS || operator == Operator.IN
+                ? Set.copyOf(clause.getValues())
+                : null;
+            this.pattern = operator == Operator.MATCHES ? Pattern.compile(clause.getValues().get(0)) : null;
+            this.bounds = operator == Operator.SEMVER_RANGE ? VersionBound.parseRange(clause.getValues().get(0)) : null;
+            this.segmentKeys = operator == Operator.IN_SEGMENT ? clause.getValues().toArray(new String[0]) : null;
+            this.segments = segments;
+        }
+        
+        boolean matches(String userIdValue, Map<String, String> context) {
+            String value = lookup(attribute, userId, userIdValue, context);
+            if (value == null) {
+                return false;
+            }
+            boolean result;
+            switch (operator) {
+                case MATCHES:
+                    result = pattern.matcher(value).find();
+                    break;
+                case SEMVER_RANGE:
+                    result = VersionBound.allMatch(bounds, SemanticVersion.parse(value));
+                    break;
+                case IN_SEGMENT:
+                    result = inAnySegment(value);
+                    break;
+                default:
+                    result = values.contains(value);
+                    break;
+            }
+            return result != negate;
+        }
+        
+        private boolean inAnySegment(String value) {
+            if (segments == null) {
+                return false;
+            }
+            // Hash once, then a binary search per segment
+            long hash = Segment.hash(value);
+            for (String key : segmentKeys) {
+                Segment segment = segments.get(key);
+                if (segment != null && segment.containsHash(hash)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+    
+    /**
+     * One comparator of a version range such as {@code ">=1.2.0 <2.0.0"}; all must hold.
+     */
+    private static final class VersionBound {
+        
+        private final String comparator;
+        private final SemanticVersion version;
+        
+        private VersionBound(String comparator, SemanticVersion version) {
+            this.comparator = comparator;
+            this.version = version;
+        }
+        
+        static VersionBound[] parseRange(String range) {
+            String[] tokens = range.trim().split("\\s+");
+            if (tokens.length == 0 || tokens[0].isEmpty()) {
+                throw new IllegalArgumentException("Empty version range");
+            }
+            VersionBound[] bounds = new VersionBound[tokens.length];
+            for (int i = 0; i < tokens.length; i++) {
+                String token = tokens[i];
+                int split = 0;
+                while (split < token.length() && "<>=".indexOf(token.charAt(split)) >= 0) {
+                    split++;
+                }
+                String comparator = split > 0 ? token.substring(0, split) : "=";
+                SemanticVersion version = SemanticVersion.parse(token.substring(split));
+                if (version == null || !List.of("<", "<=", ">", ">=", "=").contains(comparator)) {
+                    throw new IllegalArgumentException("Invalid version range '" + range + "'");
+                }
+                bounds[i] = new VersionBound(comparator, version);
+            }
+            return bounds;
+        }
+        
+        static boolean allMatch(VersionBound[] bounds, SemanticVersion candidate) {
+            if (candidate == null) {
+                return false;
+            }
+            for (VersionBound bound : bounds) {
+                if (!bound.matches(candidate.compareTo(bound.version))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        private boolean matches(int comparison) {
+            switch (comparator) {
+                case "<":
+                    return comparison < 0;
+                case "<=":
+                    return comparison <= 0;
+                case ">":
+                    return comparison > 0;
+                case ">=":
+                    return comparison >= 0;
+                default:
+                    return comparison == 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.atlasflag.core;
+
+/**
+ * UTF-8 encoding of single code points, for hashes that consume the bytes of a string
+ * as they are encoded instead of allocating them.
+ */
+final class Utf8 {
+    
+    private Utf8() {
+    }
+    
+    /**
+     * @return the code point starting at {@code index}, or '?' for an unpaired surrogate as
+     *         {@link String#getBytes} encodes it. A supplementary code point spans two chars.
+     */
+    static int codePointAt(String s, int index) {
+        char c = s.charAt(index);
+        if (!Character.isSurrogate(c)) {
+            return c;
+        }
+        if (Character.isHighSurrogate(c) && index + 1 < s.length() && Character.isLowSurrogate(s.charAt(index + 1))) {
+            return Character.toCodePoint(c, s.charAt(index + 1));
+        }
+        return '?';
+    }
+    
+    /**
+     * @return the number of bytes of the code point
+     */
+    static int length(int cp) {
+        return cp < 0x80 ? 1 : cp < 0x800 ? 2 : cp < 0x10000 ? 3 : 4;
+    }
+    
+    /**
+     * @return the bytes of the code point packed little-endian, first byte lowest
+     */
+    static int encode(int cp) {
+        if (cp < 0x80) {
+            return cp;
+        }
+        if (cp < 0x800) {
+            return (0xC0 | cp >>> 6)
+                | (0x80 | cp & 0x3F) << 8;
+        }
+        if (cp < 0x10000) {
+            return (0xE0 | cp >>> 12)
+                | (0x80 | cp >>> 6 & 0x3F) << 8
+                | (0x80 | cp & 0x3F) << 16;
+        }
+        return (0xF0 | cp >>> 18)
+            | (0x80 | cp >>> 12 & 0x3F) << 8
+            | (0x80 | cp >>> 6 & 0x3F) << 16
+            | (0x80 | cp & 0x3F) << 24;
+    }
+}
@@ -0,0 +1,97 @@
+package com.atlasflag.core;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * One value of a multivariate flag: a string, number or JSON document, and the share of
+ * served users that get it.
+ *
+ * The value is kept as JSON text, since this module has no JSON parser. Callers decode it
+ * through {@link #decode}, which caches the result per target type; a variant lives as
+ * long as the flag version it belongs to, so every value is decoded once per version.
+ */
+public final class Variant {
+    
+    private final String key;
+    private final String value;
+    private final BigDecimal weight;
+    private final int weightBuckets;
+    private final Map<Class<?>, Object> decoded = new ConcurrentHashMap<>(2);
+    
+    /**
+     * @param value the value as JSON, e.g. {@code "\"blue\""}, {@code 42} or {@code {"limit": 10}}
+     * @param weight share of served users in percent, with up to two decimals; finer values
+     *               are rounded down
+     */
+    public Variant(String key, String value, BigDecimal weight) {
+        this.key = Objects.requireNonNull(key, "key");
+        this.value = Objects.requireNonNull(value, "value");
+        this.weight = Objects.requireNonNull(weight, "weight");
+        this.weightBuckets = weight.movePointRight(2).setScale(0, RoundingMode.DOWN).intValue();
+    }
+    
+    public String getKey() {
+        return key;
+    }
+    
+    /**
+     * @return the value as JSON text
+     */
+    public String getValue() {
+        return value;
+    }
+    
+    public BigDecimal getWeight() {
+        return weight;
+    }
+    
+    /**
+     * The value decoded as {@code type}. The first call per type runs {@code decoder} on the
+     * JSON text; later calls return the same instance, which callers must not modify.
+     */
+    public <T> T decode(Class<T> type, Function<String, ? extends T> decoder) {
+        Object cached = decoded.get(type);
+        if (cached == null) {
+            cached = decoder.apply(value);
+            if (cached == null) {
+                // JSON null; nothing to cache
+                return null;
+            }
+            Object raced = decoded.putIfAbsent(type, cached);
+            if (raced != null) {
+                cached = raced;
+            }
+        }
+        return type.cast(cached);
+    }
+    
+    int weightBuckets() {
+        return weightBuckets;
+    }
+    
+    /**
+     * Variants are equal if they have the same key and JSON text and take the same share of
+     * users; weights that differ only in trailing zeros are the same share.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Variant)) {
+            return false;
+        }
+        Variant other = (Variant) o;
+        return weightBuckets == other.weightBuckets && key.equals(other.key) && value.equals(other.value);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(key, value, weightBuckets);
+    }
+}
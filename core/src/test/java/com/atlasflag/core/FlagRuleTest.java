@@ -0,0 +1,48 @@
+package com.atlasflag.core;
+
+import com.atlasflag.core.Targeting.Clause;
+import com.atlasflag.core.Targeting.Operator;
+import com.atlasflag.core.Targeting.Rule;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FlagRuleTest {
+    
+    @Test
+    public void sameDefinitionIgnoresVersionAndWeightScale() {
+        FlagRule rule = rule(true, "25", "beta", "50", "payments", 3);
+        
+        assertTrue(rule.sameDefinition(rule(true, "25", "beta", "50", "payments", 3)));
+        assertTrue(rule.sameDefinition(rule(true, "25.00", "beta", "50.00", "payments", 0)));
+        assertFalse(rule.sameDefinition(null));
+    }
+    
+    @Test
+    public void sameDefinitionComparesWhatEvaluationReads() {
+        FlagRule rule = rule(true, "25", "beta", "50", "payments", 3);
+        
+        assertFalse(rule.sameDefinition(rule(false, "25", "beta", "50", "payments", 3)));
+        assertFalse(rule.sameDefinition(rule(true, "25.01", "beta", "50", "payments", 3)));
+        assertFalse(rule.sameDefinition(rule(true, "25", "internal", "50", "payments", 3)));
+        assertFalse(rule.sameDefinition(rule(true, "25", "beta", "60", "payments", 3)));
+        assertFalse(rule.sameDefinition(rule(true, "25", "beta", "50", "billing", 3)));
+        assertFalse(rule.sameDefinition(new FlagRule("other", true, false, new BigDecimal("25"), null, 3)));
+    }
+    
+    private static FlagRule rule(boolean enabled, String rollout, String segment, String controlWeight,
+                                 String prerequisite, long version) {
+        Targeting targeting = Targeting.compile(List.of(new Rule("r1",
+            List.of(new Clause(Targeting.USER_ID_ATTRIBUTE, Operator.IN_SEGMENT, List.of(segment), false)), true)));
+        BigDecimal control = new BigDecimal(controlWeight);
+        List<Variant> variants = List.of(
+            new Variant("control", "\"blue\"", control),
+            new Variant("treatment", "\"green\"", new BigDecimal("100").subtract(control)));
+        return new FlagRule("checkout", enabled, false, new BigDecimal(rollout), targeting, variants,
+            List.of(new FlagRule.Prerequisite(prerequisite, true)), version);
+    }
+}
@@ -0,0 +1,189 @@
+package com.atlasflag.core;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FlagSnapshotTest {
+    
+    @Test
+    public void findsEveryFlagByKey() {
+        List<FlagRule> rules = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            rules.add(flag("flag-" + i, true));
+        }
+        FlagSnapshot snapshot = FlagSnapshot.of(rules, 7);
+        
+        assertEquals(7, snapshot.getVersion());
+        assertEquals(1000, snapshot.size());
+        for (int i = 0; i < 1000; i++) {
+            int index = snapshot.indexOf("flag-" + i);
+            assertEquals("flag-" + i, snapshot.ruleAt(index).getFlagKey());
+            assertSame(snapshot.ruleAt(index), snapshot.get("flag-" + i));
+        }
+        assertEquals(-1, snapshot.indexOf("flag-1000"));
+        assertNull(snapshot.get("missing"));
+        assertNull(snapshot.evaluate("missing", "alice", null));
+    }
+    
+    @Test
+    public void lastRuleOfAKeyWins() {
+        FlagRule first = flag("checkout", false);
+        FlagRule second = flag("checkout", true);
+        FlagSnapshot snapshot = FlagSnapshot.of(List.of(first, second), 1);
+        
+        assertEquals(1, snapshot.size());
+        assertSame(second, snapshot.get("checkout"));
+    }
+    
+    @Test
+    public void evaluatesPrerequisitesBeforeDependentsWhateverTheirOrder() {
+        // Listed before the flags they require
+        FlagSnapshot snapshot = FlagSnapshot.of(List.of(
+            flag("checkout", true, requires("payments", true)),
+            flag("payments", true, requires("payments-outage", false)),
+            flag("payments-outage", false)), 1);
+        
+        assertEnabled(snapshot, "checkout", EvaluationReason.FLAG_ENABLED);
+        assertEnabled(snapshot, "payments", EvaluationReason.FLAG_ENABLED);
+        
+        FlagSnapshot outage = snapshot.withRule(flag("payments-outage", true), 2);
+        assertEquals(2, outage.getVersion());
+        assertFailed(outage, "payments");
+        assertFailed(outage, "checkout");
+        assertAgreesWithEvaluateAll(outage);
+    }
+    
+    @Test
+    public void requiredValueMayBeFalse() {
+        FlagSnapshot snapshot = FlagSnapshot.of(List.of(
+            flag("legacy-ui", true, requires("new-ui", false)),
+            flag("new-ui", false)), 1);
+        assertEnabled(snapshot, "legacy-ui", EvaluationReason.FLAG_ENABLED);
+        
+        FlagSnapshot switched = snapshot.withRule(flag("new-ui", true), 2);
+        assertFailed(switched, "legacy-ui");
+    }
+    
+    @Test(timeout = 10_000)
+    public void evaluatesSharedPrerequisitesOnce() {
+        // Each level requires both flags of the level below: 2^40 paths to the bottom, 80 flags
+        List<FlagRule> rules = new ArrayList<>();
+        rules.add(flag("level-0-a", true));
+        rules.add(flag("level-0-b", true));
+        for (int level = 1; level < 40; level++) {
+            List<FlagRule.Prerequisite> below = List.of(
+                new FlagRule.Prerequisite("level-" + (level - 1) + "-a", true),
+                new FlagRule.Prerequisite("level-" + (level - 1) + "-b", true));
+            rules.add(new FlagRule("level-" + level + "-a", true, false, null, null, List.of(), below, 1));
+            rules.add(new FlagRule("level-" + level + "-b", true, false, null, null, List.of(), below, 1));
+        }
+        FlagSnapshot snapshot = FlagSnapshot.of(rules, 1);
+        
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(snapshot.evaluate("level-39-a", "user-" + i, null).getValue());
+        }
+        assertAgreesWithEvaluateAll(snapshot);
+        
+        FlagSnapshot broken = snapshot.withRule(flag("level-0-b", false), 2);
+        assertFailed(broken, "level-39-a");
+        assertFailed(broken, "level-1-b");
+        assertEnabled(broken, "level-0-a", EvaluationReason.FLAG_ENABLED);
+    }
+    
+    @Test
+    public void missingPrerequisiteFails() {
+        FlagSnapshot snapshot = FlagSnapshot.of(List.of(
+            flag("checkout", true, requires("deleted", true)),
+            flag("search", false, requires("deleted", true))), 1);
+        
+        assertFailed(snapshot, "checkout");
+        // A disabled flag serves its default as disabled, prerequisites or not
+        assertEquals(EvaluationReason.FLAG_DISABLED, snapshot.evaluate("search", "alice", null).getReason());
+        assertAgreesWithEvaluateAll(snapshot);
+        
+        FlagSnapshot restored = snapshot.withRule(flag("deleted", true), 2);
+        assertEnabled(restored, "checkout", EvaluationReason.FLAG_ENABLED);
+        assertFailed(restored.withoutRule("deleted", 3), "checkout");
+    }
+    
+    @Test
+    public void flagsOnOrBehindACycleFailTheirPrerequisites() {
+        FlagSnapshot snapshot = FlagSnapshot.of(List.of(
+            flag("a", true, requires("b", true)),
+            flag("b", true, requires("a", true)),
+            flag("behind", true, requires("a", true)),
+            flag("disabled", false, requires("b", true)),
+            flag("independent", true)), 1);
+        
+        assertFailed(snapshot, "a");
+        assertFailed(snapshot, "b");
+        assertFailed(snapshot, "behind");
+        assertEquals(EvaluationReason.FLAG_DISABLED, snapshot.evaluate("disabled", "alice", null).getReason());
+        assertEnabled(snapshot, "independent", EvaluationReason.FLAG_ENABLED);
+        assertAgreesWithEvaluateAll(snapshot);
+        
+        // Breaking the cycle orders the flags again
+        FlagSnapshot fixed = snapshot.withRule(flag("b", true), 2);
+        assertEnabled(fixed, "a", EvaluationReason.FLAG_ENABLED);
+        assertEnabled(fixed, "behind", EvaluationReason.FLAG_ENABLED);
+        assertAgreesWithEvaluateAll(fixed);
+    }
+    
+    @Test
+    public void selfPrerequisiteIsACycle() {
+        FlagSnapshot snapshot = FlagSnapshot.of(List.of(flag("loop", true, requires("loop", true))), 1);
+        assertFailed(snapshot, "loop");
+        assertAgreesWithEvaluateAll(snapshot);
+    }
+    
+    @Test
+    public void prerequisitesSeeTheSameUser() {
+        FlagRule half = new FlagRule("half", true, false, new BigDecimal("50"), null, 1);
+        FlagSnapshot snapshot = FlagSnapshot.of(List.of(flag("dependent", true, requires("half", true)), half), 1);
+        
+        for (int i = 0; i < 1000; i++) {
+            String userId = "user-" + i;
+            Evaluation evaluation = snapshot.evaluate("dependent", userId, null);
+            assertEquals(half.isEnabledFor(userId), evaluation.getValue());
+            assertEquals(half.isEnabledFor(userId) ? EvaluationReason.FLAG_ENABLED : EvaluationReason.PREREQUISITE_FAILED,
+                evaluation.getReason());
+        }
+    }
+    
+    private static void assertEnabled(FlagSnapshot snapshot, String flagKey, EvaluationReason reason) {
+        Evaluation evaluation = snapshot.evaluate(flagKey, "alice", null);
+        assertTrue(flagKey, evaluation.getValue());
+        assertEquals(flagKey, reason, evaluation.getReason());
+    }
+    
+    private static void assertFailed(FlagSnapshot snapshot, String flagKey) {
+        Evaluation evaluation = snapshot.evaluate(flagKey, "alice", null);
+        assertFalse(flagKey, evaluation.getValue());
+        assertEquals(flagKey, EvaluationReason.PREREQUISITE_FAILED, evaluation.getReason());
+    }
+    
+    private static void assertAgreesWithEvaluateAll(FlagSnapshot snapshot) {
+        Evaluation[] all = snapshot.evaluateAll("alice", null);
+        assertEquals(snapshot.size(), all.length);
+        for (int i = 0; i < all.length; i++) {
+            assertSame(snapshot.ruleAt(i).getFlagKey(), snapshot.evaluate(i, "alice", null), all[i]);
+        }
+    }
+    
+    private static FlagRule.Prerequisite requires(String flagKey, boolean value) {
+        return new FlagRule.Prerequisite(flagKey, value);
+    }
+    
+    private static FlagRule flag(String flagKey, boolean enabled, FlagRule.Prerequisite... prerequisites) {
+        return new FlagRule(flagKey, enabled, false, null, null, List.of(), List.of(prerequisites), 1);
+    }
+}
@@ -0,0 +1,158 @@
+package com.atlasflag.core;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RolloutHashTest {
+    
+    // Bucket 0 and bucket 9999 of flag "checkout"
+    private static final String FIRST_BUCKET_USER = "user-4746";
+    private static final String LAST_BUCKET_USER = "user-6735";
+    
+    @Test
+    public void referenceMatchesPublishedVectors() {
+        assertEquals(0x00000000, murmur3("".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(0x248bfa47, murmur3("hello".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(0x149bbb7f, murmur3("hello, world".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(0x2e4ff723, murmur3("The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8)));
+    }
+    
+    @Test
+    public void hashIsPinned() {
+        // Other SDKs must produce the same values
+        assertEquals(0xd08dc68d, RolloutHash.hash("checkout", "user-1"));
+        assertEquals(0xfe645cc2, RolloutHash.hash("checkout", "user-2"));
+        assertEquals(0xcb1e23d9, RolloutHash.hash("new-search", "alice@example.com"));
+        assertEquals(2333, RolloutHash.bucket("checkout", "user-1"));
+        assertEquals(210, RolloutHash.bucket("checkout", "user-2"));
+        assertEquals(8646, RolloutHash.variantBucket("checkout", "user-1"));
+        assertEquals(3433, RolloutHash.variantBucket("checkout", "user-2"));
+    }
+    
+    @Test
+    public void hashesUtf8OfSaltedKey() {
+        String[][] inputs = {
+            {"checkout", "user-1"},
+            {"", ""},
+            {"a", "bc"},           // every length modulo 4
+            {"ab", "cde"},
+            {"abc", "defghij"},
+            {"flag", "\u00fcber"},       // two-byte sequence
+            {"flag", "\u65e5\u672c"},    // three-byte sequences
+            {"flag", "\ud83d\ude00"},    // surrogate pair, four bytes
+            {"emoji-\ud83d\ude80", "x"}
+        };
+        for (String[] input : inputs) {
+            byte[] salted = (input[0] + ":" + input[1]).getBytes(StandardCharsets.UTF_8);
+            assertEquals(input[0] + ":" + input[1], murmur3(salted), RolloutHash.hash(input[0], input[1]));
+        }
+        assertEquals(0x202917a7, RolloutHash.hash("flag", "\ud83d\ude00"));
+        assertEquals(0xc987c5da, RolloutHash.hash("flag", "\u65e5\u672c"));
+    }
+    
+    @Test
+    public void unpairedSurrogateHashesAsQuestionMark() {
+        assertEquals(RolloutHash.hash("f", "?"), RolloutHash.hash("f", "\ud800"));
+        assertEquals(RolloutHash.hash("f", "?x"), RolloutHash.hash("f", "\ude00x"));
+        assertEquals(murmur3("f:\ud800".getBytes(StandardCharsets.UTF_8)), RolloutHash.hash("f", "\ud800"));
+    }
+    
+    @Test
+    public void bucketsStayInRange() {
+        for (int i = 0; i < 100_000; i++) {
+            int bucket = RolloutHash.bucket("checkout", "user-" + i);
+            assertTrue(bucket >= 0 && bucket < RolloutHash.BUCKETS);
+            int variantBucket = RolloutHash.variantBucket("checkout", "user-" + i);
+            assertTrue(variantBucket >= 0 && variantBucket < RolloutHash.BUCKETS);
+        }
+        assertEquals(0, RolloutHash.bucket("checkout", FIRST_BUCKET_USER));
+        assertEquals(RolloutHash.BUCKETS - 1, RolloutHash.bucket("checkout", LAST_BUCKET_USER));
+    }
+    
+    @Test
+    public void rolloutBoundsIncludeExactlyTheirBuckets() {
+        FlagRule smallest = new FlagRule("checkout", true, false, new BigDecimal("0.01"), null, 1);
+        assertTrue(smallest.isEnabledFor(FIRST_BUCKET_USER));
+        assertFalse(smallest.isEnabledFor(LAST_BUCKET_USER));
+        
+        FlagRule largest = new FlagRule("checkout", true, false, new BigDecimal("99.99"), null, 1);
+        assertTrue(largest.isEnabledFor(FIRST_BUCKET_USER));
+        assertFalse(largest.isEnabledFor(LAST_BUCKET_USER));
+        
+        FlagRule none = new FlagRule("checkout", true, false, BigDecimal.ZERO, null, 1);
+        assertFalse(none.isEnabledFor(FIRST_BUCKET_USER));
+        FlagRule all = new FlagRule("checkout", true, false, new BigDecimal("100"), null, 1);
+        assertTrue(all.isEnabledFor(LAST_BUCKET_USER));
+    }
+    
+    @Test
+    public void flagRuleBucketsUsersConsistently() {
+        FlagRule rule = new FlagRule("checkout", true, false, new BigDecimal("50"), null, 1);
+        FlagRule sameFlag = new FlagRule("checkout", true, false, new BigDecimal("50"), null, 2);
+        for (int i = 0; i < 10_000; i++) {
+            String userId = "user-" + i;
+            boolean expected = RolloutHash.bucket("checkout", userId) < 5000;
+            assertEquals(expected, rule.isEnabledFor(userId));
+            assertEquals(expected, rule.isEnabledFor(userId));
+            assertEquals(expected, sameFlag.isEnabledFor(userId));
+        }
+        assertSame(rule.evaluate("user-1"), rule.evaluate("user-1"));
+    }
+    
+    @Test
+    public void flagKeySaltsTheBucket() {
+        int differing = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (RolloutHash.bucket("checkout", "user-" + i) != RolloutHash.bucket("search", "user-" + i)) {
+                differing++;
+            }
+        }
+        assertTrue(differing > 990);
+    }
+    
+    /**
+     * MurmurHash3 x86 32-bit, seed 0, over a byte array, as in the reference implementation.
+     */
+    @SuppressWarnings("fallthrough")
+    private static int murmur3(byte[] data) {
+        int h = 0;
+        int blocks = data.length & ~3;
+        for (int i = 0; i < blocks; i += 4) {
+            int k = (data[i] & 0xFF) | (data[i + 1] & 0xFF) << 8 | (data[i + 2] & 0xFF) << 16 | (data[i + 3] & 0xFF) << 24;
+            h ^= mix(k);
+            h = Integer.rotateLeft(h, 13) * 5 + 0xe6546b64;
+        }
+        int k = 0;
+        switch (data.length & 3) {
+            case 3:
+                k ^= (data[blocks + 2] & 0xFF) << 16;
+            case 2:
+                k ^= (data[blocks + 1] & 0xFF) << 8;
+            case 1:
+                k ^= data[blocks] & 0xFF;
+                h ^= mix(k);
+            default:
+                break;
+        }
+        h ^= data.length;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+    
+    private static int mix(int k) {
+        k *= 0xcc9e2d51;
+        k = Integer.rotateLeft(k, 15);
+        return k * 0x1b873593;
+    }
+}
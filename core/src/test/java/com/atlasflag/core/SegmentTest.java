@@ -0,0 +1,218 @@
+package com.atlasflag.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class SegmentTest {
+    
+    @Test
+    public void referenceMatchesPublishedVectors() {
+        assertEquals(0L, murmur3(new byte[0]));
+        // murmur3_x64_128 = 6c1b07bc7bbc4be3 47939ac4a93c437a, its first 8 bytes read little-endian
+        assertEquals(0xe34bbc7bbc071b6cL, murmur3("The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8)));
+    }
+    
+    @Test
+    public void hashIsPinned() {
+        // Other SDKs must produce the same values
+        assertEquals(0L, Segment.hash(""));
+        assertEquals(0xe34bbc7bbc071b6cL, Segment.hash("The quick brown fox jumps over the lazy dog"));
+        assertEquals(0xcbd8a7b341bd9b02L, Segment.hash("hello"));
+    }
+    
+    @Test
+    public void hashesUtf8OfUserId() {
+        String[] ids = {"a", "alice@example.com", "exactly-16-bytes", "seventeen-bytes-x", "fifteen-bytes-x",
+            "\u00fcber", "\u65e5\u672c\u8a9e", "\ud83d\ude00-user", "a-much-longer-user-id-over-several-blocks"};
+        for (String id : ids) {
+            assertEquals(id, murmur3(id.getBytes(StandardCharsets.UTF_8)), Segment.hash(id));
+        }
+        // Unpaired surrogates encode as '?', as String.getBytes does
+        assertEquals(Segment.hash("x?"), Segment.hash("x\ud800"));
+        assertEquals(murmur3("x\ud800".getBytes(StandardCharsets.UTF_8)), Segment.hash("x\ud800"));
+    }
+    
+    @Test
+    public void builderSortsAndDeduplicates() throws IOException {
+        Segment.Builder builder = new Segment.Builder();
+        for (int i = 2999; i >= 0; i--) {
+            builder.add("user-" + i).add("user-" + (i % 100));
+        }
+        Segment segment = builder.build("beta", 7);
+        
+        assertEquals("beta", segment.getKey());
+        assertEquals(7, segment.getVersion());
+        assertEquals(3000, segment.size());
+        long[] hashes = decode(encode(segment));
+        for (int i = 1; i < hashes.length; i++) {
+            assertTrue(hashes[i - 1] < hashes[i]);
+        }
+    }
+    
+    @Test
+    public void containsOnlyMembers() {
+        Segment segment = new Segment.Builder().add("alice").add("bob").add("\ud83d\ude00").build("beta", 1);
+        assertTrue(segment.contains("alice"));
+        assertTrue(segment.contains("bob"));
+        assertTrue(segment.contains("\ud83d\ude00"));
+        assertFalse(segment.contains("carol"));
+        assertFalse(segment.contains("Alice"));
+        assertFalse(segment.contains(""));
+        assertFalse(segment.contains(null));
+        
+        Segment empty = new Segment.Builder().build("empty", 1);
+        assertEquals(0, empty.size());
+        assertFalse(empty.contains("alice"));
+    }
+    
+    @Test
+    public void encodesSortedBigEndianHashes() throws IOException {
+        Segment segment = new Segment.Builder().addHash(0x0102030405060708L).addHash(-1L).addHash(5L).build("s", 1);
+        byte[] expected = {
+            (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff,
+            0, 0, 0, 0, 0, 0, 0, 5,
+            1, 2, 3, 4, 5, 6, 7, 8
+        };
+        assertArrayEquals(expected, encode(segment));
+    }
+    
+    @Test
+    public void readsBackWhatItWrites() throws IOException {
+        Segment.Builder builder = new Segment.Builder();
+        for (int i = 0; i < 5000; i++) {
+            builder.add("user-" + i);
+        }
+        Segment segment = builder.build("beta", 3);
+        byte[] encoded = encode(segment);
+        
+        Segment fromStream = Segment.read("beta", 4, new ByteArrayInputStream(encoded));
+        ByteBuffer buffer = ByteBuffer.allocate(encoded.length + 3);
+        buffer.put(new byte[3]).put(encoded).position(3);
+        Segment fromBuffer = Segment.read("beta", 5, buffer);
+        
+        assertEquals(3, buffer.position());
+        assertEquals(4, fromStream.getVersion());
+        assertEquals(5, fromBuffer.getVersion());
+        assertArrayEquals(encoded, encode(fromStream));
+        assertArrayEquals(encoded, encode(fromBuffer));
+        for (int i = 0; i < 5000; i += 97) {
+            assertTrue(fromStream.contains("user-" + i));
+            assertTrue(fromBuffer.contains("user-" + i));
+        }
+        assertFalse(fromBuffer.contains("user-5000"));
+    }
+    
+    @Test
+    public void rejectsTruncatedInput() throws IOException {
+        byte[] encoded = encode(new Segment.Builder().add("alice").add("bob").build("s", 1));
+        byte[] truncated = new byte[encoded.length - 3];
+        System.arraycopy(encoded, 0, truncated, 0, truncated.length);
+        
+        assertThrows(EOFException.class, () -> Segment.read("s", 1, new ByteArrayInputStream(truncated)));
+        assertThrows(EOFException.class, () -> Segment.read("s", 1, ByteBuffer.wrap(truncated)));
+    }
+    
+    @Test
+    public void rejectsUnsortedOrDuplicateInput() {
+        byte[] descending = ByteBuffer.allocate(16).putLong(9).putLong(3).array();
+        byte[] duplicate = ByteBuffer.allocate(16).putLong(3).putLong(3).array();
+        for (byte[] bytes : new byte[][] {descending, duplicate}) {
+            IOException e = assertThrows(IOException.class, () -> Segment.read("s", 1, new ByteArrayInputStream(bytes)));
+            assertEquals("Segment 's' is not sorted", e.getMessage());
+            e = assertThrows(IOException.class, () -> Segment.read("s", 1, ByteBuffer.wrap(bytes)));
+            assertEquals("Segment 's' is not sorted", e.getMessage());
+        }
+    }
+    
+    /**
+     * First 64 bits of MurmurHash3 x64 128-bit, seed 0, over a byte array, as in the reference implementation.
+     */
+    @SuppressWarnings("fallthrough")
+    private static long murmur3(byte[] data) {
+        long h1 = 0;
+        long h2 = 0;
+        int blocks = data.length & ~15;
+        ByteBuffer buffer = ByteBuffer.wrap(data).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < blocks; i += 16) {
+            h1 ^= mixK1(buffer.getLong(i));
+            h1 = Long.rotateLeft(h1, 27) + h2;
+            h1 = h1 * 5 + 0x52dce729;
+            h2 ^= mixK2(buffer.getLong(i + 8));
+            h2 = Long.rotateLeft(h2, 31) + h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+        long k1 = 0;
+        long k2 = 0;
+        int tail = blocks;
+        switch (data.length & 15) {
+            case 15: k2 ^= (long) (data[tail + 14] & 0xFF) << 48;
+            case 14: k2 ^= (long) (data[tail + 13] & 0xFF) << 40;
+            case 13: k2 ^= (long) (data[tail + 12] & 0xFF) << 32;
+            case 12: k2 ^= (long) (data[tail + 11] & 0xFF) << 24;
+            case 11: k2 ^= (long) (data[tail + 10] & 0xFF) << 16;
+            case 10: k2 ^= (long) (data[tail + 9] & 0xFF) << 8;
+            case 9: k2 ^= data[tail + 8] & 0xFF;
+                h2 ^= mixK2(k2);
+            case 8: k1 ^= (long) (data[tail + 7] & 0xFF) << 56;
+            case 7: k1 ^= (long) (data[tail + 6] & 0xFF) << 48;
+            case 6: k1 ^= (long) (data[tail + 5] & 0xFF) << 40;
+            case 5: k1 ^= (long) (data[tail + 4] & 0xFF) << 32;
+            case 4: k1 ^= (long) (data[tail + 3] & 0xFF) << 24;
+            case 3: k1 ^= (long) (data[tail + 2] & 0xFF) << 16;
+            case 2: k1 ^= (long) (data[tail + 1] & 0xFF) << 8;
+            case 1: k1 ^= data[tail] & 0xFF;
+                h1 ^= mixK1(k1);
+            default:
+                break;
+        }
+        h1 ^= data.length;
+        h2 ^= data.length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        return h1 + h2;
+    }
+    
+    private static long mixK1(long k) {
+        return Long.rotateLeft(k * 0x87c37b91114253d5L, 31) * 0x4cf5ad432745937fL;
+    }
+    
+    private static long mixK2(long k) {
+        return Long.rotateLeft(k * 0x4cf5ad432745937fL, 33) * 0x87c37b91114253d5L;
+    }
+    
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+    
+    private static byte[] encode(Segment segment) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        segment.writeTo(out);
+        return out.toByteArray();
+    }
+    
+    private static long[] decode(byte[] bytes) {
+        long[] hashes = new long[bytes.length / Long.BYTES];
+        ByteBuffer.wrap(bytes).asLongBuffer().get(hashes);
+        return hashes;
+    }
+}
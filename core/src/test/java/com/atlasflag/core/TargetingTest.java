@@ -0,0 +1,225 @@
+package com.atlasflag.core;
+
+import com.atlasflag.core.Targeting.Clause;
+import com.atlasflag.core.Targeting.Operator;
+import com.atlasflag.core.Targeting.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class TargetingTest {
+    
+    @Test
+    public void equalsWithAndWithoutNegate() {
+        Targeting targeting = single(clause("plan", Operator.EQUALS, false, "pro"));
+        assertMatches(targeting, Map.of("plan", "pro"));
+        assertNoMatch(targeting, Map.of("plan", "free"));
+        
+        Targeting negated = single(clause("plan", Operator.EQUALS, true, "pro"));
+        assertNoMatch(negated, Map.of("plan", "pro"));
+        assertMatches(negated, Map.of("plan", "free"));
+    }
+    
+    @Test
+    public void inWithAndWithoutNegate() {
+        Targeting targeting = single(clause("country", Operator.IN, false, "DE", "FR", "NL"));
+        assertMatches(targeting, Map.of("country", "FR"));
+        assertNoMatch(targeting, Map.of("country", "US"));
+        
+        Targeting negated = single(clause("country", Operator.IN, true, "DE", "FR", "NL"));
+        assertNoMatch(negated, Map.of("country", "FR"));
+        assertMatches(negated, Map.of("country", "US"));
+    }
+    
+    @Test
+    public void matchesFindsPatternAnywhere() {
+        Targeting targeting = single(clause("email", Operator.MATCHES, false, "@example\\.com$"));
+        assertMatches(targeting, Map.of("email", "alice@example.com"));
+        assertNoMatch(targeting, Map.of("email", "alice@example.org"));
+        
+        Targeting negated = single(clause("email", Operator.MATCHES, true, "@example\\.com$"));
+        assertNoMatch(negated, Map.of("email", "alice@example.com"));
+        assertMatches(negated, Map.of("email", "alice@example.org"));
+    }
+    
+    @Test
+    public void semverRangeWithAndWithoutNegate() {
+        Targeting targeting = single(clause("appVersion", Operator.SEMVER_RANGE, false, ">=1.2.0 <2.0.0"));
+        assertMatches(targeting, Map.of("appVersion", "1.2.0"));
+        assertMatches(targeting, Map.of("appVersion", "v1.10"));
+        assertNoMatch(targeting, Map.of("appVersion", "1.2.0-beta.1"));
+        assertNoMatch(targeting, Map.of("appVersion", "2.0.0"));
+        assertNoMatch(targeting, Map.of("appVersion", "not-a-version"));
+        
+        Targeting negated = single(clause("appVersion", Operator.SEMVER_RANGE, true, ">=1.2.0 <2.0.0"));
+        assertNoMatch(negated, Map.of("appVersion", "1.5.3"));
+        assertMatches(negated, Map.of("appVersion", "2.0.0"));
+        // An unparseable version is outside the range
+        assertMatches(negated, Map.of("appVersion", "not-a-version"));
+    }
+    
+    @Test
+    public void inSegmentResolvesSegmentsAtEvaluation() {
+        Segments segments = new Segments();
+        Targeting targeting = Targeting.compile(List.of(
+            new Rule("beta", List.of(clause(Targeting.USER_ID_ATTRIBUTE, Operator.IN_SEGMENT, false, "beta-testers")), true)),
+            segments);
+        assertNull(targeting.match("alice", null));
+        
+        segments.put(new Segment.Builder().add("alice").add("bob").build("beta-testers", 1));
+        assertEquals("beta", targeting.match("alice", null).getId());
+        assertNull(targeting.match("carol", null));
+        
+        assertNull(Targeting.compile(targeting.rules()).match("alice", null));
+    }
+    
+    @Test
+    public void missingAttributeNeverHolds() {
+        for (Operator operator : List.of(Operator.EQUALS, Operator.IN, Operator.MATCHES, Operator.SEMVER_RANGE)) {
+            String value = operator == Operator.SEMVER_RANGE ? ">=0.0.0" : operator == Operator.MATCHES ? ".*" : "x";
+            for (boolean negate : new boolean[] {false, true}) {
+                Targeting targeting = single(clause("missing", operator, negate, value));
+                assertNoMatch(targeting, Map.of("other", "x"));
+                assertNull(targeting.match("alice", null));
+            }
+        }
+    }
+    
+    @Test
+    public void firstMatchingRuleWins() {
+        Targeting targeting = Targeting.compile(List.of(
+            new Rule("internal", List.of(clause("email", Operator.MATCHES, false, "@atlasflag\\.com$")), true),
+            new Rule("free-plan", List.of(clause("plan", Operator.EQUALS, false, "free")), false),
+            new Rule("europe", List.of(clause("country", Operator.IN, false, "DE", "FR")), true),
+            new Rule("everyone", List.of(), false)));
+        
+        assertEquals("internal", targeting.match("u", Map.of("email", "dev@atlasflag.com", "plan", "free")).getId());
+        assertEquals("free-plan", targeting.match("u", Map.of("plan", "free", "country", "DE")).getId());
+        assertEquals("europe", targeting.match("u", Map.of("plan", "pro", "country", "DE")).getId());
+        assertEquals("everyone", targeting.match("u", Map.of("plan", "pro", "country", "US")).getId());
+        assertEquals("everyone", targeting.match("u", null).getId());
+    }
+    
+    @Test
+    public void clausesOfOneRuleMustAllHold() {
+        Targeting targeting = single(
+            clause("plan", Operator.IN, false, "pro", "enterprise"),
+            clause("plan", Operator.IN, false, "enterprise", "free"),
+            clause("country", Operator.EQUALS, false, "DE"));
+        assertMatches(targeting, Map.of("plan", "enterprise", "country", "DE"));
+        assertNoMatch(targeting, Map.of("plan", "pro", "country", "DE"));
+        assertNoMatch(targeting, Map.of("plan", "enterprise", "country", "FR"));
+        assertNoMatch(targeting, Map.of("plan", "enterprise"));
+    }
+    
+    @Test
+    public void userIdPseudoAttributeReadsTheEvaluatedUser() {
+        Targeting indexed = single(clause(Targeting.USER_ID_ATTRIBUTE, Operator.IN, false, "alice", "bob"));
+        assertEquals("rule", indexed.match("alice", null).getId());
+        assertNull(indexed.match("carol", null));
+        // A context attribute of the same name does not override the user ID
+        assertNull(indexed.match("carol", Map.of(Targeting.USER_ID_ATTRIBUTE, "alice")));
+        
+        Targeting pattern = single(clause(Targeting.USER_ID_ATTRIBUTE, Operator.MATCHES, false, "^admin-"));
+        assertEquals("rule", pattern.match("admin-1", null).getId());
+        assertNull(pattern.match("user-1", Map.of(Targeting.USER_ID_ATTRIBUTE, "admin-1")));
+        assertNull(pattern.match(null, null));
+    }
+    
+    @Test
+    public void indexesMoreThanOneWordOfRules() {
+        List<Rule> rules = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            List<Clause> clauses = new ArrayList<>();
+            clauses.add(clause("n", Operator.EQUALS, false, String.valueOf(i)));
+            if (i % 2 == 1) {
+                clauses.add(clause("tier", Operator.IN, false, "gold"));
+            }
+            if (i % 3 == 0) {
+                clauses.add(clause("email", Operator.MATCHES, true, "@blocked\\.com$"));
+            }
+            rules.add(new Rule("rule-" + i, clauses, true));
+        }
+        rules.add(new Rule("fallback", List.of(), false));
+        Targeting targeting = Targeting.compile(rules);
+        
+        for (int i = 0; i < 150; i++) {
+            Map<String, String> context = Map.of("n", String.valueOf(i), "tier", "gold", "email", "x@example.com");
+            assertEquals("rule-" + i, targeting.match("u", context).getId());
+            assertEquals(i, targeting.matchIndex("u", context));
+        }
+        assertEquals("fallback", targeting.match("u", Map.of("n", "63", "tier", "silver")).getId());
+        assertEquals("rule-64", targeting.match("u", Map.of("n", "64")).getId());
+        assertEquals("rule-129", targeting.match("u", Map.of("n", "129", "tier", "gold", "email", "x@example.com")).getId());
+        assertEquals("fallback", targeting.match("u", Map.of("n", "129", "tier", "gold", "email", "x@blocked.com")).getId());
+        assertEquals("fallback", targeting.match("u", Map.of("n", "150")).getId());
+        assertEquals("fallback", targeting.match("u", null).getId());
+        // Evaluations reuse the candidate bitset; earlier ones must not leak into later ones
+        assertEquals("rule-140", targeting.match("u", Map.of("n", "140")).getId());
+        assertEquals("fallback", targeting.match("u", Map.of("n", "141")).getId());
+    }
+    
+    @Test
+    public void ruleWithoutClausesMatchesEveryone() {
+        Targeting targeting = Targeting.compile(List.of(new Rule("all", List.of(), true)));
+        Rule rule = targeting.match("anyone", null);
+        assertEquals("all", rule.getId());
+        assertTrue(rule.getValue());
+        assertSame(rule, targeting.match("someone-else", Map.of("plan", "pro")));
+    }
+    
+    @Test
+    public void compilingNoRulesGivesNone() {
+        assertSame(Targeting.NONE, Targeting.compile(null));
+        assertSame(Targeting.NONE, Targeting.compile(List.of()));
+        assertNull(Targeting.NONE.match("alice", Map.of("plan", "pro")));
+        assertTrue(Targeting.NONE.isEmpty());
+    }
+    
+    @Test
+    public void rejectsMalformedClauses() {
+        assertRejected(clause("plan", Operator.EQUALS, false, "pro", "free"), "EQUALS on 'plan' takes exactly one value");
+        assertRejected(clause("plan", Operator.EQUALS, false), "EQUALS on 'plan' takes exactly one value");
+        assertRejected(clause("country", Operator.IN, false), "IN on 'country' takes at least one value");
+        assertRejected(clause("beta", Operator.IN_SEGMENT, true), "IN_SEGMENT on 'beta' takes at least one value");
+        assertRejected(clause("email", Operator.MATCHES, false, "a", "b"), "MATCHES on 'email' takes exactly one value");
+        assertRejected(clause("v", Operator.SEMVER_RANGE, false, ">=1.0.0", "<2.0.0"), "SEMVER_RANGE on 'v' takes exactly one value");
+        
+        assertThrows(IllegalArgumentException.class,
+            () -> single(clause("email", Operator.MATCHES, false, "([unclosed")));
+        assertRejected(clause("v", Operator.SEMVER_RANGE, false, " "), "Empty version range");
+        assertRejected(clause("v", Operator.SEMVER_RANGE, false, "~1.2.0"), "Invalid version range '~1.2.0'");
+        assertRejected(clause("v", Operator.SEMVER_RANGE, false, "=<1.2.0"), "Invalid version range '=<1.2.0'");
+        assertRejected(clause("v", Operator.SEMVER_RANGE, false, ">=1.x"), "Invalid version range '>=1.x'");
+    }
+    
+    private static void assertRejected(Clause clause, String message) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> single(clause));
+        assertEquals(message, e.getMessage());
+    }
+    
+    private static void assertMatches(Targeting targeting, Map<String, String> attributes) {
+        assertEquals("rule", targeting.match("alice", attributes).getId());
+    }
+    
+    private static void assertNoMatch(Targeting targeting, Map<String, String> attributes) {
+        assertNull(targeting.match("alice", attributes));
+    }
+    
+    private static Targeting single(Clause... clauses) {
+        return Targeting.compile(List.of(new Rule("rule", Arrays.asList(clauses), true)));
+    }
+    
+    private static Clause clause(String attribute, Operator operator, boolean negate, String... values) {
+        return new Clause(attribute, operator, Arrays.asList(values), negate);
+    }
+}
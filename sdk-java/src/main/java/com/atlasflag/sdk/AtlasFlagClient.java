@@ -1,170 +1,1373 @@
 package com.atlasflag.sdk;
 
+import com.atlasflag.core.Evaluation;
+import com.atlasflag.core.EvaluationReason;
+import com.atlasflag.core.FlagRule;
+import com.atlasflag.core.FlagSnapshot;
+import com.atlasflag.core.Segment;
+import com.atlasflag.core.Segments;
+import com.atlasflag.core.Targeting;
+import com.atlasflag.core.Variant;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import okhttp3.*;
+import okhttp3.sse.EventSource;
+import okhttp3.sse.EventSourceListener;
+import okhttp3.sse.EventSources;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SubmissionPublisher;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * AtlasFlag Java SDK Client
  * 
  * Provides resilient feature flag evaluation with:
- * - Caching for performance
- * - Graceful degradation on service unavailability
- * - Non-blocking evaluation
+ * - Caching for performance, with stale-while-revalidate and one in-flight fetch per flag
+ * - Graceful degradation on service unavailability: a circuit breaker stops calling an
+ *   unhealthy service, and call timeouts adapt to the service's observed latency
+ * - Non-blocking evaluation: {@code isEnabledAsync} never holds a thread while the service
+ *   answers, and blocking calls wait on a future, so virtual threads are not pinned
+ * - A {@link Flow.Publisher} of the flag changes the client applies
+ * - Optional local evaluation against a periodically refreshed environment snapshot, which
+ *   can be kept on disk to start from before the service answers
+ * - Optional streaming of flag changes, applied as soon as the service commits them
+ * - Segment membership checks against in-memory hash arrays, refreshed as segments change
+ * - Multivariate flags, whose served variant is read as a string, number or JSON object
+ * - {@link FlagHandle}s, which evaluate a flag without looking up its key
  */
 public class AtlasFlagClient {
     
     private static final Logger logger = LoggerFactory.getLogger(AtlasFlagClient.class);
     
-    private final String baseUrl;
+    private static final String CHANGE_EVENT_NAME = "flag-change";
+    // The service sends a heartbeat every 15 seconds, so a silent stream is a dead one
+    private static final long STREAM_READ_TIMEOUT_SECONDS = 45;
+    private static final long MAX_STREAM_RECONNECT_DELAY_SECONDS = 30;
+    // Members of a large segment take a few megabytes
+    private static final long SEGMENT_READ_TIMEOUT_SECONDS = 30;
+    // Requests to the service run on OkHttp's dispatcher; beyond this many they queue rather
+    // than start more threads. Every request goes to one host, so the per-host limit matches.
+    private static final int MAX_CONCURRENT_REQUESTS = 64;
+    // Queued calls wait for the ones in flight, and their timeout only starts once they run.
+    // Past a full round of them, serving the fallback beats waiting.
+    private static final int MAX_QUEUED_REQUESTS = MAX_CONCURRENT_REQUESTS;
+    
+    private final HttpUrl baseUrl;
     private final String environment;
     private final OkHttpClient httpClient;
     private final ObjectMapper objectMapper;
-    private final Cache<String, CachedFlag> cache;
+    private final Cache<String, CachedRule> cache;
+    // Rule fetches in progress, shared by every caller that needs the same flag meanwhile
+    private final Map<String, CompletableFuture<CachedRule>> ruleFetches = new ConcurrentHashMap<>();
     private final ScheduledExecutorService scheduler;
     private final long cacheRefreshIntervalSeconds;
+    private final long maxStaleSeconds;
     private final boolean cacheEnabled;
+    private final boolean localEvaluation;
+    private final boolean streaming;
+    // Guards the requests callers wait for; null if disabled
+    private final CircuitBreaker circuitBreaker;
+    
+    // Flag rules of the environment, replaced wholesale on every change (local evaluation only).
+    // Prerequisites are compiled into it, so flags that depend on others evaluate in-process too.
+    private volatile FlagSnapshot localRules;
+    // ETag of the last downloaded snapshot, sent back so unchanged environments answer 304
+    private volatile String snapshotETag;
+    // Change sequence the local rules reflect, -1 if unknown; later changes are fetched as deltas
+    private volatile long snapshotVersion = -1;
+    private final ReentrantLock localRulesLock = new ReentrantLock();
+    // The service's form of the local rules, guarded by localRulesLock, for the snapshot file
+    private final Map<String, FlagRuleResponse> localFlags = new LinkedHashMap<>();
+    // Where the last good snapshot is kept across restarts; null if not at all
+    private final Path snapshotFile;
+    // Set when local rules or segments change, cleared when the snapshot file is written
+    private final AtomicBoolean snapshotChanged = new AtomicBoolean();
+    // Handles by flag key, never removed; with local evaluation each points into localRules
+    private final Map<String, FlagHandle> handles = new ConcurrentHashMap<>();
+    // Segments of the environment, resolved by every rule evaluated in-process
+    private final Segments segments = new Segments();
+    
+    // Changes applied to local rules or cached rules, for flagChanges() subscribers
+    private final SubmissionPublisher<FlagChange> changes = new SubmissionPublisher<>();
+    
+    private volatile EventSource changeStream;
+    private final AtomicInteger streamReconnectAttempts = new AtomicInteger();
+    private volatile boolean shutdown;
+    
+    private AtlasFlagClient(Builder builder) {
+        // Rejects a malformed base URL with an IllegalArgumentException
+        this.baseUrl = HttpUrl.get(builder.baseUrl);
+        this.environment = builder.environment;
+        this.cacheEnabled = builder.cacheEnabled;
+        this.localEvaluation = builder.localEvaluation;
+        this.streaming = builder.streaming && (builder.localEvaluation || builder.cacheEnabled);
+        this.cacheRefreshIntervalSeconds = builder.cacheRefreshIntervalSeconds;
+        this.maxStaleSeconds = builder.maxStaleSeconds;
+        this.circuitBreaker = builder.circuitBreaker ? new CircuitBreaker() : null;
+        this.snapshotFile = builder.localEvaluation ? builder.snapshotFile : null;
+        
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(MAX_CONCURRENT_REQUESTS);
+        dispatcher.setMaxRequestsPerHost(MAX_CONCURRENT_REQUESTS);
+        OkHttpClient.Builder httpClientBuilder = new OkHttpClient.Builder()
+            .dispatcher(dispatcher)
+            .connectTimeout(1, TimeUnit.SECONDS)
+            .readTimeout(2, TimeUnit.SECONDS)
+            .writeTimeout(2, TimeUnit.SECONDS)
+            .eventListener(new EventListener() {
+                @Override
+                public void requestHeadersStart(Call call) {
+                    RequestTiming timing = call.request().tag(RequestTiming.class);
+                    if (timing != null) {
+                        timing.sentNanos = System.nanoTime();
+                    }
+                }
+            });
+        if (builder.apiToken != null) {
+            // Every client derived with newBuilder(), e.g. for segments and the stream, keeps it
+            String authorization = "Bearer " + builder.apiToken;
+            httpClientBuilder.addInterceptor(chain -> chain.proceed(
+                chain.request().newBuilder().header("Authorization", authorization).build()));
+        }
+        this.httpClient = httpClientBuilder.build();
+        
+        this.objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        
+        // Use Caffeine cache with TTL and size limits to prevent memory leaks. Entries outlive
+        // their refresh interval by maxStaleSeconds, during which they are served stale.
+        if (cacheEnabled) {
+            this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(cacheRefreshIntervalSeconds + maxStaleSeconds, TimeUnit.SECONDS)
+                .maximumSize(10000) // Limit cache size
+                .build();
+        } else {
+            this.cache = null;
+        }
+        
+        this.scheduler = Executors.newScheduledThreadPool(1);
+        
+        if (snapshotFile != null && restoreSnapshot()) {
+            // Evaluation is correct already; catch up with the service without holding up build()
+            scheduler.execute(this::refresh);
+        } else {
+            // Load synchronously so evaluation is correct as soon as build() returns
+            if (cacheEnabled || localEvaluation) {
+                try {
+                    refreshSegments();
+                } catch (Exception e) {
+                    logger.warn("Failed to load initial segments for environment '{}'", environment, e);
+                }
+            }
+            if (localEvaluation) {
+                try {
+                    refreshCache();
+                } catch (Exception e) {
+                    logger.warn("Failed to load initial flag snapshot for environment '{}'", environment, e);
+                }
+            }
+            if (snapshotFile != null) {
+                scheduler.execute(this::saveSnapshot);
+            }
+        }
+        
+        if (cacheEnabled || localEvaluation) {
+            startCacheRefresh();
+        }
+        
+        if (streaming) {
+            connectChangeStream();
+        } else if (builder.streaming) {
+            logger.warn("Streaming requires caching or local evaluation and has been disabled");
+        }
+        if (builder.snapshotFile != null && !localEvaluation) {
+            logger.warn("A snapshot file requires local evaluation and has been disabled");
+        }
+    }
+    
+    /**
+     * Evaluate a feature flag
+     * 
+     * @param flagKey The flag key to evaluate
+     * @param defaultValue Default value if flag cannot be evaluated
+     * @return true if flag is enabled, false otherwise
+     */
+    public boolean isEnabled(String flagKey, boolean defaultValue) {
+        return isEnabled(flagKey, null, defaultValue);
+    }
+    
+    /**
+     * Evaluate a feature flag with user context
+     * 
+     * In local evaluation mode this never calls the service: flags are evaluated against the
+     * last downloaded snapshot, and unknown flags (or a snapshot that has not loaded yet)
+     * resolve to {@code defaultValue}.
+     * 
+     * @param flagKey The flag key to evaluate
+     * @param userId User ID for percentage-based rollouts
+     * @param defaultValue Default value if flag cannot be evaluated
+     * @return true if flag is enabled, false otherwise
+     */
+    public boolean isEnabled(String flagKey, String userId, boolean defaultValue) {
+        return isEnabled(flagKey, userId, null, defaultValue);
+    }
+    
+    /**
+     * Evaluate a feature flag with user context and attributes for targeting rules
+     * 
+     * @param flagKey The flag key to evaluate
+     * @param userId User ID for percentage-based rollouts
+     * @param attributes User attributes matched by targeting rules, e.g. country or app version; may be null
+     * @param defaultValue Default value if flag cannot be evaluated
+     * @return true if flag is enabled, false otherwise
+     */
+    public boolean isEnabled(String flagKey, String userId, Map<String, String> attributes, boolean defaultValue) {
+        Evaluation evaluation = evaluate(flagKey, userId, attributes);
+        if (evaluation == null) {
+            logger.debug("Using default value '{}' for flag '{}'", defaultValue, flagKey);
+            return defaultValue;
+        }
+        return evaluation.getValue();
+    }
+    
+    /**
+     * Evaluate a feature flag without blocking the calling thread
+     * 
+     * @see #isEnabledAsync(String, String, Map, boolean)
+     */
+    public CompletableFuture<Boolean> isEnabledAsync(String flagKey, boolean defaultValue) {
+        return isEnabledAsync(flagKey, null, null, defaultValue);
+    }
+    
+    /**
+     * Evaluate a feature flag with user context without blocking the calling thread
+     * 
+     * @see #isEnabledAsync(String, String, Map, boolean)
+     */
+    public CompletableFuture<Boolean> isEnabledAsync(String flagKey, String userId, boolean defaultValue) {
+        return isEnabledAsync(flagKey, userId, null, defaultValue);
+    }
+    
+    /**
+     * Evaluate a feature flag with user context and attributes without blocking the calling thread
+     * 
+     * The future is already complete when the flag is answered from local rules or the cache.
+     * Otherwise it completes on one of the client's HTTP threads, so dependent stages that
+     * block or run long should use an executor of their own. Cancelling it cancels the request.
+     * 
+     * @return future of the flag's value; it completes with {@code defaultValue} rather than
+     *         exceptionally when the flag cannot be evaluated
+     */
+    public CompletableFuture<Boolean> isEnabledAsync(String flagKey, String userId, Map<String, String> attributes,
+                                                     boolean defaultValue) {
+        return evaluateAsync(flagKey, userId, attributes).thenApply(evaluation -> {
+            if (evaluation == null) {
+                logger.debug("Using default value '{}' for flag '{}'", defaultValue, flagKey);
+                return defaultValue;
+            }
+            return evaluation.getValue();
+        });
+    }
+    
+    /**
+     * Changes to flags as the client applies them: from the change stream, from snapshot
+     * refreshes in local evaluation mode, and from refetched cache entries otherwise.
+     * 
+     * Items are delivered on the common fork-join pool. A subscriber whose buffer is full
+     * misses changes rather than holding up the client, so it should treat each change as a
+     * hint to re-read the flag. Subscribers are completed by {@link #shutdown()}.
+     */
+    public Flow.Publisher<FlagChange> flagChanges() {
+        return changes;
+    }
+    
+    /**
+     * Resolve a flag once for repeated evaluation in hot loops
+     * 
+     * With local evaluation, {@link FlagHandle#isEnabled} reads the flag's rule from its
+     * position in the current snapshot instead of looking the key up, and the position is
+     * kept up to date as the snapshot changes. Handles may be created before the flag exists.
+     * 
+     * Handles are kept, and rebound on every snapshot update, for the lifetime of the client,
+     * so this is meant for a fixed set of keys; evaluate arbitrary keys with
+     * {@link #isEnabled(String, String, boolean)}.
+     * 
+     * @return the handle of the flag; the same instance for the same key
+     */
+    public FlagHandle handle(String flagKey) {
+        FlagHandle handle = handles.computeIfAbsent(flagKey, key -> new FlagHandle(this, key));
+        if (localEvaluation) {
+            // Registered before binding, so a concurrent snapshot swap rebinds it if this does not
+            localRulesLock.lock();
+            try {
+                handle.bind(localRules);
+            } finally {
+                localRulesLock.unlock();
+            }
+        }
+        return handle;
+    }
+    
+    /**
+     * Value of the variant a multivariate flag serves the user, as a string
+     * 
+     * @param defaultValue Value if the flag cannot be evaluated, serves false or has no variants
+     */
+    public String getString(String flagKey, String userId, String defaultValue) {
+        return getString(flagKey, userId, null, defaultValue);
+    }
+    
+    /**
+     * @see #getString(String, String, String)
+     */
+    public String getString(String flagKey, String userId, Map<String, String> attributes, String defaultValue) {
+        return getVariantValue(flagKey, userId, attributes, String.class, defaultValue);
+    }
+    
+    /**
+     * Value of the variant a multivariate flag serves the user, as a number
+     * 
+     * @param defaultValue Value if the flag cannot be evaluated, serves false or has no variants
+     */
+    public double getDouble(String flagKey, String userId, double defaultValue) {
+        return getDouble(flagKey, userId, null, defaultValue);
+    }
+    
+    /**
+     * @see #getDouble(String, String, double)
+     */
+    public double getDouble(String flagKey, String userId, Map<String, String> attributes, double defaultValue) {
+        return getVariantValue(flagKey, userId, attributes, Double.class, defaultValue);
+    }
+    
+    /**
+     * Value of the variant a multivariate flag serves the user, mapped to {@code type} by Jackson
+     * 
+     * Values are decoded once per variant and type while the flag is unchanged, so the
+     * returned object is shared between calls and must not be modified.
+     * 
+     * @param defaultValue Value if the flag cannot be evaluated, serves false or has no variants
+     */
+    public <T> T getJson(String flagKey, String userId, Class<T> type, T defaultValue) {
+        return getJson(flagKey, userId, null, type, defaultValue);
+    }
+    
+    /**
+     * @see #getJson(String, String, Class, Object)
+     */
+    public <T> T getJson(String flagKey, String userId, Map<String, String> attributes, Class<T> type, T defaultValue) {
+        return getVariantValue(flagKey, userId, attributes, type, defaultValue);
+    }
+    
+    private <T> T getVariantValue(String flagKey, String userId, Map<String, String> attributes, Class<T> type,
+                                  T defaultValue) {
+        Evaluation evaluation = evaluate(flagKey, userId, attributes);
+        Variant variant = evaluation != null ? evaluation.getVariant() : null;
+        if (variant == null) {
+            return defaultValue;
+        }
+        try {
+            T value = variant.decode(type, json -> decodeValue(json, type));
+            return value != null ? value : defaultValue;
+        } catch (IllegalArgumentException e) {
+            logger.warn("Value of variant '{}' of flag '{}' is not a {}, using default value",
+                variant.getKey(), flagKey, type.getSimpleName(), e);
+            return defaultValue;
+        }
+    }
+    
+    private <T> T decodeValue(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+    
+    /**
+     * Evaluate a flag the way the client is configured to
+     * 
+     * @return the evaluation, or null if the flag cannot be evaluated and the caller's default applies
+     */
+    private Evaluation evaluate(String flagKey, String userId, Map<String, String> attributes) {
+        if (localEvaluation) {
+            return evaluateLocally(flagKey, userId, attributes);
+        }
+        
+        if (!cacheEnabled || cache == null) {
+            return evaluateRemotely(flagKey, userId, attributes);
+        }
+        
+        // Check cache first. The cache holds the flag's rule rather than a per-user result,
+        // so one entry serves every user and rollouts stay correct on cache hits.
+        CachedRule cached = cache.getIfPresent(flagKey);
+        if (cached != null) {
+            if (cached.isExpired()) {
+                // Serve the stale rule right away; one background fetch replaces it
+                fetchRule(flagKey);
+            }
+            return evaluateCached(flagKey, cached, userId, attributes);
+        }
+        
+        // Nothing to serve: wait for the rule, sharing the fetch with concurrent callers
+        CachedRule fetched = fetchRule(flagKey).join();
+        return fetched != null ? evaluateCached(flagKey, fetched, userId, attributes) : null;
+    }
+    
+    /**
+     * {@link #evaluate} without waiting for the service; the future never completes exceptionally
+     */
+    private CompletableFuture<Evaluation> evaluateAsync(String flagKey, String userId, Map<String, String> attributes) {
+        if (localEvaluation) {
+            return CompletableFuture.completedFuture(evaluateLocally(flagKey, userId, attributes));
+        }
+        
+        if (!cacheEnabled || cache == null) {
+            return evaluateRemotelyAsync(flagKey, userId, attributes);
+        }
+        
+        return cachedRule(flagKey).thenCompose(cached -> cached != null
+            ? evaluateCachedAsync(flagKey, cached, userId, attributes)
+            : CompletableFuture.completedFuture(null));
+    }
+    
+    /**
+     * The cached rule of a flag, fetched if the cache does not hold it. A stale rule is
+     * returned right away and refreshed in the background.
+     * 
+     * @return the rule, or null if it could not be fetched; the future never completes exceptionally
+     */
+    private CompletableFuture<CachedRule> cachedRule(String flagKey) {
+        CachedRule cached = cache.getIfPresent(flagKey);
+        if (cached == null) {
+            return fetchRule(flagKey);
+        }
+        if (cached.isExpired()) {
+            fetchRule(flagKey);
+        }
+        return CompletableFuture.completedFuture(cached);
+    }
+    
+    /**
+     * Does not block when the rule's prerequisites are cached as well, as the future is then
+     * complete already.
+     */
+    private Evaluation evaluateCached(String flagKey, CachedRule cached, String userId,
+                                      Map<String, String> attributes) {
+        return evaluateCachedAsync(flagKey, cached, userId, attributes).join();
+    }
+    
+    /**
+     * Prerequisites name other flags, which are looked up in the cache and fetched the same
+     * way as the flag itself. The rules are evaluated together in-process; only when one of
+     * them cannot be fetched is the flag evaluated by the service.
+     */
+    private CompletableFuture<Evaluation> evaluateCachedAsync(String flagKey, CachedRule cached, String userId,
+                                                             Map<String, String> attributes) {
+        if (cached.isStandalone()) {
+            return CompletableFuture.completedFuture(cached.evaluate(userId, attributes));
+        }
+        Map<String, FlagRule> rules = new HashMap<>();
+        rules.put(flagKey, cached.rule);
+        return addPrerequisites(List.of(cached.rule), rules).thenCompose(complete -> {
+            if (!complete) {
+                return evaluateRemotelyAsync(flagKey, userId, attributes);
+            }
+            rules.values().removeIf(Objects::isNull);
+            return CompletableFuture.completedFuture(
+                FlagSnapshot.of(rules.values(), 0).evaluate(flagKey, userId, attributes));
+        });
+    }
+    
+    /**
+     * Add the prerequisites of {@code dependents} to {@code rules}, then theirs, one round of
+     * lookups per level. A flag that does not exist is left out, failing the prerequisite as
+     * it does on the service, and a cycle stops at flags already added.
+     * 
+     * @param rules the rules by flag key, read and written only by one stage at a time
+     * @return false if a rule could not be fetched
+     */
+    private CompletableFuture<Boolean> addPrerequisites(List<FlagRule> dependents, Map<String, FlagRule> rules) {
+        Map<String, CompletableFuture<CachedRule>> lookups = new LinkedHashMap<>();
+        for (FlagRule dependent : dependents) {
+            for (FlagRule.Prerequisite prerequisite : dependent.getPrerequisites()) {
+                String prerequisiteKey = prerequisite.getFlagKey();
+                if (!rules.containsKey(prerequisiteKey) && !lookups.containsKey(prerequisiteKey)) {
+                    lookups.put(prerequisiteKey, cachedRule(prerequisiteKey));
+                }
+            }
+        }
+        if (lookups.isEmpty()) {
+            return CompletableFuture.completedFuture(true);
+        }
+        
+        return CompletableFuture.allOf(lookups.values().toArray(new CompletableFuture<?>[0])).thenCompose(done -> {
+            List<FlagRule> next = new ArrayList<>();
+            for (Map.Entry<String, CompletableFuture<CachedRule>> lookup : lookups.entrySet()) {
+                CachedRule prerequisite = lookup.getValue().join();
+                if (prerequisite == null) {
+                    return CompletableFuture.completedFuture(false);
+                }
+                // A missing flag is recorded as null so it is not looked up again
+                rules.put(lookup.getKey(), prerequisite.rule);
+                if (prerequisite.rule != null) {
+                    next.add(prerequisite.rule);
+                }
+            }
+            return addPrerequisites(next, rules);
+        });
+    }
+    
+    /**
+     * Waits on the asynchronous call rather than making a blocking one, so a virtual thread
+     * unmounts while the service answers and the HTTP threads stay bounded by the dispatcher.
+     */
+    private Evaluation evaluateRemotely(String flagKey, String userId, Map<String, String> attributes) {
+        return evaluateRemotelyAsync(flagKey, userId, attributes).join();
+    }
+    
+    private CompletableFuture<Evaluation> evaluateRemotelyAsync(String flagKey, String userId,
+                                                                Map<String, String> attributes) {
+        return evaluateFlagFromService(flagKey, userId, attributes).thenApply(response ->
+            response != null && response.getEnabled() != null ? response.toEvaluation() : null);
+    }
+    
+    /**
+     * Evaluate many flags for one user in a single round trip
+     * 
+     * Cached rules are evaluated in-process; only the remaining flags are sent to the service.
+     * 
+     * @param userId User ID for percentage-based rollouts
+     * @param flagKeys The flag keys to evaluate, or null to evaluate every flag in the environment
+     * @return immutable map of flag key to value. Flags that do not exist or could not be
+     *         evaluated are absent, so callers should use {@code getOrDefault}
+     */
+    public Map<String, Boolean> evaluateAll(String userId, Collection<String> flagKeys) {
+        return evaluateAll(userId, null, flagKeys);
+    }
+    
+    /**
+     * Evaluate many flags for one user and their attributes in a single round trip
+     * 
+     * @param attributes User attributes matched by targeting rules, may be null
+     * @see #evaluateAll(String, Collection)
+     */
+    public Map<String, Boolean> evaluateAll(String userId, Map<String, String> attributes, Collection<String> flagKeys) {
+        Map<String, Boolean> results = new HashMap<>();
+        
+        if (localEvaluation) {
+            FlagSnapshot snapshot = localRules;
+            if (snapshot != null && flagKeys == null) {
+                Evaluation[] evaluations = snapshot.evaluateAll(userId, attributes);
+                for (int i = 0; i < evaluations.length; i++) {
+                    results.put(snapshot.ruleAt(i).getFlagKey(), evaluations[i].getValue());
+                }
+            } else if (snapshot != null) {
+                for (String flagKey : flagKeys) {
+                    Evaluation evaluation = snapshot.evaluate(flagKey, userId, attributes);
+                    if (evaluation != null) {
+                        results.put(flagKey, evaluation.getValue());
+                    }
+                }
+            }
+            return Map.copyOf(results);
+        }
+        
+        // null means "all flags", which only the service can enumerate
+        List<String> misses = null;
+        if (flagKeys != null) {
+            misses = new ArrayList<>();
+            for (String flagKey : flagKeys) {
+                CachedRule cached = cacheEnabled && cache != null ? cache.getIfPresent(flagKey) : null;
+                if (cached != null && cached.isStandalone()) {
+                    if (cached.isExpired()) {
+                        fetchRule(flagKey);
+                    }
+                    if (cached.rule != null) {
+                        results.put(flagKey, cached.rule.isEnabledFor(userId, attributes));
+                    }
+                } else {
+                    misses.add(flagKey);
+                }
+            }
+        }
+        
+        if (misses == null || !misses.isEmpty()) {
+            BatchEvaluationResponse response = evaluateFlagsFromService(userId, attributes, misses).join();
+            if (response != null && response.getFlags() != null) {
+                for (Map.Entry<String, FlagEvaluationResponse> entry : response.getFlags().entrySet()) {
+                    FlagEvaluationResponse evaluation = entry.getValue();
+                    if (evaluation != null && evaluation.getEnabled() != null
+                            && !EvaluationReason.FLAG_NOT_FOUND.name().equals(evaluation.getReason())) {
+                        results.put(entry.getKey(), evaluation.getEnabled());
+                    }
+                }
+            }
+        }
+        
+        return Map.copyOf(results);
+    }
+    
+    private Evaluation evaluateLocally(String flagKey, String userId, Map<String, String> attributes) {
+        FlagSnapshot snapshot = localRules;
+        if (snapshot == null) {
+            logger.debug("Flag snapshot not loaded yet, cannot evaluate flag '{}'", flagKey);
+            return null;
+        }
+        
+        Evaluation evaluation = snapshot.evaluate(flagKey, userId, attributes);
+        if (evaluation == null) {
+            logger.debug("Flag '{}' not found in snapshot", flagKey);
+        }
+        return evaluation;
+    }
+    
+    private CompletableFuture<FlagEvaluationResponse> evaluateFlagFromService(String flagKey, String userId,
+                                                                              Map<String, String> attributes) {
+        FlagEvaluationRequest request = new FlagEvaluationRequest();
+        request.setFlagKey(flagKey);
+        request.setEnvironment(environment);
+        request.setUserId(userId);
+        request.setAttributes(attributes);
+        return post("api/v1/flags/evaluate", request, FlagEvaluationResponse.class);
+    }
+    
+    private CompletableFuture<BatchEvaluationResponse> evaluateFlagsFromService(String userId,
+                                                                                Map<String, String> attributes,
+                                                                                List<String> flagKeys) {
+        BatchEvaluationRequest request = new BatchEvaluationRequest();
+        request.setEnvironment(environment);
+        request.setUserId(userId);
+        request.setAttributes(attributes);
+        request.setFlagKeys(flagKeys);
+        return post("api/v1/flags/evaluate/batch", request, BatchEvaluationResponse.class);
+    }
+    
+    /**
+     * Send a JSON request on OkHttp's dispatcher.
+     * 
+     * @param path path below the base URL, e.g. {@code api/v1/flags/evaluate}
+     * @return the response body mapped to {@code responseType}, or null on any failure, which
+     *         is logged; the future never completes exceptionally
+     */
+    private <T> CompletableFuture<T> post(String path, Object request, Class<T> responseType) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(request);
+        } catch (JsonProcessingException e) {
+            logger.warn("Failed to encode request to {}", path, e);
+            return CompletableFuture.completedFuture(null);
+        }
+        RequestBody body = RequestBody.create(json, MediaType.get("application/json; charset=utf-8"));
+        Request httpRequest = new Request.Builder()
+            .url(baseUrl.newBuilder().addPathSegments(path).build())
+            .post(body)
+            .tag(RequestTiming.class, new RequestTiming())
+            .build();
+        
+        Call call = httpClient.newCall(httpRequest);
+        CircuitBreaker.Permit permit = admit(call);
+        if (permit == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        CompletableFuture<T> result = new CompletableFuture<>();
+        call.enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    if (response.isSuccessful() && response.body() != null) {
+                        T value = objectMapper.readValue(response.body().string(), responseType);
+                        recordResponse(permit, call, response);
+                        result.complete(value);
+                        return;
+                    }
+                    recordResponse(permit, call, response);
+                    logger.warn("Request to {} failed: HTTP {}", path, response.code());
+                } catch (Exception e) {
+                    recordFailure(permit, call);
+                    logger.warn("Failed to read response of {}", path, e);
+                }
+                result.complete(null);
+            }
+            
+            @Override
+            public void onFailure(Call call, IOException e) {
+                recordFailure(permit, call);
+                if (!call.isCanceled()) {
+                    logger.warn("Request to {} failed, using cached/default values", path, e);
+                }
+                result.complete(null);
+            }
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return result;
+    }
+    
+    /**
+     * URL of a resource of the client's environment. The environment and any segment added
+     * to the returned builder are percent-encoded, so keys may contain any character.
+     * 
+     * @param resource the resource below the environment, e.g. {@code flags}
+     */
+    private HttpUrl.Builder environmentUrl(String resource) {
+        return baseUrl.newBuilder()
+            .addPathSegments("api/v1/environments")
+            .addPathSegment(environment)
+            .addPathSegment(resource);
+    }
+    
+    /**
+     * Fetch the rule of a single flag into the cache, unless a fetch of it is already in
+     * progress, in which case the caller shares that one. Runs on OkHttp's dispatcher.
+     * 
+     * @return the rule, or a newer one streamed meanwhile; a cache entry marking the flag as
+     *         unknown on HTTP 404; or null on other failures. The future never completes
+     *         exceptionally
+     */
+    private CompletableFuture<CachedRule> fetchRule(String flagKey) {
+        CompletableFuture<CachedRule> pending = ruleFetches.get(flagKey);
+        if (pending != null) {
+            return pending;
+        }
+        CompletableFuture<CachedRule> fetch = new CompletableFuture<>();
+        pending = ruleFetches.putIfAbsent(flagKey, fetch);
+        if (pending != null) {
+            return pending;
+        }
+        // What the response replaces, unless a streamed change replaces it first
+        CachedRule replaced = cache.getIfPresent(flagKey);
+        
+        Request httpRequest = new Request.Builder()
+            .url(environmentUrl("flags").addPathSegment(flagKey).build())
+            .get()
+            .tag(RequestTiming.class, new RequestTiming())
+            .build();
+        Call call = httpClient.newCall(httpRequest);
+        CircuitBreaker.Permit permit = admit(call);
+        if (permit == null) {
+            ruleFetches.remove(flagKey, fetch);
+            fetch.complete(null);
+            return fetch;
+        }
+        
+        call.enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                CachedRule rule = null;
+                try (response) {
+                    rule = toCachedRule(response);
+                    recordResponse(permit, call, response);
+                } catch (Exception e) {
+                    recordFailure(permit, call);
+                    logger.warn("Failed to read flag '{}' from service", flagKey, e);
+                }
+                complete(rule);
+            }
+            
+            @Override
+            public void onFailure(Call call, IOException e) {
+                recordFailure(permit, call);
+                logger.warn("Failed to fetch flag '{}' from service, using cached/default value", flagKey, e);
+                complete(null);
+            }
+            
+            private void complete(CachedRule rule) {
+                CachedRule result = rule;
+                if (rule != null) {
+                    // A change streamed while the request was in flight is newer than the
+                    // response, so the rule is only installed over the entry it replaces
+                    CachedRule current = cache.asMap().compute(flagKey,
+                        (key, entry) -> entry == replaced ? rule : entry);
+                    if (current == rule) {
+                        if (replaced != null && !localEvaluation) {
+                            publishChange(flagKey, replaced.rule, rule.rule);
+                        }
+                    } else if (current != null) {
+                        result = current;
+                    }
+                }
+                // Cached first, so callers arriving after removal find the new rule
+                ruleFetches.remove(flagKey, fetch);
+                fetch.complete(result);
+            }
+        });
+        return fetch;
+    }
+    
+    /**
+     * Ask the circuit breaker whether a request callers wait for may be sent, and bound it
+     * by the current adaptive timeout if so. Admitted calls report their outcome with the
+     * returned permit through {@link #recordResponse} or {@link #recordFailure}. Calls are
+     * refused as well while {@link #MAX_QUEUED_REQUESTS} calls wait for the dispatcher.
+     * 
+     * @return the permit, or null if the call must not be made
+     */
+    private CircuitBreaker.Permit admit(Call call) {
+        if (circuitBreaker == null) {
+            return CircuitBreaker.Permit.CALL;
+        }
+        // The call's timeout only bounds it once the dispatcher runs it, not while it queues
+        int queued = httpClient.dispatcher().queuedCallsCount();
+        if (queued >= MAX_QUEUED_REQUESTS) {
+            logger.debug("{} calls queued, not calling {}", queued, call.request().url());
+            return null;
+        }
+        CircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+        if (permit == null) {
+            logger.debug("Circuit open, not calling {}", call.request().url());
+            return null;
+        }
+        call.timeout().timeout(circuitBreaker.timeoutMillis(), TimeUnit.MILLISECONDS);
+        return permit;
+    }
+    
+    /**
+     * Latency runs from sending the request, not from enqueuing the call, so time spent
+     * waiting for the dispatcher does not raise the adaptive timeout.
+     */
+    private void recordResponse(CircuitBreaker.Permit permit, Call call, Response response) {
+        if (circuitBreaker == null) {
+            return;
+        }
+        // Client errors such as 404 are answers; overload and server errors are not
+        if (response.code() >= 500 || response.code() == 429) {
+            circuitBreaker.onFailure(permit);
+        } else {
+            long sentNanos = call.request().tag(RequestTiming.class).sentNanos;
+            circuitBreaker.onSuccess(permit, System.nanoTime() - sentNanos);
+        }
+    }
+    
+    private void recordFailure(CircuitBreaker.Permit permit, Call call) {
+        if (circuitBreaker == null) {
+            return;
+        }
+        if (call.isCanceled()) {
+            circuitBreaker.onCancelled(permit);
+        } else {
+            circuitBreaker.onFailure(permit);
+        }
+    }
+    
+    private CachedRule toCachedRule(Response response) throws IOException {
+        long expiresAt = System.currentTimeMillis() + (cacheRefreshIntervalSeconds * 1000);
+        if (response.code() == 404) {
+            return new CachedRule(null, expiresAt);
+        }
+        if (response.isSuccessful() && response.body() != null) {
+            FlagRuleResponse rule = objectMapper.readValue(response.body().string(), FlagRuleResponse.class);
+            return new CachedRule(rule.toRule(segments), expiresAt);
+        }
+        logger.warn("Failed to fetch flag rule: HTTP {}", response.code());
+        return null;
+    }
+    
+    /**
+     * Apply changes in sequence order to the local rules. Changes already reflected
+     * are skipped; application stops at the first gap. Callers hold {@link #localRulesLock}.
+     * 
+     * @return false if a gap was found
+     */
+    private boolean applyLocalChanges(List<FlagChangeMessage> changes) {
+        FlagSnapshot current = localRules;
+        if (current == null) {
+            return true;
+        }
+        
+        Map<String, FlagRule> updated = null;
+        long version = snapshotVersion;
+        boolean inOrder = true;
+        for (FlagChangeMessage change : changes) {
+            Long sequence = change.getSequence();
+            if (sequence != null && version >= 0) {
+                if (sequence <= version) {
+                    continue;
+                }
+                if (sequence > version + 1) {
+                    inOrder = false;
+                    break;
+                }
+            }
+            
+            if (updated == null) {
+                updated = new LinkedHashMap<>();
+                for (FlagRule rule : current.rules()) {
+                    updated.put(rule.getFlagKey(), rule);
+                }
+            }
+            FlagRule previous;
+            if (change.getFlag() != null) {
+                previous = updated.put(change.getFlagKey(), change.getFlag().toRule(segments));
+                localFlags.put(change.getFlagKey(), change.getFlag());
+            } else {
+                previous = updated.remove(change.getFlagKey());
+                localFlags.remove(change.getFlagKey());
+            }
+            publishChange(change.getFlagKey(), previous, updated.get(change.getFlagKey()));
+            if (sequence != null) {
+                version = sequence;
+            }
+        }
+        
+        if (updated != null) {
+            setLocalRules(FlagSnapshot.of(updated.values(), version));
+            snapshotVersion = version;
+            snapshotChanged.set(true);
+        }
+        return inOrder;
+    }
+    
+    /**
+     * Replace the local rules and move every handle to its flag's new position. Callers
+     * hold {@link #localRulesLock}, so handles are bound in the order snapshots are set.
+     */
+    private void setLocalRules(FlagSnapshot snapshot) {
+        localRules = snapshot;
+        for (FlagHandle handle : handles.values()) {
+            handle.bind(snapshot);
+        }
+    }
+    
+    private void syncInBackground() {
+        try {
+            scheduler.execute(() -> {
+                try {
+                    refreshCache();
+                } catch (Exception e) {
+                    logger.warn("Failed to fetch missed flag changes", e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Client is shutting down, not fetching missed flag changes");
+        }
+    }
+    
+    private void startCacheRefresh() {
+        scheduler.scheduleAtFixedRate(this::refresh, cacheRefreshIntervalSeconds, cacheRefreshIntervalSeconds,
+            TimeUnit.SECONDS);
+    }
+    
+    private void refresh() {
+        try {
+            refreshCache();
+        } catch (Exception e) {
+            logger.error("Error refreshing cache", e);
+        }
+        try {
+            refreshSegments();
+        } catch (Exception e) {
+            logger.error("Error refreshing segments", e);
+        }
+        saveSnapshot();
+    }
     
-    private AtlasFlagClient(Builder builder) {
-        this.baseUrl = builder.baseUrl;
-        this.environment = builder.environment;
-        this.cacheEnabled = builder.cacheEnabled;
-        this.cacheRefreshIntervalSeconds = builder.cacheRefreshIntervalSeconds;
-        
-        this.httpClient = new OkHttpClient.Builder()
-            .connectTimeout(1, TimeUnit.SECONDS)
-            .readTimeout(2, TimeUnit.SECONDS)
-            .writeTimeout(2, TimeUnit.SECONDS)
-            .build();
-        
-        this.objectMapper = new ObjectMapper();
+    /**
+     * Start from the snapshot file of an earlier run, if there is a usable one.
+     * 
+     * @return true if local rules were loaded from it
+     */
+    private boolean restoreSnapshot() {
+        try {
+            SnapshotFile.Contents contents = SnapshotFile.read(snapshotFile, environment);
+            List<FlagRuleResponse> flags = objectMapper.readValue(contents.getFlags(),
+                new TypeReference<List<FlagRuleResponse>>() {});
+            for (Segment segment : contents.getSegments()) {
+                segments.put(segment);
+            }
+            List<FlagRule> rules = new ArrayList<>();
+            localRulesLock.lock();
+            try {
+                for (FlagRuleResponse flag : flags) {
+                    rules.add(flag.toRule(segments));
+                    localFlags.put(flag.getFlagKey(), flag);
+                }
+                setLocalRules(FlagSnapshot.of(rules, contents.getVersion()));
+                snapshotETag = contents.getETag();
+                snapshotVersion = contents.getVersion();
+            } finally {
+                localRulesLock.unlock();
+            }
+            logger.info("Restored {} flag rules and {} segments of environment '{}' from {}",
+                rules.size(), contents.getSegments().size(), environment, snapshotFile);
+            return true;
+        } catch (NoSuchFileException e) {
+            logger.debug("No snapshot file at {} yet", snapshotFile);
+        } catch (Exception e) {
+            logger.warn("Ignoring unusable snapshot file {}", snapshotFile, e);
+        }
+        return false;
+    }
+    
+    /**
+     * Write the local rules and segments to the snapshot file if they changed since the
+     * last write. Runs on the scheduler after refreshes, so at most once per refresh interval.
+     */
+    private void saveSnapshot() {
+        if (snapshotFile == null || !snapshotChanged.getAndSet(false)) {
+            return;
+        }
         
-        // Use Caffeine cache with TTL and size limits to prevent memory leaks
-        if (cacheEnabled) {
-            this.cache = Caffeine.newBuilder()
-                .expireAfterWrite(cacheRefreshIntervalSeconds, TimeUnit.SECONDS)
-                .maximumSize(10000) // Limit cache size
-                .build();
-        } else {
-            this.cache = null;
+        List<FlagRuleResponse> flags;
+        long version;
+        String etag;
+        localRulesLock.lock();
+        try {
+            if (localRules == null) {
+                return;
+            }
+            flags = new ArrayList<>(localFlags.values());
+            version = snapshotVersion;
+            etag = snapshotETag;
+        } finally {
+            localRulesLock.unlock();
         }
         
-        this.scheduler = Executors.newScheduledThreadPool(1);
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(flags);
+            SnapshotFile.write(snapshotFile, environment,
+                new SnapshotFile.Contents(version, etag, json, List.copyOf(segments.all())));
+            logger.debug("Saved {} flag rules of environment '{}' to {}", flags.size(), environment, snapshotFile);
+        } catch (IOException e) {
+            snapshotChanged.set(true);
+            logger.warn("Failed to save snapshot file {}", snapshotFile, e);
+        }
+    }
+    
+    private void refreshCache() throws IOException {
+        if (!localEvaluation) {
+            // Remote evaluation refreshes on-demand as cache entries expire
+            logger.debug("Cache refresh scheduled");
+            return;
+        }
         
-        if (cacheEnabled) {
-            startCacheRefresh();
+        if (localRules != null && snapshotVersion >= 0 && fetchChangesFromService()) {
+            return;
         }
+        fetchSnapshotFromService();
     }
     
     /**
-     * Evaluate a feature flag
+     * Catch up by applying the changes committed after {@link #snapshotVersion}.
      * 
-     * @param flagKey The flag key to evaluate
-     * @param defaultValue Default value if flag cannot be evaluated
-     * @return true if flag is enabled, false otherwise
+     * @return false if the service asks for a full snapshot instead
      */
-    public boolean isEnabled(String flagKey, boolean defaultValue) {
-        return isEnabled(flagKey, null, defaultValue);
+    private boolean fetchChangesFromService() throws IOException {
+        long since = snapshotVersion;
+        Request httpRequest = new Request.Builder()
+            .url(environmentUrl("changes").addQueryParameter("since", Long.toString(since)).build())
+            .get()
+            .build();
+        
+        try (Response response = httpClient.newCall(httpRequest).execute()) {
+            if (response.code() == 404) {
+                // Service without a change log
+                return false;
+            }
+            if (!response.isSuccessful() || response.body() == null) {
+                logger.warn("Failed to fetch flag changes: HTTP {}", response.code());
+                return true;
+            }
+            
+            FlagChangesResponse changes = objectMapper.readValue(response.body().string(), FlagChangesResponse.class);
+            if (changes.isResync()) {
+                logger.debug("Service requested a full resync of environment '{}'", environment);
+                return false;
+            }
+            if (changes.getChanges() == null || changes.getChanges().isEmpty()) {
+                return true;
+            }
+            
+            localRulesLock.lock();
+            try {
+                if (!applyLocalChanges(changes.getChanges())) {
+                    return false;
+                }
+            } finally {
+                localRulesLock.unlock();
+            }
+            logger.debug("Applied {} flag changes since version {}", changes.getChanges().size(), since);
+            return true;
+        }
     }
     
     /**
-     * Evaluate a feature flag with user context
-     * 
-     * @param flagKey The flag key to evaluate
-     * @param userId User ID for percentage-based rollouts
-     * @param defaultValue Default value if flag cannot be evaluated
-     * @return true if flag is enabled, false otherwise
+     * Download the environment snapshot unless it is unchanged since the last download.
+     * OkHttp negotiates gzip and decompresses transparently.
      */
-    public boolean isEnabled(String flagKey, String userId, boolean defaultValue) {
-        // Check cache first
-        if (cacheEnabled && cache != null) {
-            CachedFlag cached = cache.getIfPresent(flagKey);
-            if (cached != null && !cached.isExpired()) {
-                return cached.isEnabled();
-            }
+    private void fetchSnapshotFromService() throws IOException {
+        Request.Builder requestBuilder = new Request.Builder()
+            .url(environmentUrl("snapshot").build())
+            .get();
+        String etag = snapshotETag;
+        if (etag != null && localRules != null) {
+            requestBuilder.header("If-None-Match", etag);
         }
         
-        // Try to fetch from service
-        try {
-            FlagEvaluationResponse response = evaluateFlagFromService(flagKey, userId);
-            if (response != null && response.getEnabled() != null) {
-                if (cacheEnabled && cache != null) {
-                    cache.put(flagKey, new CachedFlag(response.getEnabled(), 
-                        System.currentTimeMillis() + (cacheRefreshIntervalSeconds * 1000)));
+        try (Response response = httpClient.newCall(requestBuilder.build()).execute()) {
+            if (response.code() == 304) {
+                logger.debug("Flag snapshot for environment '{}' unchanged", environment);
+                return;
+            }
+            if (!response.isSuccessful() || response.body() == null) {
+                logger.warn("Failed to fetch flag snapshot: HTTP {}", response.code());
+                return;
+            }
+            
+            EnvironmentSnapshotResponse snapshot = objectMapper.readValue(
+                response.body().string(), EnvironmentSnapshotResponse.class);
+            List<FlagRule> rules = new ArrayList<>();
+            if (snapshot.getFlags() != null) {
+                for (FlagRuleResponse flag : snapshot.getFlags()) {
+                    rules.add(flag.toRule(segments));
                 }
-                return response.getEnabled();
             }
-        } catch (Exception e) {
-            logger.warn("Failed to evaluate flag '{}' from service, using cached/default value", flagKey, e);
+            long version = snapshot.getVersion() != null ? snapshot.getVersion() : -1;
+            
+            localRulesLock.lock();
+            try {
+                localFlags.clear();
+                if (snapshot.getFlags() != null) {
+                    for (FlagRuleResponse flag : snapshot.getFlags()) {
+                        localFlags.put(flag.getFlagKey(), flag);
+                    }
+                }
+                FlagSnapshot previous = localRules;
+                setLocalRules(FlagSnapshot.of(rules, version));
+                snapshotChanged.set(true);
+                snapshotETag = response.header("ETag");
+                snapshotVersion = version;
+                if (previous != null) {
+                    publishChanges(previous, localRules);
+                }
+            } finally {
+                localRulesLock.unlock();
+            }
+            logger.debug("Loaded {} flag rules for environment '{}'", rules.size(), environment);
         }
+    }
+    
+    /**
+     * Download the members of segments that are new or changed since the last check,
+     * and drop those that were deleted.
+     */
+    private void refreshSegments() throws IOException {
+        Request httpRequest = new Request.Builder()
+            .url(environmentUrl("segments").build())
+            .get()
+            .build();
         
-        // Fallback to cached value if available
-        if (cacheEnabled && cache != null) {
-            CachedFlag cached = cache.getIfPresent(flagKey);
-            if (cached != null) {
-                logger.debug("Using cached value for flag '{}'", flagKey);
-                return cached.isEnabled();
+        try (Response response = httpClient.newCall(httpRequest).execute()) {
+            if (response.code() == 404) {
+                // Service without segments
+                return;
+            }
+            if (!response.isSuccessful() || response.body() == null) {
+                logger.warn("Failed to fetch segments: HTTP {}", response.code());
+                return;
+            }
+            
+            List<SegmentSummaryResponse> listed = objectMapper.readValue(response.body().string(),
+                new TypeReference<List<SegmentSummaryResponse>>() {});
+            Set<String> keys = new HashSet<>();
+            for (SegmentSummaryResponse summary : listed) {
+                keys.add(summary.getSegmentKey());
+                long version = summary.getVersion() != null ? summary.getVersion() : 0L;
+                Segment current = segments.get(summary.getSegmentKey());
+                if (current == null || current.getVersion() != version) {
+                    fetchSegmentFromService(summary.getSegmentKey(), version);
+                    snapshotChanged.set(true);
+                }
+            }
+            for (Segment segment : segments.all()) {
+                if (!keys.contains(segment.getKey())) {
+                    snapshotChanged.set(true);
+                }
             }
+            segments.retainAll(keys);
         }
-        
-        // Final fallback to default
-        logger.debug("Using default value '{}' for flag '{}'", defaultValue, flagKey);
-        return defaultValue;
     }
     
-    private FlagEvaluationResponse evaluateFlagFromService(String flagKey, String userId) throws IOException {
-        FlagEvaluationRequest request = new FlagEvaluationRequest();
-        request.setFlagKey(flagKey);
-        request.setEnvironment(environment);
-        request.setUserId(userId);
+    private void fetchSegmentFromService(String segmentKey, long version) throws IOException {
+        Request httpRequest = new Request.Builder()
+            .url(environmentUrl("segments").addPathSegment(segmentKey).build())
+            .get()
+            .build();
         
-        String json = objectMapper.writeValueAsString(request);
-        RequestBody body = RequestBody.create(json, MediaType.get("application/json; charset=utf-8"));
+        OkHttpClient segmentClient = httpClient.newBuilder()
+            .readTimeout(SEGMENT_READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .build();
+        try (Response response = segmentClient.newCall(httpRequest).execute()) {
+            if (!response.isSuccessful() || response.body() == null) {
+                logger.warn("Failed to fetch segment '{}': HTTP {}", segmentKey, response.code());
+                return;
+            }
+            // Read straight into the hash array, without buffering the body
+            Segment segment = Segment.read(segmentKey, version, response.body().byteStream());
+            segments.put(segment);
+            logger.debug("Loaded segment '{}' with {} members", segmentKey, segment.size());
+        }
+    }
+    
+    private void connectChangeStream() {
+        if (shutdown) {
+            return;
+        }
         
         Request httpRequest = new Request.Builder()
-            .url(baseUrl + "/api/v1/flags/evaluate")
-            .post(body)
+            .url(environmentUrl("stream").build())
+            .header("Accept", "text/event-stream")
+            .get()
             .build();
         
-        try (Response response = httpClient.newCall(httpRequest).execute()) {
-            if (response.isSuccessful() && response.body() != null) {
-                String responseBody = response.body().string();
-                return objectMapper.readValue(responseBody, FlagEvaluationResponse.class);
-            } else {
-                logger.warn("Failed to evaluate flag: HTTP {}", response.code());
-                return null;
-            }
+        OkHttpClient streamClient = httpClient.newBuilder()
+            .readTimeout(STREAM_READ_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+            .build();
+        changeStream = EventSources.createFactory(streamClient).newEventSource(httpRequest, new ChangeStreamListener());
+    }
+    
+    private void scheduleStreamReconnect() {
+        if (shutdown) {
+            return;
+        }
+        
+        int attempt = streamReconnectAttempts.getAndIncrement();
+        long delaySeconds = Math.min(MAX_STREAM_RECONNECT_DELAY_SECONDS, 1L << Math.min(attempt, 5));
+        try {
+            scheduler.schedule(this::connectChangeStream, delaySeconds, TimeUnit.SECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Client is shutting down, not reconnecting flag change stream");
         }
     }
     
-    private void startCacheRefresh() {
-        scheduler.scheduleAtFixedRate(() -> {
+    /**
+     * Bring local state up to date after (re)connecting, since changes may have been
+     * committed while no stream was open.
+     */
+    private void resyncAfterConnect() {
+        if (localEvaluation) {
             try {
                 refreshCache();
             } catch (Exception e) {
-                logger.error("Error refreshing cache", e);
+                logger.warn("Failed to resync flag snapshot after connecting to change stream", e);
+            }
+        } else if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+    
+    private void applyChange(FlagChangeMessage change) {
+        if (change.getFlagKey() == null) {
+            return;
+        }
+        // A change without flag state is a deletion
+        FlagRule rule = change.getFlag() != null ? change.getFlag().toRule(segments) : null;
+        
+        if (localEvaluation) {
+            boolean inOrder;
+            localRulesLock.lock();
+            try {
+                inOrder = applyLocalChanges(List.of(change));
+            } finally {
+                localRulesLock.unlock();
             }
-        }, cacheRefreshIntervalSeconds, cacheRefreshIntervalSeconds, TimeUnit.SECONDS);
+            if (!inOrder) {
+                // Changes between our version and this one were missed; fetch them
+                syncInBackground();
+            }
+        } else if (cache != null) {
+            // Local evaluation never reads the cache, and applyLocalChanges already published the change
+            CachedRule previous = cache.getIfPresent(change.getFlagKey());
+            cache.put(change.getFlagKey(),
+                new CachedRule(rule, System.currentTimeMillis() + (cacheRefreshIntervalSeconds * 1000)));
+            publishChange(change.getFlagKey(), previous != null ? previous.rule : null, rule);
+        }
+        logger.debug("Applied {} of flag '{}'", change.getType(), change.getFlagKey());
+    }
+    
+    /**
+     * Publish what tells two rules of a flag apart, if anything; either may be null when the
+     * flag did not or does not exist. Rules are compared by definition, not by version:
+     * versions restart when a flag is deleted and created again, and a write that only
+     * renames a flag changes nothing callers can observe. Never blocks: lagging subscribers
+     * miss the change.
+     */
+    private void publishChange(String flagKey, FlagRule previous, FlagRule current) {
+        if (!changes.hasSubscribers() || previous == current) {
+            return;
+        }
+        FlagChange change;
+        if (previous == null) {
+            change = new FlagChange(flagKey, FlagChange.Type.CREATED, current.getVersion());
+        } else if (current == null) {
+            change = new FlagChange(flagKey, FlagChange.Type.DELETED, -1);
+        } else if (!previous.sameDefinition(current)) {
+            change = new FlagChange(flagKey, FlagChange.Type.UPDATED, current.getVersion());
+        } else {
+            return;
+        }
+        changes.offer(change, (subscriber, dropped) -> {
+            logger.debug("Flag change subscriber is lagging, dropped {}", dropped);
+            return false;
+        });
     }
     
-    private void refreshCache() {
-        // In a full implementation, this would fetch all flags for the environment
-        // For MVP, we'll refresh on-demand
-        logger.debug("Cache refresh scheduled");
+    private void publishChanges(FlagSnapshot previous, FlagSnapshot current) {
+        if (!changes.hasSubscribers()) {
+            return;
+        }
+        for (FlagRule rule : current.rules()) {
+            publishChange(rule.getFlagKey(), previous.get(rule.getFlagKey()), rule);
+        }
+        for (FlagRule rule : previous.rules()) {
+            if (current.indexOf(rule.getFlagKey()) < 0) {
+                publishChange(rule.getFlagKey(), rule, null);
+            }
+        }
     }
     
     /**
      * Shutdown the client and cleanup resources
      */
     public void shutdown() {
+        shutdown = true;
+        EventSource stream = changeStream;
+        if (stream != null) {
+            stream.cancel();
+        }
         scheduler.shutdown();
         try {
             if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
@@ -174,20 +1377,35 @@ public class AtlasFlagClient {
             scheduler.shutdownNow();
             Thread.currentThread().interrupt();
         }
+        saveSnapshot();
+        changes.close();
     }
     
     // Inner classes
-    private static class CachedFlag {
-        private final boolean enabled;
+    /**
+     * Tags a request whose latency the circuit breaker records. OkHttp reports the start of
+     * an enqueued call before it waits for the dispatcher, so the clock starts with the
+     * request headers instead.
+     */
+    private static class RequestTiming {
+        volatile long sentNanos;
+    }
+    
+    private static class CachedRule {
+        private final FlagRule rule; // null when the flag does not exist
         private final long expiresAt;
         
-        CachedFlag(boolean enabled, long expiresAt) {
-            this.enabled = enabled;
+        CachedRule(FlagRule rule, long expiresAt) {
+            this.rule = rule;
             this.expiresAt = expiresAt;
         }
         
-        boolean isEnabled() {
-            return enabled;
+        Evaluation evaluate(String userId, Map<String, String> attributes) {
+            return rule != null ? rule.evaluate(userId, attributes) : null;
+        }
+        
+        boolean isStandalone() {
+            return rule == null || rule.getPrerequisites().isEmpty();
         }
         
         boolean isExpired() {
@@ -199,6 +1417,7 @@ public class AtlasFlagClient {
         private String flagKey;
         private String environment;
         private String userId;
+        private Map<String, String> attributes;
         
         public String getFlagKey() { return flagKey; }
         public void setFlagKey(String flagKey) { this.flagKey = flagKey; }
@@ -206,12 +1425,17 @@ public class AtlasFlagClient {
         public void setEnvironment(String environment) { this.environment = environment; }
         public String getUserId() { return userId; }
         public void setUserId(String userId) { this.userId = userId; }
+        public Map<String, String> getAttributes() { return attributes; }
+        public void setAttributes(Map<String, String> attributes) { this.attributes = attributes; }
     }
     
     private static class FlagEvaluationResponse {
         private String flagKey;
         private Boolean enabled;
         private String reason;
+        private String ruleId;
+        private String variant;
+        private JsonNode value;
         
         public String getFlagKey() { return flagKey; }
         public void setFlagKey(String flagKey) { this.flagKey = flagKey; }
@@ -219,6 +1443,270 @@ public class AtlasFlagClient {
         public void setEnabled(Boolean enabled) { this.enabled = enabled; }
         public String getReason() { return reason; }
         public void setReason(String reason) { this.reason = reason; }
+        public String getRuleId() { return ruleId; }
+        public void setRuleId(String ruleId) { this.ruleId = ruleId; }
+        public String getVariant() { return variant; }
+        public void setVariant(String variant) { this.variant = variant; }
+        public JsonNode getValue() { return value; }
+        public void setValue(JsonNode value) { this.value = value; }
+        
+        Evaluation toEvaluation() {
+            EvaluationReason parsed = null;
+            try {
+                parsed = reason != null ? EvaluationReason.valueOf(reason) : null;
+            } catch (IllegalArgumentException e) {
+                // Reason added by a newer service
+            }
+            // The weight only matters for allocating buckets, which the service already did
+            Variant served = variant != null && value != null && !value.isNull()
+                ? new Variant(variant, value.toString(), BigDecimal.ZERO)
+                : null;
+            return new Evaluation(parsed, Boolean.TRUE.equals(enabled), ruleId, served);
+        }
+    }
+    
+    private class ChangeStreamListener extends EventSourceListener {
+        
+        @Override
+        public void onOpen(EventSource eventSource, Response response) {
+            streamReconnectAttempts.set(0);
+            logger.info("Connected to flag change stream for environment '{}'", environment);
+            try {
+                scheduler.execute(AtlasFlagClient.this::resyncAfterConnect);
+            } catch (RejectedExecutionException e) {
+                eventSource.cancel();
+            }
+        }
+        
+        @Override
+        public void onEvent(EventSource eventSource, String id, String type, String data) {
+            if (!CHANGE_EVENT_NAME.equals(type)) {
+                return;
+            }
+            try {
+                applyChange(objectMapper.readValue(data, FlagChangeMessage.class));
+            } catch (Exception e) {
+                logger.warn("Failed to apply flag change event", e);
+            }
+        }
+        
+        @Override
+        public void onClosed(EventSource eventSource) {
+            logger.debug("Flag change stream closed by service, reconnecting");
+            scheduleStreamReconnect();
+        }
+        
+        @Override
+        public void onFailure(EventSource eventSource, Throwable t, Response response) {
+            if (!shutdown) {
+                logger.warn("Flag change stream failed (HTTP {}), reconnecting",
+                    response != null ? response.code() : "n/a", t);
+            }
+            scheduleStreamReconnect();
+        }
+    }
+    
+    private static class FlagChangeMessage {
+        private String type;
+        private String environment;
+        private String flagKey;
+        private FlagRuleResponse flag;
+        private Long sequence;
+        
+        public String getType() { return type; }
+        public void setType(String type) { this.type = type; }
+        public String getEnvironment() { return environment; }
+        public void setEnvironment(String environment) { this.environment = environment; }
+        public String getFlagKey() { return flagKey; }
+        public void setFlagKey(String flagKey) { this.flagKey = flagKey; }
+        public FlagRuleResponse getFlag() { return flag; }
+        public void setFlag(FlagRuleResponse flag) { this.flag = flag; }
+        public Long getSequence() { return sequence; }
+        public void setSequence(Long sequence) { this.sequence = sequence; }
+    }
+    
+    private static class FlagChangesResponse {
+        private String environment;
+        private Long version;
+        private boolean resync;
+        private List<FlagChangeMessage> changes;
+        
+        public String getEnvironment() { return environment; }
+        public void setEnvironment(String environment) { this.environment = environment; }
+        public Long getVersion() { return version; }
+        public void setVersion(Long version) { this.version = version; }
+        public boolean isResync() { return resync; }
+        public void setResync(boolean resync) { this.resync = resync; }
+        public List<FlagChangeMessage> getChanges() { return changes; }
+        public void setChanges(List<FlagChangeMessage> changes) { this.changes = changes; }
+    }
+    
+    private static class BatchEvaluationRequest {
+        private String environment;
+        private String userId;
+        private Map<String, String> attributes;
+        private List<String> flagKeys;
+        
+        public String getEnvironment() { return environment; }
+        public void setEnvironment(String environment) { this.environment = environment; }
+        public String getUserId() { return userId; }
+        public void setUserId(String userId) { this.userId = userId; }
+        public Map<String, String> getAttributes() { return attributes; }
+        public void setAttributes(Map<String, String> attributes) { this.attributes = attributes; }
+        public List<String> getFlagKeys() { return flagKeys; }
+        public void setFlagKeys(List<String> flagKeys) { this.flagKeys = flagKeys; }
+    }
+    
+    private static class BatchEvaluationResponse {
+        private String environment;
+        private Map<String, FlagEvaluationResponse> flags;
+        
+        public String getEnvironment() { return environment; }
+        public void setEnvironment(String environment) { this.environment = environment; }
+        public Map<String, FlagEvaluationResponse> getFlags() { return flags; }
+        public void setFlags(Map<String, FlagEvaluationResponse> flags) { this.flags = flags; }
+    }
+    
+    private static class EnvironmentSnapshotResponse {
+        private String environment;
+        private List<FlagRuleResponse> flags;
+        private Long version;
+        
+        public String getEnvironment() { return environment; }
+        public void setEnvironment(String environment) { this.environment = environment; }
+        public List<FlagRuleResponse> getFlags() { return flags; }
+        public void setFlags(List<FlagRuleResponse> flags) { this.flags = flags; }
+        public Long getVersion() { return version; }
+        public void setVersion(Long version) { this.version = version; }
+    }
+    
+    private static class FlagRuleResponse {
+        private String flagKey;
+        private Boolean enabled;
+        private Boolean defaultValue;
+        private BigDecimal rolloutPercentage;
+        private List<TargetingRuleResponse> targetingRules;
+        private List<VariantResponse> variants;
+        private List<PrerequisiteResponse> prerequisites;
+        private Long version;
+        
+        public String getFlagKey() { return flagKey; }
+        public void setFlagKey(String flagKey) { this.flagKey = flagKey; }
+        public Boolean getEnabled() { return enabled; }
+        public void setEnabled(Boolean enabled) { this.enabled = enabled; }
+        public Boolean getDefaultValue() { return defaultValue; }
+        public void setDefaultValue(Boolean defaultValue) { this.defaultValue = defaultValue; }
+        public BigDecimal getRolloutPercentage() { return rolloutPercentage; }
+        public void setRolloutPercentage(BigDecimal rolloutPercentage) { this.rolloutPercentage = rolloutPercentage; }
+        public List<TargetingRuleResponse> getTargetingRules() { return targetingRules; }
+        public void setTargetingRules(List<TargetingRuleResponse> targetingRules) { this.targetingRules = targetingRules; }
+        public List<VariantResponse> getVariants() { return variants; }
+        public void setVariants(List<VariantResponse> variants) { this.variants = variants; }
+        public List<PrerequisiteResponse> getPrerequisites() { return prerequisites; }
+        public void setPrerequisites(List<PrerequisiteResponse> prerequisites) { this.prerequisites = prerequisites; }
+        public Long getVersion() { return version; }
+        public void setVersion(Long version) { this.version = version; }
+        
+        FlagRule toRule(Segments segments) {
+            List<Targeting.Rule> rules = new ArrayList<>();
+            if (targetingRules != null) {
+                for (TargetingRuleResponse rule : targetingRules) {
+                    rules.add(rule.toRule());
+                }
+            }
+            List<Variant> converted = new ArrayList<>();
+            if (variants != null) {
+                for (VariantResponse variant : variants) {
+                    converted.add(new Variant(variant.getKey(), variant.getValue().toString(), variant.getWeight()));
+                }
+            }
+            List<FlagRule.Prerequisite> required = new ArrayList<>();
+            if (prerequisites != null) {
+                for (PrerequisiteResponse prerequisite : prerequisites) {
+                    required.add(new FlagRule.Prerequisite(prerequisite.getFlagKey(),
+                        Boolean.TRUE.equals(prerequisite.getValue())));
+                }
+            }
+            return new FlagRule(flagKey, Boolean.TRUE.equals(enabled), Boolean.TRUE.equals(defaultValue),
+                rolloutPercentage, Targeting.compile(rules, segments), converted, required,
+                version != null ? version : 0L);
+        }
+    }
+    
+    private static class PrerequisiteResponse {
+        private String flagKey;
+        private Boolean value;
+        
+        public String getFlagKey() { return flagKey; }
+        public void setFlagKey(String flagKey) { this.flagKey = flagKey; }
+        public Boolean getValue() { return value; }
+        public void setValue(Boolean value) { this.value = value; }
+    }
+    
+    private static class VariantResponse {
+        private String key;
+        private JsonNode value;
+        private BigDecimal weight;
+        
+        public String getKey() { return key; }
+        public void setKey(String key) { this.key = key; }
+        public JsonNode getValue() { return value; }
+        public void setValue(JsonNode value) { this.value = value; }
+        public BigDecimal getWeight() { return weight; }
+        public void setWeight(BigDecimal weight) { this.weight = weight; }
+    }
+    
+    private static class SegmentSummaryResponse {
+        private String segmentKey;
+        private Long version;
+        private Integer memberCount;
+        
+        public String getSegmentKey() { return segmentKey; }
+        public void setSegmentKey(String segmentKey) { this.segmentKey = segmentKey; }
+        public Long getVersion() { return version; }
+        public void setVersion(Long version) { this.version = version; }
+        public Integer getMemberCount() { return memberCount; }
+        public void setMemberCount(Integer memberCount) { this.memberCount = memberCount; }
+    }
+    
+    private static class TargetingRuleResponse {
+        private String id;
+        private List<TargetingClauseResponse> clauses;
+        private Boolean value;
+        
+        public String getId() { return id; }
+        public void setId(String id) { this.id = id; }
+        public List<TargetingClauseResponse> getClauses() { return clauses; }
+        public void setClauses(List<TargetingClauseResponse> clauses) { this.clauses = clauses; }
+        public Boolean getValue() { return value; }
+        public void setValue(Boolean value) { this.value = value; }
+        
+        Targeting.Rule toRule() {
+            List<Targeting.Clause> compiled = new ArrayList<>();
+            if (clauses != null) {
+                for (TargetingClauseResponse clause : clauses) {
+                    compiled.add(new Targeting.Clause(clause.getAttribute(), clause.getOperator(),
+                        clause.getValues() != null ? clause.getValues() : List.of(), clause.isNegate()));
+                }
+            }
+            return new Targeting.Rule(id, compiled, Boolean.TRUE.equals(value));
+        }
+    }
+    
+    private static class TargetingClauseResponse {
+        private String attribute;
+        private Targeting.Operator operator;
+        private List<String> values;
+        private boolean negate;
+        
+        public String getAttribute() { return attribute; }
+        public void setAttribute(String attribute) { this.attribute = attribute; }
+        public Targeting.Operator getOperator() { return operator; }
+        public void setOperator(Targeting.Operator operator) { this.operator = operator; }
+        public List<String> getValues() { return values; }
+        public void setValues(List<String> values) { this.values = values; }
+        public boolean isNegate() { return negate; }
+        public void setNegate(boolean negate) { this.negate = negate; }
     }
     
     // Builder
@@ -227,6 +1715,12 @@ public class AtlasFlagClient {
         private String environment = "default";
         private boolean cacheEnabled = true;
         private long cacheRefreshIntervalSeconds = 60;
+        private long maxStaleSeconds = 3600;
+        private boolean localEvaluation = false;
+        private boolean streaming = false;
+        private boolean circuitBreaker = true;
+        private Path snapshotFile;
+        private String apiToken;
         
         public Builder baseUrl(String baseUrl) {
             this.baseUrl = baseUrl;
@@ -238,6 +1732,16 @@ public class AtlasFlagClient {
             return this;
         }
         
+        /**
+         * Token sent as {@code Authorization: Bearer} with every request. Segment members are
+         * only served to authenticated clients, so local evaluation of flags with segment
+         * clauses needs it; without it those clauses never match.
+         */
+        public Builder apiToken(String apiToken) {
+            this.apiToken = apiToken;
+            return this;
+        }
+        
         public Builder cacheEnabled(boolean cacheEnabled) {
             this.cacheEnabled = cacheEnabled;
             return this;
@@ -248,6 +1752,60 @@ public class AtlasFlagClient {
             return this;
         }
         
+        /**
+         * How long a cached rule may still be served after its refresh interval: while a
+         * background fetch replaces it, or for as long as the service cannot be reached.
+         * Callers never wait for a flag that has a cached rule. Defaults to one hour.
+         */
+        public Builder maxStaleSeconds(long seconds) {
+            this.maxStaleSeconds = seconds;
+            return this;
+        }
+        
+        /**
+         * Download all flag rules of the environment and evaluate in-process instead of
+         * calling the service per flag. The snapshot is refreshed every
+         * {@code cacheRefreshIntervalSeconds}.
+         */
+        public Builder localEvaluation(boolean localEvaluation) {
+            this.localEvaluation = localEvaluation;
+            return this;
+        }
+        
+        /**
+         * Keep a connection open to the service and apply flag changes as they are committed,
+         * typically within a second, instead of waiting for cache expiry or the next refresh.
+         * Requires caching or local evaluation to be enabled.
+         */
+        public Builder streaming(boolean streaming) {
+            this.streaming = streaming;
+            return this;
+        }
+        
+        /**
+         * Stop calling the service for a few seconds once most recent calls failed, serving
+         * cached or default values instantly meanwhile, and bound each call by a timeout
+         * adapted to the service's latency. Calls are skipped as well while a full round of
+         * them waits for a connection. Applies to the calls evaluation waits for, not to
+         * background refreshes. Enabled by default.
+         */
+        public Builder circuitBreaker(boolean circuitBreaker) {
+            this.circuitBreaker = circuitBreaker;
+            return this;
+        }
+        
+        /**
+         * Keep the last good snapshot of the environment in this file, and start from it:
+         * {@code build()} loads it in milliseconds before contacting the service, so flags
+         * evaluate correctly at once even if the service is unreachable. The file is
+         * replaced atomically after changes, at most once per refresh interval, and on
+         * shutdown. Requires local evaluation.
+         */
+        public Builder snapshotFile(Path snapshotFile) {
+            this.snapshotFile = snapshotFile;
+            return this;
+        }
+        
         public AtlasFlagClient build() {
             return new AtlasFlagClient(this);
         }
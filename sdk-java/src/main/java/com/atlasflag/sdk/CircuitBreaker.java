@@ -0,0 +1,229 @@
+package com.atlasflag.sdk;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Guards the requests callers wait for, so an unhealthy service costs them nothing.
+ *
+ * Outcomes are counted over a rolling window of one-second buckets. Once enough calls
+ * failed the circuit opens and every request is refused at once, so callers fall back to
+ * cached or default values without touching the network. After a pause a single probe is
+ * let through; its outcome closes the circuit or keeps it open. Callers hold on to the
+ * {@link Permit} they were admitted with and report the outcome with it, so only the probe
+ * decides, not a call admitted before the circuit opened that happens to finish meanwhile.
+ *
+ * The timeout of each admitted call follows the service's recent latency: a multiple of
+ * the 99th percentile of successful calls, between {@link #MIN_TIMEOUT_MILLIS} and
+ * {@link #MAX_TIMEOUT_MILLIS}, so a degrading service is detected in a fraction of the
+ * fixed client timeouts.
+ */
+final class CircuitBreaker {
+    
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+    
+    private static final int WINDOW_SECONDS = 10;
+    // Fewer calls than this in the window say too little to open the circuit on
+    private static final int MIN_CALLS = 10;
+    private static final double FAILURE_RATE_THRESHOLD = 0.5;
+    private static final long OPEN_NANOS = TimeUnit.SECONDS.toNanos(5);
+    
+    private static final int LATENCY_SAMPLES = 256;
+    // Percentiles are recomputed after this many new samples, and first once there are this many
+    private static final int LATENCY_RECOMPUTE_INTERVAL = 32;
+    private static final int TIMEOUT_MULTIPLIER = 3;
+    // Leaves room for setting up a connection, which the percentile of pooled calls hides
+    static final long MIN_TIMEOUT_MILLIS = 250;
+    // Connect and read timeout of the client before timeouts adapted
+    static final long MAX_TIMEOUT_MILLIS = 2000;
+    
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+    
+    /**
+     * What a call was admitted as, to be passed back with its outcome.
+     */
+    enum Permit {
+        /** An ordinary call while the circuit is closed; counted in the window. */
+        CALL,
+        /** The single trial call while half-open; its outcome closes or reopens the circuit. */
+        PROBE
+    }
+    
+    private final LongSupplier nanoTime;
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile State state = State.CLOSED;
+    private volatile long openUntil;
+    private final AtomicBoolean probing = new AtomicBoolean();
+    
+    // Rolling window, guarded by lock; bucket i counts the second bucketSeconds[i]
+    private final long[] bucketSeconds = new long[WINDOW_SECONDS];
+    private final int[] successes = new int[WINDOW_SECONDS];
+    private final int[] failures = new int[WINDOW_SECONDS];
+    
+    // Latencies of recent successful calls in nanoseconds, guarded by lock
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private long latencyCount;
+    private volatile long timeoutMillis = MAX_TIMEOUT_MILLIS;
+    
+    CircuitBreaker() {
+        this(System::nanoTime);
+    }
+    
+    /**
+     * @param nanoTime clock in the sense of {@link System#nanoTime()}
+     */
+    CircuitBreaker(LongSupplier nanoTime) {
+        this.nanoTime = nanoTime;
+        Arrays.fill(bucketSeconds, Long.MIN_VALUE);
+    }
+    
+    /**
+     * @return the permit to make a call now, or null if it must not be made; a permitted call
+     *         must be reported with its permit through exactly one of {@link #onSuccess},
+     *         {@link #onFailure} or {@link #onCancelled}
+     */
+    Permit tryAcquire() {
+        State current = state;
+        if (current == State.CLOSED) {
+            return Permit.CALL;
+        }
+        if (current == State.OPEN) {
+            if (nanoTime.getAsLong() - openUntil < 0) {
+                return null;
+            }
+            lock.lock();
+            try {
+                if (state == State.OPEN) {
+                    state = State.HALF_OPEN;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        // Half-open: one probe at a time, everyone else keeps falling back
+        return state != State.OPEN && probing.compareAndSet(false, true) ? Permit.PROBE : null;
+    }
+    
+    void onSuccess(Permit permit, long latencyNanos) {
+        lock.lock();
+        try {
+            latencies[(int) (latencyCount++ % LATENCY_SAMPLES)] = latencyNanos;
+            if (latencyCount % LATENCY_RECOMPUTE_INTERVAL == 0) {
+                updateTimeout();
+            }
+            if (permit == Permit.PROBE) {
+                if (state == State.HALF_OPEN) {
+                    close();
+                }
+            } else {
+                successes[bucket()]++;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    void onFailure(Permit permit) {
+        lock.lock();
+        try {
+            if (permit == Permit.PROBE) {
+                if (state == State.HALF_OPEN) {
+                    open("probe failed");
+                }
+                return;
+            }
+            failures[bucket()]++;
+            if (state == State.CLOSED) {
+                int calls = 0;
+                int failed = 0;
+                long now = currentSecond();
+                for (int i = 0; i < WINDOW_SECONDS; i++) {
+                    if (bucketSeconds[i] > now - WINDOW_SECONDS) {
+                        calls += successes[i] + failures[i];
+                        failed += failures[i];
+                    }
+                }
+                if (calls >= MIN_CALLS && failed >= calls * FAILURE_RATE_THRESHOLD) {
+                    open(failed + " of " + calls + " calls failed in the last " + WINDOW_SECONDS + "s");
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * The call was cancelled by its caller and says nothing about the service. A cancelled
+     * probe lets the next caller probe instead.
+     */
+    void onCancelled(Permit permit) {
+        if (permit == Permit.PROBE && state == State.HALF_OPEN) {
+            probing.set(false);
+        }
+    }
+    
+    State state() {
+        return state;
+    }
+    
+    /**
+     * @return the timeout for the next call
+     */
+    long timeoutMillis() {
+        return timeoutMillis;
+    }
+    
+    private void open(String cause) {
+        openUntil = nanoTime.getAsLong() + OPEN_NANOS;
+        state = State.OPEN;
+        probing.set(false);
+        logger.warn("Flag service unhealthy ({}), serving cached and default values for {}s",
+            cause, TimeUnit.NANOSECONDS.toSeconds(OPEN_NANOS));
+    }
+    
+    private void close() {
+        Arrays.fill(bucketSeconds, Long.MIN_VALUE);
+        Arrays.fill(successes, 0);
+        Arrays.fill(failures, 0);
+        state = State.CLOSED;
+        probing.set(false);
+        logger.info("Flag service recovered, resuming requests");
+    }
+    
+    /**
+     * @return the bucket of the current second, emptied if it last counted an older one
+     */
+    private int bucket() {
+        long now = currentSecond();
+        int index = Math.floorMod(now, WINDOW_SECONDS);
+        if (bucketSeconds[index] != now) {
+            bucketSeconds[index] = now;
+            successes[index] = 0;
+            failures[index] = 0;
+        }
+        return index;
+    }
+    
+    private long currentSecond() {
+        return TimeUnit.NANOSECONDS.toSeconds(nanoTime.getAsLong());
+    }
+    
+    private void updateTimeout() {
+        int size = (int) Math.min(latencyCount, LATENCY_SAMPLES);
+        long[] sorted = Arrays.copyOf(latencies, size);
+        Arrays.sort(sorted);
+        long p99 = sorted[(int) Math.ceil(size * 0.99) - 1];
+        long millis = TimeUnit.NANOSECONDS.toMillis(p99 * TIMEOUT_MULTIPLIER);
+        timeoutMillis = Math.max(MIN_TIMEOUT_MILLIS, Math.min(MAX_TIMEOUT_MILLIS, millis));
+    }
+}
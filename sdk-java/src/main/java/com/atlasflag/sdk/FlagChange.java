@@ -0,0 +1,48 @@
+package com.atlasflag.sdk;
+
+import java.util.Objects;
+
+/**
+ * A change to a flag, as seen by the client.
+ *
+ * Published by {@link AtlasFlagClient#flagChanges()} once the client applies the change,
+ * so evaluations made after receiving it already reflect the new rule.
+ */
+public final class FlagChange {
+    
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+    
+    private final String flagKey;
+    private final Type type;
+    private final long version;
+    
+    FlagChange(String flagKey, Type type, long version) {
+        this.flagKey = Objects.requireNonNull(flagKey, "flagKey");
+        this.type = Objects.requireNonNull(type, "type");
+        this.version = version;
+    }
+    
+    public String getFlagKey() {
+        return flagKey;
+    }
+    
+    public Type getType() {
+        return type;
+    }
+    
+    /**
+     * @return the flag's version after the change, or -1 for {@link Type#DELETED}
+     */
+    public long getVersion() {
+        return version;
+    }
+    
+    @Override
+    public String toString() {
+        return type + " " + flagKey + (type != Type.DELETED ? " (version " + version + ")" : "");
+    }
+}
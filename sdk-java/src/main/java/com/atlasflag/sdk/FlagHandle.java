@@ -0,0 +1,82 @@
+package com.atlasflag.sdk;
+
+import com.atlasflag.core.FlagSnapshot;
+
+import java.util.Map;
+
+/**
+ * A flag resolved once for repeated evaluation, from {@link AtlasFlagClient#handle(String)}.
+ *
+ * With local evaluation the handle holds the flag's position in the client's snapshot, and
+ * the client moves it to the new position whenever the snapshot is replaced. Evaluating is
+ * then one volatile read and the rule itself, without key hashing or a map lookup. For flags
+ * without prerequisites that allocates nothing, except where a targeting clause matches a
+ * pattern or a version range, which builds a matcher or parses the version. In other modes
+ * the handle evaluates through the client as {@code isEnabled} would.
+ *
+ * Handles are meant for a fixed set of keys known to the application, created once and
+ * kept, e.g. in a field. The client returns the same handle for the same key and keeps
+ * every handle it created, rebinding it on each snapshot update, for its lifetime; keys
+ * taken from requests or other unbounded input belong with {@code isEnabled} instead.
+ */
+public final class FlagHandle {
+    
+    private final AtlasFlagClient client;
+    private final String flagKey;
+    private volatile Slot slot = Slot.UNBOUND;
+    
+    FlagHandle(AtlasFlagClient client, String flagKey) {
+        this.client = client;
+        this.flagKey = flagKey;
+    }
+    
+    public String getFlagKey() {
+        return flagKey;
+    }
+    
+    /**
+     * @see AtlasFlagClient#isEnabled(String, String, boolean)
+     */
+    public boolean isEnabled(String userId, boolean defaultValue) {
+        return isEnabled(userId, null, defaultValue);
+    }
+    
+    /**
+     * @see AtlasFlagClient#isEnabled(String, String, Map, boolean)
+     */
+    public boolean isEnabled(String userId, Map<String, String> attributes, boolean defaultValue) {
+        Slot current = slot;
+        if (current == Slot.UNBOUND) {
+            return client.isEnabled(flagKey, userId, attributes, defaultValue);
+        }
+        if (current.index < 0) {
+            // Not in the snapshot, or no snapshot loaded yet
+            return defaultValue;
+        }
+        return current.snapshot.evaluate(current.index, userId, attributes).getValue();
+    }
+    
+    /**
+     * Point the handle at the flag's position in a snapshot, which may be null if none has
+     * loaded yet. Called by the client whenever it replaces its snapshot.
+     */
+    void bind(FlagSnapshot snapshot) {
+        slot = new Slot(snapshot, snapshot != null ? snapshot.indexOf(flagKey) : -1);
+    }
+    
+    /**
+     * A snapshot and the flag's position in it, replaced together.
+     */
+    private static final class Slot {
+        
+        static final Slot UNBOUND = new Slot(null, -1);
+        
+        final FlagSnapshot snapshot;
+        final int index;
+        
+        Slot(FlagSnapshot snapshot, int index) {
+            this.snapshot = snapshot;
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.atlasflag.sdk;
+
+import com.atlasflag.core.Segment;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * The last good snapshot of an environment on local disk, from which a client starts
+ * before the service has answered.
+ *
+ * Layout, big-endian:
+ * <pre>
+ * int     magic "AFS" + format version
+ * long    change sequence the snapshot reflects, -1 if unknown
+ * string  environment
+ * string  ETag of the snapshot download, or absent
+ * bytes   flag rules as the service's JSON array
+ * int     segment count, then per segment:
+ *           string key, long version, long length, members in the segment wire format
+ * int     CRC32 of everything before it
+ * </pre>
+ * Strings and byte arrays are an int length (-1 when absent) followed by the bytes, strings
+ * in UTF-8. The file is read through a memory mapping, so segment members are bulk-copied
+ * from the page cache without buffering the file; the flag rules are small by comparison.
+ *
+ * Writes go to a temporary file in the same directory, which is synced and then moved over
+ * the previous file, so readers see either the old or the new snapshot in full.
+ */
+final class SnapshotFile {
+    
+    private static final int MAGIC = 0x41465301;
+    
+    private SnapshotFile() {
+    }
+    
+    static final class Contents {
+        private final long version;
+        private final String etag;
+        private final byte[] flags;
+        private final Collection<Segment> segments;
+        
+        Contents(long version, String etag, byte[] flags, Collection<Segment> segments) {
+            this.version = version;
+            this.etag = etag;
+            this.flags = flags;
+            this.segments = segments;
+        }
+        
+        long getVersion() {
+            return version;
+        }
+        
+        String getETag() {
+            return etag;
+        }
+        
+        /**
+         * @return the flag rules as JSON
+         */
+        byte[] getFlags() {
+            return flags;
+        }
+        
+        Collection<Segment> getSegments() {
+            return segments;
+        }
+    }
+    
+    static void write(Path path, String environment, Contents contents) throws IOException {
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, path.getFileName() + ".", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel)), new CRC32());
+                DataOutputStream out = new DataOutputStream(checked);
+                out.writeInt(MAGIC);
+                out.writeLong(contents.getVersion());
+                String etag = contents.getETag();
+                writeBytes(out, environment.getBytes(StandardCharsets.UTF_8));
+                writeBytes(out, etag != null ? etag.getBytes(StandardCharsets.UTF_8) : null);
+                writeBytes(out, contents.getFlags());
+                out.writeInt(contents.getSegments().size());
+                for (Segment segment : contents.getSegments()) {
+                    writeBytes(out, segment.getKey().getBytes(StandardCharsets.UTF_8));
+                    out.writeLong(segment.getVersion());
+                    out.writeLong((long) segment.size() * Long.BYTES);
+                    segment.writeTo(out);
+                }
+                out.writeInt((int) checked.getChecksum().getValue());
+                out.flush();
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    /**
+     * @throws java.nio.file.NoSuchFileException if no snapshot was written yet
+     * @throws IOException if the file is damaged or belongs to another environment
+     */
+    static Contents read(Path path, String environment) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < Integer.BYTES * 2 || size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot file " + path + " has an invalid size of " + size + " bytes");
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            
+            int bodyLength = (int) size - Integer.BYTES;
+            CRC32 crc = new CRC32();
+            crc.update(mapped.duplicate().limit(bodyLength));
+            if ((int) crc.getValue() != mapped.getInt(bodyLength)) {
+                throw new IOException("Snapshot file " + path + " is damaged");
+            }
+            
+            ByteBuffer in = mapped.duplicate().limit(bodyLength);
+            if (in.getInt() != MAGIC) {
+                throw new IOException("Snapshot file " + path + " has an unknown format");
+            }
+            long version = in.getLong();
+            String written = readString(in);
+            if (!environment.equals(written)) {
+                throw new IOException("Snapshot file " + path + " belongs to environment '" + written + "'");
+            }
+            String etag = readString(in);
+            byte[] flags = readBytes(in);
+            
+            int count = in.getInt();
+            List<Segment> segments = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                String key = readString(in);
+                long segmentVersion = in.getLong();
+                int length = Math.toIntExact(in.getLong());
+                ByteBuffer members = in.slice().limit(length);
+                segments.add(Segment.read(key, segmentVersion, members));
+                in.position(in.position() + length);
+            }
+            return new Contents(version, etag, flags, segments);
+        } catch (BufferUnderflowException | IllegalArgumentException | ArithmeticException e) {
+            throw new EOFException("Snapshot file " + path + " is truncated");
+        }
+    }
+    
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        if (bytes == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    private static byte[] readBytes(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+    
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = readBytes(in);
+        return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+}
@@ -0,0 +1,106 @@
+package com.atlasflag.sdk;
+
+import okhttp3.mockwebserver.MockResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.atlasflag.sdk.FakeService.change;
+import static com.atlasflag.sdk.FakeService.changes;
+import static com.atlasflag.sdk.FakeService.events;
+import static com.atlasflag.sdk.FakeService.flag;
+import static com.atlasflag.sdk.FakeService.json;
+import static com.atlasflag.sdk.FakeService.snapshot;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChangeStreamTest {
+    
+    private FakeService service;
+    private AtlasFlagClient client;
+    
+    @Before
+    public void setUp() throws IOException {
+        service = new FakeService();
+        service.onEnvironment("snapshot", request -> snapshot(5, flag("checkout", false)));
+        // Only the resync when the stream opens finds nothing new
+        AtomicInteger fetches = new AtomicInteger();
+        service.onEnvironment("changes", request -> fetches.getAndIncrement() == 0
+            ? changes(5)
+            : changes(7, change(6, "search", flag("search", true)), change(7, "checkout", flag("checkout", true))));
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        if (client != null) {
+            client.shutdown();
+        }
+        service.close();
+    }
+    
+    @Test
+    public void appliesEventsInSequence() {
+        streamAfterOpen(change(6, "search", flag("search", true)));
+        client = service.client().localEvaluation(true).streaming(true).build();
+        
+        FakeService.await("streamed change", () -> client.isEnabled("search", false));
+        
+        assertFalse(client.isEnabled("checkout", false));
+        assertEquals(1, service.environmentRequests("changes").size());
+    }
+    
+    @Test
+    public void eventAfterAGapFetchesTheMissedChanges() {
+        // Sequence 6 was never streamed
+        streamAfterOpen(change(7, "checkout", flag("checkout", true)));
+        client = service.client().localEvaluation(true).streaming(true).build();
+        
+        FakeService.await("missed change", () -> client.isEnabled("search", false));
+        
+        // Caught up by the delta fetch, not by a resync after reconnecting
+        assertEquals(1, service.environmentRequests("stream").size());
+        assertTrue(client.isEnabled("checkout", false));
+        assertEquals("5", service.environmentRequests("changes").get(1).getRequestUrl().queryParameter("since"));
+    }
+    
+    @Test
+    public void ignoresEventsAlreadyReflected() {
+        streamAfterOpen(change(4, "checkout", flag("checkout", true)), change(6, "search", flag("search", true)));
+        client = service.client().localEvaluation(true).streaming(true).build();
+        
+        FakeService.await("streamed change", () -> client.isEnabled("search", false));
+        
+        assertFalse(client.isEnabled("checkout", false));
+    }
+    
+    @Test
+    public void gapBeyondTheRetainedLogReloadsTheSnapshot() {
+        AtomicInteger fetches = new AtomicInteger();
+        service.onEnvironment("changes", request -> fetches.getAndIncrement() == 0
+            ? changes(5)
+            : json("{\"environment\":\"test\",\"version\":5,\"resync\":true,\"changes\":[]}"));
+        AtomicInteger snapshots = new AtomicInteger();
+        service.onEnvironment("snapshot", request -> snapshots.getAndIncrement() == 0
+            ? snapshot(5, flag("checkout", false))
+            : snapshot(40, flag("checkout", true), flag("search", true)));
+        streamAfterOpen(change(40, "search", flag("search", true)));
+        client = service.client().localEvaluation(true).streaming(true).build();
+        
+        FakeService.await("snapshot reload", () -> client.isEnabled("checkout", false));
+        
+        assertTrue(client.isEnabled("search", false));
+        assertEquals(2, service.environmentRequests("snapshot").size());
+        assertEquals("\"5\"", service.environmentRequests("snapshot").get(1).getHeader("If-None-Match"));
+    }
+    
+    private void streamAfterOpen(String... changes) {
+        // Events follow the headers after a pause, so the resync on open usually runs first
+        MockResponse stream = events(changes).setBodyDelay(100, TimeUnit.MILLISECONDS);
+        service.onEnvironment("stream", request -> stream);
+    }
+}
@@ -0,0 +1,169 @@
+package com.atlasflag.sdk;
+
+import com.atlasflag.sdk.CircuitBreaker.Permit;
+import com.atlasflag.sdk.CircuitBreaker.State;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class CircuitBreakerTest {
+    
+    private static final long OPEN_NANOS = TimeUnit.SECONDS.toNanos(5);
+    
+    private long now;
+    private CircuitBreaker breaker;
+    
+    @Before
+    public void setUp() {
+        now = TimeUnit.HOURS.toNanos(1);
+        breaker = new CircuitBreaker(() -> now);
+    }
+    
+    @Test
+    public void opensOnceHalfOfTheWindowFailed() {
+        succeed(5);
+        fail(4);
+        assertEquals(State.CLOSED, breaker.state());
+        
+        fail(1);
+        assertEquals(State.OPEN, breaker.state());
+        assertNull(breaker.tryAcquire());
+    }
+    
+    @Test
+    public void staysClosedBelowTheFailureRate() {
+        succeed(6);
+        fail(4);
+        assertEquals(State.CLOSED, breaker.state());
+        assertEquals(Permit.CALL, breaker.tryAcquire());
+    }
+    
+    @Test
+    public void staysClosedBelowTheMinimumCalls() {
+        fail(9);
+        assertEquals(State.CLOSED, breaker.state());
+        assertEquals(Permit.CALL, breaker.tryAcquire());
+    }
+    
+    @Test
+    public void forgetsCallsOutsideTheWindow() {
+        fail(9);
+        now += TimeUnit.SECONDS.toNanos(10);
+        fail(1);
+        assertEquals(State.CLOSED, breaker.state());
+    }
+    
+    @Test
+    public void letsASingleProbeThroughAfterThePause() {
+        open();
+        now += OPEN_NANOS - 1;
+        assertNull(breaker.tryAcquire());
+        
+        now += 1;
+        Permit probe = breaker.tryAcquire();
+        assertEquals(Permit.PROBE, probe);
+        assertEquals(State.HALF_OPEN, breaker.state());
+        assertNull(breaker.tryAcquire());
+        
+        breaker.onSuccess(probe, TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(State.CLOSED, breaker.state());
+        assertEquals(Permit.CALL, breaker.tryAcquire());
+    }
+    
+    @Test
+    public void failedProbeReopens() {
+        open();
+        now += OPEN_NANOS;
+        breaker.onFailure(breaker.tryAcquire());
+        
+        assertEquals(State.OPEN, breaker.state());
+        now += OPEN_NANOS - 1;
+        assertNull(breaker.tryAcquire());
+        now += 1;
+        assertEquals(Permit.PROBE, breaker.tryAcquire());
+    }
+    
+    @Test
+    public void onlyTheProbeDecides() {
+        // Admitted while closed, finishing while half-open
+        Permit slowSuccess = breaker.tryAcquire();
+        Permit slowFailure = breaker.tryAcquire();
+        open();
+        now += OPEN_NANOS;
+        Permit probe = breaker.tryAcquire();
+        
+        breaker.onSuccess(slowSuccess, TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(State.HALF_OPEN, breaker.state());
+        assertNull(breaker.tryAcquire());
+        
+        breaker.onFailure(probe);
+        assertEquals(State.OPEN, breaker.state());
+        
+        now += OPEN_NANOS;
+        probe = breaker.tryAcquire();
+        breaker.onFailure(slowFailure);
+        assertEquals(State.HALF_OPEN, breaker.state());
+        breaker.onSuccess(probe, TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(State.CLOSED, breaker.state());
+    }
+    
+    @Test
+    public void cancelledProbeLetsTheNextCallerProbe() {
+        open();
+        now += OPEN_NANOS;
+        Permit probe = breaker.tryAcquire();
+        
+        breaker.onCancelled(Permit.CALL);
+        assertNull(breaker.tryAcquire());
+        breaker.onCancelled(probe);
+        assertEquals(State.HALF_OPEN, breaker.state());
+        assertEquals(Permit.PROBE, breaker.tryAcquire());
+    }
+    
+    @Test
+    public void timeoutFollowsLatencyOnceEnoughSamples() {
+        assertEquals(CircuitBreaker.MAX_TIMEOUT_MILLIS, breaker.timeoutMillis());
+        for (int i = 0; i < 31; i++) {
+            breaker.onSuccess(Permit.CALL, TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        assertEquals(CircuitBreaker.MAX_TIMEOUT_MILLIS, breaker.timeoutMillis());
+        
+        breaker.onSuccess(Permit.CALL, TimeUnit.MILLISECONDS.toNanos(100));
+        assertEquals(300, breaker.timeoutMillis());
+    }
+    
+    @Test
+    public void timeoutIsClampedToItsBounds() {
+        for (int i = 0; i < 32; i++) {
+            breaker.onSuccess(Permit.CALL, TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        assertEquals(CircuitBreaker.MIN_TIMEOUT_MILLIS, breaker.timeoutMillis());
+        
+        CircuitBreaker slow = new CircuitBreaker(() -> now);
+        for (int i = 0; i < 32; i++) {
+            slow.onSuccess(Permit.CALL, TimeUnit.SECONDS.toNanos(1));
+        }
+        assertEquals(CircuitBreaker.MAX_TIMEOUT_MILLIS, slow.timeoutMillis());
+    }
+    
+    private void open() {
+        fail(10);
+        assertEquals(State.OPEN, breaker.state());
+    }
+    
+    private void succeed(int calls) {
+        for (int i = 0; i < calls; i++) {
+            breaker.onSuccess(breaker.tryAcquire(), TimeUnit.MILLISECONDS.toNanos(10));
+        }
+    }
+    
+    private void fail(int calls) {
+        for (int i = 0; i < calls; i++) {
+            breaker.onFailure(breaker.tryAcquire());
+        }
+    }
+}
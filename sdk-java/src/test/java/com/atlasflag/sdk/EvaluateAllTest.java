@@ -0,0 +1,105 @@
+package com.atlasflag.sdk;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static com.atlasflag.sdk.FakeService.flag;
+import static com.atlasflag.sdk.FakeService.json;
+import static com.atlasflag.sdk.FakeService.snapshot;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EvaluateAllTest {
+    
+    private static final String BATCH = "flags/evaluate/batch";
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private FakeService service;
+    private AtlasFlagClient client;
+    
+    @Before
+    public void setUp() throws IOException {
+        service = new FakeService();
+        service.onEnvironment("flags/checkout", request -> json(flag("checkout", true)));
+        service.on(BATCH, request -> json("{\"environment\":\"test\",\"flags\":{" +
+            "\"search\":{\"flagKey\":\"search\",\"enabled\":true,\"reason\":\"FLAG_ENABLED\"}," +
+            "\"payments\":{\"flagKey\":\"payments\",\"enabled\":false,\"reason\":\"PREREQUISITE_FAILED\"}," +
+            "\"missing\":{\"flagKey\":\"missing\",\"enabled\":false,\"reason\":\"FLAG_NOT_FOUND\"}}}"));
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        if (client != null) {
+            client.shutdown();
+        }
+        service.close();
+    }
+    
+    @Test
+    public void sendsOnlyUncachedFlagsToTheService() throws IOException {
+        client = service.client().build();
+        assertTrue(client.isEnabled("checkout", "user-1", false));
+        
+        Map<String, Boolean> results = client.evaluateAll("user-1", List.of("checkout", "search", "payments", "missing"));
+        
+        assertEquals(Map.of("checkout", true, "search", true, "payments", false), results);
+        List<RecordedRequest> batches = service.requests(BATCH);
+        assertEquals(1, batches.size());
+        JsonNode body = objectMapper.readTree(batches.get(0).getBody().readUtf8());
+        assertEquals("test", body.get("environment").asText());
+        assertEquals("user-1", body.get("userId").asText());
+        assertEquals(List.of("search", "payments", "missing"),
+            objectMapper.convertValue(body.get("flagKeys"), List.class));
+        assertEquals(1, service.environmentRequests("flags/checkout").size());
+    }
+    
+    @Test
+    public void cachedFlagsNeedNoRequest() {
+        client = service.client().build();
+        client.isEnabled("checkout", "user-1", false);
+        
+        assertEquals(Map.of("checkout", true), client.evaluateAll("user-1", List.of("checkout")));
+        
+        assertTrue(service.requests(BATCH).isEmpty());
+    }
+    
+    @Test
+    public void allFlagsComeFromTheService() throws IOException {
+        client = service.client().build();
+        
+        Map<String, Boolean> results = client.evaluateAll("user-1", null);
+        
+        assertEquals(Map.of("search", true, "payments", false), results);
+        JsonNode body = objectMapper.readTree(service.requests(BATCH).get(0).getBody().readUtf8());
+        assertTrue(body.path("flagKeys").isNull() || body.path("flagKeys").isMissingNode());
+    }
+    
+    @Test
+    public void failedBatchLeavesFlagsAbsent() {
+        service.on(BATCH, request -> new MockResponse().setResponseCode(500));
+        client = service.client().build();
+        client.isEnabled("checkout", "user-1", false);
+        
+        assertEquals(Map.of("checkout", true), client.evaluateAll("user-1", List.of("checkout", "search")));
+    }
+    
+    @Test
+    public void localEvaluationUsesTheSnapshot() {
+        service.onEnvironment("snapshot", request -> snapshot(3, flag("checkout", true), flag("search", false)));
+        client = service.client().localEvaluation(true).build();
+        
+        assertEquals(Map.of("checkout", true, "search", false), client.evaluateAll("user-1", null));
+        assertEquals(Map.of("search", false), client.evaluateAll("user-1", List.of("search", "missing")));
+        
+        assertTrue(service.requests(BATCH).isEmpty());
+    }
+}
@@ -0,0 +1,143 @@
+package com.atlasflag.sdk;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+import static org.junit.Assert.fail;
+
+/**
+ * The flag service's HTTP API on a MockWebServer, answering by path under {@code /api/v1/}
+ * and recording every request. Unrouted paths get 404; segments default to none.
+ */
+class FakeService extends Dispatcher implements Closeable {
+    
+    static final String ENVIRONMENT = "test";
+    
+    private final MockWebServer server = new MockWebServer();
+    private final Map<String, Function<RecordedRequest, MockResponse>> routes = new ConcurrentHashMap<>();
+    private final List<RecordedRequest> requests = new CopyOnWriteArrayList<>();
+    
+    FakeService() throws IOException {
+        server.setDispatcher(this);
+        server.start();
+        on("environments/" + ENVIRONMENT + "/segments", request -> json("[]"));
+    }
+    
+    AtlasFlagClient.Builder client() {
+        return new AtlasFlagClient.Builder()
+            .baseUrl(server.url("/").toString())
+            .environment(ENVIRONMENT);
+    }
+    
+    /**
+     * Answer requests to {@code path}, relative to {@code /api/v1/} and without the query.
+     */
+    void on(String path, Function<RecordedRequest, MockResponse> handler) {
+        routes.put(path, handler);
+    }
+    
+    void onEnvironment(String resource, Function<RecordedRequest, MockResponse> handler) {
+        on("environments/" + ENVIRONMENT + "/" + resource, handler);
+    }
+    
+    /**
+     * Requests to {@code path}, as routed by {@link #on}, in arrival order.
+     */
+    List<RecordedRequest> requests(String path) {
+        List<RecordedRequest> matching = new ArrayList<>();
+        for (RecordedRequest request : requests) {
+            if (route(request).equals(path)) {
+                matching.add(request);
+            }
+        }
+        return matching;
+    }
+    
+    List<RecordedRequest> environmentRequests(String resource) {
+        return requests("environments/" + ENVIRONMENT + "/" + resource);
+    }
+    
+    @Override
+    public MockResponse dispatch(RecordedRequest request) {
+        requests.add(request);
+        Function<RecordedRequest, MockResponse> handler = routes.get(route(request));
+        return handler != null ? handler.apply(request) : new MockResponse().setResponseCode(404);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        server.shutdown();
+    }
+    
+    private static String route(RecordedRequest request) {
+        List<String> segments = request.getRequestUrl().pathSegments();
+        return String.join("/", segments.subList(Math.min(2, segments.size()), segments.size()));
+    }
+    
+    static MockResponse json(String body) {
+        return new MockResponse()
+            .setHeader("Content-Type", "application/json")
+            .setBody(body);
+    }
+    
+    static MockResponse snapshot(long version, String... flags) {
+        return json("{\"environment\":\"" + ENVIRONMENT + "\",\"version\":" + version +
+                    ",\"flags\":[" + String.join(",", flags) + "]}")
+            .setHeader("ETag", "\"" + version + "\"");
+    }
+    
+    static MockResponse changes(long version, String... changes) {
+        return json("{\"environment\":\"" + ENVIRONMENT + "\",\"version\":" + version +
+                    ",\"resync\":false,\"changes\":[" + String.join(",", changes) + "]}");
+    }
+    
+    static MockResponse events(String... changes) {
+        StringBuilder body = new StringBuilder(":connected\n\n");
+        for (String change : changes) {
+            body.append("event: flag-change\ndata: ").append(change).append("\n\n");
+        }
+        return new MockResponse()
+            .setHeader("Content-Type", "text/event-stream")
+            .setBody(body.toString());
+    }
+    
+    static String flag(String flagKey, boolean enabled) {
+        return "{\"flagKey\":\"" + flagKey + "\",\"enabled\":" + enabled + ",\"defaultValue\":false}";
+    }
+    
+    /**
+     * A change log entry or stream event; {@code flag} is null for a deletion.
+     */
+    static String change(long sequence, String flagKey, String flag) {
+        return "{\"type\":\"" + (flag != null ? "UPDATED" : "DELETED") + "\",\"environment\":\"" + ENVIRONMENT +
+               "\",\"flagKey\":\"" + flagKey + "\",\"flag\":" + flag + ",\"sequence\":" + sequence + "}";
+    }
+    
+    static void await(String what, BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Timed out waiting for " + what);
+            }
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrupted waiting for " + what);
+            }
+        }
+    }
+}
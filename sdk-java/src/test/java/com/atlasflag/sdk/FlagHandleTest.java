@@ -0,0 +1,136 @@
+package com.atlasflag.sdk;
+
+import okhttp3.mockwebserver.MockResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.atlasflag.sdk.FakeService.change;
+import static com.atlasflag.sdk.FakeService.changes;
+import static com.atlasflag.sdk.FakeService.events;
+import static com.atlasflag.sdk.FakeService.flag;
+import static com.atlasflag.sdk.FakeService.json;
+import static com.atlasflag.sdk.FakeService.snapshot;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FlagHandleTest {
+    
+    private FakeService service;
+    private AtlasFlagClient client;
+    
+    @Before
+    public void setUp() throws IOException {
+        service = new FakeService();
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        if (client != null) {
+            client.shutdown();
+        }
+        service.close();
+    }
+    
+    @Test
+    public void sameHandleForTheSameKey() {
+        service.onEnvironment("snapshot", request -> snapshot(3, flag("checkout", true)));
+        client = service.client().localEvaluation(true).build();
+        
+        FlagHandle handle = client.handle("checkout");
+        
+        assertSame(handle, client.handle("checkout"));
+        assertNotSame(handle, client.handle("search"));
+        assertEquals("checkout", handle.getFlagKey());
+    }
+    
+    @Test
+    public void handleFollowsSnapshotRefreshes() {
+        AtomicInteger downloads = new AtomicInteger();
+        service.onEnvironment("snapshot", request -> downloads.getAndIncrement() == 0
+            ? snapshot(3, flag("checkout", true), flag("search", false))
+            : snapshot(4, flag("beta", true), flag("search", true)));
+        client = service.client().localEvaluation(true).cacheRefreshIntervalSeconds(1).build();
+        // Created before the flag exists, and before the flags around it move
+        FlagHandle beta = client.handle("beta");
+        FlagHandle search = client.handle("search");
+        FlagHandle checkout = client.handle("checkout");
+        assertFalse(beta.isEnabled("user-1", false));
+        assertFalse(search.isEnabled("user-1", true));
+        assertTrue(checkout.isEnabled("user-1", false));
+        
+        FakeService.await("new snapshot", () -> beta.isEnabled("user-1", false));
+        
+        assertTrue(search.isEnabled("user-1", false));
+        assertTrue(checkout.isEnabled("user-1", true));
+        assertFalse(checkout.isEnabled("user-1", false));
+        assertSame(beta, client.handle("beta"));
+    }
+    
+    @Test
+    public void handleFollowsStreamedChanges() {
+        service.onEnvironment("snapshot", request -> snapshot(5, flag("checkout", false), flag("search", true)));
+        service.onEnvironment("changes", request -> changes(5));
+        MockResponse stream = events(change(6, "checkout", flag("checkout", true)), change(7, "search", null))
+            .setBodyDelay(100, TimeUnit.MILLISECONDS);
+        service.onEnvironment("stream", request -> stream);
+        client = service.client().localEvaluation(true).streaming(true).build();
+        FlagHandle checkout = client.handle("checkout");
+        FlagHandle search = client.handle("search");
+        
+        FakeService.await("streamed deletion", () -> !search.isEnabled("user-1", false));
+        
+        assertTrue(checkout.isEnabled("user-1", false));
+        assertTrue(search.isEnabled("user-1", true));
+    }
+    
+    @Test
+    public void handleCreatedBeforeTheFirstSnapshotServesDefaults() {
+        AtomicInteger downloads = new AtomicInteger();
+        service.onEnvironment("snapshot", request -> downloads.getAndIncrement() == 0
+            ? new MockResponse().setResponseCode(503)
+            : snapshot(3, flag("checkout", true)));
+        client = service.client().localEvaluation(true).cacheRefreshIntervalSeconds(1).build();
+        FlagHandle checkout = client.handle("checkout");
+        
+        assertFalse(checkout.isEnabled("user-1", false));
+        assertTrue(checkout.isEnabled("user-1", true));
+        
+        FakeService.await("first snapshot", () -> checkout.isEnabled("user-1", false));
+    }
+    
+    @Test
+    public void handleEvaluatesPrerequisites() {
+        String checkout = "{\"flagKey\":\"checkout\",\"enabled\":true,\"defaultValue\":false," +
+                          "\"prerequisites\":[{\"flagKey\":\"new-ui\",\"value\":true}]}";
+        AtomicInteger downloads = new AtomicInteger();
+        service.onEnvironment("snapshot", request -> downloads.getAndIncrement() == 0
+            ? snapshot(3, checkout, flag("new-ui", true))
+            : snapshot(4, checkout, flag("new-ui", false)));
+        client = service.client().localEvaluation(true).cacheRefreshIntervalSeconds(1).build();
+        FlagHandle handle = client.handle("checkout");
+        
+        assertTrue(handle.isEnabled("user-1", false));
+        
+        FakeService.await("failed prerequisite", () -> !handle.isEnabled("user-1", true));
+    }
+    
+    @Test
+    public void handleWithoutLocalEvaluationAsksTheClient() {
+        service.onEnvironment("flags/checkout", request -> json(flag("checkout", true)));
+        client = service.client().build();
+        FlagHandle handle = client.handle("checkout");
+        
+        assertTrue(handle.isEnabled("user-1", false));
+        assertTrue(handle.isEnabled("user-2", false));
+        assertEquals(1, service.environmentRequests("flags/checkout").size());
+        assertTrue(service.environmentRequests("snapshot").isEmpty());
+    }
+}
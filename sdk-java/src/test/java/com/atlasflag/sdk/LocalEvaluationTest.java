@@ -0,0 +1,121 @@
+package com.atlasflag.sdk;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.atlasflag.sdk.FakeService.flag;
+import static com.atlasflag.sdk.FakeService.snapshot;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LocalEvaluationTest {
+    
+    private FakeService service;
+    private AtlasFlagClient client;
+    
+    @Before
+    public void setUp() throws IOException {
+        service = new FakeService();
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        if (client != null) {
+            client.shutdown();
+        }
+        service.close();
+    }
+    
+    @Test
+    public void evaluatesFromTheSnapshotWithoutCallingTheService() {
+        service.onEnvironment("snapshot", request -> snapshot(3, flag("checkout", true), flag("search", false)));
+        client = service.client().localEvaluation(true).build();
+        
+        for (int i = 0; i < 100; i++) {
+            assertTrue(client.isEnabled("checkout", "user-" + i, false));
+            assertFalse(client.isEnabled("search", "user-" + i, true));
+            assertTrue(client.isEnabled("missing", "user-" + i, true));
+        }
+        
+        assertEquals(1, service.environmentRequests("snapshot").size());
+        assertEquals(1, service.environmentRequests("segments").size());
+        assertTrue(service.requests("flags/evaluate").isEmpty());
+    }
+    
+    @Test
+    public void unchangedSnapshotIsNotDownloadedAgain() {
+        service.onEnvironment("snapshot", request -> "\"3\"".equals(request.getHeader("If-None-Match"))
+            ? new MockResponse().setResponseCode(304).setHeader("ETag", "\"3\"")
+            : snapshot(3, flag("checkout", true)));
+        client = service.client().localEvaluation(true).cacheRefreshIntervalSeconds(1).build();
+        
+        FakeService.await("snapshot refresh", () -> service.environmentRequests("snapshot").size() >= 2);
+        
+        List<RecordedRequest> requests = service.environmentRequests("snapshot");
+        assertNull(requests.get(0).getHeader("If-None-Match"));
+        assertEquals("\"3\"", requests.get(1).getHeader("If-None-Match"));
+        assertTrue(client.isEnabled("checkout", false));
+    }
+    
+    @Test
+    public void newSnapshotReplacesTheRules() {
+        AtomicInteger downloads = new AtomicInteger();
+        service.onEnvironment("snapshot", request -> downloads.getAndIncrement() == 0
+            ? snapshot(3, flag("checkout", true), flag("search", false), flag("legacy", true))
+            : snapshot(4, flag("checkout", false), flag("search", true), flag("beta", true)));
+        client = service.client().localEvaluation(true).cacheRefreshIntervalSeconds(1).build();
+        List<FlagChange> changes = new CopyOnWriteArrayList<>();
+        client.flagChanges().subscribe(new Flow.Subscriber<FlagChange>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+            
+            @Override
+            public void onNext(FlagChange item) {
+                changes.add(item);
+            }
+            
+            @Override
+            public void onError(Throwable throwable) {
+            }
+            
+            @Override
+            public void onComplete() {
+            }
+        });
+        assertTrue(client.isEnabled("legacy", false));
+        
+        FakeService.await("new snapshot", () -> !client.isEnabled("checkout", true));
+        
+        assertTrue(client.isEnabled("search", false));
+        assertTrue(client.isEnabled("beta", false));
+        assertFalse(client.isEnabled("legacy", false));
+        FakeService.await("change notifications", () -> changes.size() == 4);
+        assertEquals(List.of("checkout UPDATED", "search UPDATED", "beta CREATED", "legacy DELETED"),
+            changes.stream().map(change -> change.getFlagKey() + " " + change.getType()).toList());
+    }
+    
+    @Test
+    public void unavailableSnapshotServesDefaults() {
+        service.onEnvironment("snapshot", request -> new MockResponse().setResponseCode(503));
+        client = service.client().localEvaluation(true).build();
+        
+        assertTrue(client.isEnabled("checkout", true));
+        assertFalse(client.isEnabled("checkout", false));
+        
+        assertTrue(service.requests("flags/evaluate").isEmpty());
+        assertTrue(service.environmentRequests("flags/checkout").isEmpty());
+    }
+}
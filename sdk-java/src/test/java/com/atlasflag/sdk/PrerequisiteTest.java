@@ -0,0 +1,118 @@
+package com.atlasflag.sdk;
+
+import okhttp3.mockwebserver.MockResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static com.atlasflag.sdk.FakeService.flag;
+import static com.atlasflag.sdk.FakeService.json;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Flags with prerequisites under the per-flag cache.
+ */
+public class PrerequisiteTest {
+    
+    private FakeService service;
+    private AtlasFlagClient client;
+    
+    @Before
+    public void setUp() throws IOException {
+        service = new FakeService();
+        service.on("flags/evaluate", request -> json("{\"flagKey\":\"checkout\",\"enabled\":true,\"reason\":\"FLAG_ENABLED\"}"));
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        if (client != null) {
+            client.shutdown();
+        }
+        service.close();
+    }
+    
+    @Test
+    public void evaluatesFromCachedPrerequisites() {
+        serve("checkout", requiring("checkout", "new-ui", true));
+        serve("new-ui", flag("new-ui", true));
+        client = service.client().build();
+        
+        for (int i = 0; i < 10; i++) {
+            assertTrue(client.isEnabled("checkout", "user-" + i, false));
+            assertTrue(client.isEnabledAsync("checkout", "user-" + i, false).join());
+        }
+        
+        assertEquals(1, service.environmentRequests("flags/checkout").size());
+        assertEquals(1, service.environmentRequests("flags/new-ui").size());
+        assertTrue(service.requests("flags/evaluate").isEmpty());
+    }
+    
+    @Test
+    public void failedPrerequisiteServesTheDefaultValue() {
+        serve("checkout", requiring("checkout", "new-ui", true));
+        serve("new-ui", flag("new-ui", false));
+        client = service.client().build();
+        
+        assertFalse(client.isEnabled("checkout", "user-1", true));
+        assertFalse(client.isEnabledAsync("checkout", "user-1", true).join());
+        assertTrue(service.requests("flags/evaluate").isEmpty());
+    }
+    
+    @Test
+    public void missingPrerequisiteFails() {
+        serve("checkout", requiring("checkout", "new-ui", true));
+        client = service.client().build();
+        
+        assertFalse(client.isEnabled("checkout", "user-1", true));
+        assertEquals(1, service.environmentRequests("flags/new-ui").size());
+        assertTrue(service.requests("flags/evaluate").isEmpty());
+    }
+    
+    @Test
+    public void followsPrerequisitesOfPrerequisites() {
+        serve("checkout", requiring("checkout", "new-ui", true));
+        serve("new-ui", requiring("new-ui", "redesign", false));
+        serve("redesign", flag("redesign", true));
+        client = service.client().build();
+        
+        assertFalse(client.isEnabled("checkout", "user-1", true));
+        assertEquals(1, service.environmentRequests("flags/redesign").size());
+        assertTrue(service.requests("flags/evaluate").isEmpty());
+    }
+    
+    @Test
+    public void cycleFailsWithoutLooping() {
+        serve("checkout", requiring("checkout", "new-ui", true));
+        serve("new-ui", requiring("new-ui", "checkout", true));
+        client = service.client().build();
+        
+        assertFalse(client.isEnabled("checkout", "user-1", true));
+        assertEquals(1, service.environmentRequests("flags/checkout").size());
+        assertEquals(1, service.environmentRequests("flags/new-ui").size());
+        assertTrue(service.requests("flags/evaluate").isEmpty());
+    }
+    
+    @Test
+    public void serviceEvaluatesWhenAPrerequisiteCannotBeFetched() {
+        serve("checkout", requiring("checkout", "new-ui", true));
+        service.onEnvironment("flags/new-ui", request -> new MockResponse().setResponseCode(500));
+        client = service.client().build();
+        
+        assertTrue(client.isEnabled("checkout", "user-1", false));
+        assertTrue(client.isEnabledAsync("checkout", "user-1", false).join());
+        assertEquals(2, service.requests("flags/evaluate").size());
+    }
+    
+    private void serve(String flagKey, String flag) {
+        service.onEnvironment("flags/" + flagKey, request -> json(flag));
+    }
+    
+    private static String requiring(String flagKey, String prerequisite, boolean value) {
+        return "{\"flagKey\":\"" + flagKey + "\",\"enabled\":true,\"defaultValue\":false," +
+               "\"prerequisites\":[{\"flagKey\":\"" + prerequisite + "\",\"value\":" + value + "}]}";
+    }
+}
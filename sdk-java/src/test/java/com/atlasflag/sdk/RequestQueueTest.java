@@ -0,0 +1,96 @@
+package com.atlasflag.sdk;
+
+import okhttp3.mockwebserver.MockResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static com.atlasflag.sdk.FakeService.json;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Calls waiting for OkHttp's dispatcher, which runs at most 64 at a time.
+ */
+public class RequestQueueTest {
+    
+    private static final String ENABLED = "{\"flagKey\":\"checkout\",\"enabled\":true,\"reason\":\"FLAG_ENABLED\"}";
+    
+    private FakeService service;
+    private AtlasFlagClient client;
+    
+    @Before
+    public void setUp() throws IOException {
+        service = new FakeService();
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        if (client != null) {
+            client.shutdown();
+        }
+        service.close();
+    }
+    
+    @Test
+    public void callsBeyondAFullQueueFallBackAtOnce() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        service.on("flags/evaluate", request -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return json(ENABLED);
+        });
+        client = service.client().cacheEnabled(false).build();
+        
+        // 64 in flight and 64 queued behind them
+        List<CompletableFuture<Boolean>> waiting = new ArrayList<>();
+        for (int i = 0; i < 128; i++) {
+            waiting.add(client.isEnabledAsync("checkout", "user-" + i, false));
+        }
+        FakeService.await("calls in flight", () -> service.requests("flags/evaluate").size() == 64);
+        
+        CompletableFuture<Boolean> refused = client.isEnabledAsync("checkout", "user-128", false);
+        assertTrue(refused.isDone());
+        assertFalse(refused.join());
+        
+        release.countDown();
+        for (CompletableFuture<Boolean> result : waiting) {
+            assertTrue(result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(128, service.requests("flags/evaluate").size());
+    }
+    
+    @Test
+    public void timeQueuedDoesNotCountAsLatency() throws Exception {
+        MockResponse answer = json(ENABLED).setHeadersDelay(300, TimeUnit.MILLISECONDS);
+        service.on("flags/evaluate", request -> answer);
+        client = service.client().cacheEnabled(false).build();
+        
+        // Half of the calls wait 300ms for the dispatcher, then take 300ms like the rest
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 128; i++) {
+            results.add(client.isEnabledAsync("checkout", "user-" + i, false));
+        }
+        for (CompletableFuture<Boolean> result : results) {
+            assertTrue(result.get(5, TimeUnit.SECONDS));
+        }
+        
+        // Times out after three times the 300ms latency; counting the queue wait, it would
+        // have allowed 1.8 seconds
+        MockResponse slow = json(ENABLED).setHeadersDelay(1300, TimeUnit.MILLISECONDS);
+        service.on("flags/evaluate", request -> slow);
+        assertFalse(client.isEnabled("checkout", "user-1", false));
+        assertEquals(129, service.requests("flags/evaluate").size());
+    }
+}
@@ -0,0 +1,178 @@
+package com.atlasflag.sdk;
+
+import okhttp3.mockwebserver.MockResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.atlasflag.sdk.FakeService.change;
+import static com.atlasflag.sdk.FakeService.events;
+import static com.atlasflag.sdk.FakeService.flag;
+import static com.atlasflag.sdk.FakeService.json;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The per-flag rule cache of remote evaluation.
+ */
+public class RuleCacheTest {
+    
+    private FakeService service;
+    private AtlasFlagClient client;
+    
+    @Before
+    public void setUp() throws IOException {
+        service = new FakeService();
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        if (client != null) {
+            client.shutdown();
+        }
+        service.close();
+    }
+    
+    @Test
+    public void concurrentMissesShareOneFetch() throws Exception {
+        MockResponse slow = json(flag("checkout", true)).setBodyDelay(200, TimeUnit.MILLISECONDS);
+        service.onEnvironment("flags/checkout", request -> slow);
+        client = service.client().build();
+        
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            String userId = "user-" + i;
+            results.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return client.isEnabled("checkout", userId, false);
+            }));
+        }
+        start.countDown();
+        
+        for (CompletableFuture<Boolean> result : results) {
+            assertTrue(result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, service.environmentRequests("flags/checkout").size());
+    }
+    
+    @Test
+    public void staleRuleIsServedWhileItIsFetchedAgain() {
+        AtomicInteger fetches = new AtomicInteger();
+        service.onEnvironment("flags/checkout", request -> fetches.getAndIncrement() == 0
+            ? json(flag("checkout", true))
+            : json(flag("checkout", false)).setBodyDelay(500, TimeUnit.MILLISECONDS));
+        client = service.client().cacheRefreshIntervalSeconds(1).build();
+        assertTrue(client.isEnabled("checkout", false));
+        
+        FakeService.await("rule to go stale", () -> {
+            client.isEnabled("checkout", false);
+            return fetches.get() == 2;
+        });
+        
+        // The fetch takes 500ms, which the stale hit does not wait for
+        long started = System.nanoTime();
+        assertTrue(client.isEnabled("checkout", false));
+        assertTrue(System.nanoTime() - started < TimeUnit.MILLISECONDS.toNanos(250));
+        
+        FakeService.await("refetched rule", () -> !client.isEnabled("checkout", true));
+        assertEquals(2, service.environmentRequests("flags/checkout").size());
+    }
+    
+    @Test
+    public void failedFetchServesTheDefaultAndIsNotCached() {
+        AtomicInteger fetches = new AtomicInteger();
+        service.onEnvironment("flags/checkout", request -> switch (fetches.getAndIncrement()) {
+            case 0 -> new MockResponse().setResponseCode(500);
+            case 1 -> new MockResponse().setResponseCode(503);
+            default -> json(flag("checkout", false));
+        });
+        client = service.client().build();
+        
+        assertTrue(client.isEnabled("checkout", true));
+        assertTrue(client.isEnabled("checkout", true));
+        assertFalse(client.isEnabled("checkout", true));
+        assertFalse(client.isEnabled("checkout", true));
+        assertEquals(3, service.environmentRequests("flags/checkout").size());
+    }
+    
+    @Test
+    public void failedFetchKeepsServingTheStaleRule() {
+        AtomicInteger fetches = new AtomicInteger();
+        service.onEnvironment("flags/checkout", request -> fetches.getAndIncrement() == 0
+            ? json(flag("checkout", true))
+            : new MockResponse().setResponseCode(503));
+        client = service.client().cacheRefreshIntervalSeconds(1).build();
+        assertTrue(client.isEnabled("checkout", false));
+        
+        FakeService.await("failed refetch", () -> {
+            client.isEnabled("checkout", false);
+            return fetches.get() >= 2;
+        });
+        
+        assertTrue(client.isEnabled("checkout", false));
+    }
+    
+    @Test
+    public void fetchDoesNotOverwriteAChangeStreamedMeanwhile() throws Exception {
+        CountDownLatch streamed = new CountDownLatch(1);
+        service.onEnvironment("flags/checkout", request -> {
+            // Answer with the rule from before the change, after the change was applied
+            try {
+                streamed.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return json(flag("checkout", false));
+        });
+        AtomicInteger connections = new AtomicInteger();
+        service.onEnvironment("stream", request -> connections.getAndIncrement() == 0
+            ? events(change(6, "checkout", flag("checkout", true))).setBodyDelay(500, TimeUnit.MILLISECONDS)
+            : events().setBodyDelay(10, TimeUnit.SECONDS));
+        client = service.client().streaming(true).build();
+        List<FlagChange> changes = new CopyOnWriteArrayList<>();
+        client.flagChanges().subscribe(new Flow.Subscriber<FlagChange>() {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                subscription.request(Long.MAX_VALUE);
+            }
+            
+            @Override
+            public void onNext(FlagChange item) {
+                changes.add(item);
+                streamed.countDown();
+            }
+            
+            @Override
+            public void onError(Throwable throwable) {
+            }
+            
+            @Override
+            public void onComplete() {
+            }
+        });
+        
+        CompletableFuture<Boolean> fetched = client.isEnabledAsync("checkout", false);
+        
+        assertTrue(fetched.get(5, TimeUnit.SECONDS));
+        assertTrue(client.isEnabled("checkout", false));
+        assertEquals(1, service.environmentRequests("flags/checkout").size());
+        assertEquals(1, changes.size());
+        assertEquals(FlagChange.Type.CREATED, changes.get(0).getType());
+    }
+}
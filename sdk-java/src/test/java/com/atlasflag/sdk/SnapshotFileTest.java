@@ -0,0 +1,153 @@
+package com.atlasflag.sdk;
+
+import com.atlasflag.core.Segment;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotFileTest {
+    
+    private static final byte[] FLAGS = "[{\"flagKey\":\"checkout\",\"enabled\":true}]".getBytes(StandardCharsets.UTF_8);
+    
+    private Path directory;
+    private Path file;
+    
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot-file-test");
+        file = directory.resolve("prod.snapshot");
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+    
+    @Test
+    public void readsBackWhatItWrites() throws IOException {
+        Segment.Builder builder = new Segment.Builder();
+        for (int i = 0; i < 2000; i++) {
+            builder.add("user-" + i);
+        }
+        List<Segment> segments = List.of(builder.build("beta", 3),
+            new Segment.Builder().add("\u00fcber").build("\u65e5\u672c", 9), new Segment.Builder().build("empty", 1));
+        SnapshotFile.write(file, "prod", new SnapshotFile.Contents(42, "\"v42\"", FLAGS, segments));
+        
+        SnapshotFile.Contents contents = SnapshotFile.read(file, "prod");
+        assertEquals(42, contents.getVersion());
+        assertEquals("\"v42\"", contents.getETag());
+        assertArrayEquals(FLAGS, contents.getFlags());
+        
+        List<Segment> read = new ArrayList<>(contents.getSegments());
+        assertEquals(3, read.size());
+        assertEquals("beta", read.get(0).getKey());
+        assertEquals(3, read.get(0).getVersion());
+        assertEquals(2000, read.get(0).size());
+        for (int i = 0; i < 2000; i += 37) {
+            assertTrue(read.get(0).contains("user-" + i));
+        }
+        assertFalse(read.get(0).contains("user-2000"));
+        assertEquals("\u65e5\u672c", read.get(1).getKey());
+        assertEquals(9, read.get(1).getVersion());
+        assertTrue(read.get(1).contains("\u00fcber"));
+        assertEquals("empty", read.get(2).getKey());
+        assertEquals(0, read.get(2).size());
+    }
+    
+    @Test
+    public void replacesThePreviousSnapshot() throws IOException {
+        SnapshotFile.write(file, "prod", new SnapshotFile.Contents(1, "\"v1\"", FLAGS, List.of()));
+        SnapshotFile.write(file, "prod", new SnapshotFile.Contents(-1, null, new byte[0], List.of()));
+        
+        SnapshotFile.Contents contents = SnapshotFile.read(file, "prod");
+        assertEquals(-1, contents.getVersion());
+        assertNull(contents.getETag());
+        assertEquals(0, contents.getFlags().length);
+        assertTrue(contents.getSegments().isEmpty());
+        // No temporary files left behind
+        try (Stream<Path> paths = Files.list(directory)) {
+            assertEquals(List.of(file), paths.toList());
+        }
+    }
+    
+    @Test
+    public void missingFileIsReportedAsSuch() {
+        assertThrows(NoSuchFileException.class, () -> SnapshotFile.read(file, "prod"));
+    }
+    
+    @Test
+    public void rejectsAFileOfAnotherEnvironment() throws IOException {
+        SnapshotFile.write(file, "staging", new SnapshotFile.Contents(1, null, FLAGS, List.of()));
+        
+        IOException e = assertThrows(IOException.class, () -> SnapshotFile.read(file, "prod"));
+        assertEquals("Snapshot file " + file + " belongs to environment 'staging'", e.getMessage());
+    }
+    
+    @Test
+    public void rejectsAChecksumMismatch() throws IOException {
+        writeWithSegment();
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+        
+        IOException e = assertThrows(IOException.class, () -> SnapshotFile.read(file, "prod"));
+        assertEquals("Snapshot file " + file + " is damaged", e.getMessage());
+    }
+    
+    @Test
+    public void rejectsATruncatedFile() throws IOException {
+        writeWithSegment();
+        byte[] bytes = Files.readAllBytes(file);
+        
+        // Cut short by an interrupted copy: the trailing checksum no longer matches
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 10));
+        IOException e = assertThrows(IOException.class, () -> SnapshotFile.read(file, "prod"));
+        assertEquals("Snapshot file " + file + " is damaged", e.getMessage());
+        
+        Files.write(file, Arrays.copyOf(bytes, 5));
+        e = assertThrows(IOException.class, () -> SnapshotFile.read(file, "prod"));
+        assertEquals("Snapshot file " + file + " has an invalid size of 5 bytes", e.getMessage());
+        
+        // A body that ends early but checksums correctly, in every field it could end in
+        for (int length = Integer.BYTES + 1; length < bytes.length - Integer.BYTES; length++) {
+            Files.write(file, withChecksum(Arrays.copyOf(bytes, length)));
+            assertThrows(EOFException.class, () -> SnapshotFile.read(file, "prod"));
+        }
+    }
+    
+    private void writeWithSegment() throws IOException {
+        Segment segment = new Segment.Builder().add("alice").add("bob").build("beta", 2);
+        SnapshotFile.write(file, "prod", new SnapshotFile.Contents(7, "\"v7\"", FLAGS, List.of(segment)));
+    }
+    
+    private static byte[] withChecksum(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return ByteBuffer.allocate(body.length + Integer.BYTES).put(body).putInt((int) crc.getValue()).array();
+    }
+}
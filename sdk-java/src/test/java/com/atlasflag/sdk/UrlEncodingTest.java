@@ -0,0 +1,110 @@
+package com.atlasflag.sdk;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.atlasflag.sdk.FakeService.flag;
+import static com.atlasflag.sdk.FakeService.json;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class UrlEncodingTest {
+    
+    private static final String[] AWKWARD_KEYS = {
+        "new checkout",
+        "checkout/v2",
+        "checkout?beta=1",
+        "checkout#2",
+        "100%",
+        "caf\u00e9-\u65e5\u672c",
+    };
+    
+    private FakeService service;
+    private AtlasFlagClient client;
+    
+    @Before
+    public void setUp() throws IOException {
+        service = new FakeService();
+    }
+    
+    @After
+    public void tearDown() throws IOException {
+        if (client != null) {
+            client.shutdown();
+        }
+        service.close();
+    }
+    
+    @Test
+    public void flagKeyIsOnePathSegment() {
+        for (String flagKey : AWKWARD_KEYS) {
+            service.onEnvironment("flags/" + flagKey, request -> json(flag(flagKey, true)));
+        }
+        client = service.client().build();
+        
+        for (String flagKey : AWKWARD_KEYS) {
+            assertTrue(flagKey, client.isEnabled(flagKey, "user-1", false));
+            
+            List<RecordedRequest> requests = service.environmentRequests("flags/" + flagKey);
+            assertEquals(flagKey, 1, requests.size());
+            assertEquals(Arrays.asList("api", "v1", "environments", FakeService.ENVIRONMENT, "flags", flagKey),
+                requests.get(0).getRequestUrl().pathSegments());
+            assertNull(flagKey, requests.get(0).getRequestUrl().query());
+        }
+    }
+    
+    @Test
+    public void environmentAndSegmentKeysAreOnePathSegment() {
+        String environment = "eu west/staging?";
+        String segmentKey = "beta testers/\u00e9";
+        service.on("environments/" + environment + "/segments", request ->
+            json("[{\"segmentKey\":\"" + segmentKey + "\",\"version\":1}]"));
+        service.on("environments/" + environment + "/segments/" + segmentKey, request -> new MockResponse());
+        client = service.client().environment(environment).build();
+        
+        List<RecordedRequest> listed = service.requests("environments/" + environment + "/segments");
+        assertEquals(1, listed.size());
+        assertEquals(Arrays.asList("api", "v1", "environments", environment, "segments"),
+            listed.get(0).getRequestUrl().pathSegments());
+        
+        List<RecordedRequest> fetched = service.requests("environments/" + environment + "/segments/" + segmentKey);
+        assertEquals(1, fetched.size());
+        assertEquals(Arrays.asList("api", "v1", "environments", environment, "segments", segmentKey),
+            fetched.get(0).getRequestUrl().pathSegments());
+    }
+    
+    @Test
+    public void baseUrlPathIsKept() throws Exception {
+        try (MockWebServer server = new MockWebServer()) {
+            server.enqueue(json("[]"));
+            server.enqueue(json(flag("checkout", true)));
+            server.start();
+            client = new AtlasFlagClient.Builder()
+                .baseUrl(server.url("/flags/proxy/").toString())
+                .environment(FakeService.ENVIRONMENT)
+                .build();
+            
+            assertTrue(client.isEnabled("checkout", "user-1", false));
+            
+            assertEquals("/flags/proxy/api/v1/environments/test/segments", server.takeRequest().getPath());
+            assertEquals("/flags/proxy/api/v1/environments/test/flags/checkout", server.takeRequest().getPath());
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void malformedBaseUrlIsRejected() {
+        new AtlasFlagClient.Builder()
+            .baseUrl("localhost:8080/api")
+            .environment(FakeService.ENVIRONMENT)
+            .build();
+    }
+}
@@ -1,37 +1,25 @@
 package com.atlasflag.config;
 
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.EnableCaching;
+import com.atlasflag.service.FlagChangeBroadcaster;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.data.redis.cache.RedisCacheConfiguration;
-import org.springframework.data.redis.cache.RedisCacheManager;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
-import org.springframework.data.redis.serializer.RedisSerializationContext;
-import org.springframework.data.redis.serializer.StringRedisSerializer;
-
-import java.time.Duration;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 
+/**
+ * Redis carries flag change broadcasts between nodes. Flags themselves are not cached
+ * in Redis: every node evaluates from its in-memory snapshot.
+ */
 @Configuration
-@EnableCaching
 public class RedisConfig {
     
-    @Value("${atlasflag.cache.ttl:300}")
-    private long cacheTtl;
-    
     @Bean
-    public CacheManager cacheManager(RedisConnectionFactory connectionFactory) {
-        RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
-            .entryTtl(Duration.ofSeconds(cacheTtl))
-            .serializeKeysWith(RedisSerializationContext.SerializationPair.fromSerializer(new StringRedisSerializer()))
-            .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(new GenericJackson2JsonRedisSerializer()))
-            .disableCachingNullValues();
-        
-        return RedisCacheManager.builder(connectionFactory)
-            .cacheDefaults(config)
-            .transactionAware()
-            .build();
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       FlagChangeBroadcaster flagChangeBroadcaster) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(flagChangeBroadcaster, new ChannelTopic(FlagChangeBroadcaster.CHANNEL));
+        return container;
     }
 }
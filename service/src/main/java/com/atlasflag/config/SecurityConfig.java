@@ -3,6 +3,7 @@ package com.atlasflag.config;
 import com.atlasflag.security.JwtAuthenticationFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpMethod;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
@@ -34,7 +35,12 @@ public class SecurityConfig {
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
-                .requestMatchers("/api/v1/flags/evaluate").permitAll() // Public endpoint for SDK
+                .requestMatchers("/api/v1/flags/evaluate", "/api/v1/flags/evaluate/batch").permitAll() // Public endpoints for SDK
+                .requestMatchers(HttpMethod.GET, "/api/v1/environments/*/snapshot").permitAll() // SDK local evaluation
+                .requestMatchers(HttpMethod.GET, "/api/v1/environments/*/changes").permitAll() // SDK delta sync
+                .requestMatchers(HttpMethod.GET, "/api/v1/environments/*/flags/*").permitAll() // SDK rule cache
+                .requestMatchers(HttpMethod.GET, "/api/v1/environments/*/stream").permitAll() // SDK change stream
+                .requestMatchers(HttpMethod.GET, "/api/v1/environments/*/segments", "/api/v1/environments/*/segments/*").authenticated() // SDK segment sync, member lists are not public
                 .requestMatchers("/actuator/**").permitAll()
                 .requestMatchers("/api/v1/auth/**").permitAll()
                     .requestMatchers("/", "/login", "/dashboard").permitAll()
@@ -1,23 +1,36 @@
 package com.atlasflag.controller;
 
 import com.atlasflag.domain.AuditLog;
+import com.atlasflag.dto.CursorPage;
+import com.atlasflag.service.AuditExportService;
 import com.atlasflag.service.AuditService;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.time.Instant;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/v1/audit")
 @PreAuthorize("hasRole('ADMIN')")
 public class AuditController {
     
+    private static final int MAX_SCROLL_SIZE = 1000;
+    
     private final AuditService auditService;
+    private final AuditExportService auditExportService;
     
-    public AuditController(AuditService auditService) {
+    public AuditController(AuditService auditService, AuditExportService auditExportService) {
         this.auditService = auditService;
+        this.auditExportService = auditExportService;
     }
     
     @GetMapping("/entity/{entityType}/{entityId}")
@@ -36,4 +49,60 @@ public class AuditController {
         Page<AuditLog> logs = auditService.getAuditLogsByUser(userId, pageable);
         return ResponseEntity.ok(logs);
     }
+    
+    @GetMapping("/entity/{entityType}/{entityId}/scroll")
+    public ResponseEntity<CursorPage<AuditLog>> scrollAuditLogs(
+            @PathVariable String entityType,
+            @PathVariable Long entityId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(auditService.scrollAuditLogs(entityType, entityId, cursor, validateSize(size)));
+    }
+    
+    @GetMapping("/user/{userId}/scroll")
+    public ResponseEntity<CursorPage<AuditLog>> scrollAuditLogsByUser(
+            @PathVariable String userId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(auditService.scrollAuditLogsByUser(userId, cursor, validateSize(size)));
+    }
+    
+    /**
+     * Audit logs that changed a given field, newest first, e.g.
+     * {@code ?field=rolloutPercentage&entityType=FeatureFlag&entityId=42}.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<List<AuditLog>> getFieldChanges(
+            @RequestParam String field,
+            @RequestParam(required = false) String entityType,
+            @RequestParam(required = false) Long entityId,
+            @RequestParam(defaultValue = "20") int size) {
+        return ResponseEntity.ok(auditService.findFieldChanges(field, entityType, entityId, validateSize(size)));
+    }
+    
+    /**
+     * Audit logs in [from, to) as newline-delimited JSON, streamed as they are read.
+     * Exports have their own timeout, {@code atlasflag.audit.export-timeout}.
+     */
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    public ResponseEntity<ResponseBodyEmitter> exportAuditLogs(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            @RequestParam(required = false) String entityType,
+            @RequestParam(required = false) String userId) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"audit-logs.ndjson\"")
+            .contentType(MediaType.parseMediaType("application/x-ndjson"))
+            .body(auditExportService.exportAsync(from, to, entityType, userId));
+    }
+    
+    private static int validateSize(int size) {
+        if (size < 1 || size > MAX_SCROLL_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_SCROLL_SIZE);
+        }
+        return size;
+    }
 }
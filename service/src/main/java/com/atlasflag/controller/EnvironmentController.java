@@ -0,0 +1,193 @@
+package com.atlasflag.controller;
+
+import com.atlasflag.core.Segment;
+import com.atlasflag.dto.EnvironmentHistoryDTO;
+import com.atlasflag.dto.FlagChangesDTO;
+import com.atlasflag.dto.FlagRuleDTO;
+import com.atlasflag.dto.SegmentSummaryDTO;
+import com.atlasflag.service.FeatureFlagService;
+import com.atlasflag.service.FlagChangeLog;
+import com.atlasflag.service.FlagHistoryService;
+import com.atlasflag.service.FlagStreamService;
+import com.atlasflag.service.SegmentRegistry;
+import com.atlasflag.service.SnapshotPayloadCache;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Environment-level read endpoints, mostly consumed by SDKs.
+ */
+@RestController
+@RequestMapping("/api/v1/environments")
+public class EnvironmentController {
+    
+    private final FeatureFlagService flagService;
+    private final FlagStreamService flagStreamService;
+    private final SnapshotPayloadCache snapshotPayloadCache;
+    private final FlagChangeLog flagChangeLog;
+    private final FlagHistoryService flagHistoryService;
+    private final SegmentRegistry segmentRegistry;
+    
+    public EnvironmentController(FeatureFlagService flagService, FlagStreamService flagStreamService,
+                                 SnapshotPayloadCache snapshotPayloadCache, FlagChangeLog flagChangeLog,
+                                 FlagHistoryService flagHistoryService, SegmentRegistry segmentRegistry) {
+        this.flagService = flagService;
+        this.flagStreamService = flagStreamService;
+        this.snapshotPayloadCache = snapshotPayloadCache;
+        this.flagChangeLog = flagChangeLog;
+        this.flagHistoryService = flagHistoryService;
+        this.segmentRegistry = segmentRegistry;
+    }
+    
+    /**
+     * Every flag rule of an environment. Bodies are precomputed per snapshot version;
+     * clients polling with the last ETag get 304 while nothing has changed.
+     */
+    @GetMapping("/{environment}/snapshot")
+    public ResponseEntity<byte[]> getSnapshot(@PathVariable String environment,
+                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                              @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        SnapshotPayloadCache.Payload payload = snapshotPayloadCache.getPayload(environment);
+        CacheControl cacheControl = CacheControl.noCache();
+        
+        if (payload.matches(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(payload.etag())
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .build();
+        }
+        
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_JSON)
+            .eTag(payload.etag())
+            .cacheControl(cacheControl)
+            .varyBy(HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsGzip(acceptEncoding)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(payload.gzip());
+        }
+        return response.body(payload.json());
+    }
+    
+    /**
+     * Changes after the given sequence, for SDKs holding a snapshot of version {@code since}.
+     * If {@code resync} is set the SDK must download the full snapshot instead.
+     */
+    @GetMapping("/{environment}/changes")
+    public ResponseEntity<FlagChangesDTO> getChanges(@PathVariable String environment,
+                                                     @RequestParam long since) {
+        if (since < 0) {
+            throw new IllegalArgumentException("since must not be negative");
+        }
+        return ResponseEntity.ok(flagChangeLog.getChangesSince(environment, since));
+    }
+    
+    @GetMapping("/{environment}/flags/{flagKey}")
+    public ResponseEntity<FlagRuleDTO> getFlagRule(@PathVariable String environment,
+                                                   @PathVariable String flagKey) {
+        return flagService.getFlagRule(flagKey, environment)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Key and version of every segment of an environment, for SDKs to download the
+     * members of those that changed.
+     */
+    @GetMapping("/{environment}/segments")
+    public ResponseEntity<List<SegmentSummaryDTO>> getSegments(@PathVariable String environment) {
+        List<SegmentSummaryDTO> segments = segmentRegistry.listSegments(environment).stream()
+            .map(segment -> new SegmentSummaryDTO(segment.getKey(), segment.getVersion(), segment.size()))
+            .sorted(Comparator.comparing(SegmentSummaryDTO::getSegmentKey))
+            .toList();
+        return ResponseEntity.ok(segments);
+    }
+    
+    /**
+     * Members of a segment as sorted big-endian 64-bit hashes (see {@link Segment}),
+     * written straight from memory. The ETag is the segment version.
+     */
+    @GetMapping("/{environment}/segments/{segmentKey}")
+    public ResponseEntity<StreamingResponseBody> getSegmentMembers(@PathVariable String environment,
+                                                                   @PathVariable String segmentKey,
+                                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Segment segment = segmentRegistry.getSegment(environment, segmentKey);
+        if (segment == null) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = "\"" + segment.getVersion() + "\"";
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        StreamingResponseBody body = segment::writeTo;
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .contentLength((long) segment.size() * Long.BYTES)
+            .eTag(etag)
+            .cacheControl(CacheControl.noCache())
+            .body(body);
+    }
+    
+    /**
+     * The flags of an environment as they were at a past instant, rebuilt from the audit trail.
+     */
+    @GetMapping("/{environment}/history")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<EnvironmentHistoryDTO> getHistory(@PathVariable String environment,
+                                                            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant at) {
+        if (at.isAfter(Instant.now())) {
+            throw new IllegalArgumentException("at must not be in the future");
+        }
+        return ResponseEntity.ok(flagHistoryService.getEnvironmentState(environment, at));
+    }
+    
+    @GetMapping(value = "/{environment}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@PathVariable String environment) {
+        return flagStreamService.subscribe(environment);
+    }
+    
+    /**
+     * Whether an {@code Accept-Encoding} header admits gzip: listed with a non-zero quality
+     * value, or covered by a non-zero {@code *} when not listed itself (RFC 9110, 12.5.3).
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        double gzip = -1;
+        double wildcard = -1;
+        for (String element : acceptEncoding.split(",")) {
+            String[] parts = element.split(";");
+            String coding = parts[0].trim();
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (coding.equalsIgnoreCase("gzip") || coding.equalsIgnoreCase("x-gzip")) {
+                gzip = Math.max(gzip, quality);
+            } else if (coding.equals("*")) {
+                wildcard = Math.max(wildcard, quality);
+            }
+        }
+        return (gzip >= 0 ? gzip : wildcard) > 0;
+    }
+}
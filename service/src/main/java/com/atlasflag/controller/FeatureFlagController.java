@@ -1,5 +1,7 @@
 package com.atlasflag.controller;
 
+import com.atlasflag.dto.BatchEvaluationRequest;
+import com.atlasflag.dto.BatchEvaluationResponse;
 import com.atlasflag.dto.FeatureFlagDTO;
 import com.atlasflag.dto.FlagEvaluationRequest;
 import com.atlasflag.dto.FlagEvaluationResponse;
@@ -74,4 +76,10 @@ public class FeatureFlagController {
         FlagEvaluationResponse response = flagService.evaluateFlag(request);
         return ResponseEntity.ok(response);
     }
+    
+    @PostMapping("/evaluate/batch")
+    public ResponseEntity<BatchEvaluationResponse> evaluateFlags(@Valid @RequestBody BatchEvaluationRequest request) {
+        BatchEvaluationResponse response = flagService.evaluateFlags(request);
+        return ResponseEntity.ok(response);
+    }
 }
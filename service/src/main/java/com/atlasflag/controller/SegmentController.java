@@ -0,0 +1,68 @@
+package com.atlasflag.controller;
+
+import com.atlasflag.dto.SegmentDTO;
+import com.atlasflag.service.SegmentService;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/segments")
+public class SegmentController {
+    
+    private final SegmentService segmentService;
+    
+    public SegmentController(SegmentService segmentService) {
+        this.segmentService = segmentService;
+    }
+    
+    @PostMapping
+    public ResponseEntity<SegmentDTO> createSegment(@Valid @RequestBody SegmentDTO dto,
+                                                    Authentication authentication) {
+        SegmentDTO created = segmentService.createSegment(dto, authentication.getName());
+        return ResponseEntity.status(HttpStatus.CREATED).body(created);
+    }
+    
+    @GetMapping("/{id}")
+    public ResponseEntity<SegmentDTO> getSegment(@PathVariable Long id) {
+        return segmentService.getSegmentById(id)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @GetMapping
+    public ResponseEntity<List<SegmentDTO>> getAllSegments(
+            @RequestParam(required = false, defaultValue = "default") String environment) {
+        return ResponseEntity.ok(segmentService.getSegments(environment));
+    }
+    
+    @PutMapping("/{id}")
+    public ResponseEntity<SegmentDTO> updateSegment(@PathVariable Long id,
+                                                    @Valid @RequestBody SegmentDTO dto,
+                                                    Authentication authentication) {
+        return ResponseEntity.ok(segmentService.updateSegment(id, dto, authentication.getName()));
+    }
+    
+    /**
+     * Replace the members with the user IDs in the body, one per line. The body is read
+     * as a stream, so it can hold millions of IDs.
+     */
+    @PutMapping(value = "/{id}/members", consumes = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<SegmentDTO> importMembers(@PathVariable Long id, InputStream body,
+                                                    Authentication authentication) throws IOException {
+        return ResponseEntity.ok(segmentService.importMembers(id, body, authentication.getName()));
+    }
+    
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteSegment(@PathVariable Long id, Authentication authentication) {
+        segmentService.deleteSegment(id, authentication.getName());
+        return ResponseEntity.noContent().build();
+    }
+}
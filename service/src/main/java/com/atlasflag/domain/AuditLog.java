@@ -1,19 +1,24 @@
 package com.atlasflag.domain;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import java.time.Instant;
+import java.util.Map;
 import java.util.Objects;
 
 @Entity
 @Table(name = "audit_logs", indexes = {
-    @Index(name = "idx_entity_type", columnList = "entity_type,entity_id"),
-    @Index(name = "idx_user", columnList = "user_id"),
+    @Index(name = "idx_audit_entity_keyset", columnList = "entity_type,entity_id,timestamp DESC,id DESC"),
+    @Index(name = "idx_audit_user_keyset", columnList = "user_id,timestamp DESC,id DESC"),
     @Index(name = "idx_timestamp", columnList = "timestamp")
 })
 public class AuditLog {
     
+    // The table is partitioned by timestamp, so its primary key is (id, timestamp); id alone is still unique
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -35,8 +40,13 @@ public class AuditLog {
     @Column(name = "user_email")
     private String userEmail;
     
-    @Column(name = "changes", columnDefinition = "TEXT")
-    private String changes; // JSON representation of changes
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "changes", columnDefinition = "jsonb")
+    private String changes; // JSON object of FieldChange by field name; legacy rows hold {"old":...,"new":...}
+    
+    @Transient
+    @JsonIgnore
+    private Map<String, FieldChange> fieldChanges; // Diff to serialize into 'changes' when the entry is written
     
     @NotNull
     @Column(name = "timestamp", nullable = false, updatable = false)
@@ -109,6 +119,14 @@ public class AuditLog {
         this.changes = changes;
     }
     
+    public Map<String, FieldChange> getFieldChanges() {
+        return fieldChanges;
+    }
+    
+    public void setFieldChanges(Map<String, FieldChange> fieldChanges) {
+        this.fieldChanges = fieldChanges;
+    }
+    
     public Instant getTimestamp() {
         return timestamp;
     }
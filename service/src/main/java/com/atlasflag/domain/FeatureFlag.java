@@ -3,7 +3,12 @@ package com.atlasflag.domain;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
 @Entity
@@ -37,8 +42,20 @@ public class FeatureFlag {
     @Column(name = "enabled", nullable = false)
     private Boolean enabled = false;
     
-    @Column(name = "rollout_percentage")
-    private Integer rolloutPercentage; // 0-100, null means not applicable
+    @Column(name = "rollout_percentage", precision = 5, scale = 2)
+    private BigDecimal rolloutPercentage; // 0-100 in steps of 0.01, null means not applicable
+    
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "targeting_rules", nullable = false, columnDefinition = "jsonb")
+    private List<TargetingRule> targetingRules = new ArrayList<>(); // in priority order
+    
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "variants", nullable = false, columnDefinition = "jsonb")
+    private List<FlagVariant> variants = new ArrayList<>(); // empty for boolean flags
+    
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "prerequisites", nullable = false, columnDefinition = "jsonb")
+    private List<FlagPrerequisite> prerequisites = new ArrayList<>();
     
     @NotBlank
     @Column(name = "environment", nullable = false)
@@ -114,14 +131,38 @@ public class FeatureFlag {
         this.enabled = enabled;
     }
     
-    public Integer getRolloutPercentage() {
+    public BigDecimal getRolloutPercentage() {
         return rolloutPercentage;
     }
     
-    public void setRolloutPercentage(Integer rolloutPercentage) {
+    public void setRolloutPercentage(BigDecimal rolloutPercentage) {
         this.rolloutPercentage = rolloutPercentage;
     }
     
+    public List<TargetingRule> getTargetingRules() {
+        return targetingRules;
+    }
+    
+    public void setTargetingRules(List<TargetingRule> targetingRules) {
+        this.targetingRules = targetingRules;
+    }
+    
+    public List<FlagVariant> getVariants() {
+        return variants;
+    }
+    
+    public void setVariants(List<FlagVariant> variants) {
+        this.variants = variants;
+    }
+    
+    public List<FlagPrerequisite> getPrerequisites() {
+        return prerequisites;
+    }
+    
+    public void setPrerequisites(List<FlagPrerequisite> prerequisites) {
+        this.prerequisites = prerequisites;
+    }
+    
     public String getEnvironment() {
         return environment;
     }
@@ -0,0 +1,9 @@
+package com.atlasflag.domain;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Value of one field before and after a change, as stored in audit log diffs.
+ */
+public record FieldChange(@JsonProperty("old") Object oldValue, @JsonProperty("new") Object newValue) {
+}
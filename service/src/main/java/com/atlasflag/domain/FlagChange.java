@@ -0,0 +1,109 @@
+package com.atlasflag.domain;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+import java.time.Instant;
+
+/**
+ * One committed flag write, numbered by a per-environment sequence.
+ */
+@Entity
+@Table(name = "flag_changes",
+    indexes = {
+        @Index(name = "idx_flag_changes_created_at", columnList = "created_at")
+    },
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_flag_changes_env_sequence", columnNames = {"environment", "sequence"})
+    }
+)
+public class FlagChange {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @NotBlank
+    @Column(name = "environment", nullable = false)
+    private String environment;
+    
+    @Column(name = "sequence", nullable = false)
+    private Long sequence;
+    
+    @NotBlank
+    @Column(name = "flag_key", nullable = false)
+    private String flagKey;
+    
+    @NotBlank
+    @Column(name = "change_type", nullable = false)
+    private String changeType; // FlagChangeEvent.Type
+    
+    @Column(name = "flag_state", columnDefinition = "TEXT")
+    private String flagState; // JSON FlagRuleDTO after the change, null for deletions
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) {
+            createdAt = Instant.now();
+        }
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getEnvironment() {
+        return environment;
+    }
+    
+    public void setEnvironment(String environment) {
+        this.environment = environment;
+    }
+    
+    public Long getSequence() {
+        return sequence;
+    }
+    
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+    
+    public String getFlagKey() {
+        return flagKey;
+    }
+    
+    public void setFlagKey(String flagKey) {
+        this.flagKey = flagKey;
+    }
+    
+    public String getChangeType() {
+        return changeType;
+    }
+    
+    public void setChangeType(String changeType) {
+        this.changeType = changeType;
+    }
+    
+    public String getFlagState() {
+        return flagState;
+    }
+    
+    public void setFlagState(String flagState) {
+        this.flagState = flagState;
+    }
+    
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,8 @@
+package com.atlasflag.domain;
+
+/**
+ * Requirement that another flag of the same environment evaluates to {@code value} for a
+ * user before the requiring flag applies to them.
+ */
+public record FlagPrerequisite(String flagKey, Boolean value) {
+}
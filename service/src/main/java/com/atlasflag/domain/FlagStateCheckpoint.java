@@ -0,0 +1,70 @@
+package com.atlasflag.domain;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+import java.time.Instant;
+
+/**
+ * State of every flag of an environment at one instant, reconstructed from the audit trail.
+ */
+@Entity
+@Table(name = "flag_state_checkpoints",
+    indexes = {
+        @Index(name = "idx_flag_state_checkpoints_taken_at", columnList = "taken_at")
+    },
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_flag_state_checkpoints_env_taken_at", columnNames = {"environment", "taken_at"})
+    }
+)
+public class FlagStateCheckpoint {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @NotBlank
+    @Column(name = "environment", nullable = false)
+    private String environment;
+    
+    @Column(name = "taken_at", nullable = false)
+    private Instant takenAt;
+    
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "state", nullable = false, columnDefinition = "jsonb")
+    private String state; // JSON object of audited flag fields keyed by flag id
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getEnvironment() {
+        return environment;
+    }
+    
+    public void setEnvironment(String environment) {
+        this.environment = environment;
+    }
+    
+    public Instant getTakenAt() {
+        return takenAt;
+    }
+    
+    public void setTakenAt(Instant takenAt) {
+        this.takenAt = takenAt;
+    }
+    
+    public String getState() {
+        return state;
+    }
+    
+    public void setState(String state) {
+        this.state = state;
+    }
+}
@@ -0,0 +1,12 @@
+package com.atlasflag.domain;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.math.BigDecimal;
+
+/**
+ * Variant of a multivariate flag: users the flag serves get {@code value}, a string,
+ * number or JSON document, with a probability of {@code weight} percent.
+ */
+public record FlagVariant(String key, JsonNode value, BigDecimal weight) {
+}
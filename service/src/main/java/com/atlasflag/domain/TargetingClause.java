@@ -0,0 +1,11 @@
+package com.atlasflag.domain;
+
+import com.atlasflag.core.Targeting;
+
+import java.util.List;
+
+/**
+ * Condition of a targeting rule on one user attribute; {@code userId} refers to the user ID.
+ */
+public record TargetingClause(String attribute, Targeting.Operator operator, List<String> values, boolean negate) {
+}
@@ -0,0 +1,10 @@
+package com.atlasflag.domain;
+
+import java.util.List;
+
+/**
+ * Targeting rule of a flag: if all clauses hold for a user, the flag serves {@code value}.
+ * Rules are evaluated in list order and the first match wins.
+ */
+public record TargetingRule(String id, List<TargetingClause> clauses, Boolean value) {
+}
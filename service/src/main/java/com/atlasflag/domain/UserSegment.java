@@ -0,0 +1,172 @@
+package com.atlasflag.domain;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * A named set of users per environment. Only the metadata is mapped; the members are
+ * stored as packed hashes in {@code segment_members} and never loaded as entities.
+ */
+@Entity
+@Table(name = "segments",
+    indexes = {
+        @Index(name = "idx_segments_environment", columnList = "environment")
+    },
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_segment_key_env", columnNames = {"segment_key", "environment"})
+    }
+)
+public class UserSegment {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @NotBlank
+    @Column(name = "segment_key", nullable = false)
+    private String segmentKey;
+    
+    @NotBlank
+    @Column(name = "name", nullable = false)
+    private String name;
+    
+    @Column(name = "description", length = 1000)
+    private String description;
+    
+    @NotBlank
+    @Column(name = "environment", nullable = false)
+    private String environment = "default";
+    
+    @Column(name = "member_count", nullable = false)
+    private Integer memberCount = 0;
+    
+    @Column(name = "created_by", nullable = false)
+    private String createdBy;
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+    
+    @Column(name = "updated_by")
+    private String updatedBy;
+    
+    @Column(name = "updated_at")
+    private Instant updatedAt;
+    
+    @Version
+    private Long version; // bumped by every member import, so SDKs know when to download again
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = Instant.now();
+        updatedAt = Instant.now();
+    }
+    
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = Instant.now();
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getSegmentKey() {
+        return segmentKey;
+    }
+    
+    public void setSegmentKey(String segmentKey) {
+        this.segmentKey = segmentKey;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public void setDescription(String description) {
+        this.description = description;
+    }
+    
+    public String getEnvironment() {
+        return environment;
+    }
+    
+    public void setEnvironment(String environment) {
+        this.environment = environment;
+    }
+    
+    public Integer getMemberCount() {
+        return memberCount;
+    }
+    
+    public void setMemberCount(Integer memberCount) {
+        this.memberCount = memberCount;
+    }
+    
+    public String getCreatedBy() {
+        return createdBy;
+    }
+    
+    public void setCreatedBy(String createdBy) {
+        this.createdBy = createdBy;
+    }
+    
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public String getUpdatedBy() {
+        return updatedBy;
+    }
+    
+    public void setUpdatedBy(String updatedBy) {
+        this.updatedBy = updatedBy;
+    }
+    
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+    
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        UserSegment that = (UserSegment) o;
+        return Objects.equals(id, that.id) && Objects.equals(segmentKey, that.segmentKey);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, segmentKey);
+    }
+}
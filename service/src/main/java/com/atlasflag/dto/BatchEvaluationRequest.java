@@ -0,0 +1,50 @@
+package com.atlasflag.dto;
+
+import jakarta.validation.constraints.Size;
+import java.util.List;
+import java.util.Map;
+
+public class BatchEvaluationRequest {
+    
+    private String environment = "default";
+    
+    private String userId; // For percentage-based rollouts
+    
+    private Map<String, String> attributes; // Matched by targeting rules
+    
+    @Size(max = 1000, message = "At most 1000 flags can be evaluated per request")
+    private List<String> flagKeys; // null or empty evaluates every flag in the environment
+    
+    // Getters and Setters
+    public String getEnvironment() {
+        return environment;
+    }
+    
+    public void setEnvironment(String environment) {
+        this.environment = environment;
+    }
+    
+    public String getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+    
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+    
+    public void setAttributes(Map<String, String> attributes) {
+        this.attributes = attributes;
+    }
+    
+    public List<String> getFlagKeys() {
+        return flagKeys;
+    }
+    
+    public void setFlagKeys(List<String> flagKeys) {
+        this.flagKeys = flagKeys;
+    }
+}
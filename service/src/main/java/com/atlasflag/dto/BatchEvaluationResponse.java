@@ -0,0 +1,27 @@
+package com.atlasflag.dto;
+
+import java.util.Map;
+
+public class BatchEvaluationResponse {
+    
+    private String environment;
+    
+    private Map<String, FlagEvaluationResponse> flags; // keyed by flag key
+    
+    // Getters and Setters
+    public String getEnvironment() {
+        return environment;
+    }
+    
+    public void setEnvironment(String environment) {
+        this.environment = environment;
+    }
+    
+    public Map<String, FlagEvaluationResponse> getFlags() {
+        return flags;
+    }
+    
+    public void setFlags(Map<String, FlagEvaluationResponse> flags) {
+        this.flags = flags;
+    }
+}
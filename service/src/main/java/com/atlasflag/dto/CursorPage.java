@@ -0,0 +1,37 @@
+package com.atlasflag.dto;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated result.
+ */
+public class CursorPage<T> {
+    
+    private List<T> items;
+    
+    private String nextCursor; // Pass back as 'cursor' for the next page; null on the last page
+    
+    public CursorPage() {}
+    
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+    
+    // Getters and Setters
+    public List<T> getItems() {
+        return items;
+    }
+    
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+    
+    public String getNextCursor() {
+        return nextCursor;
+    }
+    
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
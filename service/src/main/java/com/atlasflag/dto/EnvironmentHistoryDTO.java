@@ -0,0 +1,61 @@
+package com.atlasflag.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * The flags of an environment as they were at a past instant.
+ */
+public class EnvironmentHistoryDTO {
+    
+    private String environment;
+    
+    private Instant at;
+    
+    private Instant checkpointAt; // Checkpoint the state was replayed from, null if replayed from the start
+    
+    private long replayedEntries; // Audit entries applied on top of the checkpoint
+    
+    private List<FlagStateDTO> flags;
+    
+    // Getters and Setters
+    public String getEnvironment() {
+        return environment;
+    }
+    
+    public void setEnvironment(String environment) {
+        this.environment = environment;
+    }
+    
+    public Instant getAt() {
+        return at;
+    }
+    
+    public void setAt(Instant at) {
+        this.at = at;
+    }
+    
+    public Instant getCheckpointAt() {
+        return checkpointAt;
+    }
+    
+    public void setCheckpointAt(Instant checkpointAt) {
+        this.checkpointAt = checkpointAt;
+    }
+    
+    public long getReplayedEntries() {
+        return replayedEntries;
+    }
+    
+    public void setReplayedEntries(long replayedEntries) {
+        this.replayedEntries = replayedEntries;
+    }
+    
+    public List<FlagStateDTO> getFlags() {
+        return flags;
+    }
+    
+    public void setFlags(List<FlagStateDTO> flags) {
+        this.flags = flags;
+    }
+}
@@ -0,0 +1,40 @@
+package com.atlasflag.dto;
+
+import java.util.List;
+
+/**
+ * All flag rules of one environment, used by SDKs for local evaluation.
+ */
+public class EnvironmentSnapshotDTO {
+    
+    private String environment;
+    
+    private List<FlagRuleDTO> flags;
+    
+    private Long version; // Change sequence the snapshot reflects; resume with /changes?since=version
+    
+    // Getters and Setters
+    public String getEnvironment() {
+        return environment;
+    }
+    
+    public void setEnvironment(String environment) {
+        this.environment = environment;
+    }
+    
+    public List<FlagRuleDTO> getFlags() {
+        return flags;
+    }
+    
+    public void setFlags(List<FlagRuleDTO> flags) {
+        this.flags = flags;
+    }
+    
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
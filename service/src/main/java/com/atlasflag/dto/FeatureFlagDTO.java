@@ -1,9 +1,15 @@
 package com.atlasflag.dto;
 
+import com.atlasflag.domain.FlagPrerequisite;
+import com.atlasflag.domain.FlagVariant;
+import com.atlasflag.domain.TargetingRule;
 import jakarta.validation.constraints.NotBlank;
-import jakarta.validation.constraints.Min;
-import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.Digits;
+import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.List;
 
 public class FeatureFlagDTO {
     
@@ -19,9 +25,16 @@ public class FeatureFlagDTO {
     
     private Boolean enabled;
     
-    @Min(value = 0, message = "Rollout percentage must be between 0 and 100")
-    @Max(value = 100, message = "Rollout percentage must be between 0 and 100")
-    private Integer rolloutPercentage;
+    @DecimalMin(value = "0", message = "Rollout percentage must be between 0 and 100")
+    @DecimalMax(value = "100", message = "Rollout percentage must be between 0 and 100")
+    @Digits(integer = 3, fraction = 2, message = "Rollout percentage allows at most two decimals")
+    private BigDecimal rolloutPercentage;
+    
+    private List<TargetingRule> targetingRules; // in priority order
+    
+    private List<FlagVariant> variants; // empty for boolean flags
+    
+    private List<FlagPrerequisite> prerequisites;
     
     private String environment;
     
@@ -81,14 +94,38 @@ public class FeatureFlagDTO {
         this.enabled = enabled;
     }
     
-    public Integer getRolloutPercentage() {
+    public BigDecimal getRolloutPercentage() {
         return rolloutPercentage;
     }
     
-    public void setRolloutPercentage(Integer rolloutPercentage) {
+    public void setRolloutPercentage(BigDecimal rolloutPercentage) {
         this.rolloutPercentage = rolloutPercentage;
     }
     
+    public List<TargetingRule> getTargetingRules() {
+        return targetingRules;
+    }
+    
+    public void setTargetingRules(List<TargetingRule> targetingRules) {
+        this.targetingRules = targetingRules;
+    }
+    
+    public List<FlagVariant> getVariants() {
+        return variants;
+    }
+    
+    public void setVariants(List<FlagVariant> variants) {
+        this.variants = variants;
+    }
+    
+    public List<FlagPrerequisite> getPrerequisites() {
+        return prerequisites;
+    }
+    
+    public void setPrerequisites(List<FlagPrerequisite> prerequisites) {
+        this.prerequisites = prerequisites;
+    }
+    
     public String getEnvironment() {
         return environment;
     }
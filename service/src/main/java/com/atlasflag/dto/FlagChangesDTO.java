@@ -0,0 +1,52 @@
+package com.atlasflag.dto;
+
+import com.atlasflag.event.FlagChangeEvent;
+
+import java.util.List;
+
+/**
+ * Flag changes of one environment after a given sequence, in sequence order.
+ */
+public class FlagChangesDTO {
+    
+    private String environment;
+    
+    private Long version; // Sequence of the last change included; pass as 'since' on the next call
+    
+    private boolean resync; // The requested range is unavailable; reload the full snapshot instead
+    
+    private List<FlagChangeEvent> changes;
+    
+    // Getters and Setters
+    public String getEnvironment() {
+        return environment;
+    }
+    
+    public void setEnvironment(String environment) {
+        this.environment = environment;
+    }
+    
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+    
+    public boolean isResync() {
+        return resync;
+    }
+    
+    public void setResync(boolean resync) {
+        this.resync = resync;
+    }
+    
+    public List<FlagChangeEvent> getChanges() {
+        return changes;
+    }
+    
+    public void setChanges(List<FlagChangeEvent> changes) {
+        this.changes = changes;
+    }
+}
@@ -1,6 +1,7 @@
 package com.atlasflag.dto;
 
 import jakarta.validation.constraints.NotBlank;
+import java.util.Map;
 
 public class FlagEvaluationRequest {
     
@@ -11,6 +12,8 @@ public class FlagEvaluationRequest {
     
     private String userId; // For percentage-based rollouts
     
+    private Map<String, String> attributes; // Matched by targeting rules
+    
     // Getters and Setters
     public String getFlagKey() {
         return flagKey;
@@ -35,4 +38,12 @@ public class FlagEvaluationRequest {
     public void setUserId(String userId) {
         this.userId = userId;
     }
+    
+    public Map<String, String> getAttributes() {
+        return attributes;
+    }
+    
+    public void setAttributes(Map<String, String> attributes) {
+        this.attributes = attributes;
+    }
 }
@@ -1,5 +1,7 @@
 package com.atlasflag.dto;
 
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
 public class FlagEvaluationResponse {
     
     private String flagKey;
@@ -8,6 +10,13 @@ public class FlagEvaluationResponse {
     
     private String reason; // e.g., "FLAG_ENABLED", "ROLLOUT_PERCENTAGE", "DEFAULT_VALUE"
     
+    private String ruleId; // Targeting rule that decided the value, if any
+    
+    private String variant; // Variant served by a multivariate flag, if any
+    
+    @JsonRawValue
+    private String value; // JSON value of the variant, written as-is
+    
     // Getters and Setters
     public String getFlagKey() {
         return flagKey;
@@ -32,4 +41,28 @@ public class FlagEvaluationResponse {
     public void setReason(String reason) {
         this.reason = reason;
     }
+    
+    public String getRuleId() {
+        return ruleId;
+    }
+    
+    public void setRuleId(String ruleId) {
+        this.ruleId = ruleId;
+    }
+    
+    public String getVariant() {
+        return variant;
+    }
+    
+    public void setVariant(String variant) {
+        this.variant = variant;
+    }
+    
+    public String getValue() {
+        return value;
+    }
+    
+    public void setValue(String value) {
+        this.value = value;
+    }
 }
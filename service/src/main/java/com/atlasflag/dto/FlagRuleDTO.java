@@ -0,0 +1,95 @@
+package com.atlasflag.dto;
+
+import com.atlasflag.domain.FlagPrerequisite;
+import com.atlasflag.domain.FlagVariant;
+import com.atlasflag.domain.TargetingRule;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Evaluation-relevant subset of a flag, as consumed by SDKs that evaluate locally.
+ */
+public class FlagRuleDTO {
+    
+    private String flagKey;
+    
+    private Boolean enabled;
+    
+    private Boolean defaultValue;
+    
+    private BigDecimal rolloutPercentage;
+    
+    private List<TargetingRule> targetingRules; // in priority order
+    
+    private List<FlagVariant> variants; // empty for boolean flags
+    
+    private List<FlagPrerequisite> prerequisites;
+    
+    private Long version;
+    
+    // Getters and Setters
+    public String getFlagKey() {
+        return flagKey;
+    }
+    
+    public void setFlagKey(String flagKey) {
+        this.flagKey = flagKey;
+    }
+    
+    public Boolean getEnabled() {
+        return enabled;
+    }
+    
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    public Boolean getDefaultValue() {
+        return defaultValue;
+    }
+    
+    public void setDefaultValue(Boolean defaultValue) {
+        this.defaultValue = defaultValue;
+    }
+    
+    public BigDecimal getRolloutPercentage() {
+        return rolloutPercentage;
+    }
+    
+    public void setRolloutPercentage(BigDecimal rolloutPercentage) {
+        this.rolloutPercentage = rolloutPercentage;
+    }
+    
+    public List<TargetingRule> getTargetingRules() {
+        return targetingRules;
+    }
+    
+    public void setTargetingRules(List<TargetingRule> targetingRules) {
+        this.targetingRules = targetingRules;
+    }
+    
+    public List<FlagVariant> getVariants() {
+        return variants;
+    }
+    
+    public void setVariants(List<FlagVariant> variants) {
+        this.variants = variants;
+    }
+    
+    public List<FlagPrerequisite> getPrerequisites() {
+        return prerequisites;
+    }
+    
+    public void setPrerequisites(List<FlagPrerequisite> prerequisites) {
+        this.prerequisites = prerequisites;
+    }
+    
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
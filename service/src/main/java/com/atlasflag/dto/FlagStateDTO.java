@@ -0,0 +1,146 @@
+package com.atlasflag.dto;
+
+import com.atlasflag.domain.FlagPrerequisite;
+import com.atlasflag.domain.FlagVariant;
+import com.atlasflag.domain.TargetingRule;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Audited fields of a flag as of some instant, reconstructed from the audit trail.
+ */
+public class FlagStateDTO {
+    
+    private Long id;
+    
+    private String flagKey;
+    
+    private String name;
+    
+    private String description;
+    
+    private Boolean enabled;
+    
+    private BigDecimal rolloutPercentage;
+    
+    private List<TargetingRule> targetingRules; // in priority order
+    
+    private List<FlagVariant> variants; // empty for boolean flags
+    
+    private List<FlagPrerequisite> prerequisites;
+    
+    private String environment;
+    
+    private Boolean defaultValue;
+    
+    private Instant lastModifiedAt;
+    
+    private String lastModifiedBy;
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getFlagKey() {
+        return flagKey;
+    }
+    
+    public void setFlagKey(String flagKey) {
+        this.flagKey = flagKey;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public void setDescription(String description) {
+        this.description = description;
+    }
+    
+    public Boolean getEnabled() {
+        return enabled;
+    }
+    
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+    
+    public BigDecimal getRolloutPercentage() {
+        return rolloutPercentage;
+    }
+    
+    public void setRolloutPercentage(BigDecimal rolloutPercentage) {
+        this.rolloutPercentage = rolloutPercentage;
+    }
+    
+    public List<TargetingRule> getTargetingRules() {
+        return targetingRules;
+    }
+    
+    public void setTargetingRules(List<TargetingRule> targetingRules) {
+        this.targetingRules = targetingRules;
+    }
+    
+    public List<FlagVariant> getVariants() {
+        return variants;
+    }
+    
+    public void setVariants(List<FlagVariant> variants) {
+        this.variants = variants;
+    }
+    
+    public List<FlagPrerequisite> getPrerequisites() {
+        return prerequisites;
+    }
+    
+    public void setPrerequisites(List<FlagPrerequisite> prerequisites) {
+        this.prerequisites = prerequisites;
+    }
+    
+    public String getEnvironment() {
+        return environment;
+    }
+    
+    public void setEnvironment(String environment) {
+        this.environment = environment;
+    }
+    
+    public Boolean getDefaultValue() {
+        return defaultValue;
+    }
+    
+    public void setDefaultValue(Boolean defaultValue) {
+        this.defaultValue = defaultValue;
+    }
+    
+    public Instant getLastModifiedAt() {
+        return lastModifiedAt;
+    }
+    
+    public void setLastModifiedAt(Instant lastModifiedAt) {
+        this.lastModifiedAt = lastModifiedAt;
+    }
+    
+    public String getLastModifiedBy() {
+        return lastModifiedBy;
+    }
+    
+    public void setLastModifiedBy(String lastModifiedBy) {
+        this.lastModifiedBy = lastModifiedBy;
+    }
+}
@@ -0,0 +1,123 @@
+package com.atlasflag.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import java.time.Instant;
+
+/**
+ * Segment metadata. Members are imported separately and are never returned.
+ */
+public class SegmentDTO {
+    
+    private Long id;
+    
+    @NotBlank(message = "Segment key is required")
+    private String segmentKey;
+    
+    @NotBlank(message = "Name is required")
+    private String name;
+    
+    private String description;
+    
+    private String environment;
+    
+    private Integer memberCount; // set by member imports
+    
+    private String createdBy;
+    
+    private Instant createdAt;
+    
+    private String updatedBy;
+    
+    private Instant updatedAt;
+    
+    private Long version;
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public String getSegmentKey() {
+        return segmentKey;
+    }
+    
+    public void setSegmentKey(String segmentKey) {
+        this.segmentKey = segmentKey;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public void setName(String name) {
+        this.name = name;
+    }
+    
+    public String getDescription() {
+        return description;
+    }
+    
+    public void setDescription(String description) {
+        this.description = description;
+    }
+    
+    public String getEnvironment() {
+        return environment;
+    }
+    
+    public void setEnvironment(String environment) {
+        this.environment = environment;
+    }
+    
+    public Integer getMemberCount() {
+        return memberCount;
+    }
+    
+    public void setMemberCount(Integer memberCount) {
+        this.memberCount = memberCount;
+    }
+    
+    public String getCreatedBy() {
+        return createdBy;
+    }
+    
+    public void setCreatedBy(String createdBy) {
+        this.createdBy = createdBy;
+    }
+    
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public String getUpdatedBy() {
+        return updatedBy;
+    }
+    
+    public void setUpdatedBy(String updatedBy) {
+        this.updatedBy = updatedBy;
+    }
+    
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+    
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,46 @@
+package com.atlasflag.dto;
+
+/**
+ * A segment as listed to SDKs, which download the members of those whose version changed.
+ */
+public class SegmentSummaryDTO {
+    
+    private String segmentKey;
+    
+    private Long version;
+    
+    private Integer memberCount;
+    
+    public SegmentSummaryDTO() {}
+    
+    public SegmentSummaryDTO(String segmentKey, Long version, Integer memberCount) {
+        this.segmentKey = segmentKey;
+        this.version = version;
+        this.memberCount = memberCount;
+    }
+    
+    // Getters and Setters
+    public String getSegmentKey() {
+        return segmentKey;
+    }
+    
+    public void setSegmentKey(String segmentKey) {
+        this.segmentKey = segmentKey;
+    }
+    
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+    
+    public Integer getMemberCount() {
+        return memberCount;
+    }
+    
+    public void setMemberCount(Integer memberCount) {
+        this.memberCount = memberCount;
+    }
+}
@@ -0,0 +1,79 @@
+package com.atlasflag.event;
+
+import com.atlasflag.dto.FlagRuleDTO;
+
+/**
+ * A committed change to a flag.
+ * 
+ * Published locally as an application event, relayed between service nodes over
+ * Redis pub/sub and streamed to SDKs, so it must stay JSON-serializable.
+ */
+public class FlagChangeEvent {
+    
+    public enum Type {
+        CREATED,
+        UPDATED,
+        TOGGLED,
+        DELETED
+    }
+    
+    private Type type;
+    
+    private String environment;
+    
+    private String flagKey;
+    
+    private FlagRuleDTO flag; // State after the change, null for DELETED
+    
+    private Long sequence; // Position in the environment's change log
+    
+    public FlagChangeEvent() {}
+    
+    public FlagChangeEvent(Type type, String environment, String flagKey, FlagRuleDTO flag) {
+        this.type = type;
+        this.environment = environment;
+        this.flagKey = flagKey;
+        this.flag = flag;
+    }
+    
+    // Getters and Setters
+    public Type getType() {
+        return type;
+    }
+    
+    public void setType(Type type) {
+        this.type = type;
+    }
+    
+    public String getEnvironment() {
+        return environment;
+    }
+    
+    public void setEnvironment(String environment) {
+        this.environment = environment;
+    }
+    
+    public String getFlagKey() {
+        return flagKey;
+    }
+    
+    public void setFlagKey(String flagKey) {
+        this.flagKey = flagKey;
+    }
+    
+    public FlagRuleDTO getFlag() {
+        return flag;
+    }
+    
+    public void setFlag(FlagRuleDTO flag) {
+        this.flag = flag;
+    }
+    
+    public Long getSequence() {
+        return sequence;
+    }
+    
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+}
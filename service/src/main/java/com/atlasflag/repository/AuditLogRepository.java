@@ -1,6 +1,7 @@
 package com.atlasflag.repository;
 
 import com.atlasflag.domain.AuditLog;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -22,4 +23,27 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
     Page<AuditLog> findByTimestampBetween(@Param("from") Instant from, @Param("to") Instant to, Pageable pageable);
     
     List<AuditLog> findByEntityTypeAndEntityIdOrderByTimestampDesc(String entityType, Long entityId);
+    
+    // Keyset pagination, newest first. "timestamp <= :timestamp" bounds the index range scan;
+    // the OR only breaks ties within one timestamp.
+    
+    @Query("SELECT a FROM AuditLog a WHERE a.entityType = :entityType AND a.entityId = :entityId " +
+           "ORDER BY a.timestamp DESC, a.id DESC")
+    List<AuditLog> findLatestByEntity(@Param("entityType") String entityType, @Param("entityId") Long entityId,
+                                      Limit limit);
+    
+    @Query("SELECT a FROM AuditLog a WHERE a.entityType = :entityType AND a.entityId = :entityId " +
+           "AND a.timestamp <= :timestamp AND (a.timestamp < :timestamp OR a.id < :id) " +
+           "ORDER BY a.timestamp DESC, a.id DESC")
+    List<AuditLog> findByEntityBefore(@Param("entityType") String entityType, @Param("entityId") Long entityId,
+                                      @Param("timestamp") Instant timestamp, @Param("id") Long id, Limit limit);
+    
+    @Query("SELECT a FROM AuditLog a WHERE a.userId = :userId ORDER BY a.timestamp DESC, a.id DESC")
+    List<AuditLog> findLatestByUser(@Param("userId") String userId, Limit limit);
+    
+    @Query("SELECT a FROM AuditLog a WHERE a.userId = :userId " +
+           "AND a.timestamp <= :timestamp AND (a.timestamp < :timestamp OR a.id < :id) " +
+           "ORDER BY a.timestamp DESC, a.id DESC")
+    List<AuditLog> findByUserBefore(@Param("userId") String userId, @Param("timestamp") Instant timestamp,
+                                    @Param("id") Long id, Limit limit);
 }
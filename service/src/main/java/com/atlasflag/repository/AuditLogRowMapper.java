@@ -0,0 +1,34 @@
+package com.atlasflag.repository;
+
+import com.atlasflag.domain.AuditLog;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps {@code audit_logs} rows for queries that bypass JPA.
+ */
+public class AuditLogRowMapper implements RowMapper<AuditLog> {
+    
+    public static final String COLUMNS =
+        "id, entity_type, entity_id, action, user_id, user_email, changes, timestamp, ip_address";
+    
+    public static final AuditLogRowMapper INSTANCE = new AuditLogRowMapper();
+    
+    @Override
+    public AuditLog mapRow(ResultSet rs, int rowNum) throws SQLException {
+        AuditLog log = new AuditLog();
+        log.setId(rs.getLong("id"));
+        log.setEntityType(rs.getString("entity_type"));
+        long entityId = rs.getLong("entity_id");
+        log.setEntityId(rs.wasNull() ? null : entityId);
+        log.setAction(rs.getString("action"));
+        log.setUserId(rs.getString("user_id"));
+        log.setUserEmail(rs.getString("user_email"));
+        log.setChanges(rs.getString("changes"));
+        log.setTimestamp(rs.getTimestamp("timestamp").toInstant());
+        log.setIpAddress(rs.getString("ip_address"));
+        return log;
+    }
+}
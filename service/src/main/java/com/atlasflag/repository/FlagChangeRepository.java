@@ -0,0 +1,54 @@
+package com.atlasflag.repository;
+
+import com.atlasflag.domain.FlagChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FlagChangeRepository extends JpaRepository<FlagChange, Long> {
+    
+    /**
+     * Allocate the next change sequence of an environment. The sequence row stays
+     * locked until the calling transaction ends, serializing writers per environment.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query(value = "INSERT INTO environment_sequences (environment, last_sequence) VALUES (:environment, 1) " +
+                   "ON CONFLICT (environment) DO UPDATE SET last_sequence = environment_sequences.last_sequence + 1 " +
+                   "RETURNING last_sequence", nativeQuery = true)
+    long nextSequence(@Param("environment") String environment);
+    
+    /**
+     * Lock the sequence row of an environment until the calling transaction ends, without
+     * advancing it. The row is created if missing, so even the first writer is serialized.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    @Query(value = "INSERT INTO environment_sequences (environment, last_sequence) VALUES (:environment, 0) " +
+                   "ON CONFLICT (environment) DO UPDATE SET last_sequence = environment_sequences.last_sequence " +
+                   "RETURNING last_sequence", nativeQuery = true)
+    long lockSequence(@Param("environment") String environment);
+    
+    @Query(value = "SELECT last_sequence FROM environment_sequences WHERE environment = :environment",
+           nativeQuery = true)
+    Optional<Long> findCurrentSequence(@Param("environment") String environment);
+    
+    @Query(value = "SELECT environment, last_sequence FROM environment_sequences", nativeQuery = true)
+    List<Object[]> findAllCurrentSequences();
+    
+    List<FlagChange> findByEnvironmentAndSequenceGreaterThanOrderBySequenceAsc(String environment, Long sequence,
+                                                                               Pageable pageable);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM FlagChange c WHERE c.createdAt < :cutoff")
+    int deleteByCreatedAtBefore(@Param("cutoff") Instant cutoff);
+}
@@ -0,0 +1,22 @@
+package com.atlasflag.repository;
+
+import com.atlasflag.domain.FlagStateCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FlagStateCheckpointRepository extends JpaRepository<FlagStateCheckpoint, Long> {
+    
+    Optional<FlagStateCheckpoint> findFirstByEnvironmentAndTakenAtLessThanEqualOrderByTakenAtDesc(String environment,
+                                                                                                 Instant at);
+    
+    List<FlagStateCheckpoint> findByTakenAt(Instant takenAt);
+    
+    @Query("SELECT MAX(c.takenAt) FROM FlagStateCheckpoint c")
+    Optional<Instant> findLatestTakenAt();
+}
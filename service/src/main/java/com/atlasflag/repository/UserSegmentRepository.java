@@ -0,0 +1,18 @@
+package com.atlasflag.repository;
+
+import com.atlasflag.domain.UserSegment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UserSegmentRepository extends JpaRepository<UserSegment, Long> {
+    
+    Optional<UserSegment> findBySegmentKeyAndEnvironment(String segmentKey, String environment);
+    
+    List<UserSegment> findByEnvironment(String environment);
+    
+    boolean existsBySegmentKeyAndEnvironment(String segmentKey, String environment);
+}
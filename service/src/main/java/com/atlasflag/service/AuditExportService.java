@@ -0,0 +1,179 @@
+package com.atlasflag.service;
+
+import com.atlasflag.domain.AuditLog;
+import com.atlasflag.repository.AuditLogRowMapper;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Streams audit logs as newline-delimited JSON.
+ *
+ * Rows are read through a server-side cursor (a fetch size inside a read-only
+ * transaction, as the PostgreSQL driver otherwise loads the whole result) and
+ * written out one by one, so memory use does not depend on the size of the export.
+ *
+ * Exports over HTTP run on a virtual thread of their own, with a timeout of their own
+ * ({@code atlasflag.audit.export-timeout}): they may run far longer than any other
+ * request, which keeps the default async request timeout.
+ */
+@Service
+public class AuditExportService {
+    
+    private static final int FETCH_SIZE = 1000;
+    // Output is handed to the client in chunks of this size
+    private static final int CHUNK_SIZE = 64 * 1024;
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readTransaction;
+    private final ObjectMapper objectMapper;
+    private final ExecutorService exportExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    
+    @Value("${atlasflag.audit.export-timeout:3600000}")
+    private long exportTimeoutMillis;
+    
+    public AuditExportService(DataSource dataSource, PlatformTransactionManager transactionManager,
+                              ObjectMapper objectMapper) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+    
+    /**
+     * Start an {@link #export} whose output is streamed through the returned emitter.
+     * A timed-out export is interrupted and its response ends.
+     */
+    public ResponseBodyEmitter exportAsync(Instant from, Instant to, String entityType, String userId) {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(exportTimeoutMillis);
+        Future<?> task = exportExecutor.submit(() -> {
+            try (EmitterOutputStream out = new EmitterOutputStream(emitter)) {
+                export(from, to, entityType, userId, out);
+            } catch (IOException | RuntimeException e) {
+                emitter.completeWithError(e);
+                return;
+            }
+            emitter.complete();
+        });
+        emitter.onTimeout(() -> {
+            task.cancel(true);
+            emitter.complete();
+        });
+        return emitter;
+    }
+    
+    /**
+     * Write every audit log in {@code [from, to)}, oldest first, optionally narrowed to
+     * one entity type and/or user.
+     */
+    public void export(Instant from, Instant to, String entityType, String userId, OutputStream out) {
+        StringBuilder sql = new StringBuilder("SELECT " + AuditLogRowMapper.COLUMNS +
+            " FROM audit_logs WHERE timestamp >= ? AND timestamp < ?");
+        List<Object> args = new ArrayList<>();
+        args.add(Timestamp.from(from));
+        args.add(Timestamp.from(to));
+        if (entityType != null) {
+            sql.append(" AND entity_type = ?");
+            args.add(entityType);
+        }
+        if (userId != null) {
+            sql.append(" AND user_id = ?");
+            args.add(userId);
+        }
+        sql.append(" ORDER BY timestamp, id");
+        
+        long[] written = {0};
+        readTransaction.executeWithoutResult(status -> {
+            try (SequenceWriter writer = objectMapper.writerFor(AuditLog.class)
+                    .withRootValueSeparator("\n")
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                    .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                    .writeValues(out)) {
+                jdbcTemplate.query(sql.toString(), rs -> {
+                    try {
+                        writer.write(AuditLogRowMapper.INSTANCE.mapRow(rs, 0));
+                        written[0]++;
+                    } catch (IOException e) {
+                        // Client went away; abort the query
+                        throw new UncheckedIOException(e);
+                    }
+                }, args.toArray());
+                writer.flush();
+                if (written[0] > 0) {
+                    out.write('\n');
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        exportExecutor.shutdownNow();
+    }
+    
+    /**
+     * Buffers output into chunks, each sent to the client as one write.
+     */
+    private static final class EmitterOutputStream extends OutputStream {
+        
+        private final ResponseBodyEmitter emitter;
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(CHUNK_SIZE);
+        
+        EmitterOutputStream(ResponseBodyEmitter emitter) {
+            this.emitter = emitter;
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            buffer.write(b);
+            if (buffer.size() >= CHUNK_SIZE) {
+                flush();
+            }
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            buffer.write(b, off, len);
+            if (buffer.size() >= CHUNK_SIZE) {
+                flush();
+            }
+        }
+        
+        @Override
+        public void flush() throws IOException {
+            if (buffer.size() > 0) {
+                emitter.send(buffer.toByteArray());
+                buffer.reset();
+            }
+        }
+        
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.atlasflag.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/**
+ * Maintains the monthly partitions of {@code audit_logs}.
+ *
+ * Partitions are created ahead of time. Entries of a month without a partition land
+ * in the default partition {@code audit_logs_default} instead, and are moved into the
+ * month's partition when it is created. Partitions older than the retention period are detached, which is
+ * a metadata-only operation, and then dropped unless configured to be kept for
+ * archiving. Nodes coordinate through a Postgres advisory lock, so only one of them
+ * runs the maintenance at a time.
+ */
+@Component
+public class AuditPartitionManager {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AuditPartitionManager.class);
+    
+    private static final String PARENT_TABLE = "audit_logs";
+    private static final String PARTITION_PREFIX = "audit_logs_p";
+    private static final String DEFAULT_PARTITION = "audit_logs_default";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final long ADVISORY_LOCK_KEY = 0x61756469745F7061L; // "audit_pa"
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final boolean dropExpired;
+    
+    public AuditPartitionManager(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                 @Value("${atlasflag.audit.partitions-ahead:3}") int monthsAhead,
+                                 @Value("${atlasflag.audit.retention-months:12}") int retentionMonths,
+                                 @Value("${atlasflag.audit.drop-expired-partitions:true}") boolean dropExpired) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.dropExpired = dropExpired;
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            maintainPartitions();
+        } catch (RuntimeException e) {
+            logger.error("Failed to maintain audit log partitions at startup", e);
+        }
+    }
+    
+    @Scheduled(cron = "${atlasflag.audit.partition-cron:0 0 2 * * *}")
+    public void maintainPartitions() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class,
+                ADVISORY_LOCK_KEY);
+            if (!Boolean.TRUE.equals(locked)) {
+                logger.debug("Audit partition maintenance is running on another node");
+                return;
+            }
+            
+            // Timestamps are stored without time zone in the JVM's zone, so months are too
+            YearMonth current = YearMonth.now();
+            for (int i = 0; i <= monthsAhead; i++) {
+                createPartition(current.plusMonths(i));
+            }
+            
+            YearMonth oldestRetained = current.minusMonths(retentionMonths);
+            for (String partition : listPartitions()) {
+                YearMonth month = parseMonth(partition);
+                if (month != null && month.isBefore(oldestRetained)) {
+                    removePartition(partition);
+                }
+            }
+        });
+    }
+    
+    private void createPartition(YearMonth month) {
+        String partition = PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+        Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, partition);
+        if (Boolean.TRUE.equals(exists)) {
+            return;
+        }
+        LocalDate from = month.atDay(1);
+        LocalDate to = month.plusMonths(1).atDay(1);
+        String range = String.format("FROM ('%s') TO ('%s')", from, to);
+        
+        Long stranded = jdbcTemplate.queryForObject(
+            "SELECT count(*) FROM " + DEFAULT_PARTITION + " WHERE timestamp >= ? AND timestamp < ?",
+            Long.class, from, to);
+        if (stranded == null || stranded == 0) {
+            jdbcTemplate.execute(String.format("CREATE TABLE %s PARTITION OF %s FOR VALUES %s",
+                partition, PARENT_TABLE, range));
+            return;
+        }
+        
+        // Postgres refuses a partition whose range has rows in the default partition,
+        // so the rows are moved into the new table before it is attached
+        logger.warn("Audit log partition {} was missing; moving {} entries out of {}",
+            partition, stranded, DEFAULT_PARTITION);
+        jdbcTemplate.execute(String.format("CREATE TABLE %s (LIKE %s INCLUDING DEFAULTS)", partition, PARENT_TABLE));
+        jdbcTemplate.update(String.format(
+            "WITH moved AS (DELETE FROM %s WHERE timestamp >= ? AND timestamp < ? RETURNING *) " +
+            "INSERT INTO %s SELECT * FROM moved", DEFAULT_PARTITION, partition), from, to);
+        jdbcTemplate.execute(String.format("ALTER TABLE %s ATTACH PARTITION %s FOR VALUES %s",
+            PARENT_TABLE, partition, range));
+    }
+    
+    private void removePartition(String partition) {
+        jdbcTemplate.execute("ALTER TABLE " + PARENT_TABLE + " DETACH PARTITION " + partition);
+        if (dropExpired) {
+            jdbcTemplate.execute("DROP TABLE " + partition);
+            logger.info("Dropped expired audit log partition {}", partition);
+        } else {
+            logger.info("Detached expired audit log partition {}", partition);
+        }
+    }
+    
+    private List<String> listPartitions() {
+        return jdbcTemplate.queryForList(
+            "SELECT child.relname FROM pg_inherits i " +
+            "JOIN pg_class parent ON parent.oid = i.inhparent " +
+            "JOIN pg_class child ON child.oid = i.inhrelid " +
+            "WHERE parent.relname = ?", String.class, PARENT_TABLE);
+    }
+    
+    private static YearMonth parseMonth(String partition) {
+        if (!partition.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partition.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
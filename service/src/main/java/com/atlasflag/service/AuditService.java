@@ -1,83 +1,82 @@
 package com.atlasflag.service;
 
 import com.atlasflag.domain.AuditLog;
+import com.atlasflag.domain.FieldChange;
+import com.atlasflag.dto.CursorPage;
 import com.atlasflag.repository.AuditLogRepository;
+import com.atlasflag.repository.AuditLogRowMapper;
 import jakarta.servlet.http.HttpServletRequest;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Service
 public class AuditService {
     
-    private static final Logger auditFailureLogger = LoggerFactory.getLogger("audit.failure");
-    
     private final AuditLogRepository auditLogRepository;
+    private final AuditWriter auditWriter;
+    private final JdbcTemplate jdbcTemplate;
     
-    public AuditService(AuditLogRepository auditLogRepository) {
+    public AuditService(AuditLogRepository auditLogRepository, AuditWriter auditWriter, JdbcTemplate jdbcTemplate) {
         this.auditLogRepository = auditLogRepository;
+        this.auditWriter = auditWriter;
+        this.jdbcTemplate = jdbcTemplate;
     }
     
     /**
-     * Log audit action asynchronously.
-     * Note: @Async methods should not use @Transactional as the transaction
-     * may not be committed when the async method executes.
+     * Log audit action asynchronously through the batching {@link AuditWriter}.
+     * Inside a transaction the entry is queued only once it commits, so rolled-back
+     * changes are not audited.
+     * 
+     * Only fields whose value differs between {@code before} and {@code after} are
+     * recorded; pass null for the side that does not exist (creation, deletion).
      */
-    @Async
     public void logAction(String entityType, Long entityId, String action, String userId, 
-                         String oldValue, String newValue) {
-        try {
-            AuditLog log = new AuditLog();
-            log.setEntityType(entityType);
-            log.setEntityId(entityId);
-            log.setAction(action);
-            log.setUserId(userId);
-            log.setTimestamp(Instant.now());
-            
-            if (oldValue != null || newValue != null) {
-                String changes = String.format("{\"old\":%s,\"new\":%s}", 
-                    oldValue != null ? oldValue : "null",
-                    newValue != null ? newValue : "null");
-                log.setChanges(changes);
-            }
-            
-            auditLogRepository.save(log);
-        } catch (Exception e) {
-            // Log audit failures to separate logger for monitoring
-            auditFailureLogger.error("Failed to audit action: entityType={}, entityId={}, action={}, userId={}", 
-                entityType, entityId, action, userId, e);
-        }
+                         Map<String, ?> before, Map<String, ?> after) {
+        submit(createEntry(entityType, entityId, action, userId, before, after, null));
     }
     
-    @Async
     public void logAction(String entityType, Long entityId, String action, String userId,
-                         String oldValue, String newValue, HttpServletRequest request) {
-        try {
-            AuditLog log = new AuditLog();
-            log.setEntityType(entityType);
-            log.setEntityId(entityId);
-            log.setAction(action);
-            log.setUserId(userId);
-            log.setTimestamp(Instant.now());
-            log.setIpAddress(getClientIpAddress(request));
-            
-            if (oldValue != null || newValue != null) {
-                String changes = String.format("{\"old\":%s,\"new\":%s}", 
-                    oldValue != null ? oldValue : "null",
-                    newValue != null ? newValue : "null");
-                log.setChanges(changes);
-            }
-            
-            auditLogRepository.save(log);
-        } catch (Exception e) {
-            auditFailureLogger.error("Failed to audit action: entityType={}, entityId={}, action={}, userId={}", 
-                entityType, entityId, action, userId, e);
+                         Map<String, ?> before, Map<String, ?> after, HttpServletRequest request) {
+        // Read the client address now: the request object is recycled once the response is sent
+        String ipAddress = request != null ? getClientIpAddress(request) : null;
+        submit(createEntry(entityType, entityId, action, userId, before, after, ipAddress));
+    }
+    
+    /**
+     * Audit logs whose diff touches the given field, newest first, e.g. every change of
+     * {@code rolloutPercentage} on one flag. Served by the GIN index on {@code changes}.
+     */
+    public List<AuditLog> findFieldChanges(String field, String entityType, Long entityId, int limit) {
+        // "??" is the JDBC escape for the jsonb key-exists operator "?"
+        StringBuilder sql = new StringBuilder("SELECT " + AuditLogRowMapper.COLUMNS +
+            " FROM audit_logs WHERE changes ?? ?");
+        List<Object> args = new ArrayList<>();
+        args.add(field);
+        if (entityType != null) {
+            sql.append(" AND entity_type = ?");
+            args.add(entityType);
         }
+        if (entityId != null) {
+            sql.append(" AND entity_id = ?");
+            args.add(entityId);
+        }
+        sql.append(" ORDER BY timestamp DESC, id DESC LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), AuditLogRowMapper.INSTANCE, args.toArray());
     }
     
     public Page<AuditLog> getAuditLogs(String entityType, Long entityId, Pageable pageable) {
@@ -88,6 +87,93 @@ public class AuditService {
         return auditLogRepository.findByUserId(userId, pageable);
     }
     
+    /**
+     * Audit logs of an entity, newest first, paginated by (timestamp, id) instead of
+     * offset, so every page costs the same and no count query is run.
+     * 
+     * @param cursor {@link CursorPage#getNextCursor()} of the previous page, or null for the first page
+     */
+    public CursorPage<AuditLog> scrollAuditLogs(String entityType, Long entityId, String cursor, int size) {
+        Limit limit = Limit.of(size + 1);
+        List<AuditLog> logs;
+        if (cursor == null) {
+            logs = auditLogRepository.findLatestByEntity(entityType, entityId, limit);
+        } else {
+            Cursor position = Cursor.decode(cursor);
+            logs = auditLogRepository.findByEntityBefore(entityType, entityId, position.timestamp(), position.id(),
+                limit);
+        }
+        return toPage(logs, size);
+    }
+    
+    public CursorPage<AuditLog> scrollAuditLogsByUser(String userId, String cursor, int size) {
+        Limit limit = Limit.of(size + 1);
+        List<AuditLog> logs;
+        if (cursor == null) {
+            logs = auditLogRepository.findLatestByUser(userId, limit);
+        } else {
+            Cursor position = Cursor.decode(cursor);
+            logs = auditLogRepository.findByUserBefore(userId, position.timestamp(), position.id(), limit);
+        }
+        return toPage(logs, size);
+    }
+    
+    private CursorPage<AuditLog> toPage(List<AuditLog> logs, int size) {
+        // One extra row was fetched to learn whether another page exists
+        if (logs.size() <= size) {
+            return new CursorPage<>(logs, null);
+        }
+        List<AuditLog> page = logs.subList(0, size);
+        AuditLog last = page.get(size - 1);
+        return new CursorPage<>(page, new Cursor(last.getTimestamp(), last.getId()).encode());
+    }
+    
+    private AuditLog createEntry(String entityType, Long entityId, String action, String userId,
+                                 Map<String, ?> before, Map<String, ?> after, String ipAddress) {
+        AuditLog log = new AuditLog();
+        log.setEntityType(entityType);
+        log.setEntityId(entityId);
+        log.setAction(action);
+        log.setUserId(userId);
+        log.setTimestamp(Instant.now());
+        log.setIpAddress(ipAddress);
+        // Serialized to JSON on the writer thread
+        log.setFieldChanges(diff(before, after));
+        return log;
+    }
+    
+    private static Map<String, FieldChange> diff(Map<String, ?> before, Map<String, ?> after) {
+        Map<String, ?> oldValues = before != null ? before : Map.of();
+        Map<String, ?> newValues = after != null ? after : Map.of();
+        
+        Map<String, FieldChange> changes = new LinkedHashMap<>();
+        for (Map.Entry<String, ?> entry : newValues.entrySet()) {
+            Object oldValue = oldValues.get(entry.getKey());
+            if (!Objects.equals(oldValue, entry.getValue())) {
+                changes.put(entry.getKey(), new FieldChange(oldValue, entry.getValue()));
+            }
+        }
+        for (Map.Entry<String, ?> entry : oldValues.entrySet()) {
+            if (!newValues.containsKey(entry.getKey()) && entry.getValue() != null) {
+                changes.put(entry.getKey(), new FieldChange(entry.getValue(), null));
+            }
+        }
+        return changes;
+    }
+    
+    private void submit(AuditLog entry) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    auditWriter.submit(entry);
+                }
+            });
+        } else {
+            auditWriter.submit(entry);
+        }
+    }
+    
     private String getClientIpAddress(HttpServletRequest request) {
         String xForwardedFor = request.getHeader("X-Forwarded-For");
         if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
@@ -95,4 +181,25 @@ public class AuditService {
         }
         return request.getRemoteAddr();
     }
+    
+    /**
+     * Position after the last row of a page, opaque to clients.
+     */
+    private record Cursor(Instant timestamp, Long id) {
+        
+        String encode() {
+            String raw = timestamp + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+        
+        static Cursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf('|');
+                return new Cursor(Instant.parse(raw.substring(0, separator)), Long.parseLong(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
 }
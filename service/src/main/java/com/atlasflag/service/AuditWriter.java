@@ -0,0 +1,240 @@
+package com.atlasflag.service;
+
+import com.atlasflag.domain.AuditLog;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded, batching writer for audit log entries.
+ *
+ * Entries go into a fixed-size ring buffer and a single writer thread drains it in
+ * batches of JDBC-batched inserts (rewritten into multi-row inserts by the PostgreSQL
+ * driver), so a burst of writes costs a few round trips instead of one per entry.
+ * Audit diffs are serialized to JSON here, off the request thread.
+ * When the buffer is full, {@code block} makes callers wait up to the offer timeout
+ * before dropping and {@code drop} drops immediately. A failed batch is retried with
+ * backoff and then written row by row, so a bad entry costs only itself. Pending entries
+ * are flushed on shutdown.
+ */
+@Component
+public class AuditWriter {
+    
+    private static final Logger logger = LoggerFactory.getLogger(AuditWriter.class);
+    private static final Logger auditFailureLogger = LoggerFactory.getLogger("audit.failure");
+    
+    private static final String INSERT_SQL = "INSERT INTO audit_logs " +
+        "(entity_type, entity_id, action, user_id, user_email, changes, timestamp, ip_address) " +
+        "VALUES (?, ?, ?, ?, ?, CAST(? AS jsonb), ?, ?)";
+    
+    private static final int MAX_BATCH_ATTEMPTS = 3;
+    private static final long INITIAL_RETRY_BACKOFF_MILLIS = 100;
+    
+    public enum OverflowPolicy {
+        BLOCK,
+        DROP
+    }
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final BlockingQueue<AuditLog> queue;
+    private final OverflowPolicy overflowPolicy;
+    private final long offerTimeoutMillis;
+    private final int batchSize;
+    private final long flushIntervalMillis;
+    private final Thread writerThread;
+    private volatile boolean running = true;
+    
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+    private final Counter failedCounter;
+    
+    public AuditWriter(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                       @Value("${atlasflag.audit.queue-capacity:10000}") int queueCapacity,
+                       @Value("${atlasflag.audit.batch-size:500}") int batchSize,
+                       @Value("${atlasflag.audit.flush-interval:200}") long flushIntervalMillis,
+                       @Value("${atlasflag.audit.overflow-policy:block}") String overflowPolicy,
+                       @Value("${atlasflag.audit.offer-timeout:1000}") long offerTimeoutMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.overflowPolicy = OverflowPolicy.valueOf(overflowPolicy.toUpperCase(Locale.ROOT));
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        
+        Gauge.builder("atlasflag.audit.queue.depth", queue, BlockingQueue::size)
+            .description("Audit entries waiting to be written")
+            .register(meterRegistry);
+        this.writtenCounter = Counter.builder("atlasflag.audit.written")
+            .description("Audit entries written")
+            .register(meterRegistry);
+        this.droppedCounter = Counter.builder("atlasflag.audit.dropped")
+            .description("Audit entries dropped because the queue was full")
+            .register(meterRegistry);
+        this.failedCounter = Counter.builder("atlasflag.audit.failed")
+            .description("Audit entries lost to database errors")
+            .register(meterRegistry);
+        
+        this.writerThread = new Thread(this::run, "audit-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+    
+    /**
+     * Queue an entry, applying the overflow policy if the buffer is full.
+     *
+     * @return false if the entry was dropped
+     */
+    public boolean submit(AuditLog entry) {
+        boolean accepted;
+        if (!running) {
+            accepted = false;
+        } else if (overflowPolicy == OverflowPolicy.BLOCK) {
+            try {
+                accepted = queue.offer(entry, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                accepted = false;
+            }
+        } else {
+            accepted = queue.offer(entry);
+        }
+        
+        if (!accepted) {
+            droppedCounter.increment();
+            auditFailureLogger.error("Audit queue full, dropped entry: entityType={}, entityId={}, action={}, userId={}",
+                entry.getEntityType(), entry.getEntityId(), entry.getAction(), entry.getUserId());
+        }
+        return accepted;
+    }
+    
+    private void run() {
+        List<AuditLog> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditLog first = queue.poll(flushIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                // Stop accepting work, but keep draining what is already queued
+                running = false;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+    
+    private void write(List<AuditLog> batch) {
+        long backoffMillis = INITIAL_RETRY_BACKOFF_MILLIS;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), this::bind);
+                writtenCounter.increment(batch.size());
+                return;
+            } catch (DataIntegrityViolationException e) {
+                // A bad row fails every retry of the batch; find it row by row
+                logger.warn("Batch of {} audit entries rejected, writing row by row", batch.size(), e);
+                break;
+            } catch (Exception e) {
+                if (attempt == MAX_BATCH_ATTEMPTS || !backOff(backoffMillis)) {
+                    logger.warn("Batch of {} audit entries failed {} times, writing row by row",
+                        batch.size(), attempt, e);
+                    break;
+                }
+                backoffMillis *= 2;
+            }
+        }
+        for (AuditLog entry : batch) {
+            try {
+                jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, entry));
+                writtenCounter.increment();
+            } catch (Exception e) {
+                failedCounter.increment();
+                auditFailureLogger.error("Failed to audit action: entityType={}, entityId={}, action={}, userId={}",
+                    entry.getEntityType(), entry.getEntityId(), entry.getAction(), entry.getUserId());
+                logger.error("Failed to write audit entry", e);
+            }
+        }
+    }
+    
+    /**
+     * @return false if interrupted, in which case the caller stops retrying
+     */
+    private boolean backOff(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            // Shutting down; run() keeps draining, so give up on the retries only
+            running = false;
+            return false;
+        }
+    }
+    
+    private void bind(PreparedStatement ps, AuditLog entry) throws SQLException {
+        ps.setString(1, entry.getEntityType());
+        if (entry.getEntityId() != null) {
+            ps.setLong(2, entry.getEntityId());
+        } else {
+            ps.setNull(2, Types.BIGINT);
+        }
+        ps.setString(3, entry.getAction());
+        ps.setString(4, entry.getUserId());
+        ps.setString(5, entry.getUserEmail());
+        ps.setString(6, changesJson(entry));
+        ps.setTimestamp(7, Timestamp.from(entry.getTimestamp()));
+        ps.setString(8, entry.getIpAddress());
+    }
+    
+    private String changesJson(AuditLog entry) {
+        if (entry.getFieldChanges() == null) {
+            return entry.getChanges();
+        }
+        try {
+            return objectMapper.writeValueAsString(entry.getFieldChanges());
+        } catch (JsonProcessingException e) {
+            // Keep the entry; only the diff is lost
+            logger.error("Failed to serialize audit diff of {} {}", entry.getEntityType(), entry.getEntityId(), e);
+            return null;
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        // The writer notices within one flush interval and drains the queue before exiting
+        running = false;
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive() || !queue.isEmpty()) {
+            logger.warn("Audit writer did not finish flushing, {} entries lost", queue.size());
+        }
+    }
+}
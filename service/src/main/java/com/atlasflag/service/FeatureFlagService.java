@@ -1,45 +1,73 @@
 package com.atlasflag.service;
 
+import com.atlasflag.core.Evaluation;
+import com.atlasflag.core.EvaluationReason;
+import com.atlasflag.core.FlagRule;
+import com.atlasflag.core.FlagSnapshot;
+import com.atlasflag.core.Variant;
 import com.atlasflag.domain.FeatureFlag;
+import com.atlasflag.domain.FlagPrerequisite;
+import com.atlasflag.domain.FlagVariant;
+import com.atlasflag.domain.TargetingClause;
+import com.atlasflag.domain.TargetingRule;
+import com.atlasflag.dto.BatchEvaluationRequest;
+import com.atlasflag.dto.BatchEvaluationResponse;
 import com.atlasflag.dto.FeatureFlagDTO;
 import com.atlasflag.dto.FlagEvaluationRequest;
 import com.atlasflag.dto.FlagEvaluationResponse;
+import com.atlasflag.dto.FlagRuleDTO;
+import com.atlasflag.event.FlagChangeEvent;
 import com.atlasflag.exception.ConflictException;
 import com.atlasflag.repository.FeatureFlagRepository;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.annotation.CachePut;
-import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
 public class FeatureFlagService {
     
     private static final Logger logger = LoggerFactory.getLogger(FeatureFlagService.class);
-    private static final int MIN_ROLLOUT_PERCENTAGE = 0;
-    private static final int MAX_ROLLOUT_PERCENTAGE = 100;
+    private static final BigDecimal MIN_ROLLOUT_PERCENTAGE = BigDecimal.ZERO;
+    private static final BigDecimal MAX_ROLLOUT_PERCENTAGE = BigDecimal.valueOf(100);
+    private static final int ROLLOUT_PERCENTAGE_SCALE = 2; // 0.01%, one rollout bucket
+    private static final int MAX_TARGETING_RULES = 500;
+    private static final int MAX_PREREQUISITES = 50;
     
     private final FeatureFlagRepository flagRepository;
+    private final FlagSnapshotRegistry snapshotRegistry;
+    private final FlagChangeLog flagChangeLog;
     private final AuditService auditService;
-    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
     
-    public FeatureFlagService(FeatureFlagRepository flagRepository, AuditService auditService, ObjectMapper objectMapper) {
+    public FeatureFlagService(FeatureFlagRepository flagRepository, FlagSnapshotRegistry snapshotRegistry,
+                              FlagChangeLog flagChangeLog, AuditService auditService,
+                              ApplicationEventPublisher eventPublisher) {
         this.flagRepository = flagRepository;
+        this.snapshotRegistry = snapshotRegistry;
+        this.flagChangeLog = flagChangeLog;
         this.auditService = auditService;
-        this.objectMapper = objectMapper;
+        this.eventPublisher = eventPublisher;
     }
     
     @Transactional
-    @CacheEvict(value = "flags", key = "'flag:' + #dto.flagKey + ':env:' + (#dto.environment != null ? #dto.environment : 'default')")
     public FeatureFlagDTO createFlag(FeatureFlagDTO dto, String userId) {
         validateFlagDTO(dto);
         
@@ -48,45 +76,62 @@ public class FeatureFlagService {
             throw new IllegalArgumentException("Flag with key '" + dto.getFlagKey() + 
                 "' already exists in environment '" + environment + "'");
         }
+        if (dto.getPrerequisites() != null) {
+            validatePrerequisiteGraph(dto.getFlagKey(), environment, dto.getPrerequisites());
+        }
         
         FeatureFlag flag = new FeatureFlag();
         flag.setFlagKey(dto.getFlagKey());
         flag.setName(dto.getName());
         flag.setDescription(dto.getDescription());
         flag.setEnabled(dto.getEnabled() != null ? dto.getEnabled() : false);
-        flag.setRolloutPercentage(dto.getRolloutPercentage());
+        flag.setRolloutPercentage(normalizeRollout(dto.getRolloutPercentage()));
+        flag.setTargetingRules(normalizeTargeting(dto.getTargetingRules()));
+        flag.setVariants(normalizeVariants(dto.getVariants()));
+        flag.setPrerequisites(dto.getPrerequisites() != null
+            ? new ArrayList<>(dto.getPrerequisites())
+            : new ArrayList<>());
         flag.setEnvironment(environment);
         flag.setDefaultValue(dto.getDefaultValue() != null ? dto.getDefaultValue() : false);
         flag.setCreatedBy(userId);
         
-        FeatureFlag saved = flagRepository.save(flag);
-        auditService.logAction("FeatureFlag", saved.getId(), "CREATE", userId, null, 
-            convertToJson(saved));
+        FeatureFlag saved = flagRepository.saveAndFlush(flag);
+        auditService.logAction("FeatureFlag", saved.getId(), "CREATE", userId, null, auditState(saved));
+        publishChange(FlagChangeEvent.Type.CREATED, saved);
         
         return toDTO(saved);
     }
     
     @Transactional
-    @CachePut(value = "flags", key = "'flag:' + #result.flagKey + ':env:' + #result.environment")
     public FeatureFlagDTO updateFlag(Long id, FeatureFlagDTO dto, String userId) {
         validateFlagDTO(dto);
         
         FeatureFlag flag = flagRepository.findById(id)
             .orElseThrow(() -> new IllegalArgumentException("Flag not found with id: " + id));
         
-        String oldValue = convertToJson(flag);
+        Map<String, Object> before = auditState(flag);
         
         flag.setName(dto.getName());
         flag.setDescription(dto.getDescription());
         flag.setEnabled(dto.getEnabled() != null ? dto.getEnabled() : flag.getEnabled());
-        flag.setRolloutPercentage(dto.getRolloutPercentage());
+        flag.setRolloutPercentage(normalizeRollout(dto.getRolloutPercentage()));
+        if (dto.getTargetingRules() != null) {
+            flag.setTargetingRules(normalizeTargeting(dto.getTargetingRules()));
+        }
+        if (dto.getVariants() != null) {
+            flag.setVariants(normalizeVariants(dto.getVariants()));
+        }
+        if (dto.getPrerequisites() != null) {
+            validatePrerequisiteGraph(flag.getFlagKey(), flag.getEnvironment(), dto.getPrerequisites());
+            flag.setPrerequisites(new ArrayList<>(dto.getPrerequisites()));
+        }
         flag.setDefaultValue(dto.getDefaultValue() != null ? dto.getDefaultValue() : flag.getDefaultValue());
         flag.setUpdatedBy(userId);
         
         try {
-            FeatureFlag saved = flagRepository.save(flag);
-            auditService.logAction("FeatureFlag", saved.getId(), "UPDATE", userId, oldValue, 
-                convertToJson(saved));
+            FeatureFlag saved = flagRepository.saveAndFlush(flag);
+            auditService.logAction("FeatureFlag", saved.getId(), "UPDATE", userId, before, auditState(saved));
+            publishChange(FlagChangeEvent.Type.UPDATED, saved);
             return toDTO(saved);
         } catch (OptimisticLockingFailureException e) {
             throw new ConflictException("Flag was modified by another user. Please refresh and try again.");
@@ -94,30 +139,25 @@ public class FeatureFlagService {
     }
     
     @Transactional
-    @CacheEvict(value = "flags", key = "'flag:' + #flagKey + ':env:' + #environment")
     public FeatureFlagDTO toggleFlag(String flagKey, String environment, String userId) {
         FeatureFlag flag = flagRepository.findByFlagKeyAndEnvironment(flagKey, environment)
             .orElseThrow(() -> new IllegalArgumentException("Flag not found: " + flagKey));
         
-        String oldValue = convertToJson(flag);
+        Map<String, Object> before = auditState(flag);
         flag.setEnabled(!flag.getEnabled());
         flag.setUpdatedBy(userId);
         
         try {
-            FeatureFlag saved = flagRepository.save(flag);
+            FeatureFlag saved = flagRepository.saveAndFlush(flag);
             auditService.logAction("FeatureFlag", saved.getId(), 
-                saved.getEnabled() ? "ENABLE" : "DISABLE", userId, oldValue, convertToJson(saved));
+                saved.getEnabled() ? "ENABLE" : "DISABLE", userId, before, auditState(saved));
+            publishChange(FlagChangeEvent.Type.TOGGLED, saved);
             return toDTO(saved);
         } catch (OptimisticLockingFailureException e) {
             throw new ConflictException("Flag was modified by another user. Please refresh and try again.");
         }
     }
     
-    @Cacheable(value = "flags", key = "'flag:' + #flagKey + ':env:' + #environment")
-    public Optional<FeatureFlag> getFlag(String flagKey, String environment) {
-        return flagRepository.findByFlagKeyAndEnvironment(flagKey, environment);
-    }
-    
     public List<FeatureFlagDTO> getAllFlags(String environment) {
         return flagRepository.findByEnvironment(environment).stream()
             .map(this::toDTO)
@@ -129,43 +169,77 @@ public class FeatureFlagService {
             .map(this::toDTO);
     }
     
+    /**
+     * Evaluate against the environment's in-memory snapshot; no Redis or database access.
+     * Prerequisites are evaluated along the order compiled into the snapshot.
+     */
     public FlagEvaluationResponse evaluateFlag(FlagEvaluationRequest request) {
-        FlagEvaluationResponse response = new FlagEvaluationResponse();
-        response.setFlagKey(request.getFlagKey());
-        
-        Optional<FeatureFlag> flagOpt = getFlag(request.getFlagKey(), request.getEnvironment());
+        FlagSnapshot snapshot = snapshotRegistry.getSnapshot(request.getEnvironment());
+        return toResponse(request.getFlagKey(),
+            snapshot.evaluate(request.getFlagKey(), request.getUserId(), request.getAttributes()));
+    }
+    
+    /**
+     * Evaluate many flags for one user against a single snapshot, so all results are
+     * consistent with each other. An empty key list evaluates the whole environment.
+     */
+    public BatchEvaluationResponse evaluateFlags(BatchEvaluationRequest request) {
+        String environment = request.getEnvironment() != null ? request.getEnvironment() : "default";
+        FlagSnapshot snapshot = snapshotRegistry.getSnapshot(environment);
         
-        if (flagOpt.isEmpty()) {
-            response.setEnabled(false);
-            response.setReason("FLAG_NOT_FOUND");
-            return response;
+        Map<String, FlagEvaluationResponse> results = new LinkedHashMap<>();
+        if (request.getFlagKeys() == null || request.getFlagKeys().isEmpty()) {
+            // Every flag once, prerequisites reusing the results of the flags they name
+            Evaluation[] evaluations = snapshot.evaluateAll(request.getUserId(), request.getAttributes());
+            for (int i = 0; i < evaluations.length; i++) {
+                String flagKey = snapshot.ruleAt(i).getFlagKey();
+                results.put(flagKey, toResponse(flagKey, evaluations[i]));
+            }
+        } else {
+            for (String flagKey : request.getFlagKeys()) {
+                results.computeIfAbsent(flagKey,
+                    key -> toResponse(key, snapshot.evaluate(key, request.getUserId(), request.getAttributes())));
+            }
         }
         
-        FeatureFlag flag = flagOpt.get();
+        BatchEvaluationResponse response = new BatchEvaluationResponse();
+        response.setEnvironment(environment);
+        response.setFlags(results);
+        return response;
+    }
+    
+    /**
+     * @param evaluation the evaluation, or null if the flag does not exist
+     */
+    private FlagEvaluationResponse toResponse(String flagKey, Evaluation evaluation) {
+        FlagEvaluationResponse response = new FlagEvaluationResponse();
+        response.setFlagKey(flagKey);
         
-        // If flag is disabled, return default value
-        if (!flag.getEnabled()) {
-            response.setEnabled(flag.getDefaultValue());
-            response.setReason("FLAG_DISABLED");
+        if (evaluation == null) {
+            response.setEnabled(false);
+            response.setReason(EvaluationReason.FLAG_NOT_FOUND.name());
             return response;
         }
         
-        // If rollout percentage is set, calculate based on userId hash
-        if (flag.getRolloutPercentage() != null && request.getUserId() != null) {
-            // Fix: Use bitwise AND to avoid Math.abs(Integer.MIN_VALUE) issue
-            int hash = (request.getUserId().hashCode() & 0x7FFFFFFF) % 100;
-            boolean inRollout = hash < flag.getRolloutPercentage();
-            response.setEnabled(inRollout);
-            response.setReason(inRollout ? "ROLLOUT_PERCENTAGE" : "ROLLOUT_EXCLUDED");
-            return response;
+        response.setEnabled(evaluation.getValue());
+        response.setReason(evaluation.getReason().name());
+        response.setRuleId(evaluation.getRuleId());
+        Variant variant = evaluation.getVariant();
+        if (variant != null) {
+            response.setVariant(variant.getKey());
+            response.setValue(variant.getValue());
         }
-        
-        // Flag is enabled and no rollout percentage
-        response.setEnabled(true);
-        response.setReason("FLAG_ENABLED");
         return response;
     }
     
+    /**
+     * Evaluation rule of a single flag, for SDKs that cache rules and evaluate per user themselves.
+     */
+    public Optional<FlagRuleDTO> getFlagRule(String flagKey, String environment) {
+        return Optional.ofNullable(snapshotRegistry.getSnapshot(environment).get(flagKey))
+            .map(SnapshotPayloadCache::toRuleDTO);
+    }
+    
     @Transactional
     public void deleteFlag(Long id, String userId) {
         FeatureFlag flag = flagRepository.findById(id)
@@ -173,18 +247,37 @@ public class FeatureFlagService {
         
         String flagKey = flag.getFlagKey();
         String environment = flag.getEnvironment();
-        String oldValue = convertToJson(flag);
+        // Before reading the other flags, so none can start requiring this one until we commit
+        flagChangeLog.lockEnvironment(environment);
+        for (FeatureFlag other : flagRepository.findByEnvironment(environment)) {
+            if (prerequisiteKeys(other.getPrerequisites()).contains(flagKey)) {
+                throw new ConflictException("Flag '" + flagKey + "' is a prerequisite of flag '" +
+                    other.getFlagKey() + "'");
+            }
+        }
+        Map<String, Object> before = auditState(flag);
         
         flagRepository.delete(flag);
-        auditService.logAction("FeatureFlag", id, "DELETE", userId, oldValue, null);
-        
-        // Evict specific cache entry after deletion
-        evictCacheEntry(flagKey, environment);
+        auditService.logAction("FeatureFlag", id, "DELETE", userId, before, null);
+        publishChange(new FlagChangeEvent(FlagChangeEvent.Type.DELETED, environment, flagKey, null));
+    }
+    
+    /**
+     * The flag must have been flushed, so the published rule carries the version the
+     * write commits with rather than the one it was read with.
+     */
+    private void publishChange(FlagChangeEvent.Type type, FeatureFlag flag) {
+        publishChange(new FlagChangeEvent(type, flag.getEnvironment(), flag.getFlagKey(), toRuleDTO(flag)));
     }
     
-    private void evictCacheEntry(String flagKey, String environment) {
-        // This will be handled by CacheManager if needed, or use CacheEvict programmatically
-        logger.debug("Cache entry should be evicted for flag: {} in environment: {}", flagKey, environment);
+    /**
+     * Append a change to the environment's change log and announce it; listeners
+     * (snapshots, change streaming) act on it only once the surrounding
+     * transaction commits.
+     */
+    private void publishChange(FlagChangeEvent event) {
+        flagChangeLog.record(event);
+        eventPublisher.publishEvent(event);
     }
     
     private FeatureFlagDTO toDTO(FeatureFlag flag) {
@@ -195,6 +288,9 @@ public class FeatureFlagService {
         dto.setDescription(flag.getDescription());
         dto.setEnabled(flag.getEnabled());
         dto.setRolloutPercentage(flag.getRolloutPercentage());
+        dto.setTargetingRules(flag.getTargetingRules());
+        dto.setVariants(flag.getVariants());
+        dto.setPrerequisites(flag.getPrerequisites());
         dto.setEnvironment(flag.getEnvironment());
         dto.setDefaultValue(flag.getDefaultValue());
         dto.setCreatedBy(flag.getCreatedBy());
@@ -205,26 +301,232 @@ public class FeatureFlagService {
         return dto;
     }
     
-    private String convertToJson(FeatureFlag flag) {
-        try {
-            return objectMapper.writeValueAsString(flag);
-        } catch (JsonProcessingException e) {
-            logger.error("Failed to serialize flag to JSON", e);
-            // Fallback to safe representation
-            return String.format("{\"id\":%d,\"flagKey\":\"%s\"}", 
-                flag.getId() != null ? flag.getId() : 0, 
-                flag.getFlagKey() != null ? flag.getFlagKey().replace("\"", "\\\"") : "");
-        }
+    private FlagRuleDTO toRuleDTO(FeatureFlag flag) {
+        FlagRuleDTO dto = new FlagRuleDTO();
+        dto.setFlagKey(flag.getFlagKey());
+        dto.setEnabled(flag.getEnabled());
+        dto.setDefaultValue(flag.getDefaultValue());
+        dto.setRolloutPercentage(flag.getRolloutPercentage());
+        dto.setTargetingRules(flag.getTargetingRules());
+        dto.setVariants(flag.getVariants());
+        dto.setPrerequisites(flag.getPrerequisites());
+        dto.setVersion(flag.getVersion());
+        return dto;
+    }
+    
+    /**
+     * Audited fields of a flag; the audit log stores only those that changed.
+     */
+    private Map<String, Object> auditState(FeatureFlag flag) {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("flagKey", flag.getFlagKey());
+        state.put("name", flag.getName());
+        state.put("description", flag.getDescription());
+        state.put("enabled", flag.getEnabled());
+        state.put("rolloutPercentage", flag.getRolloutPercentage());
+        state.put("targetingRules", flag.getTargetingRules());
+        state.put("variants", flag.getVariants());
+        state.put("prerequisites", flag.getPrerequisites());
+        state.put("environment", flag.getEnvironment());
+        state.put("defaultValue", flag.getDefaultValue());
+        return state;
     }
     
     private void validateFlagDTO(FeatureFlagDTO dto) {
         if (dto.getRolloutPercentage() != null) {
-            if (dto.getRolloutPercentage() < MIN_ROLLOUT_PERCENTAGE || 
-                dto.getRolloutPercentage() > MAX_ROLLOUT_PERCENTAGE) {
+            if (dto.getRolloutPercentage().compareTo(MIN_ROLLOUT_PERCENTAGE) < 0 || 
+                dto.getRolloutPercentage().compareTo(MAX_ROLLOUT_PERCENTAGE) > 0) {
                 throw new IllegalArgumentException(
-                    String.format("Rollout percentage must be between %d and %d", 
+                    String.format("Rollout percentage must be between %s and %s", 
                         MIN_ROLLOUT_PERCENTAGE, MAX_ROLLOUT_PERCENTAGE));
             }
+            if (dto.getRolloutPercentage().stripTrailingZeros().scale() > ROLLOUT_PERCENTAGE_SCALE) {
+                throw new IllegalArgumentException("Rollout percentage allows at most two decimals");
+            }
+        }
+        if (dto.getTargetingRules() != null) {
+            validateTargetingRules(dto.getTargetingRules());
+        }
+        if (dto.getVariants() != null) {
+            validateVariants(dto.getVariants());
+        }
+        if (dto.getPrerequisites() != null) {
+            validatePrerequisites(dto.getPrerequisites());
         }
     }
+    
+    private void validateTargetingRules(List<TargetingRule> rules) {
+        if (rules.size() > MAX_TARGETING_RULES) {
+            throw new IllegalArgumentException("A flag can have at most " + MAX_TARGETING_RULES + " targeting rules");
+        }
+        Set<String> ids = new HashSet<>();
+        for (TargetingRule rule : rules) {
+            if (rule == null || rule.value() == null) {
+                throw new IllegalArgumentException("Every targeting rule needs a value");
+            }
+            if (rule.id() != null && !rule.id().isBlank() && !ids.add(rule.id())) {
+                throw new IllegalArgumentException("Duplicate targeting rule id '" + rule.id() + "'");
+            }
+            if (rule.clauses() != null) {
+                for (TargetingClause clause : rule.clauses()) {
+                    if (clause == null || clause.attribute() == null || clause.attribute().isBlank()
+                            || clause.operator() == null) {
+                        throw new IllegalArgumentException("Every targeting clause needs an attribute and an operator");
+                    }
+                }
+            }
+        }
+        // Rejects invalid patterns, version ranges and value counts
+        FlagSnapshotRegistry.toTargeting(rules, null);
+    }
+    
+    private void validateVariants(List<FlagVariant> variants) {
+        if (variants.size() > FlagRule.MAX_VARIANTS) {
+            throw new IllegalArgumentException("A flag can have at most " + FlagRule.MAX_VARIANTS + " variants");
+        }
+        Set<String> keys = new HashSet<>();
+        BigDecimal total = BigDecimal.ZERO;
+        for (FlagVariant variant : variants) {
+            if (variant == null || variant.key() == null || variant.key().isBlank()) {
+                throw new IllegalArgumentException("Every variant needs a key");
+            }
+            if (!keys.add(variant.key())) {
+                throw new IllegalArgumentException("Duplicate variant key '" + variant.key() + "'");
+            }
+            if (variant.value() == null || variant.value().isNull()) {
+                throw new IllegalArgumentException("Variant '" + variant.key() + "' needs a value");
+            }
+            BigDecimal weight = variant.weight();
+            if (weight == null || weight.compareTo(BigDecimal.ZERO) < 0 || weight.compareTo(MAX_ROLLOUT_PERCENTAGE) > 0
+                    || weight.stripTrailingZeros().scale() > ROLLOUT_PERCENTAGE_SCALE) {
+                throw new IllegalArgumentException(
+                    "Weight of variant '" + variant.key() + "' must be between 0 and 100 with at most two decimals");
+            }
+            total = total.add(weight);
+        }
+        if (!variants.isEmpty() && total.compareTo(MAX_ROLLOUT_PERCENTAGE) != 0) {
+            throw new IllegalArgumentException("Variant weights must add up to 100, not " + total);
+        }
+    }
+    
+    private void validatePrerequisites(List<FlagPrerequisite> prerequisites) {
+        if (prerequisites.size() > MAX_PREREQUISITES) {
+            throw new IllegalArgumentException("A flag can have at most " + MAX_PREREQUISITES + " prerequisites");
+        }
+        Set<String> keys = new HashSet<>();
+        for (FlagPrerequisite prerequisite : prerequisites) {
+            if (prerequisite == null || prerequisite.flagKey() == null || prerequisite.flagKey().isBlank()
+                    || prerequisite.value() == null) {
+                throw new IllegalArgumentException("Every prerequisite needs a flag key and a value");
+            }
+            if (!keys.add(prerequisite.flagKey())) {
+                throw new IllegalArgumentException("Duplicate prerequisite '" + prerequisite.flagKey() + "'");
+            }
+        }
+    }
+    
+    /**
+     * Check that every prerequisite exists in the environment and that the flag would not
+     * depend on itself, directly or through other flags.
+     *
+     * Takes the environment's write lock first and keeps it until the transaction ends:
+     * otherwise two writes that each close half of a cycle, or one that deletes a flag
+     * another starts to require, could both pass against the graph before either commits.
+     */
+    private void validatePrerequisiteGraph(String flagKey, String environment, List<FlagPrerequisite> prerequisites) {
+        if (prerequisites.isEmpty()) {
+            return;
+        }
+        flagChangeLog.lockEnvironment(environment);
+        Map<String, List<String>> graph = new HashMap<>();
+        for (FeatureFlag other : flagRepository.findByEnvironment(environment)) {
+            if (!other.getFlagKey().equals(flagKey)) {
+                graph.put(other.getFlagKey(), prerequisiteKeys(other.getPrerequisites()));
+            }
+        }
+        for (FlagPrerequisite prerequisite : prerequisites) {
+            if (prerequisite.flagKey().equals(flagKey)) {
+                throw new IllegalArgumentException("A flag cannot be its own prerequisite");
+            }
+            if (!graph.containsKey(prerequisite.flagKey())) {
+                throw new IllegalArgumentException("Prerequisite flag '" + prerequisite.flagKey() +
+                    "' does not exist in environment '" + environment + "'");
+            }
+        }
+        
+        // The rest of the graph has no cycles, so a new one would have to run through this flag
+        List<String> cycle = pathTo(graph, prerequisiteKeys(prerequisites), flagKey);
+        if (cycle != null) {
+            throw new IllegalArgumentException("Prerequisites would form a cycle: " + flagKey + " -> " +
+                String.join(" -> ", cycle));
+        }
+    }
+    
+    /**
+     * Depth-first search along prerequisite edges.
+     * 
+     * @return the flags from one of the starting flags to {@code target}, or null if it is unreachable
+     */
+    private static List<String> pathTo(Map<String, List<String>> graph, List<String> from, String target) {
+        Map<String, String> parents = new HashMap<>();
+        Set<String> visited = new HashSet<>(from);
+        Deque<String> pending = new ArrayDeque<>(visited);
+        while (!pending.isEmpty()) {
+            String key = pending.pop();
+            if (key.equals(target)) {
+                LinkedList<String> path = new LinkedList<>();
+                for (String step = key; step != null; step = parents.get(step)) {
+                    path.addFirst(step);
+                }
+                return path;
+            }
+            for (String next : graph.getOrDefault(key, List.of())) {
+                if (visited.add(next)) {
+                    parents.put(next, key);
+                    pending.push(next);
+                }
+            }
+        }
+        return null;
+    }
+    
+    private static List<String> prerequisiteKeys(List<FlagPrerequisite> prerequisites) {
+        if (prerequisites == null || prerequisites.isEmpty()) {
+            return List.of();
+        }
+        return prerequisites.stream().map(FlagPrerequisite::flagKey).collect(Collectors.toList());
+    }
+    
+    /**
+     * Give rules without an ID a generated one, so evaluations can name the rule that matched.
+     */
+    private static List<TargetingRule> normalizeTargeting(List<TargetingRule> rules) {
+        List<TargetingRule> normalized = new ArrayList<>();
+        if (rules != null) {
+            for (TargetingRule rule : rules) {
+                String id = rule.id() != null && !rule.id().isBlank() ? rule.id() : UUID.randomUUID().toString();
+                normalized.add(new TargetingRule(id, rule.clauses() != null ? rule.clauses() : List.of(), rule.value()));
+            }
+        }
+        return normalized;
+    }
+    
+    private static List<FlagVariant> normalizeVariants(List<FlagVariant> variants) {
+        List<FlagVariant> normalized = new ArrayList<>();
+        if (variants != null) {
+            for (FlagVariant variant : variants) {
+                normalized.add(new FlagVariant(variant.key(), variant.value(),
+                    variant.weight().setScale(ROLLOUT_PERCENTAGE_SCALE)));
+            }
+        }
+        return normalized;
+    }
+    
+    /**
+     * Store percentages at the column's scale, so that an unchanged value never shows up
+     * as a change (BigDecimal equality includes the scale).
+     */
+    private static BigDecimal normalizeRollout(BigDecimal rolloutPercentage) {
+        return rolloutPercentage != null ? rolloutPercentage.setScale(ROLLOUT_PERCENTAGE_SCALE) : null;
+    }
 }
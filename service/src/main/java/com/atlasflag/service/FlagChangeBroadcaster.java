@@ -0,0 +1,84 @@
+package com.atlasflag.service;
+
+import com.atlasflag.event.FlagChangeEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Relays committed flag changes to every service node.
+ * 
+ * Changes are published to a Redis channel after the writing transaction commits;
+ * each node (including the writer) receives them back, applies them to the
+ * environment's evaluation snapshot and forwards the change to its stream subscribers.
+ */
+@Component
+public class FlagChangeBroadcaster implements MessageListener {
+    
+    private static final Logger logger = LoggerFactory.getLogger(FlagChangeBroadcaster.class);
+    
+    public static final String CHANNEL = "atlasflag:flag-changes";
+    
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final FlagStreamService flagStreamService;
+    private final FlagSnapshotRegistry snapshotRegistry;
+    
+    public FlagChangeBroadcaster(StringRedisTemplate redisTemplate, ObjectMapper objectMapper,
+                                 FlagStreamService flagStreamService, FlagSnapshotRegistry snapshotRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.flagStreamService = flagStreamService;
+        this.snapshotRegistry = snapshotRegistry;
+    }
+    
+    @Order(10)
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onFlagChanged(FlagChangeEvent event) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            logger.error("Failed to serialize change of flag '{}'", event.getFlagKey(), e);
+            return;
+        }
+        
+        try {
+            redisTemplate.convertAndSend(CHANNEL, json);
+        } catch (RuntimeException e) {
+            // Other nodes miss this change until their SDKs resync, but local subscribers still get it
+            logger.warn("Failed to publish change of flag '{}', delivering locally only", event.getFlagKey(), e);
+            dispatch(event, json);
+        }
+    }
+    
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String json = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            dispatch(objectMapper.readValue(json, FlagChangeEvent.class), json);
+        } catch (Exception e) {
+            logger.error("Failed to handle flag change message", e);
+        }
+    }
+    
+    private void dispatch(FlagChangeEvent event, String json) {
+        try {
+            snapshotRegistry.applyChange(event);
+        } catch (RuntimeException e) {
+            // The periodic reload catches up; streaming clients still get the change
+            logger.error("Failed to rebuild snapshot of environment '{}'", event.getEnvironment(), e);
+        }
+        flagStreamService.broadcast(event.getEnvironment(), json);
+    }
+}
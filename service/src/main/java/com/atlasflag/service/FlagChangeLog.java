@@ -0,0 +1,152 @@
+package com.atlasflag.service;
+
+import com.atlasflag.domain.FlagChange;
+import com.atlasflag.dto.FlagChangesDTO;
+import com.atlasflag.dto.FlagRuleDTO;
+import com.atlasflag.event.FlagChangeEvent;
+import com.atlasflag.repository.FlagChangeRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-environment log of flag writes, numbered by a gapless sequence.
+ *
+ * Writers append within their own transaction, so a change and its log entry commit
+ * together and sequences become visible in order. SDKs replay the log after the
+ * version of their last snapshot instead of downloading the environment again.
+ */
+@Service
+public class FlagChangeLog {
+    
+    private static final Logger logger = LoggerFactory.getLogger(FlagChangeLog.class);
+    
+    // Beyond this many pending changes a full snapshot is the cheaper way to catch up
+    static final int MAX_CHANGES_PER_REQUEST = 1000;
+    
+    private final FlagChangeRepository changeRepository;
+    private final FlagSnapshotRegistry snapshotRegistry;
+    private final ObjectMapper objectMapper;
+    private final Duration retention;
+    
+    public FlagChangeLog(FlagChangeRepository changeRepository, FlagSnapshotRegistry snapshotRegistry,
+                         ObjectMapper objectMapper,
+                         @Value("${atlasflag.changes.retention-days:7}") long retentionDays) {
+        this.changeRepository = changeRepository;
+        this.snapshotRegistry = snapshotRegistry;
+        this.objectMapper = objectMapper;
+        this.retention = Duration.ofDays(retentionDays);
+    }
+    
+    /**
+     * Append a change and stamp the event with its sequence. Must run inside the
+     * transaction that performs the write.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(FlagChangeEvent event) {
+        long sequence = changeRepository.nextSequence(event.getEnvironment());
+        
+        FlagChange change = new FlagChange();
+        change.setEnvironment(event.getEnvironment());
+        change.setSequence(sequence);
+        change.setFlagKey(event.getFlagKey());
+        change.setChangeType(event.getType().name());
+        change.setFlagState(event.getFlag() != null ? toJson(event.getFlag()) : null);
+        changeRepository.save(change);
+        
+        event.setSequence(sequence);
+    }
+    
+    /**
+     * Wait for and hold the environment's write lock, the one {@link #record} takes, until
+     * the surrounding transaction ends. Writers that validate against other flags of the
+     * environment take it before reading them, so a concurrent write cannot invalidate
+     * what they checked before they commit.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lockEnvironment(String environment) {
+        changeRepository.lockSequence(environment);
+    }
+    
+    /**
+     * Changes after {@code since}. When this node's snapshot is already at
+     * {@code since}, the answer comes from memory.
+     */
+    @Transactional(readOnly = true)
+    public FlagChangesDTO getChangesSince(String environment, long since) {
+        FlagChangesDTO result = new FlagChangesDTO();
+        result.setEnvironment(environment);
+        result.setVersion(since);
+        result.setChanges(List.of());
+        
+        if (since == snapshotRegistry.getSnapshot(environment).getVersion()) {
+            return result;
+        }
+        
+        List<FlagChange> changes = changeRepository.findByEnvironmentAndSequenceGreaterThanOrderBySequenceAsc(
+            environment, since, PageRequest.of(0, MAX_CHANGES_PER_REQUEST + 1));
+        
+        if (changes.isEmpty()) {
+            // Either nothing new, or the client is ahead of a log that was reset
+            long current = changeRepository.findCurrentSequence(environment).orElse(0L);
+            result.setResync(current != since);
+            return result;
+        }
+        if (changes.get(0).getSequence() != since + 1 || changes.size() > MAX_CHANGES_PER_REQUEST) {
+            // Part of the range was pruned, or the client is too far behind
+            result.setResync(true);
+            return result;
+        }
+        
+        List<FlagChangeEvent> events = new ArrayList<>(changes.size());
+        for (FlagChange change : changes) {
+            events.add(toEvent(change));
+        }
+        result.setChanges(events);
+        result.setVersion(changes.get(changes.size() - 1).getSequence());
+        return result;
+    }
+    
+    @Scheduled(cron = "${atlasflag.changes.prune-cron:0 30 3 * * *}")
+    public void pruneExpiredChanges() {
+        int deleted = changeRepository.deleteByCreatedAtBefore(Instant.now().minus(retention));
+        if (deleted > 0) {
+            logger.info("Pruned {} flag changes older than {} days", deleted, retention.toDays());
+        }
+    }
+    
+    private FlagChangeEvent toEvent(FlagChange change) {
+        FlagRuleDTO flag = null;
+        if (change.getFlagState() != null) {
+            try {
+                flag = objectMapper.readValue(change.getFlagState(), FlagRuleDTO.class);
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Corrupt state in flag change " + change.getId(), e);
+            }
+        }
+        FlagChangeEvent event = new FlagChangeEvent(FlagChangeEvent.Type.valueOf(change.getChangeType()),
+            change.getEnvironment(), change.getFlagKey(), flag);
+        event.setSequence(change.getSequence());
+        return event;
+    }
+    
+    private String toJson(FlagRuleDTO flag) {
+        try {
+            return objectMapper.writeValueAsString(flag);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize state of flag '" + flag.getFlagKey() + "'", e);
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package com.atlasflag.service;
+
+import com.atlasflag.domain.AuditLog;
+import com.atlasflag.domain.FlagStateCheckpoint;
+import com.atlasflag.dto.EnvironmentHistoryDTO;
+import com.atlasflag.dto.FlagStateDTO;
+import com.atlasflag.repository.AuditLogRowMapper;
+import com.atlasflag.repository.FlagStateCheckpointRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Reconstructs the flags of an environment as they were at a past instant.
+ *
+ * The audit trail is the history. Rather than replaying all of it per query, the
+ * state of every environment is checkpointed periodically, and a query replays only
+ * the flag audit entries between the newest earlier checkpoint and the requested
+ * instant. Checkpoints are built the same way from the previous one. They trail the
+ * clock by a lag, since audit entries are written asynchronously and one stamped
+ * before the checkpoint may not be in the table yet. Nodes coordinate through a
+ * Postgres advisory lock, so only one of them takes a checkpoint at a time.
+ *
+ * Checkpoints are kept as long as the audit trail ({@code atlasflag.audit.retention-months}).
+ * Of those taken before that, each environment keeps only the newest, from which
+ * instants after it can still be replayed.
+ */
+@Service
+public class FlagHistoryService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(FlagHistoryService.class);
+    
+    private static final String ENTITY_TYPE = "FeatureFlag";
+    private static final int FETCH_SIZE = 1000;
+    private static final long ADVISORY_LOCK_KEY = 0x666C61675F636B70L; // "flag_ckp"
+    private static final String REPLAY_SQL = "SELECT " + AuditLogRowMapper.COLUMNS +
+        " FROM audit_logs WHERE entity_type = ? AND timestamp > ? AND timestamp <= ? ORDER BY timestamp, id";
+    // Every checkpoint older than the newest one of its environment taken at or before the cutoff
+    private static final String PRUNE_SQL = "DELETE FROM flag_state_checkpoints c WHERE c.taken_at < " +
+        "(SELECT MAX(k.taken_at) FROM flag_state_checkpoints k WHERE k.environment = c.environment AND k.taken_at <= ?)";
+    
+    private final FlagStateCheckpointRepository checkpointRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate writeTransaction;
+    private final ObjectMapper objectMapper;
+    private final Duration checkpointLag;
+    private final int retentionMonths;
+    
+    public FlagHistoryService(FlagStateCheckpointRepository checkpointRepository, DataSource dataSource,
+                              PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                              @Value("${atlasflag.history.checkpoint-lag:600}") long checkpointLagSeconds,
+                              @Value("${atlasflag.audit.retention-months:12}") int retentionMonths) {
+        this.checkpointRepository = checkpointRepository;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.checkpointLag = Duration.ofSeconds(checkpointLagSeconds);
+        this.retentionMonths = retentionMonths;
+    }
+    
+    /**
+     * The flags of an environment at {@code at}. Costs one checkpoint read plus the audit
+     * entries written since that checkpoint; instants closer to now than the audit writer's
+     * flush delay may miss the latest changes.
+     */
+    public EnvironmentHistoryDTO getEnvironmentState(String environment, Instant at) {
+        return readTransaction.execute(status -> {
+            Optional<FlagStateCheckpoint> checkpoint = checkpointRepository
+                .findFirstByEnvironmentAndTakenAtLessThanEqualOrderByTakenAtDesc(environment, at);
+            Map<Long, ObjectNode> flags = new HashMap<>();
+            checkpoint.ifPresent(c -> readState(c.getState(), flags));
+            Instant from = checkpoint.map(FlagStateCheckpoint::getTakenAt).orElse(Instant.EPOCH);
+            long replayed = replay(flags, from, at, environment);
+            
+            EnvironmentHistoryDTO history = new EnvironmentHistoryDTO();
+            history.setEnvironment(environment);
+            history.setAt(at);
+            history.setCheckpointAt(checkpoint.map(FlagStateCheckpoint::getTakenAt).orElse(null));
+            history.setReplayedEntries(replayed);
+            history.setFlags(flags.values().stream()
+                .map(this::toStateDTO)
+                .sorted(Comparator.comparing(FlagStateDTO::getFlagKey, Comparator.nullsLast(Comparator.naturalOrder())))
+                .toList());
+            return history;
+        });
+    }
+    
+    /**
+     * Checkpoint every environment as of now minus the lag, by replaying the audit entries
+     * since the previous checkpoint. Nothing is written if no flag changed in between.
+     * Checkpoints past the retention period are pruned first.
+     */
+    @Scheduled(cron = "${atlasflag.history.checkpoint-cron:0 0 * * * *}")
+    public void createCheckpoint() {
+        try {
+            writeTransaction.executeWithoutResult(status -> {
+                Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class,
+                    ADVISORY_LOCK_KEY);
+                if (!Boolean.TRUE.equals(locked)) {
+                    logger.debug("Flag state checkpoint is being taken on another node");
+                    return;
+                }
+                
+                pruneCheckpoints();
+                
+                Instant takenAt = Instant.now().minus(checkpointLag).truncatedTo(ChronoUnit.SECONDS);
+                Optional<Instant> previous = checkpointRepository.findLatestTakenAt();
+                if (previous.isPresent() && !previous.get().isBefore(takenAt)) {
+                    return;
+                }
+                
+                Map<Long, ObjectNode> flags = new HashMap<>();
+                previous.ifPresent(p -> checkpointRepository.findByTakenAt(p)
+                    .forEach(c -> readState(c.getState(), flags)));
+                long replayed = replay(flags, previous.orElse(Instant.EPOCH), takenAt, null);
+                if (replayed == 0) {
+                    // The previous checkpoint still describes the current state
+                    return;
+                }
+                
+                Map<String, ObjectNode> byEnvironment = checkpointStates(flags);
+                byEnvironment.forEach((environment, state) -> {
+                    FlagStateCheckpoint checkpoint = new FlagStateCheckpoint();
+                    checkpoint.setEnvironment(environment);
+                    checkpoint.setTakenAt(takenAt);
+                    checkpoint.setState(state.toString());
+                    checkpointRepository.save(checkpoint);
+                });
+                logger.info("Checkpointed {} flags in {} environments as of {} ({} audit entries replayed)",
+                    flags.size(), byEnvironment.size(), takenAt, replayed);
+            });
+        } catch (RuntimeException e) {
+            logger.error("Failed to checkpoint flag state", e);
+        }
+    }
+    
+    /**
+     * Delete the checkpoints no query within the audit retention period starts from.
+     */
+    private void pruneCheckpoints() {
+        Instant cutoff = ZonedDateTime.now().minusMonths(retentionMonths).toInstant();
+        int pruned = jdbcTemplate.update(PRUNE_SQL, Timestamp.from(cutoff));
+        if (pruned > 0) {
+            logger.info("Pruned {} flag state checkpoints taken before {}", pruned, cutoff);
+        }
+    }
+    
+    /**
+     * The checkpoint state of each environment: its flags keyed by id. Environments
+     * without flags get none; queries fall back to an earlier checkpoint for them.
+     */
+    Map<String, ObjectNode> checkpointStates(Map<Long, ObjectNode> flags) {
+        Map<String, ObjectNode> byEnvironment = new HashMap<>();
+        flags.forEach((id, flag) -> {
+            String environment = flag.path("environment").asText(null);
+            if (environment != null) {
+                byEnvironment.computeIfAbsent(environment, e -> objectMapper.createObjectNode())
+                    .set(id.toString(), flag);
+            }
+        });
+        return byEnvironment;
+    }
+    
+    /**
+     * Apply the flag audit entries in {@code (from, to]} in order.
+     *
+     * @param environment only track flags of this environment, or null for all
+     * @return the number of entries read
+     */
+    private long replay(Map<Long, ObjectNode> flags, Instant from, Instant to, String environment) {
+        long[] replayed = {0};
+        jdbcTemplate.query(REPLAY_SQL, rs -> {
+            apply(flags, AuditLogRowMapper.INSTANCE.mapRow(rs, 0), environment);
+            replayed[0]++;
+        }, ENTITY_TYPE, Timestamp.from(from), Timestamp.from(to));
+        return replayed[0];
+    }
+    
+    /**
+     * Apply one flag audit entry to the tracked flags.
+     *
+     * @param environment only track flags of this environment, or null for all
+     */
+    void apply(Map<Long, ObjectNode> flags, AuditLog entry, String environment) {
+        Long id = entry.getEntityId();
+        if (id == null) {
+            return;
+        }
+        if ("DELETE".equals(entry.getAction())) {
+            flags.remove(id);
+            return;
+        }
+        
+        JsonNode changes = parse(entry.getChanges());
+        ObjectNode flag;
+        if (isEntitySnapshot(changes)) {
+            // Entries written before field-level diffs hold the whole entity before and after
+            JsonNode after = changes.get("new");
+            if (!after.isObject()) {
+                flags.remove(id);
+                return;
+            }
+            flag = ((ObjectNode) after).deepCopy();
+        } else {
+            flag = flags.get(id);
+            if (flag == null) {
+                if (!"CREATE".equals(entry.getAction())) {
+                    // A flag of another environment, or one whose creation predates the history
+                    return;
+                }
+                flag = objectMapper.createObjectNode();
+            }
+            if (changes.isObject()) {
+                Iterator<Map.Entry<String, JsonNode>> fields = changes.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    flag.set(field.getKey(), field.getValue().get("new"));
+                }
+            }
+        }
+        
+        if (environment != null && !environment.equals(flag.path("environment").asText(null))) {
+            return;
+        }
+        flag.put("id", id);
+        flag.put("lastModifiedAt", entry.getTimestamp().toString());
+        flag.put("lastModifiedBy", entry.getUserId());
+        flags.put(id, flag);
+    }
+    
+    private static boolean isEntitySnapshot(JsonNode changes) {
+        return changes.isObject() && changes.size() == 2 && changes.has("old") && changes.has("new");
+    }
+    
+    private JsonNode parse(String json) {
+        if (json == null) {
+            return objectMapper.nullNode();
+        }
+        try {
+            return objectMapper.readTree(json);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    void readState(String json, Map<Long, ObjectNode> flags) {
+        Iterator<Map.Entry<String, JsonNode>> entries = parse(json).fields();
+        while (entries.hasNext()) {
+            Map.Entry<String, JsonNode> entry = entries.next();
+            if (entry.getValue().isObject()) {
+                flags.put(Long.valueOf(entry.getKey()), (ObjectNode) entry.getValue());
+            }
+        }
+    }
+    
+    private FlagStateDTO toStateDTO(ObjectNode flag) {
+        try {
+            return objectMapper.treeToValue(flag, FlagStateDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.atlasflag.service;
+
+import com.atlasflag.core.FlagRule;
+import com.atlasflag.core.FlagSnapshot;
+import com.atlasflag.core.Segments;
+import com.atlasflag.core.Targeting;
+import com.atlasflag.core.Variant;
+import com.atlasflag.domain.FeatureFlag;
+import com.atlasflag.domain.FlagPrerequisite;
+import com.atlasflag.domain.FlagVariant;
+import com.atlasflag.domain.TargetingClause;
+import com.atlasflag.domain.TargetingRule;
+import com.atlasflag.dto.FlagRuleDTO;
+import com.atlasflag.event.FlagChangeEvent;
+import com.atlasflag.repository.FeatureFlagRepository;
+import com.atlasflag.repository.FlagChangeRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Holds one compiled {@link FlagSnapshot} per environment, so evaluation never
+ * touches Redis or the database.
+ *
+ * A snapshot's version is the environment's change sequence it reflects. Every known
+ * environment is loaded at startup; dispatched changes are applied in place when they
+ * directly follow the current version and trigger a reload from the database
+ * otherwise, and everything is reloaded periodically in case a change message was
+ * lost. Unknown environments resolve to an empty snapshot without a query.
+ *
+ * Segment clauses are compiled against the environment's {@link Segments} from the
+ * {@link SegmentRegistry}, so segment changes apply without recompiling any flag.
+ */
+@Service
+public class FlagSnapshotRegistry {
+    
+    private static final Logger logger = LoggerFactory.getLogger(FlagSnapshotRegistry.class);
+    
+    private final FeatureFlagRepository flagRepository;
+    private final FlagChangeRepository changeRepository;
+    private final SegmentRegistry segmentRegistry;
+    private final TransactionTemplate readTransaction;
+    private final Map<String, FlagSnapshot> snapshots = new ConcurrentHashMap<>();
+    // Serializes updates so a slow full reload cannot overwrite a newer environment rebuild
+    private final ReentrantLock reloadLock = new ReentrantLock();
+    private volatile boolean loaded;
+    
+    public FlagSnapshotRegistry(FeatureFlagRepository flagRepository, FlagChangeRepository changeRepository,
+                                SegmentRegistry segmentRegistry, PlatformTransactionManager transactionManager) {
+        this.flagRepository = flagRepository;
+        this.changeRepository = changeRepository;
+        this.segmentRegistry = segmentRegistry;
+        // Repeatable read, so flags and sequences come from the same database snapshot
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.readTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+    
+    public FlagSnapshot getSnapshot(String environment) {
+        if (!loaded) {
+            ensureLoaded();
+        }
+        return snapshots.getOrDefault(environment, FlagSnapshot.EMPTY);
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        try {
+            reloadAll();
+        } catch (RuntimeException e) {
+            // The first evaluation retries the load
+            logger.error("Failed to load flag snapshots at startup", e);
+        }
+    }
+    
+    @Scheduled(initialDelayString = "${atlasflag.snapshot.reload-interval:300000}",
+               fixedDelayString = "${atlasflag.snapshot.reload-interval:300000}")
+    public void reloadAll() {
+        reloadLock.lock();
+        try {
+            Map<String, FlagSnapshot> rebuilt = readTransaction.execute(status -> {
+                Map<String, Long> sequences = new HashMap<>();
+                for (Object[] row : changeRepository.findAllCurrentSequences()) {
+                    sequences.put((String) row[0], ((Number) row[1]).longValue());
+                }
+                Map<String, List<FeatureFlag>> byEnvironment = flagRepository.findAll().stream()
+                    .collect(Collectors.groupingBy(FeatureFlag::getEnvironment));
+                
+                Set<String> environments = new HashSet<>(sequences.keySet());
+                environments.addAll(byEnvironment.keySet());
+                Map<String, FlagSnapshot> result = new HashMap<>();
+                for (String environment : environments) {
+                    result.put(environment, compile(environment, byEnvironment.getOrDefault(environment, List.of()),
+                        sequences.getOrDefault(environment, 0L)));
+                }
+                return result;
+            });
+            
+            snapshots.putAll(rebuilt);
+            snapshots.keySet().retainAll(rebuilt.keySet());
+            loaded = true;
+            logger.debug("Reloaded flag snapshots for {} environments", rebuilt.size());
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+    
+    private void ensureLoaded() {
+        reloadLock.lock();
+        try {
+            if (!loaded) {
+                reloadAll();
+            }
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+    
+    /**
+     * Apply a committed change. A change that directly follows the current snapshot is
+     * applied without a query; a gap (a missed or reordered message) reloads the
+     * environment, and changes the snapshot already reflects are ignored.
+     */
+    public void applyChange(FlagChangeEvent event) {
+        reloadLock.lock();
+        try {
+            FlagSnapshot current = getSnapshot(event.getEnvironment());
+            Long sequence = event.getSequence();
+            if (sequence != null && sequence <= current.getVersion()) {
+                return;
+            }
+            if (sequence == null || sequence != current.getVersion() + 1) {
+                reloadEnvironment(event.getEnvironment());
+                return;
+            }
+            
+            Segments segments = segmentRegistry.getSegments(event.getEnvironment());
+            FlagSnapshot updated = event.getFlag() != null
+                ? current.withRule(toRule(event.getFlag(), segments), sequence)
+                : current.withoutRule(event.getFlagKey(), sequence);
+            snapshots.put(event.getEnvironment(), updated);
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+    
+    /**
+     * Rebuild one environment from the database and swap it in.
+     */
+    public void reloadEnvironment(String environment) {
+        reloadLock.lock();
+        try {
+            FlagSnapshot snapshot = readTransaction.execute(status -> compile(environment,
+                flagRepository.findByEnvironment(environment),
+                changeRepository.findCurrentSequence(environment).orElse(0L)));
+            snapshots.put(environment, snapshot);
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+    
+    private FlagSnapshot compile(String environment, List<FeatureFlag> flags, long version) {
+        Segments segments = segmentRegistry.getSegments(environment);
+        List<FlagRule> rules = new ArrayList<>(flags.size());
+        for (FeatureFlag flag : flags) {
+            rules.add(toRule(flag, segments));
+        }
+        rules.sort(Comparator.comparing(FlagRule::getFlagKey));
+        return FlagSnapshot.of(rules, version);
+    }
+    
+    private static FlagRule toRule(FeatureFlag flag, Segments segments) {
+        return new FlagRule(flag.getFlagKey(), Boolean.TRUE.equals(flag.getEnabled()),
+            Boolean.TRUE.equals(flag.getDefaultValue()), flag.getRolloutPercentage(),
+            toTargeting(flag.getTargetingRules(), segments), toVariants(flag.getVariants()),
+            toPrerequisites(flag.getPrerequisites()), flag.getVersion() != null ? flag.getVersion() : 0L);
+    }
+    
+    private static FlagRule toRule(FlagRuleDTO dto, Segments segments) {
+        return new FlagRule(dto.getFlagKey(), Boolean.TRUE.equals(dto.getEnabled()),
+            Boolean.TRUE.equals(dto.getDefaultValue()), dto.getRolloutPercentage(),
+            toTargeting(dto.getTargetingRules(), segments), toVariants(dto.getVariants()),
+            toPrerequisites(dto.getPrerequisites()), dto.getVersion() != null ? dto.getVersion() : 0L);
+    }
+    
+    /**
+     * @throws IllegalArgumentException if the weights do not add up to 100, once the rule is built
+     */
+    static List<Variant> toVariants(List<FlagVariant> variants) {
+        if (variants == null || variants.isEmpty()) {
+            return List.of();
+        }
+        List<Variant> converted = new ArrayList<>(variants.size());
+        for (FlagVariant variant : variants) {
+            converted.add(new Variant(variant.key(), variant.value().toString(), variant.weight()));
+        }
+        return converted;
+    }
+    
+    private static List<FlagRule.Prerequisite> toPrerequisites(List<FlagPrerequisite> prerequisites) {
+        if (prerequisites == null || prerequisites.isEmpty()) {
+            return List.of();
+        }
+        List<FlagRule.Prerequisite> converted = new ArrayList<>(prerequisites.size());
+        for (FlagPrerequisite prerequisite : prerequisites) {
+            converted.add(new FlagRule.Prerequisite(prerequisite.flagKey(), Boolean.TRUE.equals(prerequisite.value())));
+        }
+        return converted;
+    }
+    
+    /**
+     * Compile targeting rules for evaluation.
+     *
+     * @param segments segments to resolve segment clauses in, or null when only validating
+     * @throws IllegalArgumentException if a rule is malformed
+     */
+    static Targeting toTargeting(List<TargetingRule> rules, Segments segments) {
+        if (rules == null || rules.isEmpty()) {
+            return Targeting.NONE;
+        }
+        List<Targeting.Rule> compiled = new ArrayList<>(rules.size());
+        for (TargetingRule rule : rules) {
+            List<Targeting.Clause> clauses = new ArrayList<>();
+            if (rule.clauses() != null) {
+                for (TargetingClause clause : rule.clauses()) {
+                    clauses.add(new Targeting.Clause(clause.attribute(), clause.operator(),
+                        clause.values() != null ? clause.values() : List.of(), clause.negate()));
+                }
+            }
+            compiled.add(new Targeting.Rule(rule.id(), clauses, Boolean.TRUE.equals(rule.value())));
+        }
+        return Targeting.compile(compiled, segments);
+    }
+}
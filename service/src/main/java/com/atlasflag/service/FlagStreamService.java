@@ -0,0 +1,189 @@
+package com.atlasflag.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-Sent Events fan-out of flag changes to SDK clients, per environment.
+ * 
+ * Idle streams hold no thread: SseEmitter is backed by servlet async I/O. Each
+ * subscriber has its own bounded queue that is drained on a virtual thread only
+ * while it has pending events, so a slow client delays nobody but itself and
+ * events reach each client in publication order.
+ */
+@Service
+public class FlagStreamService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(FlagStreamService.class);
+    
+    public static final String CHANGE_EVENT_NAME = "flag-change";
+    
+    // A client this far behind is disconnected; it resyncs from a snapshot on reconnect
+    static final int MAX_PENDING_EVENTS = 256;
+    
+    private final Map<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService sendExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    
+    @Value("${atlasflag.stream.timeout:1800000}")
+    private long streamTimeoutMillis;
+    
+    public FlagStreamService(MeterRegistry meterRegistry) {
+        Gauge.builder("atlasflag.stream.subscribers", subscriberCount, AtomicInteger::get)
+            .description("Open flag change streams")
+            .register(meterRegistry);
+    }
+    
+    /**
+     * Open a change stream for an environment. Streams end after the configured
+     * timeout and clients are expected to reconnect.
+     */
+    public SseEmitter subscribe(String environment) {
+        return subscribe(environment, new SseEmitter(streamTimeoutMillis));
+    }
+    
+    SseEmitter subscribe(String environment, SseEmitter emitter) {
+        Subscriber subscriber = new Subscriber(environment, emitter);
+        
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> {
+            unsubscribe(subscriber);
+            emitter.complete();
+        });
+        emitter.onError(e -> unsubscribe(subscriber));
+        
+        subscribers.computeIfAbsent(environment, env -> ConcurrentHashMap.newKeySet()).add(subscriber);
+        subscriberCount.incrementAndGet();
+        
+        // Commits the response headers so the client sees the stream as open right away
+        subscriber.enqueue(null, "connected");
+        return emitter;
+    }
+    
+    /**
+     * Send an already serialized change event to every subscriber of an environment.
+     */
+    public void broadcast(String environment, String json) {
+        Set<Subscriber> environmentSubscribers = subscribers.get(environment);
+        if (environmentSubscribers == null) {
+            return;
+        }
+        for (Subscriber subscriber : environmentSubscribers) {
+            subscriber.enqueue(CHANGE_EVENT_NAME, json);
+        }
+    }
+    
+    /**
+     * Keeps idle connections open through proxies and detects clients that went away.
+     */
+    @Scheduled(fixedRateString = "${atlasflag.stream.heartbeat-interval:15000}")
+    public void sendHeartbeats() {
+        for (Set<Subscriber> environmentSubscribers : subscribers.values()) {
+            for (Subscriber subscriber : environmentSubscribers) {
+                subscriber.enqueue(null, "heartbeat");
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        for (Set<Subscriber> environmentSubscribers : subscribers.values()) {
+            for (Subscriber subscriber : environmentSubscribers) {
+                subscriber.emitter.complete();
+            }
+        }
+        sendExecutor.shutdown();
+    }
+    
+    private void unsubscribe(Subscriber subscriber) {
+        Set<Subscriber> environmentSubscribers = subscribers.get(subscriber.environment);
+        if (environmentSubscribers != null && environmentSubscribers.remove(subscriber)) {
+            subscriberCount.decrementAndGet();
+        }
+    }
+    
+    private record PendingEvent(String name, String data) {
+        
+        SseEmitter.SseEventBuilder toSse() {
+            // Events without a name are sent as SSE comments, which clients ignore
+            return name == null
+                ? SseEmitter.event().comment(data)
+                : SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON);
+        }
+    }
+    
+    private final class Subscriber {
+        
+        private final String environment;
+        private final SseEmitter emitter;
+        private final Queue<PendingEvent> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pendingCount = new AtomicInteger();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        
+        Subscriber(String environment, SseEmitter emitter) {
+            this.environment = environment;
+            this.emitter = emitter;
+        }
+        
+        void enqueue(String name, String data) {
+            if (closed.get()) {
+                return;
+            }
+            if (pendingCount.incrementAndGet() > MAX_PENDING_EVENTS) {
+                logger.warn("Flag stream subscriber for environment '{}' fell behind, disconnecting", environment);
+                close();
+                return;
+            }
+            pending.add(new PendingEvent(name, data));
+            if (draining.compareAndSet(false, true)) {
+                sendExecutor.execute(this::drain);
+            }
+        }
+        
+        private void drain() {
+            do {
+                PendingEvent event;
+                while (!closed.get() && (event = pending.poll()) != null) {
+                    pendingCount.decrementAndGet();
+                    try {
+                        emitter.send(event.toSse());
+                    } catch (IOException | IllegalStateException e) {
+                        logger.debug("Flag stream subscriber for environment '{}' disconnected", environment);
+                        close();
+                    }
+                }
+                draining.set(false);
+                // An event may have been queued after the last poll but before the flag was cleared
+            } while (!closed.get() && !pending.isEmpty() && draining.compareAndSet(false, true));
+        }
+        
+        private void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            pending.clear();
+            unsubscribe(this);
+            emitter.complete();
+        }
+    }
+}
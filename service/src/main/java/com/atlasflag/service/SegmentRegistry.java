@@ -0,0 +1,140 @@
+package com.atlasflag.service;
+
+import com.atlasflag.core.Segment;
+import com.atlasflag.core.Segments;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds the members of every segment in memory, as {@link Segments} per environment.
+ *
+ * Compiled flag snapshots resolve segment keys through these holders at evaluation
+ * time, so a reloaded segment applies to every flag immediately. Segments are compared
+ * by version against the database periodically and after every local change, and only
+ * those whose version moved are read again.
+ */
+@Service
+public class SegmentRegistry {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SegmentRegistry.class);
+    
+    private static final String VERSIONS_SQL = "SELECT id, segment_key, environment, version FROM segments";
+    private static final String MEMBERS_SQL = "SELECT hashes FROM segment_members WHERE segment_id = ?";
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, Segments> byEnvironment = new ConcurrentHashMap<>();
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private volatile boolean loaded;
+    
+    public SegmentRegistry(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+    
+    /**
+     * The segments of an environment. The returned holder stays the same for the lifetime
+     * of the registry; its contents are replaced as segments change.
+     */
+    public Segments getSegments(String environment) {
+        if (!loaded) {
+            ensureLoaded();
+        }
+        return byEnvironment.computeIfAbsent(environment, e -> new Segments());
+    }
+    
+    /**
+     * @return the loaded segment, or null if the environment has none under the key
+     */
+    public Segment getSegment(String environment, String segmentKey) {
+        if (!loaded) {
+            ensureLoaded();
+        }
+        Segments segments = byEnvironment.get(environment);
+        return segments != null ? segments.get(segmentKey) : null;
+    }
+    
+    /**
+     * @return the loaded segments of an environment, without creating its holder
+     */
+    public Collection<Segment> listSegments(String environment) {
+        if (!loaded) {
+            ensureLoaded();
+        }
+        Segments segments = byEnvironment.get(environment);
+        return segments != null ? segments.all() : List.of();
+    }
+    
+    @Scheduled(initialDelayString = "${atlasflag.segments.refresh-interval:30000}",
+               fixedDelayString = "${atlasflag.segments.refresh-interval:30000}")
+    public void refresh() {
+        refreshLock.lock();
+        try {
+            // Versions are read before members and an import writes both in one transaction,
+            // so a member list is never older than the version it is recorded under
+            List<SegmentVersion> versions = jdbcTemplate.query(VERSIONS_SQL, (rs, rowNum) -> new SegmentVersion(
+                rs.getLong("id"), rs.getString("segment_key"), rs.getString("environment"), rs.getLong("version")));
+            
+            Map<String, Set<String>> present = new HashMap<>();
+            int reloaded = 0;
+            for (SegmentVersion version : versions) {
+                present.computeIfAbsent(version.environment(), e -> new HashSet<>()).add(version.segmentKey());
+                Segments segments = byEnvironment.computeIfAbsent(version.environment(), e -> new Segments());
+                Segment current = segments.get(version.segmentKey());
+                if (current == null || current.getVersion() != version.version()) {
+                    segments.put(load(version));
+                    reloaded++;
+                }
+            }
+            byEnvironment.forEach((environment, segments) ->
+                segments.retainAll(present.getOrDefault(environment, Set.of())));
+            loaded = true;
+            if (reloaded > 0) {
+                logger.info("Loaded {} changed segments", reloaded);
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+    
+    private void ensureLoaded() {
+        refreshLock.lock();
+        try {
+            if (!loaded) {
+                refresh();
+            }
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+    
+    private Segment load(SegmentVersion version) {
+        return jdbcTemplate.query(MEMBERS_SQL, rs -> {
+            if (!rs.next()) {
+                // Created but never imported
+                return new Segment.Builder().build(version.segmentKey(), version.version());
+            }
+            try (InputStream in = rs.getBinaryStream(1)) {
+                return Segment.read(version.segmentKey(), version.version(), in);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read members of segment " + version.id(), e);
+            }
+        }, version.id());
+    }
+    
+    private record SegmentVersion(long id, String segmentKey, String environment, long version) {
+    }
+}
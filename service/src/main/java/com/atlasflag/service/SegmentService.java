@@ -0,0 +1,249 @@
+package com.atlasflag.service;
+
+import com.atlasflag.core.Segment;
+import com.atlasflag.core.Targeting;
+import com.atlasflag.domain.FeatureFlag;
+import com.atlasflag.domain.TargetingClause;
+import com.atlasflag.domain.TargetingRule;
+import com.atlasflag.domain.UserSegment;
+import com.atlasflag.dto.SegmentDTO;
+import com.atlasflag.exception.ConflictException;
+import com.atlasflag.repository.FeatureFlagRepository;
+import com.atlasflag.repository.UserSegmentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Segment metadata and member imports.
+ *
+ * An import replaces all members of a segment. The uploaded user IDs are hashed as they
+ * are read, so only the 8-byte hashes are held, and stored as one sorted blob; the
+ * {@link SegmentRegistry} of every node picks up the new version from there.
+ */
+@Service
+public class SegmentService {
+    
+    private static final Logger logger = LoggerFactory.getLogger(SegmentService.class);
+    private static final int MAX_SEGMENT_MEMBERS = 10_000_000; // 80 MB of hashes
+    private static final String UPSERT_MEMBERS_SQL = "INSERT INTO segment_members (segment_id, hashes) VALUES (?, ?) " +
+        "ON CONFLICT (segment_id) DO UPDATE SET hashes = EXCLUDED.hashes";
+    
+    private final UserSegmentRepository segmentRepository;
+    private final FeatureFlagRepository flagRepository;
+    private final SegmentRegistry segmentRegistry;
+    private final AuditService auditService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate writeTransaction;
+    
+    public SegmentService(UserSegmentRepository segmentRepository, FeatureFlagRepository flagRepository,
+                          SegmentRegistry segmentRegistry, AuditService auditService, JdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager) {
+        this.segmentRepository = segmentRepository;
+        this.flagRepository = flagRepository;
+        this.segmentRegistry = segmentRegistry;
+        this.auditService = auditService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+    }
+    
+    @Transactional
+    public SegmentDTO createSegment(SegmentDTO dto, String userId) {
+        String environment = dto.getEnvironment() != null ? dto.getEnvironment() : "default";
+        if (segmentRepository.existsBySegmentKeyAndEnvironment(dto.getSegmentKey(), environment)) {
+            throw new IllegalArgumentException("Segment with key '" + dto.getSegmentKey() +
+                "' already exists in environment '" + environment + "'");
+        }
+        
+        UserSegment segment = new UserSegment();
+        segment.setSegmentKey(dto.getSegmentKey());
+        segment.setName(dto.getName());
+        segment.setDescription(dto.getDescription());
+        segment.setEnvironment(environment);
+        segment.setCreatedBy(userId);
+        
+        UserSegment saved = segmentRepository.save(segment);
+        auditService.logAction("Segment", saved.getId(), "CREATE", userId, null, auditState(saved));
+        refreshAfterCommit();
+        return toDTO(saved);
+    }
+    
+    @Transactional
+    public SegmentDTO updateSegment(Long id, SegmentDTO dto, String userId) {
+        UserSegment segment = segmentRepository.findById(id)
+            .orElseThrow(() -> new IllegalArgumentException("Segment not found with id: " + id));
+        
+        Map<String, Object> before = auditState(segment);
+        segment.setName(dto.getName());
+        segment.setDescription(dto.getDescription());
+        segment.setUpdatedBy(userId);
+        
+        try {
+            UserSegment saved = segmentRepository.save(segment);
+            auditService.logAction("Segment", saved.getId(), "UPDATE", userId, before, auditState(saved));
+            return toDTO(saved);
+        } catch (OptimisticLockingFailureException e) {
+            throw new ConflictException("Segment was modified by another user. Please refresh and try again.");
+        }
+    }
+    
+    public List<SegmentDTO> getSegments(String environment) {
+        return segmentRepository.findByEnvironment(environment).stream()
+            .map(this::toDTO)
+            .collect(Collectors.toList());
+    }
+    
+    public Optional<SegmentDTO> getSegmentById(Long id) {
+        return segmentRepository.findById(id)
+            .map(this::toDTO);
+    }
+    
+    /**
+     * Replace the members of a segment with the user IDs in {@code in}, one per line.
+     * Blank lines are skipped and duplicates count once.
+     */
+    public SegmentDTO importMembers(Long id, InputStream in, String userId) throws IOException {
+        UserSegment segment = segmentRepository.findById(id)
+            .orElseThrow(() -> new IllegalArgumentException("Segment not found with id: " + id));
+        
+        // Read before opening a transaction: uploads of millions of IDs take a while
+        Segment.Builder builder = new Segment.Builder();
+        int lines = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String member = line.strip();
+            if (member.isEmpty()) {
+                continue;
+            }
+            if (++lines > MAX_SEGMENT_MEMBERS) {
+                throw new IllegalArgumentException("A segment can have at most " + MAX_SEGMENT_MEMBERS + " members");
+            }
+            builder.add(member);
+        }
+        Segment members = builder.build(segment.getSegmentKey(), 0);
+        ByteArrayOutputStream packed = new ByteArrayOutputStream(members.size() * Long.BYTES);
+        members.writeTo(packed);
+        
+        UserSegment saved = writeTransaction.execute(status -> {
+            UserSegment current = segmentRepository.findById(id)
+                .orElseThrow(() -> new IllegalArgumentException("Segment not found with id: " + id));
+            Map<String, Object> before = auditState(current);
+            jdbcTemplate.update(UPSERT_MEMBERS_SQL, id, packed.toByteArray());
+            current.setMemberCount(members.size());
+            current.setUpdatedBy(userId);
+            // Always bumps the version, even for an identical member count, so every node reloads
+            current.setUpdatedAt(Instant.now());
+            UserSegment result = segmentRepository.saveAndFlush(current);
+            auditService.logAction("Segment", id, "IMPORT", userId, before, auditState(result));
+            refreshAfterCommit();
+            return result;
+        });
+        logger.info("Imported {} members into segment '{}' of environment '{}'", members.size(),
+            saved.getSegmentKey(), saved.getEnvironment());
+        return toDTO(saved);
+    }
+    
+    /**
+     * Delete a segment. Refused while a flag of its environment still targets it, since
+     * the flag would silently stop matching those users.
+     */
+    @Transactional
+    public void deleteSegment(Long id, String userId) {
+        UserSegment segment = segmentRepository.findById(id)
+            .orElseThrow(() -> new IllegalArgumentException("Segment not found with id: " + id));
+        
+        for (FeatureFlag flag : flagRepository.findByEnvironment(segment.getEnvironment())) {
+            if (referencesSegment(flag.getTargetingRules(), segment.getSegmentKey())) {
+                throw new ConflictException("Segment '" + segment.getSegmentKey() + "' is used by flag '" +
+                    flag.getFlagKey() + "'");
+            }
+        }
+        
+        Map<String, Object> before = auditState(segment);
+        segmentRepository.delete(segment);
+        auditService.logAction("Segment", id, "DELETE", userId, before, null);
+        refreshAfterCommit();
+    }
+    
+    private static boolean referencesSegment(List<TargetingRule> rules, String segmentKey) {
+        if (rules == null) {
+            return false;
+        }
+        for (TargetingRule rule : rules) {
+            if (rule.clauses() == null) {
+                continue;
+            }
+            for (TargetingClause clause : rule.clauses()) {
+                if (clause.operator() == Targeting.Operator.IN_SEGMENT && clause.values() != null
+                        && clause.values().contains(segmentKey)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+    
+    private void refreshAfterCommit() {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    segmentRegistry.refresh();
+                } catch (RuntimeException e) {
+                    // The periodic refresh retries
+                    logger.warn("Failed to reload segments after a change", e);
+                }
+            }
+        });
+    }
+    
+    private SegmentDTO toDTO(UserSegment segment) {
+        SegmentDTO dto = new SegmentDTO();
+        dto.setId(segment.getId());
+        dto.setSegmentKey(segment.getSegmentKey());
+        dto.setName(segment.getName());
+        dto.setDescription(segment.getDescription());
+        dto.setEnvironment(segment.getEnvironment());
+        dto.setMemberCount(segment.getMemberCount());
+        dto.setCreatedBy(segment.getCreatedBy());
+        dto.setCreatedAt(segment.getCreatedAt());
+        dto.setUpdatedBy(segment.getUpdatedBy());
+        dto.setUpdatedAt(segment.getUpdatedAt());
+        dto.setVersion(segment.getVersion());
+        return dto;
+    }
+    
+    /**
+     * Audited fields of a segment; members are represented by their count only.
+     */
+    private Map<String, Object> auditState(UserSegment segment) {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("segmentKey", segment.getSegmentKey());
+        state.put("name", segment.getName());
+        state.put("description", segment.getDescription());
+        state.put("environment", segment.getEnvironment());
+        state.put("memberCount", segment.getMemberCount());
+        return state;
+    }
+}
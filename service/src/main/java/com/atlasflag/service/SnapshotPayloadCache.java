@@ -0,0 +1,165 @@
+package com.atlasflag.service;
+
+import com.atlasflag.core.FlagRule;
+import com.atlasflag.core.FlagSnapshot;
+import com.atlasflag.core.Targeting;
+import com.atlasflag.core.Variant;
+import com.atlasflag.domain.FlagPrerequisite;
+import com.atlasflag.domain.FlagVariant;
+import com.atlasflag.domain.TargetingClause;
+import com.atlasflag.domain.TargetingRule;
+import com.atlasflag.dto.EnvironmentSnapshotDTO;
+import com.atlasflag.dto.FlagRuleDTO;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized environment snapshots for SDK polling.
+ *
+ * The JSON body and its gzip encoding are built once per snapshot version and
+ * served as-is until the environment changes, so an unchanged environment costs
+ * no serialization or compression per request.
+ */
+@Service
+public class SnapshotPayloadCache {
+    
+    // Parses variant values back from the JSON text the compiled rules hold
+    private static final ObjectMapper VALUE_PARSER = new ObjectMapper();
+    
+    private final FlagSnapshotRegistry snapshotRegistry;
+    private final ObjectMapper objectMapper;
+    private final Map<String, Payload> payloads = new ConcurrentHashMap<>();
+    
+    public SnapshotPayloadCache(FlagSnapshotRegistry snapshotRegistry, ObjectMapper objectMapper) {
+        this.snapshotRegistry = snapshotRegistry;
+        this.objectMapper = objectMapper;
+    }
+    
+    public Payload getPayload(String environment) {
+        FlagSnapshot snapshot = snapshotRegistry.getSnapshot(environment);
+        Payload payload = payloads.get(environment);
+        if (payload != null && payload.version() == snapshot.getVersion()) {
+            return payload;
+        }
+        
+        // Racing builders of one version produce identical bytes, so last write wins harmlessly
+        payload = buildPayload(environment, snapshot);
+        payloads.put(environment, payload);
+        return payload;
+    }
+    
+    private Payload buildPayload(String environment, FlagSnapshot snapshot) {
+        List<FlagRuleDTO> flags = new ArrayList<>(snapshot.size());
+        for (FlagRule rule : snapshot.rules()) {
+            flags.add(toRuleDTO(rule));
+        }
+        EnvironmentSnapshotDTO dto = new EnvironmentSnapshotDTO();
+        dto.setEnvironment(environment);
+        dto.setFlags(flags);
+        dto.setVersion(snapshot.getVersion());
+        
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(dto);
+            // Weak tag: the identity and gzip encodings share it
+            return new Payload(snapshot.getVersion(), "W/\"" + Long.toHexString(snapshot.getVersion()) + "\"",
+                json, gzip(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize snapshot of environment '" + environment + "'", e);
+        }
+    }
+    
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (GZIPOutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+    
+    static FlagRuleDTO toRuleDTO(FlagRule rule) {
+        FlagRuleDTO dto = new FlagRuleDTO();
+        dto.setFlagKey(rule.getFlagKey());
+        dto.setEnabled(rule.isEnabled());
+        dto.setDefaultValue(rule.getDefaultValue());
+        dto.setRolloutPercentage(rule.getRolloutPercentage());
+        dto.setTargetingRules(toTargetingRules(rule.getTargeting()));
+        dto.setVariants(toFlagVariants(rule.getVariants()));
+        dto.setPrerequisites(toFlagPrerequisites(rule.getPrerequisites()));
+        dto.setVersion(rule.getVersion());
+        return dto;
+    }
+    
+    private static List<FlagPrerequisite> toFlagPrerequisites(List<FlagRule.Prerequisite> prerequisites) {
+        List<FlagPrerequisite> converted = new ArrayList<>(prerequisites.size());
+        for (FlagRule.Prerequisite prerequisite : prerequisites) {
+            converted.add(new FlagPrerequisite(prerequisite.getFlagKey(), prerequisite.getValue()));
+        }
+        return converted;
+    }
+    
+    private static List<FlagVariant> toFlagVariants(List<Variant> variants) {
+        List<FlagVariant> converted = new ArrayList<>(variants.size());
+        for (Variant variant : variants) {
+            try {
+                converted.add(new FlagVariant(variant.getKey(), VALUE_PARSER.readTree(variant.getValue()),
+                    variant.getWeight()));
+            } catch (JsonProcessingException e) {
+                // Values come from parsed JSON, so this cannot happen short of a bug
+                throw new IllegalStateException("Invalid value of variant '" + variant.getKey() + "'", e);
+            }
+        }
+        return converted;
+    }
+    
+    private static List<TargetingRule> toTargetingRules(Targeting targeting) {
+        List<TargetingRule> rules = new ArrayList<>(targeting.rules().size());
+        for (Targeting.Rule rule : targeting.rules()) {
+            List<TargetingClause> clauses = new ArrayList<>(rule.getClauses().size());
+            for (Targeting.Clause clause : rule.getClauses()) {
+                clauses.add(new TargetingClause(clause.getAttribute(), clause.getOperator(), clause.getValues(),
+                    clause.isNegate()));
+            }
+            rules.add(new TargetingRule(rule.getId(), clauses, rule.getValue()));
+        }
+        return rules;
+    }
+    
+    /**
+     * Serialized snapshot of one version; the arrays are shared and must not be modified.
+     *
+     * @param etag weak entity tag derived from the change sequence, equal on every node
+     */
+    public record Payload(long version, String etag, byte[] json, byte[] gzip) {
+        
+        /**
+         * @param ifNoneMatch value of an If-None-Match request header, may be null
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(etag.substring(2))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,3 @@
+-- Variants of multivariate flags: [{"key", "value": <any JSON>, "weight": <percent>}], weights adding up to 100.
+-- Empty for boolean flags.
+ALTER TABLE feature_flags ADD COLUMN variants JSONB NOT NULL DEFAULT '[]';
@@ -0,0 +1,3 @@
+-- Prerequisites of a flag: [{"flagKey", "value": <boolean>}], flags of the same environment
+-- that must evaluate to the given values for it to apply. The service keeps the graph acyclic.
+ALTER TABLE feature_flags ADD COLUMN prerequisites JSONB NOT NULL DEFAULT '[]';
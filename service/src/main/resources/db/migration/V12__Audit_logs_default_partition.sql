@@ -0,0 +1,5 @@
+-- Catches audit entries of a month whose partition is missing, e.g. after partition
+-- maintenance failed for longer than partitions are created ahead. Without it such
+-- inserts fail and the entries are lost. AuditPartitionManager moves these rows into
+-- the month's partition once it creates it, with a warning.
+CREATE TABLE audit_logs_default PARTITION OF audit_logs DEFAULT;
@@ -0,0 +1,20 @@
+-- Last change sequence handed out per environment; the row is locked by each writer
+-- until commit, so sequences become visible in order
+CREATE TABLE environment_sequences (
+    environment VARCHAR(100) PRIMARY KEY,
+    last_sequence BIGINT NOT NULL
+);
+
+-- Every committed flag write, replayed by SDKs to sync incrementally
+CREATE TABLE flag_changes (
+    id BIGSERIAL PRIMARY KEY,
+    environment VARCHAR(100) NOT NULL,
+    sequence BIGINT NOT NULL,
+    flag_key VARCHAR(255) NOT NULL,
+    change_type VARCHAR(20) NOT NULL,
+    flag_state TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE(environment, sequence)
+);
+
+CREATE INDEX idx_flag_changes_created_at ON flag_changes(created_at);
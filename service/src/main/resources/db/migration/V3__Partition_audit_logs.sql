@@ -0,0 +1,53 @@
+-- Range-partition audit_logs by month, so time-ranged queries only scan the matching
+-- partitions and retention drops whole partitions instead of deleting rows.
+-- AuditPartitionManager keeps future partitions created and expired ones removed.
+
+ALTER TABLE audit_logs RENAME TO audit_logs_legacy;
+ALTER TABLE audit_logs_legacy RENAME CONSTRAINT audit_logs_pkey TO audit_logs_legacy_pkey;
+DROP INDEX idx_entity_type;
+DROP INDEX idx_user;
+DROP INDEX idx_timestamp;
+
+-- The partition key must be part of the primary key
+CREATE TABLE audit_logs (
+    id BIGINT NOT NULL DEFAULT nextval('audit_logs_id_seq'),
+    entity_type VARCHAR(100) NOT NULL,
+    entity_id BIGINT,
+    action VARCHAR(50) NOT NULL,
+    user_id VARCHAR(255) NOT NULL,
+    user_email VARCHAR(255),
+    changes TEXT,
+    timestamp TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    ip_address VARCHAR(45),
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+ALTER SEQUENCE audit_logs_id_seq OWNED BY audit_logs.id;
+
+CREATE INDEX idx_entity_type ON audit_logs(entity_type, entity_id);
+CREATE INDEX idx_user ON audit_logs(user_id);
+CREATE INDEX idx_timestamp ON audit_logs(timestamp);
+
+-- One partition per month from the oldest existing entry until three months ahead
+DO $$
+DECLARE
+    month_start DATE;
+    last_month DATE := date_trunc('month', CURRENT_DATE + INTERVAL '3 months')::DATE;
+BEGIN
+    SELECT COALESCE(date_trunc('month', MIN(timestamp))::DATE, date_trunc('month', CURRENT_DATE)::DATE)
+    INTO month_start
+    FROM audit_logs_legacy;
+
+    WHILE month_start <= last_month LOOP
+        EXECUTE format(
+            'CREATE TABLE audit_logs_p%s PARTITION OF audit_logs FOR VALUES FROM (%L) TO (%L)',
+            to_char(month_start, 'YYYYMM'), month_start, (month_start + INTERVAL '1 month')::DATE);
+        month_start := (month_start + INTERVAL '1 month')::DATE;
+    END LOOP;
+END $$;
+
+INSERT INTO audit_logs (id, entity_type, entity_id, action, user_id, user_email, changes, timestamp, ip_address)
+SELECT id, entity_type, entity_id, action, user_id, user_email, changes, timestamp, ip_address
+FROM audit_logs_legacy;
+
+DROP TABLE audit_logs_legacy;
@@ -0,0 +1,7 @@
+-- Keyset pagination walks (timestamp, id) newest first within an entity or user;
+-- these indexes serve both the filter and the order, and replace the narrower ones
+DROP INDEX idx_entity_type;
+DROP INDEX idx_user;
+
+CREATE INDEX idx_audit_entity_keyset ON audit_logs(entity_type, entity_id, timestamp DESC, id DESC);
+CREATE INDEX idx_audit_user_keyset ON audit_logs(user_id, timestamp DESC, id DESC);
@@ -0,0 +1,15 @@
+-- Audit changes become JSONB field-level diffs: {"field": {"old": ..., "new": ...}}.
+-- Existing rows keep their {"old": <entity>, "new": <entity>} content; anything that
+-- is not valid JSON is preserved as a JSON string.
+CREATE FUNCTION pg_temp.try_jsonb(value TEXT) RETURNS JSONB AS $$
+BEGIN
+    RETURN value::JSONB;
+EXCEPTION WHEN others THEN
+    RETURN to_jsonb(value);
+END;
+$$ LANGUAGE plpgsql;
+
+ALTER TABLE audit_logs ALTER COLUMN changes TYPE JSONB USING pg_temp.try_jsonb(changes);
+
+-- Default jsonb_ops, which supports the key-exists operator used for field queries
+CREATE INDEX idx_audit_changes ON audit_logs USING GIN (changes);
@@ -0,0 +1,12 @@
+-- Periodic snapshots of every flag per environment, as reconstructed from the audit trail:
+-- {"<flag id>": {"flagKey": ..., "enabled": ..., ...}}. Point-in-time queries start from the
+-- newest checkpoint before the requested instant and replay only the audit entries after it.
+CREATE TABLE flag_state_checkpoints (
+    id BIGSERIAL PRIMARY KEY,
+    environment VARCHAR(100) NOT NULL,
+    taken_at TIMESTAMP NOT NULL,
+    state JSONB NOT NULL,
+    UNIQUE(environment, taken_at)
+);
+
+CREATE INDEX idx_flag_state_checkpoints_taken_at ON flag_state_checkpoints(taken_at);
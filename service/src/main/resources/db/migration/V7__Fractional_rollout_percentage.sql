@@ -0,0 +1,2 @@
+-- Rollouts are bucketed in steps of 0.01%, so percentages take two decimals
+ALTER TABLE feature_flags ALTER COLUMN rollout_percentage TYPE NUMERIC(5,2);
@@ -0,0 +1,2 @@
+-- Ordered targeting rules per flag: [{"id", "clauses": [{"attribute", "operator", "values", "negate"}], "value"}]
+ALTER TABLE feature_flags ADD COLUMN targeting_rules JSONB NOT NULL DEFAULT '[]';
@@ -0,0 +1,24 @@
+-- Named user sets that targeting clauses reference by key (operator IN_SEGMENT)
+CREATE TABLE segments (
+    id BIGSERIAL PRIMARY KEY,
+    segment_key VARCHAR(255) NOT NULL,
+    name VARCHAR(255) NOT NULL,
+    description TEXT,
+    environment VARCHAR(100) NOT NULL DEFAULT 'default',
+    member_count INTEGER NOT NULL DEFAULT 0,
+    created_by VARCHAR(255) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_by VARCHAR(255),
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    version BIGINT NOT NULL DEFAULT 0,
+    UNIQUE(segment_key, environment)
+);
+
+-- Members of a segment as one value: the sorted 64-bit hashes of their user IDs, big-endian,
+-- 8 bytes per member. Kept apart from segments so listing segments never reads it.
+CREATE TABLE segment_members (
+    segment_id BIGINT PRIMARY KEY REFERENCES segments(id) ON DELETE CASCADE,
+    hashes BYTEA NOT NULL
+);
+
+CREATE INDEX idx_segments_environment ON segments(environment);
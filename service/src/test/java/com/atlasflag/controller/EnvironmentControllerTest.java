@@ -0,0 +1,77 @@
+package com.atlasflag.controller;
+
+import com.atlasflag.dto.FlagChangesDTO;
+import com.atlasflag.service.FeatureFlagService;
+import com.atlasflag.service.FlagChangeLog;
+import com.atlasflag.service.FlagHistoryService;
+import com.atlasflag.service.FlagStreamService;
+import com.atlasflag.service.SegmentRegistry;
+import com.atlasflag.service.SnapshotPayloadCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EnvironmentControllerTest {
+    
+    private final FlagChangeLog flagChangeLog = mock(FlagChangeLog.class);
+    private final EnvironmentController controller = new EnvironmentController(mock(FeatureFlagService.class),
+        mock(FlagStreamService.class), mock(SnapshotPayloadCache.class), flagChangeLog,
+        mock(FlagHistoryService.class), mock(SegmentRegistry.class));
+    
+    @Test
+    void getChangesReturnsTheLogFromSince() {
+        FlagChangesDTO changes = new FlagChangesDTO();
+        when(flagChangeLog.getChangesSince("prod", 12)).thenReturn(changes);
+        
+        ResponseEntity<FlagChangesDTO> response = controller.getChanges("prod", 12);
+        
+        assertTrue(response.getStatusCode().is2xxSuccessful());
+        assertSame(changes, response.getBody());
+    }
+    
+    @Test
+    void getChangesRejectsNegativeSince() {
+        assertThrows(IllegalArgumentException.class, () -> controller.getChanges("prod", -1));
+        verify(flagChangeLog, never()).getChangesSince(anyString(), anyLong());
+    }
+    
+    @Test
+    void acceptsGzipWhenListed() {
+        assertTrue(EnvironmentController.acceptsGzip("gzip"));
+        assertTrue(EnvironmentController.acceptsGzip("br, gzip, deflate"));
+        assertTrue(EnvironmentController.acceptsGzip("GZIP; Q=0.5"));
+        assertTrue(EnvironmentController.acceptsGzip("x-gzip"));
+    }
+    
+    @Test
+    void rejectsGzipWithZeroQuality() {
+        assertFalse(EnvironmentController.acceptsGzip("gzip;q=0"));
+        assertFalse(EnvironmentController.acceptsGzip("br, gzip;q=0.0"));
+        assertFalse(EnvironmentController.acceptsGzip("gzip;q=0, *"));
+    }
+    
+    @Test
+    void fallsBackToWildcard() {
+        assertTrue(EnvironmentController.acceptsGzip("*"));
+        assertTrue(EnvironmentController.acceptsGzip("deflate, *;q=0.1"));
+        assertFalse(EnvironmentController.acceptsGzip("*;q=0"));
+    }
+    
+    @Test
+    void rejectsMissingOrOtherCodings() {
+        assertFalse(EnvironmentController.acceptsGzip(null));
+        assertFalse(EnvironmentController.acceptsGzip(""));
+        assertFalse(EnvironmentController.acceptsGzip("identity"));
+        assertFalse(EnvironmentController.acceptsGzip("br, deflate"));
+    }
+}
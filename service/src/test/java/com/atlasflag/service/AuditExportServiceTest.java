@@ -0,0 +1,132 @@
+package com.atlasflag.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuditExportServiceTest {
+    
+    private static final Instant FROM = Instant.parse("2026-01-01T00:00:00Z");
+    private static final Instant TO = Instant.parse("2026-02-01T00:00:00Z");
+    
+    private final Connection connection = mock(Connection.class);
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+    private final ResultSet resultSet = mock(ResultSet.class);
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    private AuditExportService exportService;
+    
+    @BeforeEach
+    void setUp() throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        
+        when(resultSet.getString("entity_type")).thenReturn("FeatureFlag");
+        when(resultSet.getLong("entity_id")).thenReturn(42L);
+        when(resultSet.getString("user_id")).thenReturn("alice");
+        when(resultSet.getString("changes")).thenReturn("{\"enabled\":{\"old\":false,\"new\":true}}");
+        when(resultSet.getTimestamp("timestamp")).thenReturn(Timestamp.from(FROM.plusSeconds(60)));
+        
+        exportService = new AuditExportService(dataSource, mock(PlatformTransactionManager.class), objectMapper);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        exportService.shutdown();
+    }
+    
+    @Test
+    void writesOneJsonObjectPerLine() throws Exception {
+        when(resultSet.next()).thenReturn(true, true, true, false);
+        when(resultSet.getLong("id")).thenReturn(1L, 2L, 3L);
+        when(resultSet.getString("action")).thenReturn("CREATE", "ENABLE", "DELETE");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        
+        exportService.export(FROM, TO, null, null, out);
+        
+        String ndjson = out.toString(StandardCharsets.UTF_8);
+        assertTrue(ndjson.endsWith("\n"));
+        String[] lines = ndjson.split("\n", -1);
+        assertEquals(4, lines.length);
+        assertEquals("", lines[3]);
+        String[] actions = {"CREATE", "ENABLE", "DELETE"};
+        for (int i = 0; i < 3; i++) {
+            assertFalse(lines[i].contains("\n"));
+            JsonNode entry = objectMapper.readTree(lines[i]);
+            assertEquals(i + 1, entry.get("id").asLong());
+            assertEquals(actions[i], entry.get("action").asText());
+            assertEquals(42, entry.get("entityId").asLong());
+            assertEquals(FROM.plusSeconds(60).toString(), entry.get("timestamp").asText());
+        }
+        verify(statement).setTimestamp(1, Timestamp.from(FROM));
+        verify(statement).setTimestamp(2, Timestamp.from(TO));
+    }
+    
+    @Test
+    void writesNothingForAnEmptyRange() throws SQLException {
+        when(resultSet.next()).thenReturn(false);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        
+        exportService.export(FROM, TO, "FeatureFlag", "alice", out);
+        
+        assertEquals(0, out.size());
+        verify(connection).prepareStatement("SELECT id, entity_type, entity_id, action, user_id, user_email, " +
+            "changes, timestamp, ip_address FROM audit_logs WHERE timestamp >= ? AND timestamp < ? " +
+            "AND entity_type = ? AND user_id = ? ORDER BY timestamp, id");
+    }
+    
+    @Test
+    void clientDisconnectEndsTheQuery() throws Exception {
+        // An export with no end, which only the failing client can stop
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getLong("id")).thenReturn(1L);
+        when(resultSet.getString("action")).thenReturn("UPDATE");
+        OutputStream disconnected = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        
+        UncheckedIOException e = assertThrows(UncheckedIOException.class,
+            () -> exportService.export(FROM, TO, null, null, disconnected));
+        
+        assertEquals("Broken pipe", e.getCause().getMessage());
+        // Stopped after the first buffer of output, and the cursor released
+        verify(resultSet, atMost(1000)).next();
+        verify(resultSet, atLeastOnce()).close();
+        verify(statement, atLeastOnce()).close();
+        verify(connection, atLeastOnce()).close();
+    }
+}
@@ -0,0 +1,167 @@
+package com.atlasflag.service;
+
+import com.atlasflag.domain.AuditLog;
+import com.atlasflag.domain.FieldChange;
+import com.atlasflag.repository.AuditLogRepository;
+import com.atlasflag.repository.AuditLogRowMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AuditServiceTest {
+    
+    private final AuditWriter auditWriter = mock(AuditWriter.class);
+    private String querySql;
+    private Object[] queryArgs;
+    private final List<AuditLog> queryResult = List.of(new AuditLog());
+    private final AuditService auditService = new AuditService(mock(AuditLogRepository.class), auditWriter,
+        new JdbcTemplate() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+                assertSame(AuditLogRowMapper.INSTANCE, rowMapper);
+                querySql = sql;
+                queryArgs = args;
+                return (List<T>) queryResult;
+            }
+        });
+    
+    @Test
+    void recordsOnlyChangedFields() {
+        Map<String, Object> before = new LinkedHashMap<>();
+        before.put("enabled", false);
+        before.put("rolloutPercentage", new BigDecimal("10"));
+        before.put("description", "Checkout");
+        before.put("owner", "alice");
+        Map<String, Object> after = new LinkedHashMap<>();
+        after.put("enabled", true);
+        after.put("rolloutPercentage", new BigDecimal("10"));
+        after.put("description", null);
+        after.put("tags", List.of("web"));
+        
+        auditService.logAction("FeatureFlag", 42L, "UPDATE", "bob", before, after);
+        
+        Map<String, FieldChange> changes = submitted().getFieldChanges();
+        assertEquals(Map.of(
+            "enabled", new FieldChange(false, true),
+            "description", new FieldChange("Checkout", null),
+            "tags", new FieldChange(null, List.of("web")),
+            "owner", new FieldChange("alice", null)), changes);
+    }
+    
+    @Test
+    void creationRecordsNonNullFields() {
+        Map<String, Object> after = new HashMap<>();
+        after.put("enabled", true);
+        after.put("description", null);
+        
+        auditService.logAction("FeatureFlag", 42L, "CREATE", "bob", null, after);
+        
+        assertEquals(Map.of("enabled", new FieldChange(null, true)), submitted().getFieldChanges());
+    }
+    
+    @Test
+    void deletionRecordsNonNullFields() {
+        Map<String, Object> before = new HashMap<>();
+        before.put("enabled", true);
+        before.put("description", null);
+        
+        auditService.logAction("FeatureFlag", 42L, "DELETE", "bob", before, null);
+        
+        AuditLog entry = submitted();
+        assertEquals(Map.of("enabled", new FieldChange(true, null)), entry.getFieldChanges());
+        assertEquals("FeatureFlag", entry.getEntityType());
+        assertEquals(42L, entry.getEntityId());
+        assertEquals("DELETE", entry.getAction());
+        assertEquals("bob", entry.getUserId());
+        assertNull(entry.getChanges());
+    }
+    
+    @Test
+    void unchangedEntityRecordsAnEmptyDiff() {
+        Map<String, Object> state = Map.of("enabled", true);
+        
+        auditService.logAction("FeatureFlag", 42L, "UPDATE", "bob", state, Map.of("enabled", true));
+        
+        assertTrue(submitted().getFieldChanges().isEmpty());
+    }
+    
+    @Test
+    void readsTheClientAddressFromTheRequest() {
+        HttpServletRequest proxied = mock(HttpServletRequest.class);
+        when(proxied.getHeader("X-Forwarded-For")).thenReturn("203.0.113.7, 10.0.0.1");
+        HttpServletRequest direct = mock(HttpServletRequest.class);
+        when(direct.getRemoteAddr()).thenReturn("198.51.100.2");
+        
+        auditService.logAction("FeatureFlag", 42L, "UPDATE", "bob", null, Map.of(), proxied);
+        assertEquals("203.0.113.7", submitted().getIpAddress());
+        
+        auditService.logAction("FeatureFlag", 42L, "UPDATE", "bob", null, Map.of(), direct);
+        ArgumentCaptor<AuditLog> entries = ArgumentCaptor.forClass(AuditLog.class);
+        verify(auditWriter, times(2)).submit(entries.capture());
+        assertEquals("198.51.100.2", entries.getAllValues().get(1).getIpAddress());
+    }
+    
+    @Test
+    void auditsOnlyOnceTheTransactionCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            auditService.logAction("FeatureFlag", 42L, "UPDATE", "bob", null, Map.of("enabled", true));
+            verify(auditWriter, never()).submit(any());
+            
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+            verify(auditWriter).submit(any(AuditLog.class));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+    
+    @Test
+    void findFieldChangesFiltersByKeyAndEntity() {
+        List<AuditLog> result = auditService.findFieldChanges("rolloutPercentage", "FeatureFlag", 42L, 20);
+        
+        assertSame(queryResult, result);
+        assertEquals("SELECT " + AuditLogRowMapper.COLUMNS + " FROM audit_logs WHERE changes ?? ? " +
+            "AND entity_type = ? AND entity_id = ? ORDER BY timestamp DESC, id DESC LIMIT ?", querySql);
+        assertArrayEquals(new Object[] {"rolloutPercentage", "FeatureFlag", 42L, 20}, queryArgs);
+    }
+    
+    @Test
+    void findFieldChangesWithoutEntityFilters() {
+        auditService.findFieldChanges("enabled", null, null, 5);
+        
+        assertEquals("SELECT " + AuditLogRowMapper.COLUMNS + " FROM audit_logs WHERE changes ?? ? " +
+            "ORDER BY timestamp DESC, id DESC LIMIT ?", querySql);
+        assertArrayEquals(new Object[] {"enabled", 5}, queryArgs);
+    }
+    
+    private AuditLog submitted() {
+        ArgumentCaptor<AuditLog> entry = ArgumentCaptor.forClass(AuditLog.class);
+        verify(auditWriter).submit(entry.capture());
+        return entry.getValue();
+    }
+}
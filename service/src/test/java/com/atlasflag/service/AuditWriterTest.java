@@ -0,0 +1,252 @@
+package com.atlasflag.service;
+
+import com.atlasflag.domain.AuditLog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class AuditWriterTest {
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FakeJdbcTemplate jdbcTemplate = new FakeJdbcTemplate();
+    private AuditWriter writer;
+    
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.gate.countDown();
+        writer.shutdown();
+    }
+    
+    @Test
+    void blockPolicyWaitsForRoomThenDrops() throws Exception {
+        writer = writer(1, "block", 100);
+        jdbcTemplate.holdBatches();
+        assertTrue(writer.submit(entry("first")));
+        assertTrue(jdbcTemplate.entered.await(5, TimeUnit.SECONDS));
+        assertTrue(writer.submit(entry("queued")));
+        
+        long started = System.nanoTime();
+        assertFalse(writer.submit(entry("overflow")));
+        
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) >= 90);
+        assertEquals(1.0, counter("atlasflag.audit.dropped"));
+        jdbcTemplate.gate.countDown();
+        writer.shutdown();
+        assertEquals(List.of("first", "queued"), jdbcTemplate.written);
+    }
+    
+    @Test
+    void blockPolicyAcceptsOnceTheWriterCatchesUp() throws Exception {
+        writer = writer(1, "block", 5000);
+        jdbcTemplate.holdBatches();
+        writer.submit(entry("first"));
+        assertTrue(jdbcTemplate.entered.await(5, TimeUnit.SECONDS));
+        writer.submit(entry("queued"));
+        
+        new Thread(() -> {
+            sleep(50);
+            jdbcTemplate.gate.countDown();
+        }).start();
+        
+        assertTrue(writer.submit(entry("waited")));
+        writer.shutdown();
+        assertEquals(List.of("first", "queued", "waited"), jdbcTemplate.written);
+        assertEquals(0.0, counter("atlasflag.audit.dropped"));
+    }
+    
+    @Test
+    void dropPolicyDropsImmediately() throws Exception {
+        writer = writer(1, "drop", 5000);
+        jdbcTemplate.holdBatches();
+        writer.submit(entry("first"));
+        assertTrue(jdbcTemplate.entered.await(5, TimeUnit.SECONDS));
+        assertTrue(writer.submit(entry("queued")));
+        
+        long started = System.nanoTime();
+        assertFalse(writer.submit(entry("overflow")));
+        
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 1000);
+        assertEquals(1.0, counter("atlasflag.audit.dropped"));
+    }
+    
+    @Test
+    void retriesATransientBatchFailure() {
+        writer = writer(100, "block", 1000);
+        jdbcTemplate.transientFailures.set(2);
+        
+        writer.submit(entry("a"));
+        writer.shutdown();
+        
+        assertEquals(List.of("a"), jdbcTemplate.written);
+        assertEquals(3, jdbcTemplate.batchAttempts.get());
+        assertEquals(0, jdbcTemplate.rowWrites.get());
+        assertEquals(1.0, counter("atlasflag.audit.written"));
+        assertEquals(0.0, counter("atlasflag.audit.failed"));
+    }
+    
+    @Test
+    void failedBatchFallsBackToRowsAndLosesOnlyTheBadEntry() {
+        writer = writer(100, "block", 1000);
+        jdbcTemplate.holdBatches();
+        writer.submit(entry("first"));
+        jdbcTemplate.bad = "bad";
+        writer.submit(entry("good"));
+        writer.submit(entry("bad"));
+        writer.submit(entry("also-good"));
+        jdbcTemplate.gate.countDown();
+        
+        writer.shutdown();
+        
+        assertEquals(List.of("first", "good", "also-good"), jdbcTemplate.written);
+        assertEquals(3.0, counter("atlasflag.audit.written"));
+        assertEquals(1.0, counter("atlasflag.audit.failed"));
+    }
+    
+    @Test
+    void persistentBatchFailureIsRetriedThenWrittenRowByRow() {
+        writer = writer(100, "block", 1000);
+        jdbcTemplate.transientFailures.set(Integer.MAX_VALUE);
+        
+        writer.submit(entry("a"));
+        writer.shutdown();
+        
+        assertEquals(3, jdbcTemplate.batchAttempts.get());
+        assertEquals(List.of("a"), jdbcTemplate.written);
+        assertEquals(0.0, counter("atlasflag.audit.failed"));
+    }
+    
+    @Test
+    void shutdownFlushesPendingEntries() throws Exception {
+        writer = writer(100, "block", 1000);
+        jdbcTemplate.holdBatches();
+        writer.submit(entry("first"));
+        assertTrue(jdbcTemplate.entered.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 5; i++) {
+            writer.submit(entry("pending-" + i));
+        }
+        jdbcTemplate.gate.countDown();
+        
+        writer.shutdown();
+        
+        assertEquals(6, jdbcTemplate.written.size());
+        assertEquals("pending-4", jdbcTemplate.written.get(5));
+        assertFalse(writer.submit(entry("late")));
+    }
+    
+    private AuditWriter writer(int queueCapacity, String overflowPolicy, long offerTimeoutMillis) {
+        return new AuditWriter(jdbcTemplate, new ObjectMapper(), meterRegistry,
+            queueCapacity, 500, 10, overflowPolicy, offerTimeoutMillis);
+    }
+    
+    private double counter(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+    
+    private static AuditLog entry(String action) {
+        AuditLog entry = new AuditLog();
+        entry.setEntityType("FeatureFlag");
+        entry.setEntityId(1L);
+        entry.setAction(action);
+        entry.setUserId("alice");
+        entry.setTimestamp(Instant.parse("2026-01-01T00:00:00Z"));
+        return entry;
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Records inserted entries by action, rejecting batches that contain {@link #bad}.
+     */
+    private static class FakeJdbcTemplate extends JdbcTemplate {
+        
+        final List<String> written = new CopyOnWriteArrayList<>();
+        final AtomicInteger batchAttempts = new AtomicInteger();
+        final AtomicInteger rowWrites = new AtomicInteger();
+        final AtomicInteger transientFailures = new AtomicInteger();
+        final CountDownLatch entered = new CountDownLatch(1);
+        volatile CountDownLatch gate = new CountDownLatch(0);
+        volatile String bad;
+        
+        void holdBatches() {
+            gate = new CountDownLatch(1);
+        }
+        
+        @Override
+        public <T> int[][] batchUpdate(String sql, Collection<T> batchArgs, int batchSize,
+                                       ParameterizedPreparedStatementSetter<T> pss) {
+            entered.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            batchAttempts.incrementAndGet();
+            if (transientFailures.getAndDecrement() > 0) {
+                throw new TransientDataAccessResourceException("connection reset");
+            }
+            for (T arg : batchArgs) {
+                if (((AuditLog) arg).getAction().equals(bad)) {
+                    throw new DataIntegrityViolationException("bad row");
+                }
+            }
+            for (T arg : batchArgs) {
+                written.add(((AuditLog) arg).getAction());
+            }
+            return new int[][] {new int[batchArgs.size()]};
+        }
+        
+        @Override
+        public int update(String sql, PreparedStatementSetter pss) {
+            rowWrites.incrementAndGet();
+            PreparedStatement ps = mock(PreparedStatement.class);
+            try {
+                pss.setValues(ps);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            // The setter binds the action as parameter 3
+            ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+            try {
+                verify(ps).setString(eq(3), captor.capture());
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+            String action = captor.getValue();
+            if (action.equals(bad)) {
+                throw new DataIntegrityViolationException("bad row");
+            }
+            written.add(action);
+            return 1;
+        }
+    }
+}
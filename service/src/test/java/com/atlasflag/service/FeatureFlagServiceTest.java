@@ -0,0 +1,180 @@
+package com.atlasflag.service;
+
+import com.atlasflag.core.EvaluationReason;
+import com.atlasflag.core.FlagRule;
+import com.atlasflag.core.FlagSnapshot;
+import com.atlasflag.domain.FeatureFlag;
+import com.atlasflag.domain.FlagPrerequisite;
+import com.atlasflag.dto.BatchEvaluationRequest;
+import com.atlasflag.dto.BatchEvaluationResponse;
+import com.atlasflag.dto.FeatureFlagDTO;
+import com.atlasflag.dto.FlagEvaluationResponse;
+import com.atlasflag.repository.FeatureFlagRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FeatureFlagServiceTest {
+    
+    private final FeatureFlagRepository flagRepository = mock(FeatureFlagRepository.class);
+    private final FlagChangeLog flagChangeLog = mock(FlagChangeLog.class);
+    private final FlagSnapshotRegistry snapshotRegistry = mock(FlagSnapshotRegistry.class);
+    private FeatureFlagService flagService;
+    private final List<FeatureFlag> flags = new ArrayList<>();
+    
+    @BeforeEach
+    void setUp() {
+        flagService = new FeatureFlagService(flagRepository, snapshotRegistry, flagChangeLog,
+            mock(AuditService.class), mock(ApplicationEventPublisher.class));
+        when(flagRepository.findByEnvironment("prod")).thenReturn(flags);
+        
+        // checkout -> payments -> billing
+        flags.add(flag(1L, "checkout", new FlagPrerequisite("payments", true)));
+        flags.add(flag(2L, "payments", new FlagPrerequisite("billing", true)));
+        flags.add(flag(3L, "billing"));
+        for (FeatureFlag flag : flags) {
+            when(flagRepository.findById(flag.getId())).thenReturn(Optional.of(flag));
+        }
+    }
+    
+    @Test
+    void updateClosingACycleIsRejected() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> flagService.updateFlag(3L, update(new FlagPrerequisite("checkout", false)), "alice"));
+        
+        assertEquals("Prerequisites would form a cycle: billing -> checkout -> payments -> billing", e.getMessage());
+        verify(flagRepository, never()).saveAndFlush(any());
+        verify(flagChangeLog, never()).record(any());
+    }
+    
+    @Test
+    void createWithAPrerequisiteOnItselfIsRejected() {
+        FeatureFlagDTO dto = update(new FlagPrerequisite("search", true));
+        dto.setFlagKey("search");
+        dto.setEnvironment("prod");
+        
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> flagService.createFlag(dto, "alice"));
+        
+        assertEquals("A flag cannot be its own prerequisite", e.getMessage());
+        verify(flagRepository, never()).saveAndFlush(any());
+    }
+    
+    @Test
+    void missingPrerequisiteIsRejected() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> flagService.updateFlag(3L, update(new FlagPrerequisite("deleted", true)), "alice"));
+        
+        assertEquals("Prerequisite flag 'deleted' does not exist in environment 'prod'", e.getMessage());
+    }
+    
+    @Test
+    void graphIsReadOnceTheEnvironmentIsLocked() {
+        flags.add(flag(4L, "audit-log"));
+        when(flagRepository.saveAndFlush(any(FeatureFlag.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        
+        flagService.updateFlag(3L, update(new FlagPrerequisite("audit-log", true)), "alice");
+        
+        // A concurrent write that closes a cycle waits for the lock, then sees this one
+        InOrder inOrder = inOrder(flagChangeLog, flagRepository);
+        inOrder.verify(flagChangeLog).lockEnvironment("prod");
+        inOrder.verify(flagRepository).findByEnvironment("prod");
+        inOrder.verify(flagRepository).saveAndFlush(any(FeatureFlag.class));
+        inOrder.verify(flagChangeLog).record(any());
+        assertEquals(List.of(new FlagPrerequisite("audit-log", true)), flags.get(2).getPrerequisites());
+    }
+    
+    @Test
+    void batchEvaluatesTheRequestedFlags() {
+        when(snapshotRegistry.getSnapshot("prod")).thenReturn(evaluationSnapshot());
+        
+        BatchEvaluationResponse response = flagService.evaluateFlags(
+            batch("prod", List.of("checkout", "search", "missing", "checkout")));
+        
+        assertEquals("prod", response.getEnvironment());
+        assertEquals(List.of("checkout", "search", "missing"), new ArrayList<>(response.getFlags().keySet()));
+        assertResult(response, "checkout", true, EvaluationReason.FLAG_ENABLED);
+        assertResult(response, "search", false, EvaluationReason.FLAG_DISABLED);
+        assertResult(response, "missing", false, EvaluationReason.FLAG_NOT_FOUND);
+    }
+    
+    @Test
+    void batchWithoutKeysEvaluatesTheWholeEnvironment() {
+        when(snapshotRegistry.getSnapshot("prod")).thenReturn(evaluationSnapshot());
+        
+        BatchEvaluationResponse all = flagService.evaluateFlags(batch("prod", null));
+        BatchEvaluationResponse empty = flagService.evaluateFlags(batch("prod", List.of()));
+        
+        assertEquals(Set.of("checkout", "payments", "search"), all.getFlags().keySet());
+        assertEquals(all.getFlags().keySet(), empty.getFlags().keySet());
+        // payments requires search, which is off
+        assertResult(all, "payments", false, EvaluationReason.PREREQUISITE_FAILED);
+        assertResult(all, "checkout", true, EvaluationReason.FLAG_ENABLED);
+    }
+    
+    @Test
+    void batchDefaultsToTheDefaultEnvironment() {
+        when(snapshotRegistry.getSnapshot("default")).thenReturn(evaluationSnapshot());
+        
+        BatchEvaluationResponse response = flagService.evaluateFlags(batch(null, List.of("checkout")));
+        
+        assertEquals("default", response.getEnvironment());
+        assertResult(response, "checkout", true, EvaluationReason.FLAG_ENABLED);
+    }
+    
+    private static FlagSnapshot evaluationSnapshot() {
+        return FlagSnapshot.of(List.of(
+            new FlagRule("checkout", true, false, null, null, List.of(), List.of(), 1),
+            new FlagRule("search", false, false, null, null, List.of(), List.of(), 1),
+            new FlagRule("payments", true, false, null, null, List.of(),
+                List.of(new FlagRule.Prerequisite("search", true)), 1)), 7);
+    }
+    
+    private static BatchEvaluationRequest batch(String environment, List<String> flagKeys) {
+        BatchEvaluationRequest request = new BatchEvaluationRequest();
+        request.setEnvironment(environment);
+        request.setUserId("user-1");
+        request.setFlagKeys(flagKeys);
+        return request;
+    }
+    
+    private static void assertResult(BatchEvaluationResponse response, String flagKey, boolean enabled,
+                                     EvaluationReason reason) {
+        FlagEvaluationResponse result = response.getFlags().get(flagKey);
+        assertEquals(flagKey, result.getFlagKey());
+        assertEquals(enabled, result.getEnabled());
+        assertEquals(reason.name(), result.getReason());
+    }
+    
+    private static FeatureFlagDTO update(FlagPrerequisite... prerequisites) {
+        FeatureFlagDTO dto = new FeatureFlagDTO();
+        dto.setPrerequisites(List.of(prerequisites));
+        return dto;
+    }
+    
+    private static FeatureFlag flag(Long id, String flagKey, FlagPrerequisite... prerequisites) {
+        FeatureFlag flag = new FeatureFlag();
+        flag.setId(id);
+        flag.setFlagKey(flagKey);
+        flag.setEnvironment("prod");
+        flag.setEnabled(true);
+        flag.setDefaultValue(false);
+        flag.setVersion(0L);
+        flag.setPrerequisites(new ArrayList<>(List.of(prerequisites)));
+        return flag;
+    }
+}
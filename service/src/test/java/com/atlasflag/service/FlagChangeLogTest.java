@@ -0,0 +1,146 @@
+package com.atlasflag.service;
+
+import com.atlasflag.core.FlagSnapshot;
+import com.atlasflag.domain.FlagChange;
+import com.atlasflag.dto.FlagChangesDTO;
+import com.atlasflag.dto.FlagRuleDTO;
+import com.atlasflag.event.FlagChangeEvent;
+import com.atlasflag.repository.FlagChangeRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FlagChangeLogTest {
+    
+    private final FlagChangeRepository changeRepository = mock(FlagChangeRepository.class);
+    private final FlagSnapshotRegistry snapshotRegistry = mock(FlagSnapshotRegistry.class);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private FlagChangeLog changeLog;
+    
+    @BeforeEach
+    void setUp() {
+        changeLog = new FlagChangeLog(changeRepository, snapshotRegistry, objectMapper, 7);
+        when(snapshotRegistry.getSnapshot("prod")).thenReturn(FlagSnapshot.of(List.of(), 12));
+    }
+    
+    @Test
+    void upToDateClientIsAnsweredFromMemory() {
+        FlagChangesDTO result = changeLog.getChangesSince("prod", 12);
+        
+        assertEquals(12, result.getVersion());
+        assertTrue(result.getChanges().isEmpty());
+        assertFalse(result.isResync());
+        verify(changeRepository, never())
+            .findByEnvironmentAndSequenceGreaterThanOrderBySequenceAsc(anyString(), anyLong(), any(Pageable.class));
+    }
+    
+    @Test
+    void returnsChangesAfterSinceInOrder() throws Exception {
+        when(changeRepository.findByEnvironmentAndSequenceGreaterThanOrderBySequenceAsc(
+            eq("prod"), eq(10L), any(Pageable.class)))
+            .thenReturn(List.of(change(11, "checkout", "UPDATED", true), change(12, "search", "DELETED", null)));
+        
+        FlagChangesDTO result = changeLog.getChangesSince("prod", 10);
+        
+        assertFalse(result.isResync());
+        assertEquals(12, result.getVersion());
+        assertEquals(2, result.getChanges().size());
+        FlagChangeEvent updated = result.getChanges().get(0);
+        assertEquals(11L, updated.getSequence());
+        assertEquals(FlagChangeEvent.Type.UPDATED, updated.getType());
+        assertEquals("checkout", updated.getFlag().getFlagKey());
+        FlagChangeEvent deleted = result.getChanges().get(1);
+        assertEquals(FlagChangeEvent.Type.DELETED, deleted.getType());
+        assertNull(deleted.getFlag());
+    }
+    
+    @Test
+    void gapBeyondTheRetainedLogRequiresResync() throws Exception {
+        // Sequences 4 to 8 were pruned
+        when(changeRepository.findByEnvironmentAndSequenceGreaterThanOrderBySequenceAsc(
+            eq("prod"), eq(3L), any(Pageable.class)))
+            .thenReturn(List.of(change(9, "checkout", "TOGGLED", false)));
+        
+        FlagChangesDTO result = changeLog.getChangesSince("prod", 3);
+        
+        assertTrue(result.isResync());
+        assertEquals(3, result.getVersion());
+        assertTrue(result.getChanges().isEmpty());
+    }
+    
+    @Test
+    void clientTooFarBehindRequiresResync() throws Exception {
+        List<FlagChange> changes = new ArrayList<>();
+        for (int i = 1; i <= FlagChangeLog.MAX_CHANGES_PER_REQUEST + 1; i++) {
+            changes.add(change(i, "checkout", "TOGGLED", true));
+        }
+        when(snapshotRegistry.getSnapshot("prod"))
+            .thenReturn(FlagSnapshot.of(List.of(), FlagChangeLog.MAX_CHANGES_PER_REQUEST + 1));
+        when(changeRepository.findByEnvironmentAndSequenceGreaterThanOrderBySequenceAsc(
+            eq("prod"), eq(0L), any(Pageable.class)))
+            .thenReturn(changes);
+        
+        assertTrue(changeLog.getChangesSince("prod", 0).isResync());
+    }
+    
+    @Test
+    void clientAheadOfAResetLogRequiresResync() {
+        when(changeRepository.findByEnvironmentAndSequenceGreaterThanOrderBySequenceAsc(
+            eq("prod"), eq(40L), any(Pageable.class)))
+            .thenReturn(List.of());
+        when(changeRepository.findCurrentSequence("prod")).thenReturn(Optional.of(12L));
+        
+        FlagChangesDTO result = changeLog.getChangesSince("prod", 40);
+        
+        assertTrue(result.isResync());
+        assertTrue(result.getChanges().isEmpty());
+    }
+    
+    @Test
+    void nodeBehindTheLogFindsNothingNewWithoutResync() {
+        // Another node committed 13 but this node's snapshot is still at 12
+        when(changeRepository.findByEnvironmentAndSequenceGreaterThanOrderBySequenceAsc(
+            eq("prod"), eq(13L), any(Pageable.class)))
+            .thenReturn(List.of());
+        when(changeRepository.findCurrentSequence("prod")).thenReturn(Optional.of(13L));
+        
+        FlagChangesDTO result = changeLog.getChangesSince("prod", 13);
+        
+        assertFalse(result.isResync());
+        assertEquals(13, result.getVersion());
+    }
+    
+    private FlagChange change(long sequence, String flagKey, String type, Boolean enabled) throws Exception {
+        FlagChange change = new FlagChange();
+        change.setId(sequence);
+        change.setEnvironment("prod");
+        change.setSequence(sequence);
+        change.setFlagKey(flagKey);
+        change.setChangeType(type);
+        if (enabled != null) {
+            FlagRuleDTO flag = new FlagRuleDTO();
+            flag.setFlagKey(flagKey);
+            flag.setEnabled(enabled);
+            change.setFlagState(objectMapper.writeValueAsString(flag));
+        }
+        return change;
+    }
+}
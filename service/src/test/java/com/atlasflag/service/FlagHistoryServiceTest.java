@@ -0,0 +1,111 @@
+package com.atlasflag.service;
+
+import com.atlasflag.domain.AuditLog;
+import com.atlasflag.repository.FlagStateCheckpointRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.sql.DataSource;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class FlagHistoryServiceTest {
+    
+    private static final Instant T0 = Instant.parse("2026-01-01T00:00:00Z");
+    
+    private FlagHistoryService historyService;
+    
+    @BeforeEach
+    void setUp() {
+        historyService = new FlagHistoryService(mock(FlagStateCheckpointRepository.class), mock(DataSource.class),
+            mock(PlatformTransactionManager.class), new ObjectMapper(), 600, 12);
+    }
+    
+    @Test
+    void replaysLegacyAndDiffEntriesAcrossCheckpoint() {
+        Map<Long, ObjectNode> flags = new HashMap<>();
+        // Before field-level diffs: the whole entity before and after
+        historyService.apply(flags, entry(1L, "CREATE", 0,
+            "{\"old\":null,\"new\":{\"flagKey\":\"checkout\",\"environment\":\"prod\",\"enabled\":false}}"), null);
+        historyService.apply(flags, entry(1L, "ENABLE", 1,
+            "{\"old\":{\"flagKey\":\"checkout\",\"environment\":\"prod\",\"enabled\":false}," +
+            "\"new\":{\"flagKey\":\"checkout\",\"environment\":\"prod\",\"enabled\":true}}"), null);
+        historyService.apply(flags, entry(2L, "CREATE", 2,
+            "{\"old\":null,\"new\":{\"flagKey\":\"search\",\"environment\":\"prod\",\"enabled\":true}}"), null);
+        
+        // Checkpoint and resume from it, as a query after the checkpoint does
+        Map<String, ObjectNode> checkpoints = historyService.checkpointStates(flags);
+        assertEquals(1, checkpoints.size());
+        Map<Long, ObjectNode> restored = new HashMap<>();
+        historyService.readState(checkpoints.get("prod").toString(), restored);
+        assertEquals(flags.keySet(), restored.keySet());
+        assertEquals(flags.get(1L).toString(), restored.get(1L).toString());
+        
+        // Field-level diffs on top of the checkpointed state
+        historyService.apply(restored, entry(1L, "UPDATE", 3,
+            "{\"rolloutPercentage\":{\"old\":null,\"new\":25},\"name\":{\"old\":null,\"new\":\"Checkout\"}}"), "prod");
+        historyService.apply(restored, entry(2L, "DELETE", 4, null), "prod");
+        historyService.apply(restored, entry(3L, "CREATE", 5,
+            "{\"flagKey\":{\"old\":null,\"new\":\"banner\"},\"environment\":{\"old\":null,\"new\":\"prod\"}," +
+            "\"enabled\":{\"old\":null,\"new\":false}}"), "prod");
+        
+        assertEquals(2, restored.size());
+        ObjectNode checkout = restored.get(1L);
+        assertEquals("checkout", checkout.get("flagKey").asText());
+        assertTrue(checkout.get("enabled").asBoolean());
+        assertEquals(25, checkout.get("rolloutPercentage").asInt());
+        assertEquals("Checkout", checkout.get("name").asText());
+        assertEquals(T0.plusSeconds(3).toString(), checkout.get("lastModifiedAt").asText());
+        assertFalse(restored.containsKey(2L));
+        assertEquals("banner", restored.get(3L).get("flagKey").asText());
+    }
+    
+    @Test
+    void ignoresFlagsOfOtherEnvironments() {
+        Map<Long, ObjectNode> flags = new HashMap<>();
+        historyService.apply(flags, entry(1L, "CREATE", 0,
+            "{\"old\":null,\"new\":{\"flagKey\":\"checkout\",\"environment\":\"staging\",\"enabled\":true}}"), "prod");
+        historyService.apply(flags, entry(2L, "CREATE", 1,
+            "{\"flagKey\":{\"old\":null,\"new\":\"search\"},\"environment\":{\"old\":null,\"new\":\"staging\"}}"), "prod");
+        // A diff for a flag not being tracked, e.g. one created before the history starts
+        historyService.apply(flags, entry(3L, "UPDATE", 2, "{\"enabled\":{\"old\":false,\"new\":true}}"), "prod");
+        
+        assertTrue(flags.isEmpty());
+    }
+    
+    @Test
+    void checkpointsEachEnvironmentSeparately() {
+        Map<Long, ObjectNode> flags = new HashMap<>();
+        historyService.apply(flags, entry(1L, "CREATE", 0,
+            "{\"old\":null,\"new\":{\"flagKey\":\"checkout\",\"environment\":\"prod\"}}"), null);
+        historyService.apply(flags, entry(2L, "CREATE", 1,
+            "{\"old\":null,\"new\":{\"flagKey\":\"checkout\",\"environment\":\"staging\"}}"), null);
+        
+        Map<String, ObjectNode> checkpoints = historyService.checkpointStates(flags);
+        
+        assertEquals(2, checkpoints.size());
+        assertTrue(checkpoints.get("prod").has("1"));
+        assertTrue(checkpoints.get("staging").has("2"));
+        assertFalse(checkpoints.get("prod").has("2"));
+    }
+    
+    private static AuditLog entry(Long flagId, String action, int second, String changes) {
+        AuditLog entry = new AuditLog();
+        entry.setEntityType("FeatureFlag");
+        entry.setEntityId(flagId);
+        entry.setAction(action);
+        entry.setUserId("alice");
+        entry.setTimestamp(T0.plusSeconds(second));
+        entry.setChanges(changes);
+        return entry;
+    }
+}
@@ -0,0 +1,203 @@
+package com.atlasflag.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FlagStreamServiceTest {
+    
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FlagStreamService streamService = new FlagStreamService(meterRegistry);
+    
+    @AfterEach
+    void tearDown() {
+        streamService.shutdown();
+    }
+    
+    @Test
+    void deliversEventsInPublicationOrder() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        streamService.subscribe("prod", emitter);
+        
+        for (int i = 0; i < 50; i++) {
+            streamService.broadcast("prod", "{\"sequence\":" + i + "}");
+        }
+        
+        emitter.awaitEvents(51);
+        assertTrue(emitter.events.get(0).contains(":connected"));
+        for (int i = 0; i < 50; i++) {
+            String event = emitter.events.get(i + 1);
+            assertTrue(event.contains("event:" + FlagStreamService.CHANGE_EVENT_NAME), event);
+            assertTrue(event.contains("{\"sequence\":" + i + "}"), event);
+        }
+    }
+    
+    @Test
+    void broadcastOnlyReachesTheEnvironment() throws Exception {
+        RecordingEmitter prod = new RecordingEmitter();
+        RecordingEmitter staging = new RecordingEmitter();
+        streamService.subscribe("prod", prod);
+        streamService.subscribe("staging", staging);
+        
+        streamService.broadcast("prod", "{}");
+        
+        prod.awaitEvents(2);
+        staging.awaitEvents(1);
+        Thread.sleep(50);
+        assertEquals(1, staging.events.size());
+    }
+    
+    @Test
+    void slowSubscriberDoesNotDelayOthers() throws Exception {
+        RecordingEmitter slow = new RecordingEmitter();
+        RecordingEmitter fast = new RecordingEmitter();
+        slow.hold();
+        streamService.subscribe("prod", slow);
+        streamService.subscribe("prod", fast);
+        
+        for (int i = 0; i < 10; i++) {
+            streamService.broadcast("prod", "{}");
+        }
+        
+        fast.awaitEvents(11);
+        assertEquals(0, slow.events.size());
+        slow.release();
+        slow.awaitEvents(11);
+    }
+    
+    @Test
+    void eventsQueuedDuringASendAreDrainedByTheSameSender() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitter.hold();
+        streamService.subscribe("prod", emitter);
+        assertTrue(emitter.sending.await(5, TimeUnit.SECONDS));
+        
+        for (int i = 0; i < 20; i++) {
+            streamService.broadcast("prod", "{\"sequence\":" + i + "}");
+        }
+        emitter.release();
+        
+        emitter.awaitEvents(21);
+        assertEquals(1, emitter.maxConcurrentSends.get());
+        assertTrue(emitter.events.get(20).contains("{\"sequence\":19}"));
+    }
+    
+    @Test
+    void laggingSubscriberIsDisconnected() throws Exception {
+        RecordingEmitter lagging = new RecordingEmitter();
+        lagging.hold();
+        streamService.subscribe("prod", lagging);
+        assertTrue(lagging.sending.await(5, TimeUnit.SECONDS));
+        assertEquals(1.0, subscribers());
+        
+        for (int i = 0; i <= FlagStreamService.MAX_PENDING_EVENTS; i++) {
+            streamService.broadcast("prod", "{}");
+        }
+        
+        assertTrue(lagging.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(0.0, subscribers());
+        lagging.release();
+        streamService.broadcast("prod", "{}");
+        Thread.sleep(50);
+        // Only the send that was in flight when it fell behind; the backlog is discarded
+        assertEquals(1, lagging.events.size());
+    }
+    
+    @Test
+    void failedSendUnsubscribes() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter();
+        emitter.failSends = true;
+        streamService.subscribe("prod", emitter);
+        
+        assertTrue(emitter.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(0.0, subscribers());
+        streamService.broadcast("prod", "{}");
+        assertEquals(0, emitter.events.size());
+    }
+    
+    @Test
+    void heartbeatsReachEverySubscriber() throws Exception {
+        RecordingEmitter prod = new RecordingEmitter();
+        RecordingEmitter staging = new RecordingEmitter();
+        streamService.subscribe("prod", prod);
+        streamService.subscribe("staging", staging);
+        
+        streamService.sendHeartbeats();
+        
+        prod.awaitEvents(2);
+        staging.awaitEvents(2);
+        assertTrue(prod.events.get(1).contains(":heartbeat"));
+        assertFalse(prod.events.get(1).contains("event:"));
+    }
+    
+    private double subscribers() {
+        return meterRegistry.get("atlasflag.stream.subscribers").gauge().value();
+    }
+    
+    /**
+     * Records sent events as SSE text, optionally holding each send until released.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+        
+        final List<String> events = new CopyOnWriteArrayList<>();
+        final CountDownLatch sending = new CountDownLatch(1);
+        final CountDownLatch completed = new CountDownLatch(1);
+        final AtomicInteger maxConcurrentSends = new AtomicInteger();
+        private final AtomicInteger concurrentSends = new AtomicInteger();
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+        volatile boolean failSends;
+        
+        void hold() {
+            gate = new CountDownLatch(1);
+        }
+        
+        void release() {
+            gate.countDown();
+        }
+        
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            maxConcurrentSends.accumulateAndGet(concurrentSends.incrementAndGet(), Math::max);
+            try {
+                sending.countDown();
+                if (failSends) {
+                    throw new IOException("Broken pipe");
+                }
+                gate.await();
+                events.add(builder.build().stream()
+                    .map(part -> part.getData().toString())
+                    .collect(Collectors.joining()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                concurrentSends.decrementAndGet();
+            }
+        }
+        
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+        
+        void awaitEvents(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (events.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(count, events.size());
+        }
+    }
+}
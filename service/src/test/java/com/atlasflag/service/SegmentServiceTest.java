@@ -0,0 +1,128 @@
+package com.atlasflag.service;
+
+import com.atlasflag.core.Segment;
+import com.atlasflag.domain.UserSegment;
+import com.atlasflag.dto.SegmentDTO;
+import com.atlasflag.repository.FeatureFlagRepository;
+import com.atlasflag.repository.UserSegmentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SegmentServiceTest {
+    
+    private static final long SEGMENT_ID = 42L;
+    
+    private final UserSegmentRepository segmentRepository = mock(UserSegmentRepository.class);
+    private final SegmentRegistry segmentRegistry = mock(SegmentRegistry.class);
+    private final AuditService auditService = mock(AuditService.class);
+    private final List<Object[]> updates = new ArrayList<>();
+    private SegmentService segmentService;
+    
+    @BeforeEach
+    void setUp() {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate() {
+            @Override
+            public int update(String sql, Object... args) {
+                updates.add(args);
+                return 1;
+            }
+        };
+        segmentService = new SegmentService(segmentRepository, mock(FeatureFlagRepository.class), segmentRegistry,
+            auditService, jdbcTemplate, mock(PlatformTransactionManager.class));
+        
+        UserSegment segment = new UserSegment();
+        segment.setId(SEGMENT_ID);
+        segment.setSegmentKey("beta-program");
+        segment.setEnvironment("prod");
+        segment.setMemberCount(0);
+        when(segmentRepository.findById(SEGMENT_ID)).thenReturn(Optional.of(segment));
+        when(segmentRepository.saveAndFlush(any(UserSegment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        
+        TransactionSynchronizationManager.initSynchronization();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+    
+    @Test
+    void importStoresDistinctMembersAsSortedHashes() throws IOException {
+        String upload = "alice\n\n  bob  \r\nalice\ncarol\n\u00fcber\n";
+        
+        SegmentDTO result = segmentService.importMembers(SEGMENT_ID,
+            new ByteArrayInputStream(upload.getBytes(StandardCharsets.UTF_8)), "admin");
+        
+        assertEquals(4, result.getMemberCount());
+        assertEquals("admin", result.getUpdatedBy());
+        assertEquals(1, updates.size());
+        assertEquals(SEGMENT_ID, updates.get(0)[0]);
+        
+        Segment stored = Segment.read("beta-program", 1, ByteBuffer.wrap((byte[]) updates.get(0)[1]));
+        assertEquals(4, stored.size());
+        assertTrue(stored.contains("alice"));
+        assertTrue(stored.contains("bob"));
+        assertTrue(stored.contains("carol"));
+        assertTrue(stored.contains("\u00fcber"));
+        assertFalse(stored.contains("  bob  "));
+        assertFalse(stored.contains(""));
+        
+        verify(auditService).logAction(eq("Segment"), eq(SEGMENT_ID), eq("IMPORT"), eq("admin"), anyMap(), anyMap());
+    }
+    
+    @Test
+    void importReloadsSegmentsAfterCommit() throws IOException {
+        segmentService.importMembers(SEGMENT_ID, new ByteArrayInputStream("alice\n".getBytes(StandardCharsets.UTF_8)), "admin");
+        verify(segmentRegistry, never()).refresh();
+        
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        verify(segmentRegistry).refresh();
+    }
+    
+    @Test
+    void importOfNothingEmptiesTheSegment() throws IOException {
+        SegmentDTO result = segmentService.importMembers(SEGMENT_ID, new ByteArrayInputStream(new byte[0]), "admin");
+        
+        assertEquals(0, result.getMemberCount());
+        assertEquals(0, ((byte[]) updates.get(0)[1]).length);
+    }
+    
+    @Test
+    void importIntoUnknownSegmentIsRejected() {
+        when(segmentRepository.findById(7L)).thenReturn(Optional.empty());
+        
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> segmentService.importMembers(7L,
+            new ByteArrayInputStream("alice\n".getBytes(StandardCharsets.UTF_8)), "admin"));
+        
+        assertEquals("Segment not found with id: 7", e.getMessage());
+        assertTrue(updates.isEmpty());
+        verify(auditService, never()).logAction(any(), any(), any(), any(), anyMap(), anyMap());
+    }
+}